@@ -0,0 +1,98 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
+import com.google.cloud.spanner.pgadapter.statements.ExtendedQueryProtocolHandler;
+import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
+import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStatement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import io.opentelemetry.api.OpenTelemetry;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Helper methods for setting up the state of the microbenchmarks. All objects that are created by
+ * this class work on in-memory data, so the benchmarks do not need a Spanner database.
+ */
+public final class BenchmarkHelper {
+
+  private BenchmarkHelper() {}
+
+  /** Creates the options for a server that is used by a benchmark. */
+  public static OptionsMetadata createOptions() {
+    return OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+  }
+
+  /**
+   * Creates a {@link ConnectionHandler} that reads its messages from the given input stream, and
+   * discards all output. The input stream must support mark/reset, so a benchmark can reset the
+   * stream and read the same message again for each invocation.
+   *
+   * <p>The handler does not have a Spanner connection, and its {@link BackendConnection} is a stub
+   * that only returns a session state and a no-op tracer. The handler can therefore only be used
+   * for benchmarks that do not execute any statements.
+   */
+  public static ConnectionHandler createConnectionHandler(
+      OptionsMetadata options, InputStream inputStream) {
+    ProxyServer server = new ProxyServer(options, OpenTelemetry.noop());
+    ConnectionHandler connectionHandler =
+        new ConnectionHandler(server, /* socket = */ null, mock(Connection.class));
+    connectionHandler.setConnectionMetadata(
+        new ConnectionMetadata(inputStream, ByteStreams.nullOutputStream(), false));
+
+    BackendConnection backendConnection = mock(BackendConnection.class, withSettings().stubOnly());
+    when(backendConnection.getSessionState()).thenReturn(new SessionState(options));
+    when(backendConnection.getTracer())
+        .thenReturn(OpenTelemetry.noop().getTracer(BenchmarkHelper.class.getName()));
+    connectionHandler.setExtendedQueryProtocolHandler(
+        new ExtendedQueryProtocolHandler(connectionHandler, backendConnection));
+    return connectionHandler;
+  }
+
+  /**
+   * Creates a portal for the given query that returns its results in the given format. The portal
+   * uses a connection handler that is created by {@link #createConnectionHandler}.
+   */
+  public static IntermediatePortalStatement createPortal(
+      OptionsMetadata options, String sql, FormatCode format) {
+    ConnectionHandler connectionHandler =
+        createConnectionHandler(options, new ByteArrayInputStream(new byte[0]));
+    Statement statement = Statement.of(sql);
+    IntermediatePreparedStatement preparedStatement =
+        new IntermediatePreparedStatement(
+            connectionHandler,
+            options,
+            "",
+            new int[0],
+            AbstractStatementParser.getInstance(Dialect.POSTGRESQL).parse(statement),
+            statement);
+    return preparedStatement.createPortal(
+        "", new byte[0][], ImmutableList.of(), ImmutableList.of((short) format.ordinal()));
+  }
+}
@@ -0,0 +1,100 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the hand-written {@link DateTimeCodec} with the {@link
+ * java.time.format.DateTimeFormatter} based implementation for parsing and formatting the text
+ * representation of timestamps and dates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateTimeCodecBenchmark {
+  /**
+   * The timestamp layout that is parsed. Timestamps without an offset are very common for
+   * parameters that are sent by drivers, and caused an exception for each value with the formatter
+   * based implementation.
+   */
+  @Param({"WITH_OFFSET", "WITHOUT_OFFSET"})
+  String layout;
+
+  @Param({"UTC", "Europe/Amsterdam"})
+  String timezone;
+
+  private ZoneId zoneId;
+  private String timestampText;
+  private Timestamp timestamp;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    zoneId = ZoneId.of(timezone);
+    timestampText =
+        "WITHOUT_OFFSET".equals(layout)
+            ? "2024-03-01 10:15:30.123456"
+            : "2024-03-01 10:15:30.123456+01:00";
+    timestamp = Timestamp.parseTimestamp("2024-03-01T10:15:30.123456Z");
+  }
+
+  @Benchmark
+  public Timestamp parseTimestampCodec() {
+    return TimestampParser.toTimestamp(timestampText, zoneId);
+  }
+
+  @Benchmark
+  public Timestamp parseTimestampFormatter() {
+    return TimestampParser.toTimestampWithFormatter(timestampText, zoneId);
+  }
+
+  @Benchmark
+  public String formatTimestampCodec() {
+    return DateTimeCodec.formatTimestamp(timestamp, zoneId);
+  }
+
+  @Benchmark
+  public String formatTimestampFormatter() {
+    return TimestampParser.toPGStringWithFormatter(timestamp, zoneId);
+  }
+
+  @Benchmark
+  public Date parseDateCodec() {
+    return DateParser.toDate("2024-03-01");
+  }
+
+  @Benchmark
+  public Date parseDate() {
+    return Date.parseDate("2024-03-01");
+  }
+}
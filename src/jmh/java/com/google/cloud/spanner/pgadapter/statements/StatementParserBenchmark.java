@@ -0,0 +1,114 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.statements;
+
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for the SQL parsing that is done by PGAdapter for each statement before it is sent to
+ * Spanner, such as splitting a simple query string into statements and replacing references to
+ * pg_catalog tables with common table expressions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatementParserBenchmark {
+  /** A query that is typical for applications. */
+  private static final String APPLICATION_QUERY =
+      "select p.id, p.name, p.price /* the price in USD */ from products p "
+          + "inner join categories c on p.category_id=c.id "
+          + "where c.name='electronics' and p.price<$1 order by p.name limit 100";
+
+  /** A query that is typical for the metadata queries of drivers and tools. */
+  private static final String CATALOG_QUERY =
+      "SELECT c.relname, a.attname, t.typname FROM pg_catalog.pg_class c "
+          + "JOIN pg_catalog.pg_attribute a ON a.attrelid=c.oid "
+          + "JOIN pg_catalog.pg_type t ON t.oid=a.atttypid "
+          + "JOIN pg_catalog.pg_namespace n ON n.oid=c.relnamespace "
+          + "WHERE n.nspname='public' AND c.relkind='r' ORDER BY c.relname, a.attnum";
+
+  /** A simple query string with multiple statements. */
+  private static final String MULTI_STATEMENT_QUERY =
+      "begin; update products set price=price*1.1 where category_id=1; "
+          + "insert into audit (description) values ('price update; category 1'); commit;";
+
+  @Param({"APPLICATION", "CATALOG", "MULTI_STATEMENT"})
+  String query;
+
+  private String sql;
+  private String lowerCaseSql;
+  private Statement statement;
+  private PgCatalog pgCatalog;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    switch (query) {
+      case "CATALOG":
+        sql = CATALOG_QUERY;
+        break;
+      case "MULTI_STATEMENT":
+        sql = MULTI_STATEMENT_QUERY;
+        break;
+      default:
+        sql = APPLICATION_QUERY;
+    }
+    lowerCaseSql = sql.toLowerCase(Locale.ENGLISH);
+    statement = Statement.of(sql);
+    pgCatalog =
+        new PgCatalog(
+            new SessionState(BenchmarkHelper.createOptions()), WellKnownClient.UNSPECIFIED);
+  }
+
+  @Benchmark
+  public String parseCommand() {
+    return SimpleParser.parseCommand(sql);
+  }
+
+  @Benchmark
+  public List<String> splitStatements() {
+    return new SimpleParser(sql).splitStatements();
+  }
+
+  @Benchmark
+  public Statement replaceForUpdate() {
+    return SimpleParser.replaceForUpdate(statement, lowerCaseSql);
+  }
+
+  @Benchmark
+  public Statement replacePgCatalogTables() {
+    return pgCatalog.replacePgCatalogTables(statement, lowerCaseSql);
+  }
+}
@@ -0,0 +1,177 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for converting rows from Spanner to PostgreSQL DataRow messages. Each invocation
+ * converts all rows of an in-memory {@link ResultSet} with one column of the given type, and the
+ * result is reported as the time per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConverterBenchmark {
+  private static final int ROW_COUNT = 1_000;
+
+  @Param({
+    "BOOL",
+    "BYTES",
+    "DATE",
+    "FLOAT32",
+    "FLOAT64",
+    "INT64",
+    "NUMERIC",
+    "STRING",
+    "TIMESTAMP",
+    "JSONB",
+    "INT64_ARRAY",
+    "STRING_ARRAY"
+  })
+  String type;
+
+  @Param({"TEXT", "BINARY"})
+  FormatCode format;
+
+  private Type rowType;
+  private List<Struct> rows;
+  private OptionsMetadata options;
+  private IntermediatePortalStatement statement;
+  private DataRowBuffer buffer;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Type columnType = getType(type);
+    rowType = Type.struct(StructField.of("col", columnType));
+    rows = new ArrayList<>(ROW_COUNT);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      rows.add(Struct.newBuilder().set("col").to(createValue(type, i)).build());
+    }
+    options = BenchmarkHelper.createOptions();
+    statement = BenchmarkHelper.createPortal(options, "select col from benchmark", format);
+    buffer = new DataRowBuffer();
+  }
+
+  static Type getType(String type) {
+    switch (type) {
+      case "BOOL":
+        return Type.bool();
+      case "BYTES":
+        return Type.bytes();
+      case "DATE":
+        return Type.date();
+      case "FLOAT32":
+        return Type.float32();
+      case "FLOAT64":
+        return Type.float64();
+      case "INT64":
+        return Type.int64();
+      case "NUMERIC":
+        return Type.pgNumeric();
+      case "STRING":
+        return Type.string();
+      case "TIMESTAMP":
+        return Type.timestamp();
+      case "JSONB":
+        return Type.pgJsonb();
+      case "INT64_ARRAY":
+        return Type.array(Type.int64());
+      case "STRING_ARRAY":
+        return Type.array(Type.string());
+      default:
+        throw new IllegalArgumentException("Unknown type: " + type);
+    }
+  }
+
+  static Value createValue(String type, int row) {
+    switch (type) {
+      case "BOOL":
+        return Value.bool(row % 2 == 0);
+      case "BYTES":
+        return Value.bytes(ByteArray.copyFrom("bytes value " + row));
+      case "DATE":
+        return Value.date(Date.fromYearMonthDay(2000 + row % 100, 1 + row % 12, 1 + row % 28));
+      case "FLOAT32":
+        return Value.float32(row * 1.5f);
+      case "FLOAT64":
+        return Value.float64(row * 3.14d);
+      case "INT64":
+        return Value.int64(row * 1_000_003L);
+      case "NUMERIC":
+        return Value.pgNumeric(row + ".123456789");
+      case "STRING":
+        return Value.string("string value " + row);
+      case "TIMESTAMP":
+        return Value.timestamp(
+            Timestamp.ofTimeSecondsAndNanos(1_700_000_000L + row * 3_600L, row * 1_000));
+      case "JSONB":
+        return Value.pgJsonb("{\"id\": " + row + ", \"name\": \"value " + row + "\"}");
+      case "INT64_ARRAY":
+        return Value.int64Array(Arrays.asList((long) row, null, row * 2L));
+      case "STRING_ARRAY":
+        return Value.stringArray(Arrays.asList("value " + row, null, "other value"));
+      default:
+        throw new IllegalArgumentException("Unknown type: " + type);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public int convertResultSetRowToDataRowResponse() throws Exception {
+    int size = 0;
+    try (ResultSet resultSet = ResultSets.forRows(rowType, rows)) {
+      Converter converter =
+          new Converter(statement, QueryMode.EXTENDED, options, resultSet, false, buffer);
+      while (resultSet.next()) {
+        size += converter.convertResultSetRowToDataRowResponse();
+      }
+    }
+    return size;
+  }
+}
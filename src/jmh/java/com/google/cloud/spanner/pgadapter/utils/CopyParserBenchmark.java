@@ -0,0 +1,224 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static com.google.cloud.spanner.pgadapter.statements.CopyToStatement.COPY_BINARY_HEADER;
+
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import com.google.common.collect.ImmutableMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for parsing COPY data. Each invocation parses an in-memory stream with {@link
+ * #ROW_COUNT} rows in the given format, and the result is reported as the time per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CopyParserBenchmark {
+  static final int ROW_COUNT = 10_000;
+
+  /** The columns of the table that the data is copied into. */
+  static final Map<String, Type> TABLE_COLUMNS =
+      ImmutableMap.<String, Type>builder()
+          .put("id", Type.int64())
+          .put("name", Type.string())
+          .put("price", Type.float64())
+          .put("active", Type.bool())
+          .put("created", Type.date())
+          .put("updated", Type.timestamp())
+          .put("amount", Type.pgNumeric())
+          .build();
+
+  private static final Type[] COLUMN_TYPES = TABLE_COLUMNS.values().toArray(new Type[0]);
+
+  @Param({"TEXT", "CSV", "BINARY"})
+  Format format;
+
+  private SessionState sessionState;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    sessionState = new SessionState(BenchmarkHelper.createOptions());
+    data = createCopyData(sessionState, format, ROW_COUNT);
+  }
+
+  static CSVFormat getCsvFormat(Format format) {
+    return format == Format.CSV ? CSVFormat.POSTGRESQL_CSV : CSVFormat.POSTGRESQL_TEXT;
+  }
+
+  /** Creates COPY data with the given number of rows for {@link #TABLE_COLUMNS}. */
+  static byte[] createCopyData(SessionState sessionState, Format format, int rowCount)
+      throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    if (format == Format.BINARY) {
+      writeBinaryCopyData(sessionState, rowCount, result);
+    } else {
+      char delimiter = format == Format.CSV ? ',' : '\t';
+      String quote = format == Format.CSV ? "\"" : "";
+      StringBuilder row = new StringBuilder();
+      for (int i = 0; i < rowCount; i++) {
+        row.setLength(0);
+        row.append(i)
+            .append(delimiter)
+            .append(quote)
+            .append("name ")
+            .append(i)
+            .append(quote)
+            .append(delimiter)
+            .append(i * 3.14d)
+            .append(delimiter)
+            .append(i % 2 == 0 ? 't' : 'f')
+            .append(delimiter)
+            .append(String.format("2024-%02d-%02d", 1 + i % 12, 1 + i % 28))
+            .append(delimiter)
+            .append(
+                String.format(
+                    "2024-%02d-%02d 10:15:30.%06d+00", 1 + i % 12, 1 + i % 28, i % 1_000_000))
+            .append(delimiter)
+            .append(i)
+            .append(".123456789")
+            .append('\n');
+        result.write(row.toString().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return result.toByteArray();
+  }
+
+  /** Writes COPY data in the binary format using the same encoding as COPY TO STDOUT. */
+  private static void writeBinaryCopyData(
+      SessionState sessionState, int rowCount, ByteArrayOutputStream result) throws IOException {
+    List<StructField> fields = new ArrayList<>(TABLE_COLUMNS.size());
+    for (Map.Entry<String, Type> column : TABLE_COLUMNS.entrySet()) {
+      fields.add(StructField.of(column.getKey(), column.getValue()));
+    }
+    List<Struct> rows = new ArrayList<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      rows.add(
+          Struct.newBuilder()
+              .set("id")
+              .to(i)
+              .set("name")
+              .to("name " + i)
+              .set("price")
+              .to(i * 3.14d)
+              .set("active")
+              .to(i % 2 == 0)
+              .set("created")
+              .to(Date.fromYearMonthDay(2024, 1 + i % 12, 1 + i % 28))
+              .set("updated")
+              .to(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L + i, (i % 1_000_000) * 1_000))
+              .set("amount")
+              .to(Value.pgNumeric(i + ".123456789"))
+              .build());
+    }
+    DataOutputStream output = new DataOutputStream(result);
+    output.write(COPY_BINARY_HEADER);
+    output.writeInt(0); // flags
+    output.writeInt(0); // header extension area length
+    DataRowBuffer buffer = new DataRowBuffer();
+    try (ResultSet resultSet = ResultSets.forRows(Type.struct(fields), rows)) {
+      while (resultSet.next()) {
+        buffer.reset();
+        buffer.getOutput().writeShort(resultSet.getColumnCount());
+        for (int column = 0; column < resultSet.getColumnCount(); column++) {
+          Converter.writeToPG(
+              buffer, resultSet, column, DataFormat.POSTGRESQL_BINARY, sessionState);
+        }
+        buffer.writeTo(output);
+      }
+    }
+    output.writeShort(-1);
+  }
+
+  private CopyInParser createParser() throws IOException {
+    return CopyInParser.create(
+        sessionState, format, getCsvFormat(format), new ByteArrayInputStream(data), false);
+  }
+
+  /** Parses all records without converting the values. */
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public int parseRecords() throws IOException {
+    CopyInParser parser = createParser();
+    int columns = 0;
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (iterator.hasNext()) {
+        columns += iterator.next().numColumns();
+      }
+    } finally {
+      parser.close();
+    }
+    return columns;
+  }
+
+  /** Parses all records and converts all values to the type of the column. */
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void parseAndConvertRecords(Blackhole blackhole) throws IOException {
+    CopyInParser parser = createParser();
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (iterator.hasNext()) {
+        CopyRecord record = iterator.next();
+        for (int column = 0; column < COLUMN_TYPES.length; column++) {
+          blackhole.consume(record.getValue(COLUMN_TYPES[column], column));
+        }
+      }
+    } finally {
+      parser.close();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import com.google.cloud.spanner.pgadapter.utils.MutationWriter.CopyTransactionMode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for building the mutations for COPY records. The records are parsed once during the
+ * setup of the benchmark, so the benchmark only measures the conversion of the values and the
+ * creation of the mutations. The text format is not included, as the records of the text parser
+ * are views of the buffer of the parser and cannot be kept after the parser has moved on.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MutationWriterBenchmark {
+  private static final int ROW_COUNT = 1_000;
+
+  @Param({"CSV", "BINARY"})
+  Format format;
+
+  private MutationWriter mutationWriter;
+  private List<CopyRecord> records;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    SessionState sessionState = new SessionState(BenchmarkHelper.createOptions());
+    mutationWriter =
+        new MutationWriter(
+            sessionState,
+            CopyTransactionMode.ImplicitAtomic,
+            mock(Connection.class),
+            "products",
+            CopyParserBenchmark.TABLE_COLUMNS,
+            /* indexedColumnsCount = */ 0,
+            format,
+            CopyParserBenchmark.getCsvFormat(format),
+            false);
+    byte[] data = CopyParserBenchmark.createCopyData(sessionState, format, ROW_COUNT);
+    CopyInParser parser =
+        CopyInParser.create(
+            sessionState,
+            format,
+            CopyParserBenchmark.getCsvFormat(format),
+            new ByteArrayInputStream(data),
+            false);
+    records = new ArrayList<>(ROW_COUNT);
+    Iterator<CopyRecord> iterator = parser.iterator();
+    while (iterator.hasNext()) {
+      records.add(iterator.next());
+    }
+    parser.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void buildMutation(Blackhole blackhole) {
+    for (CopyRecord record : records) {
+      Mutation mutation = mutationWriter.buildMutation(record);
+      blackhole.consume(mutation);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares handing over COPY data from the connection thread to the thread that parses the data
+ * using piped streams and using a {@link QueuedInputStream}. Small chunks are typical for clients
+ * that send one CopyData message per row, such as psql. Each invocation hands over {@link
+ * #TOTAL_BYTES} bytes, and the result is reported as the time per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueuedInputStreamBenchmark {
+  private static final int TOTAL_BYTES = 8 << 20;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  @Param({"128", "65536"})
+  int chunkSize;
+
+  private byte[][] chunks;
+  private ExecutorService executor;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    // The stream does not copy the chunks, so a new array is used for each chunk, just like each
+    // CopyData message has its own payload.
+    chunks = new byte[TOTAL_BYTES / chunkSize][];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = new byte[chunkSize];
+    }
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public long pipedStreams() throws Exception {
+    PipedOutputStream output = new PipedOutputStream();
+    PipedInputStream input = new PipedInputStream(output, BUFFER_SIZE);
+    Future<Long> reader = executor.submit(() -> drain(input));
+    for (byte[] chunk : chunks) {
+      output.write(chunk);
+    }
+    output.close();
+    return reader.get();
+  }
+
+  @Benchmark
+  public long queuedInputStream() throws Exception {
+    QueuedInputStream input = new QueuedInputStream(BUFFER_SIZE);
+    Future<Long> reader = executor.submit(() -> drain(input));
+    for (byte[] chunk : chunks) {
+      input.put(chunk);
+    }
+    input.endOfStream();
+    return reader.get();
+  }
+
+  private static long drain(InputStream inputStream) throws IOException {
+    byte[] buffer = new byte[8192];
+    long total = 0L;
+    int read;
+    while ((read = inputStream.read(buffer)) > -1) {
+      total += read;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static com.google.cloud.spanner.pgadapter.utils.CopyParserBenchmark.ROW_COUNT;
+
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.csv.CSVFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares parsing COPY data in the text format with the dedicated {@link TextCopyParser} and with
+ * the generic {@link CsvCopyParser}. Each invocation parses and converts {@link
+ * CopyParserBenchmark#ROW_COUNT} rows, and the result is reported as the time per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextCopyParserBenchmark {
+  private static final Type[] COLUMN_TYPES =
+      CopyParserBenchmark.TABLE_COLUMNS.values().toArray(new Type[0]);
+
+  @Param({"TEXT", "CSV"})
+  String parserType;
+
+  private SessionState sessionState;
+  private byte[] data;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    sessionState = new SessionState(BenchmarkHelper.createOptions());
+    data = CopyParserBenchmark.createCopyData(sessionState, Format.TEXT, ROW_COUNT);
+  }
+
+  private CopyInParser createParser() throws IOException {
+    ByteArrayInputStream inputStream = new ByteArrayInputStream(data);
+    return parserType.equals("TEXT")
+        ? new TextCopyParser(sessionState, CSVFormat.POSTGRESQL_TEXT, inputStream, false)
+        : new CsvCopyParser(sessionState, CSVFormat.POSTGRESQL_TEXT, inputStream, false);
+  }
+
+  /** Parses all records and converts all values to the type of the column. */
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public void parseAndConvertRecords(Blackhole blackhole) throws IOException {
+    CopyInParser parser = createParser();
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (iterator.hasNext()) {
+        CopyRecord record = iterator.next();
+        for (int column = 0; column < COLUMN_TYPES.length; column++) {
+          blackhole.consume(record.getValue(COLUMN_TYPES[column], column));
+        }
+      }
+    } finally {
+      parser.close();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
+import com.google.cloud.spanner.pgadapter.utils.Converter;
+import com.google.cloud.spanner.pgadapter.wireoutput.DataRowResponse;
+import com.google.common.io.ByteStreams;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares sending a large result with many columns one row at a time with sending the same result
+ * using a {@link PipelinedResultSetSender}. Each invocation sends all {@link #ROW_COUNT} rows of an
+ * in-memory {@link ResultSet} to an output stream that discards all data, and the result is
+ * reported as the time per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelinedResultSetSenderBenchmark {
+  private static final int ROW_COUNT = 2_000;
+
+  @Param({"TEXT", "BINARY"})
+  FormatCode format;
+
+  private Type rowType;
+  private List<Struct> rows;
+  private OptionsMetadata options;
+  private IntermediatePortalStatement statement;
+  private ExecutorService executor;
+  private DataOutputStream output;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    rowType =
+        Type.struct(
+            StructField.of("id", Type.int64()),
+            StructField.of("name", Type.string()),
+            StructField.of("price", Type.float64()),
+            StructField.of("active", Type.bool()),
+            StructField.of("created", Type.date()),
+            StructField.of("updated", Type.timestamp()),
+            StructField.of("amount", Type.pgNumeric()),
+            StructField.of("tags", Type.array(Type.string())),
+            StructField.of("values", Type.array(Type.int64())));
+    rows = new ArrayList<>(ROW_COUNT);
+    for (int i = 0; i < ROW_COUNT; i++) {
+      rows.add(
+          Struct.newBuilder()
+              .set("id")
+              .to(i)
+              .set("name")
+              .to("name " + i)
+              .set("price")
+              .to(i * 3.14d)
+              .set("active")
+              .to(i % 2 == 0)
+              .set("created")
+              .to(Date.fromYearMonthDay(2024, 1 + i % 12, 1 + i % 28))
+              .set("updated")
+              .to(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L + i, (i % 1_000_000) * 1_000))
+              .set("amount")
+              .to(Value.pgNumeric(i + ".123456789"))
+              .set("tags")
+              .toStringArray(Arrays.asList("tag " + i, null, "other tag"))
+              .set("values")
+              .toInt64Array(Arrays.asList((long) i, null, i * 2L))
+              .build());
+    }
+    options = BenchmarkHelper.createOptions();
+    statement = BenchmarkHelper.createPortal(options, "select * from benchmark", format);
+    executor = statement.getConnectionHandler().getServer().getRowEncodingExecutor();
+    output = new DataOutputStream(ByteStreams.nullOutputStream());
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() {
+    executor.shutdown();
+  }
+
+  /** Fetches, encodes and writes each row before fetching the next row. */
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public long sendSequential() throws Exception {
+    long count = 0L;
+    try (ResultSet resultSet = ResultSets.forRows(rowType, rows);
+        Converter converter =
+            new Converter(statement, QueryMode.EXTENDED, options, resultSet, false)) {
+      while (resultSet.next()) {
+        new DataRowResponse(output, converter).send(false);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Encodes batches of rows on the encoder threads while the next rows are being fetched. */
+  @Benchmark
+  @OperationsPerInvocation(ROW_COUNT)
+  public long sendPipelined() throws Exception {
+    try (ResultSet resultSet = ResultSets.forRows(rowType, rows)) {
+      PipelinedResultSetSender sender =
+          new PipelinedResultSetSender(statement, QueryMode.EXTENDED, options, executor, output);
+      return sender.send(resultSet, resultSet.next(), 0L);
+    }
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import com.google.cloud.spanner.pgadapter.BenchmarkHelper;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for decoding the Parse and Bind messages of the extended query protocol. Each
+ * invocation decodes a message from an in-memory stream that contains the message as it is sent by
+ * a client, excluding the message type byte that is read by {@link ControlMessage#create}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireProtocolBenchmark {
+  private static final String STATEMENT_NAME = "stmt";
+  private static final String SQL =
+      "select id, name, price, created_at from products "
+          + "where category=$1 and price<$2 order by name limit $3";
+  /** The OIDs of varchar, float8 and int8. */
+  private static final int[] PARAMETER_TYPES = new int[] {1043, 701, 20};
+
+  @State(Scope.Thread)
+  public static class ParseState {
+    ByteArrayInputStream input;
+    ConnectionHandler connectionHandler;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      input = new ByteArrayInputStream(createParseMessage());
+      connectionHandler =
+          BenchmarkHelper.createConnectionHandler(BenchmarkHelper.createOptions(), input);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class BindState {
+    @Param({"TEXT", "BINARY"})
+    FormatCode format;
+
+    ByteArrayInputStream input;
+    ConnectionHandler connectionHandler;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      byte[] parseMessage = createParseMessage();
+      byte[] bindMessage = createBindMessage(format);
+      byte[] messages = new byte[parseMessage.length + bindMessage.length];
+      System.arraycopy(parseMessage, 0, messages, 0, parseMessage.length);
+      System.arraycopy(bindMessage, 0, messages, parseMessage.length, bindMessage.length);
+      input = new ByteArrayInputStream(messages);
+      connectionHandler =
+          BenchmarkHelper.createConnectionHandler(BenchmarkHelper.createOptions(), input);
+      // Create the prepared statement that is bound by the Bind message, and mark the start of the
+      // Bind message so each invocation can reset the stream to that position.
+      connectionHandler.registerStatement(
+          STATEMENT_NAME, new ParseMessage(connectionHandler).getStatement());
+      input.mark(bindMessage.length);
+    }
+  }
+
+  static byte[] createParseMessage() throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(body);
+    writeString(output, STATEMENT_NAME);
+    writeString(output, SQL);
+    output.writeShort(PARAMETER_TYPES.length);
+    for (int type : PARAMETER_TYPES) {
+      output.writeInt(type);
+    }
+    return withLength(body.toByteArray());
+  }
+
+  static byte[] createBindMessage(FormatCode format) throws IOException {
+    byte[][] parameters;
+    if (format == FormatCode.TEXT) {
+      parameters =
+          new byte[][] {
+            "electronics".getBytes(StandardCharsets.UTF_8),
+            "100.5".getBytes(StandardCharsets.UTF_8),
+            "10".getBytes(StandardCharsets.UTF_8)
+          };
+    } else {
+      parameters =
+          new byte[][] {
+            "electronics".getBytes(StandardCharsets.UTF_8),
+            ByteBuffer.allocate(8).putDouble(100.5d).array(),
+            ByteBuffer.allocate(8).putLong(10L).array()
+          };
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(body);
+    writeString(output, /* portal = */ "");
+    writeString(output, STATEMENT_NAME);
+    // Use one format code for all parameters.
+    output.writeShort(1);
+    output.writeShort(format.ordinal());
+    output.writeShort(parameters.length);
+    for (byte[] parameter : parameters) {
+      output.writeInt(parameter.length);
+      output.write(parameter);
+    }
+    // Use one format code for all result columns.
+    output.writeShort(1);
+    output.writeShort(format.ordinal());
+    return withLength(body.toByteArray());
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    output.write(value.getBytes(StandardCharsets.UTF_8));
+    output.writeByte(0);
+  }
+
+  private static byte[] withLength(byte[] body) {
+    return ByteBuffer.allocate(body.length + 4).putInt(body.length + 4).put(body).array();
+  }
+
+  @Benchmark
+  public ParseMessage decodeParseMessage(ParseState state) throws Exception {
+    state.input.reset();
+    return new ParseMessage(state.connectionHandler);
+  }
+
+  @Benchmark
+  public BindMessage decodeBindMessage(BindState state) throws Exception {
+    state.input.reset();
+    return new BindMessage(state.connectionHandler);
+  }
+}
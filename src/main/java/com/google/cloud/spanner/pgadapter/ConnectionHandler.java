@@ -45,9 +45,12 @@ import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionOptionsCache;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.SslMode;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement;
 import com.google.cloud.spanner.pgadapter.statements.ExtendedQueryProtocolHandler;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
@@ -55,7 +58,11 @@ import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStateme
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import com.google.cloud.spanner.pgadapter.utils.Logging;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
+import com.google.cloud.spanner.pgadapter.utils.SpannerConnectionPool;
 import com.google.cloud.spanner.pgadapter.wireoutput.ErrorResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.TerminateResponse;
@@ -69,6 +76,10 @@ import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.spanner.admin.database.v1.InstanceName;
 import com.google.spanner.v1.DatabaseName;
 import java.io.DataOutputStream;
@@ -113,19 +124,30 @@ public class ConnectionHandler implements Runnable {
   private static final String CHANNEL_PROVIDER_PROPERTY = "CHANNEL_PROVIDER";
 
   private final ProxyServer server;
+  private final Metrics metrics;
+  private final StatementStatistics statementStatistics;
   private Socket socket;
   private final Map<String, IntermediatePreparedStatement> statementsMap = new HashMap<>();
-  private final Cache<String, Future<DescribeResult>> autoDescribedStatementsCache =
+  /**
+   * Auto-describe requests that have been sent by this connection, but that have not yet returned a
+   * result. Completed results are stored in the server-wide {@link DescribeResultCache}, unless
+   * that cache has been disabled. In that case, the results stay in this cache.
+   */
+  private final Cache<String, Future<DescribeResult>> pendingAutoDescribedStatements =
       CacheBuilder.newBuilder()
           .expireAfterWrite(Duration.ofMinutes(30L))
           .maximumSize(5000L)
           .concurrencyLevel(1)
           .build();
+
   private final Map<String, IntermediatePortalStatement> portalsMap = new HashMap<>();
   private static final Map<Integer, ConnectionHandler> CONNECTION_HANDLERS =
       new ConcurrentHashMap<>();
   private volatile ConnectionStatus status = ConnectionStatus.UNAUTHENTICATED;
-  private Thread thread;
+  private volatile Thread thread;
+  /** The name of this handler if it is not bound to a dedicated thread. */
+  private String name;
+
   private final int connectionId;
   private final int secret;
   // Separate the following from the threat ID generator, since PG connection IDs are maximum
@@ -135,6 +157,8 @@ public class ConnectionHandler implements Runnable {
   /** Randomly generated UUID that is included in tracing to identify a connection. */
   private final UUID traceConnectionId = UUID.randomUUID();
 
+  private static final int MAX_REUSABLE_DATA_ROW_BUFFER_SIZE = 1 << 20;
+
   private ConnectionMetadata connectionMetadata;
   private WireMessage message;
   private int invalidMessagesCount;
@@ -151,6 +175,7 @@ public class ConnectionHandler implements Runnable {
 
   private ExtendedQueryProtocolHandler extendedQueryProtocolHandler;
   private CopyStatement activeCopyStatement;
+  private DataRowBuffer dataRowBuffer;
 
   ConnectionHandler(ProxyServer server, Socket socket) {
     this(server, socket, null);
@@ -160,6 +185,8 @@ public class ConnectionHandler implements Runnable {
   @VisibleForTesting
   ConnectionHandler(ProxyServer server, Socket socket, Connection spannerConnection) {
     this.server = server;
+    this.metrics = server.getMetrics();
+    this.statementStatistics = server.getStatementStatistics();
     this.socket = socket;
     this.secret = new SecureRandom().nextInt();
     this.connectionId = incrementingConnectionId.incrementAndGet();
@@ -173,15 +200,40 @@ public class ConnectionHandler implements Runnable {
   }
 
   String getName() {
+    if (name != null) {
+      return name;
+    }
     Preconditions.checkState(
         thread != null, "Cannot get the name of a ConnectionHandler without a thread");
     return thread.getName();
   }
 
+  /**
+   * Sets the name of a handler that is not bound to a dedicated thread. This is used by the
+   * non-blocking front-end, where a handler is executed by different worker threads.
+   */
+  void setName(String name) {
+    this.name = name;
+    logger.log(
+        Level.INFO,
+        () ->
+            String.format(
+                "Connection handler with ID %s created for client %s",
+                name, socket.getInetAddress().getHostAddress()));
+  }
+
   Thread getThread() {
     return this.thread;
   }
 
+  /**
+   * Sets the worker thread that is currently executing this handler. Used by the non-blocking
+   * front-end so that cancel requests interrupt the right thread.
+   */
+  void setActiveThread(Thread thread) {
+    this.thread = thread;
+  }
+
   void setThread(Thread thread) {
     this.thread = thread;
     logger.log(
@@ -199,8 +251,51 @@ public class ConnectionHandler implements Runnable {
 
   @InternalApi
   public void connectToSpanner(String database, @Nullable Credentials credentials) {
-    OptionsMetadata options = getServer().getOptions();
-    String uri = buildConnectionURL(database, options, getServer().getProperties());
+    ConnectionOptions connectionOptions;
+    Connection spannerConnection;
+    if (credentials == null) {
+      // The connection options and the result of the validation of the database are shared by all
+      // connections that use the same database and the credentials of the server. This allows new
+      // connections to an already validated database to skip all remote calls during startup.
+      ConnectionOptionsCache.Entry connectionOptionsEntry =
+          getServer()
+              .getConnectionOptionsCache()
+              .get(database, null, () -> createConnectionOptions(getServer(), database, null));
+      connectionOptions = connectionOptionsEntry.getConnectionOptions();
+      SpannerConnectionPool spannerConnectionPool = getServer().getSpannerConnectionPool();
+      if (spannerConnectionPool != null) {
+        // In transaction pooling mode, the connection only leases a Spanner connection from the
+        // shared pool while it is executing statements or has an active transaction.
+        spannerConnection = spannerConnectionPool.createConnection(connectionOptions);
+      } else {
+        spannerConnection = connectionOptions.getConnection();
+        spannerConnection.setSavepointSupport(SavepointSupport.ENABLED);
+      }
+      if (!connectionOptionsEntry.isValidated()) {
+        validateConnection(spannerConnection, database);
+        connectionOptionsEntry.markValidated();
+      }
+    } else {
+      // Credentials that are given by the client are specific to this connection, and the
+      // connection options are therefore not shared with other connections.
+      connectionOptions = createConnectionOptions(getServer(), database, credentials);
+      spannerConnection = connectionOptions.getConnection();
+      validateConnection(spannerConnection, database);
+      spannerConnection.setSavepointSupport(SavepointSupport.ENABLED);
+    }
+    this.spannerConnection = spannerConnection;
+    this.databaseId = connectionOptions.getDatabaseId();
+    this.extendedQueryProtocolHandler = new ExtendedQueryProtocolHandler(this);
+  }
+
+  /**
+   * Creates the {@link ConnectionOptions} for connecting to the given database with the options of
+   * the given server.
+   */
+  static ConnectionOptions createConnectionOptions(
+      ProxyServer server, String database, @Nullable Credentials credentials) {
+    OptionsMetadata options = server.getOptions();
+    String uri = buildConnectionURL(database, options, server.getProperties());
     ConnectionOptions.Builder connectionOptionsBuilder = ConnectionOptions.newBuilder().setUri(uri);
     connectionOptionsBuilder =
         ConnectionOptionsHelper.maybeAddGrpcLogInterceptor(
@@ -227,8 +322,14 @@ public class ConnectionHandler implements Runnable {
       connectionOptionsBuilder =
           connectionOptionsBuilder.setOpenTelemetry(server.getOpenTelemetry());
     }
-    ConnectionOptions connectionOptions = connectionOptionsBuilder.build();
-    Connection spannerConnection = connectionOptions.getConnection();
+    return connectionOptionsBuilder.build();
+  }
+
+  /**
+   * Verifies that the database of the given connection exists and uses the PostgreSQL dialect. The
+   * connection is closed and an exception is thrown if the connection is not valid.
+   */
+  private void validateConnection(Connection spannerConnection, String database) {
     try {
       // Note: Calling getDialect() will cause a SpannerException if the connection itself is
       // invalid, for example as a result of the credentials being wrong.
@@ -267,10 +368,6 @@ public class ConnectionHandler implements Runnable {
       spannerConnection.close();
       throw e;
     }
-    spannerConnection.setSavepointSupport(SavepointSupport.ENABLED);
-    this.spannerConnection = spannerConnection;
-    this.databaseId = connectionOptions.getDatabaseId();
-    this.extendedQueryProtocolHandler = new ExtendedQueryProtocolHandler(this);
   }
 
   @VisibleForTesting
@@ -374,6 +471,7 @@ public class ConnectionHandler implements Runnable {
   }
 
   enum RunConnectionState {
+    RUNNING,
     RESTART_WITH_SSL,
     TERMINATED
   }
@@ -389,88 +487,134 @@ public class ConnectionHandler implements Runnable {
       this.connectionMetadata = connectionMetadata;
 
       try {
-        this.message = this.server.recordMessage(BootstrapMessage.create(this));
-        if (!ssl
-            && getServer().getOptions().getSslMode().isSslEnabled()
-            && this.message instanceof SSLMessage) {
-          this.message.send();
-          this.connectionMetadata.markForRestart();
-          result = RunConnectionState.RESTART_WITH_SSL;
+        RunConnectionState startState = startConnection(ssl);
+        if (startState == RunConnectionState.RESTART_WITH_SSL) {
+          result = startState;
           return result;
         }
-        // Check whether the connection is valid. That is, the connection satisfies any restrictions
-        // on non-localhost connections and SSL requirements.
-        if (!checkValidConnection(ssl)) {
+        if (startState == RunConnectionState.TERMINATED) {
           return result;
         }
-        this.message.send();
-
-        while (this.status == ConnectionStatus.UNAUTHENTICATED) {
-          try {
-            message.nextHandler();
-            message.send();
-          } catch (EOFException eofException) {
-            // This indicates that the frontend terminated the connection before we got
-            // authenticated. This is in most cases an indication that the frontend killed the
-            // connection after having requested SSL and gotten an SSL denied message.
-            this.status = ConnectionStatus.TERMINATED;
-            break;
-          }
-        }
         while (this.status != ConnectionStatus.TERMINATED) {
           handleMessages();
         }
-      } catch (PGException pgException) {
-        this.handleError(pgException);
       } catch (Exception exception) {
-        this.handleError(
-            PGException.newBuilder(exception)
-                .setSeverity(Severity.FATAL)
-                .setSQLState(SQLState.InternalError)
-                .build());
+        handleConnectionException(exception);
       }
     } catch (Exception e) {
-      logger.log(
-          Level.WARNING,
-          e,
-          () ->
-              String.format(
-                  "Exception on connection handler with ID %s for client %s: %s",
-                  getName(), socket.getInetAddress().getHostAddress(), e));
+      logConnectionException(e);
     } finally {
       if (result != RunConnectionState.RESTART_WITH_SSL) {
-        logger.log(
-            Level.INFO,
-            Logging.format(
-                "RunConnection",
-                () -> String.format("Closing connection handler with ID %s", getName())));
-        try {
-          if (this.spannerConnection != null) {
-            this.spannerConnection.close();
-          }
-          this.socket.close();
-        } catch (SpannerException | IOException e) {
-          logger.log(
-              Level.WARNING,
-              e,
-              Logging.format(
-                  "RunConnection",
-                  () ->
-                      String.format(
-                          "Exception while closing connection handler with ID %s", getName())));
-        } finally {
-          this.server.deregister(this);
-          logger.log(
-              Level.INFO,
-              Logging.format(
-                  "RunConnection",
-                  () -> String.format("Connection handler with ID %s closed", getName())));
-        }
+        closeConnection();
       }
     }
     return result;
   }
 
+  /**
+   * Reads the bootstrap messages from the client and authenticates the connection. Returns RUNNING
+   * if the connection is ready to receive control messages, RESTART_WITH_SSL if the connection
+   * should be restarted with SSL, and TERMINATED if the connection was rejected.
+   */
+  RunConnectionState startConnection(boolean ssl) throws Exception {
+    this.message = this.server.recordMessage(BootstrapMessage.create(this));
+    if (!ssl
+        && getServer().getOptions().getSslMode().isSslEnabled()
+        && this.message instanceof SSLMessage) {
+      this.message.send();
+      this.connectionMetadata.markForRestart();
+      return RunConnectionState.RESTART_WITH_SSL;
+    }
+    // Check whether the connection is valid. That is, the connection satisfies any restrictions
+    // on non-localhost connections and SSL requirements.
+    if (!checkValidConnection(ssl)) {
+      return RunConnectionState.TERMINATED;
+    }
+    this.message.send();
+
+    while (this.status == ConnectionStatus.UNAUTHENTICATED) {
+      try {
+        message.nextHandler();
+        message.send();
+      } catch (EOFException eofException) {
+        // This indicates that the frontend terminated the connection before we got
+        // authenticated. This is in most cases an indication that the frontend killed the
+        // connection after having requested SSL and gotten an SSL denied message.
+        this.status = ConnectionStatus.TERMINATED;
+        break;
+      }
+    }
+    return RunConnectionState.RUNNING;
+  }
+
+  /**
+   * Uses the given {@link ConnectionMetadata} for this connection. This is used by the non-blocking
+   * front-end, which creates its own streams instead of using the streams of the socket.
+   */
+  void setConnectionMetadata(ConnectionMetadata connectionMetadata) {
+    this.connectionMetadata = connectionMetadata;
+  }
+
+  /** Sets the handler for the extended query protocol for a connection that is not started. */
+  @VisibleForTesting
+  void setExtendedQueryProtocolHandler(ExtendedQueryProtocolHandler extendedQueryProtocolHandler) {
+    this.extendedQueryProtocolHandler = extendedQueryProtocolHandler;
+  }
+
+  /** Sends an unexpected exception that was thrown while running the connection to the client. */
+  void handleConnectionException(Exception exception) throws Exception {
+    if (exception instanceof PGException) {
+      this.handleError((PGException) exception);
+    } else {
+      this.handleError(
+          PGException.newBuilder(exception)
+              .setSeverity(Severity.FATAL)
+              .setSQLState(SQLState.InternalError)
+              .build());
+    }
+  }
+
+  void logConnectionException(Exception exception) {
+    logger.log(
+        Level.WARNING,
+        exception,
+        () ->
+            String.format(
+                "Exception on connection handler with ID %s for client %s: %s",
+                getName(), socket.getInetAddress().getHostAddress(), exception));
+  }
+
+  /** Closes the Spanner connection and the socket and deregisters this handler from the server. */
+  void closeConnection() {
+    logger.log(
+        Level.INFO,
+        Logging.format(
+            "RunConnection",
+            () -> String.format("Closing connection handler with ID %s", getName())));
+    try {
+      if (this.spannerConnection != null) {
+        this.spannerConnection.close();
+      }
+      this.socket.close();
+    } catch (SpannerException | IOException e) {
+      logger.log(
+          Level.WARNING,
+          e,
+          Logging.format(
+              "RunConnection",
+              () ->
+                  String.format(
+                      "Exception while closing connection handler with ID %s", getName())));
+    } finally {
+      this.server.deregister(this);
+      logger.log(
+          Level.INFO,
+          Logging.format(
+              "RunConnection",
+              () -> String.format("Connection handler with ID %s closed", getName())));
+    }
+  }
+
   boolean checkValidConnection(boolean ssl) throws Exception {
     // Allow SSL connections from non-localhost even if the localhost check has not explicitly
     // been disabled.
@@ -715,15 +859,94 @@ public class ConnectionHandler implements Runnable {
 
   /**
    * Returns the parameter types of a cached auto-described statement, or null if none is available
-   * in the cache.
+   * in the cache. This method first checks the server-wide cache for completed describe results,
+   * and then any pending describe requests of this connection.
+   */
+  public Future<DescribeResult> getAutoDescribedStatement(String sql, int[] givenParameterTypes) {
+    DescribeResultCache cache = this.server.getDescribeResultCache();
+    if (cache != null) {
+      DescribeResult describeResult = cache.get(this.databaseId, sql, givenParameterTypes);
+      if (describeResult != null) {
+        return Futures.immediateFuture(describeResult);
+      }
+    }
+    return this.pendingAutoDescribedStatements.getIfPresent(sql);
+  }
+
+  /**
+   * Returns the describe result of a prepared statement from the server-wide cache, or null if the
+   * statement is not in the cache. Describe requests that are still in flight are not returned.
    */
-  public Future<DescribeResult> getAutoDescribedStatement(String sql) {
-    return this.autoDescribedStatementsCache.getIfPresent(sql);
+  @Nullable
+  public DescribeResult getCachedDescribeResult(String sql, int[] givenParameterTypes) {
+    DescribeResultCache cache = this.server.getDescribeResultCache();
+    if (cache == null) {
+      return null;
+    }
+    return cache.get(this.databaseId, sql, givenParameterTypes);
+  }
+
+  /**
+   * Adds the describe result of a prepared statement to the server-wide cache once the describe
+   * request has finished successfully. This is a no-op if the server-wide cache has been disabled.
+   */
+  public void cacheDescribeResult(
+      String sql, int[] givenParameterTypes, ListenableFuture<DescribeResult> describeResult) {
+    DescribeResultCache cache = this.server.getDescribeResultCache();
+    if (cache == null) {
+      return;
+    }
+    DatabaseId databaseId = this.databaseId;
+    // Copy the parameter types, as the given array could be modified by the describe result.
+    int[] parameterTypes = givenParameterTypes.clone();
+    Futures.addCallback(
+        describeResult,
+        new FutureCallback<DescribeResult>() {
+          @Override
+          public void onSuccess(DescribeResult result) {
+            cache.put(databaseId, sql, parameterTypes, result);
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {}
+        },
+        MoreExecutors.directExecutor());
   }
 
-  /** Stores the parameter types of an auto-described statement in the cache. */
-  public void registerAutoDescribedStatement(String sql, Future<DescribeResult> describeResult) {
-    this.autoDescribedStatementsCache.put(sql, describeResult);
+  /**
+   * Registers a pending describe request for an auto-described statement, so other statements on
+   * this connection with the same SQL string can use the result before it has been added to the
+   * server-wide cache. The server-wide cache itself is populated by {@link #cacheDescribeResult}.
+   * The request is removed from this connection once it has failed, or once it has finished
+   * successfully and the result has been shared through the server-wide cache. Results that cannot
+   * be shared with other connections are kept by this connection.
+   */
+  public void registerAutoDescribedStatement(
+      String sql,
+      int[] givenParameterTypes,
+      Future<DescribeResult> describeResult,
+      boolean shared) {
+    this.pendingAutoDescribedStatements.put(sql, describeResult);
+    if (!(describeResult instanceof ListenableFuture)) {
+      return;
+    }
+    boolean keepResult = !shared || this.server.getDescribeResultCache() == null;
+    Futures.addCallback(
+        (ListenableFuture<DescribeResult>) describeResult,
+        new FutureCallback<DescribeResult>() {
+          @Override
+          public void onSuccess(DescribeResult result) {
+            if (!keepResult) {
+              pendingAutoDescribedStatements.asMap().remove(sql, describeResult);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            pendingAutoDescribedStatements.asMap().remove(sql, describeResult);
+          }
+        },
+        MoreExecutors.directExecutor());
   }
 
   public void closeStatement(String statementName) {
@@ -761,6 +984,20 @@ public class ConnectionHandler implements Runnable {
     return this.server;
   }
 
+  /**
+   * Returns the buffer that is used to encode rows for this connection. The buffer is reused for
+   * all queries on this connection, and may only be used by the thread that handles the connection.
+   * A buffer that has grown larger than {@link #MAX_REUSABLE_DATA_ROW_BUFFER_SIZE} bytes is
+   * replaced by a new buffer, so a single large row does not keep a large buffer alive.
+   */
+  public DataRowBuffer getDataRowBuffer() {
+    if (this.dataRowBuffer == null
+        || this.dataRowBuffer.capacity() > MAX_REUSABLE_DATA_ROW_BUFFER_SIZE) {
+      this.dataRowBuffer = new DataRowBuffer();
+    }
+    return this.dataRowBuffer;
+  }
+
   public Connection getSpannerConnection() {
     return this.spannerConnection;
   }
@@ -814,6 +1051,37 @@ public class ConnectionHandler implements Runnable {
     return connectionMetadata;
   }
 
+  /** Records the latency in nanoseconds of one phase of handling a message or statement. */
+  public void recordPhaseLatency(Phase phase, long nanos) {
+    if (metrics != null) {
+      metrics.recordPhaseLatency(phase, nanos);
+    }
+  }
+
+  /**
+   * Records the number of rows that have been sent to the client for one statement, both in the
+   * metrics and in the statistics of the statement.
+   */
+  public void recordRowsSent(String sql, long rows) {
+    if (metrics != null) {
+      metrics.recordRowsSent(rows);
+    }
+    if (statementStatistics != null) {
+      statementStatistics.addRows(sql, rows);
+    }
+  }
+
+  /**
+   * Records the number of bytes that have been sent to and received from the client since the last
+   * time that this method was called.
+   */
+  public void recordBytesSentAndReceived() {
+    if (metrics != null && connectionMetadata != null) {
+      metrics.recordBytesSent(connectionMetadata.getUnreportedBytesSent());
+      metrics.recordBytesReceived(connectionMetadata.getUnreportedBytesReceived());
+    }
+  }
+
   public ExtendedQueryProtocolHandler getExtendedQueryProtocolHandler() {
     return extendedQueryProtocolHandler;
   }
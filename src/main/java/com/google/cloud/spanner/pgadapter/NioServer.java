@@ -0,0 +1,372 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.ConnectionStatus;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.RunConnectionState;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.utils.ChannelOutputStream;
+import com.google.cloud.spanner.pgadapter.utils.ChannelOutputStream.BufferPool;
+import com.google.cloud.spanner.pgadapter.utils.MessageBatchFramer;
+import com.google.cloud.spanner.pgadapter.utils.QueuedInputStream;
+import com.google.cloud.spanner.pgadapter.utils.QueuedInputStream.ChunkPool;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking front-end for TCP connections. A single selector thread accepts all connections on a
+ * server socket and reads all incoming data. The data is framed into PostgreSQL messages, and a
+ * connection is only handed to a worker thread once it has received a complete batch of messages
+ * (e.g. a sequence of extended query protocol messages that ends with a Sync). The worker thread is
+ * returned to the pool when all complete batches have been processed. Idle connections therefore do
+ * not occupy a thread, and do not hold any input or output buffers.
+ *
+ * <p>Each connection is processed by at most one worker thread at any time. The worker uses the
+ * same {@link ConnectionHandler} logic as the blocking front-end, and reads from a {@link
+ * QueuedInputStream} that blocks if a message is incomplete. This ensures that sub-protocols that
+ * read messages inline, such as COPY, continue to work.
+ *
+ * <p>The number of worker threads is bounded by {@link OptionsMetadata#getNioWorkerThreads()}.
+ * Connections that have a complete batch of messages wait in a queue when all workers are busy. New
+ * connections are started and authenticated by a separate pool of the same size, as authentication
+ * blocks the thread until the client has sent its password. A burst of new connections therefore
+ * does not block the connections that have already been started.
+ */
+class NioServer {
+  private static final Logger logger = Logger.getLogger(NioServer.class.getName());
+
+  /**
+   * The size of the buffer that the selector thread uses to read data from a socket, and of the
+   * pooled chunks that the data is copied into.
+   */
+  private static final int READ_BUFFER_SIZE = 1 << 16;
+  /** The time after which an idle worker thread is stopped. */
+  private static final long WORKER_KEEP_ALIVE_SECONDS = 60L;
+  /** The maximum number of unprocessed bytes that is buffered for a single connection. */
+  private static final int MAX_BUFFERED_INPUT_BYTES = 1 << 20;
+  /** The size of the output buffers that are borrowed by connections that send data. */
+  private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+  private final ProxyServer server;
+  private final ServerSocketChannel serverChannel;
+  private final ThreadPoolExecutor startupWorkers;
+  private final ThreadPoolExecutor workers;
+  private final BufferPool bufferPool = new BufferPool(OUTPUT_BUFFER_SIZE);
+  private final ChunkPool chunkPool = new ChunkPool(READ_BUFFER_SIZE);
+  private final ConcurrentLinkedQueue<NioConnection> resumeQueue = new ConcurrentLinkedQueue<>();
+  private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+  private final Selector selector;
+  private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+
+  NioServer(ProxyServer server, ServerSocketChannel serverChannel, ThreadFactory threadFactory)
+      throws IOException {
+    this.server = server;
+    this.serverChannel = serverChannel;
+    int workerThreads = server.getOptions().getNioWorkerThreads();
+    this.startupWorkers = createWorkerPool(workerThreads, threadFactory);
+    this.workers = createWorkerPool(workerThreads, threadFactory);
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Creates a pool with at most the given number of threads. Tasks are queued when all threads are
+   * busy, and threads are stopped when they have been idle for a while.
+   */
+  private static ThreadPoolExecutor createWorkerPool(int threads, ThreadFactory threadFactory) {
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            WORKER_KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory);
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  @VisibleForTesting
+  int getLargestWorkerPoolSize() {
+    return Math.max(startupWorkers.getLargestPoolSize(), workers.getLargestPoolSize());
+  }
+
+  @VisibleForTesting
+  ChunkPool getChunkPool() {
+    return chunkPool;
+  }
+
+  /**
+   * Runs the selector loop until the server socket has been closed and all connections have been
+   * closed. Existing connections continue to be served after the server socket has been closed, so
+   * a SMART shutdown can wait for clients to disconnect.
+   */
+  void run(CountDownLatch startupLatch, CountDownLatch stoppedLatch) throws IOException {
+    try {
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+      startupLatch.countDown();
+      server.awaitRunning();
+      while (serverChannel.isOpen() || !connections.isEmpty()) {
+        selector.select(1000L);
+        if (!serverChannel.isOpen()) {
+          endClosedConnections();
+        }
+        resumePendingConnections();
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+          SelectionKey key = iterator.next();
+          iterator.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+          } else if (key.isReadable()) {
+            read(key);
+          }
+        }
+      }
+    } catch (ClosedSelectorException ignore) {
+      // This is a normal and expected exception when the server is shutting down.
+    } finally {
+      logger.log(Level.INFO, () -> String.format("Socket %s stopped", serverChannel));
+      closeAllConnections();
+      startupWorkers.shutdown();
+      workers.shutdown();
+      stoppedLatch.countDown();
+    }
+  }
+
+  /** Wakes up the selector thread so it notices that the server socket has been closed. */
+  void wakeup() {
+    selector.wakeup();
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    Socket socket = channel.socket();
+    // Turn on TCP_NODELAY to optimize for chatty protocol that prefers low latency.
+    socket.setTcpNoDelay(true);
+    ConnectionHandler handler = new ConnectionHandler(server, socket);
+    server.register(handler);
+    handler.setName("ConnectionHandler-nio-" + handler.getConnectionId());
+    NioConnection connection = new NioConnection(handler, channel);
+    connections.add(connection);
+    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+  }
+
+  private void read(SelectionKey key) {
+    NioConnection connection = (NioConnection) key.attachment();
+    SocketChannel channel = (SocketChannel) key.channel();
+    int read;
+    ((Buffer) readBuffer).clear();
+    try {
+      read = channel.read(readBuffer);
+    } catch (IOException ioException) {
+      read = -1;
+    }
+    if (read == -1) {
+      key.cancel();
+      connection.endOfStream();
+      return;
+    }
+    if (read == 0) {
+      return;
+    }
+    ((Buffer) readBuffer).flip();
+    if (!connection.received(readBuffer)) {
+      // Apply back-pressure to the client until the worker has processed the buffered data.
+      key.interestOps(0);
+    }
+  }
+
+  private void resumePendingConnections() {
+    NioConnection connection;
+    while ((connection = resumeQueue.poll()) != null) {
+      if (connection.key != null && connection.key.isValid()) {
+        connection.key.interestOps(SelectionKey.OP_READ);
+      }
+    }
+  }
+
+  /**
+   * Signals end-of-stream to all connections whose socket has been closed by the server, for
+   * example during a FAST shutdown. The selector does not report events for channels that have been
+   * closed.
+   */
+  private void endClosedConnections() {
+    for (NioConnection connection : connections) {
+      if (!connection.channel.isOpen()) {
+        connection.endOfStream();
+      }
+    }
+  }
+
+  private void closeAllConnections() {
+    for (NioConnection connection : connections) {
+      connection.endOfStream();
+    }
+    try {
+      selector.close();
+    } catch (ClosedSelectorException | IOException ignore) {
+      // Ignore, the server is shutting down.
+    }
+  }
+
+  /** A single client connection that is served by the non-blocking front-end. */
+  @VisibleForTesting
+  class NioConnection implements Runnable {
+    private final ConnectionHandler handler;
+    private final SocketChannel channel;
+    private final MessageBatchFramer framer = new MessageBatchFramer();
+    private final QueuedInputStream input;
+    private final ChannelOutputStream output;
+    private SelectionKey key;
+    private boolean dispatched;
+    private boolean started;
+
+    NioConnection(ConnectionHandler handler, SocketChannel channel) {
+      this.handler = handler;
+      this.channel = channel;
+      this.input =
+          new QueuedInputStream(
+              MAX_BUFFERED_INPUT_BYTES,
+              chunkPool,
+              () -> {
+                resumeQueue.add(this);
+                selector.wakeup();
+              });
+      this.output = new ChannelOutputStream(channel, bufferPool);
+    }
+
+    /**
+     * Copies the given data to the input of this connection and dispatches the connection to a
+     * worker if it has a complete batch of messages. Returns false if the selector should stop
+     * reading data for this connection until the worker has caught up.
+     */
+    synchronized boolean received(ByteBuffer data) {
+      framer.feed(data);
+      boolean keepReading = input.append(data);
+      maybeDispatch();
+      return keepReading;
+    }
+
+    synchronized void endOfStream() {
+      input.endOfStream();
+      maybeDispatch();
+    }
+
+    private void maybeDispatch() {
+      if (!dispatched && (hasCompleteBatch() || input.isEndOfStream())) {
+        dispatched = true;
+        (started ? workers : startupWorkers).execute(this);
+      }
+    }
+
+    private boolean hasCompleteBatch() {
+      return framer.getCompleteBatchEnd() > input.getPosition();
+    }
+
+    /**
+     * Hands the connection from the startup pool to the regular worker pool once it has been
+     * started.
+     */
+    private synchronized void started() {
+      started = true;
+      handler.setActiveThread(null);
+      dispatched = false;
+      maybeDispatch();
+    }
+
+    /**
+     * Returns the worker thread to the pool if there are no more complete batches to process.
+     * Returns true if the worker should continue.
+     */
+    private synchronized boolean continueOrRelease() {
+      if (hasCompleteBatch() || input.isEndOfStream()) {
+        return true;
+      }
+      handler.setActiveThread(null);
+      dispatched = false;
+      return false;
+    }
+
+    @Override
+    public void run() {
+      handler.setActiveThread(Thread.currentThread());
+      try {
+        if (!started) {
+          handler.setConnectionMetadata(new ConnectionMetadata(input, output, false));
+          if (handler.startConnection(false) != RunConnectionState.RUNNING) {
+            close();
+            return;
+          }
+          started();
+          return;
+        }
+        while (handler.getStatus() != ConnectionStatus.TERMINATED) {
+          if (!continueOrRelease()) {
+            return;
+          }
+          handler.handleMessages();
+        }
+      } catch (Exception exception) {
+        try {
+          handler.handleConnectionException(exception);
+        } catch (Exception sendException) {
+          handler.logConnectionException(sendException);
+        }
+      }
+      close();
+    }
+
+    private void close() {
+      try {
+        handler.getConnectionMetadata().close();
+      } catch (Exception exception) {
+        handler.logConnectionException(exception);
+      } finally {
+        input.close();
+        handler.closeConnection();
+        connections.remove(this);
+        handler.setActiveThread(null);
+      }
+    }
+  }
+}
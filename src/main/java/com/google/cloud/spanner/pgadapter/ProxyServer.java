@@ -16,27 +16,44 @@ package com.google.cloud.spanner.pgadapter;
 
 import com.google.api.core.AbstractApiService;
 import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.ThreadFactoryUtil;
 import com.google.cloud.spanner.connection.SpannerPool;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.metadata.CatalogResultCache;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionOptionsCache;
+import com.google.cloud.spanner.pgadapter.metadata.CopySchemaCache;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.TextFormat;
+import com.google.cloud.spanner.pgadapter.metadata.SqlRewriteCache;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.cloud.spanner.pgadapter.utils.MetricsEndpoint;
+import com.google.cloud.spanner.pgadapter.utils.SpannerConnectionPool;
 import com.google.cloud.spanner.pgadapter.wireprotocol.WireMessage;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Tracer;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -52,6 +69,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.newsclub.net.unix.AFUNIXServerSocket;
 import org.newsclub.net.unix.AFUNIXSocketAddress;
 
@@ -65,6 +83,27 @@ public class ProxyServer extends AbstractApiService {
   private final OptionsMetadata options;
   private final OpenTelemetry openTelemetry;
   private final Metrics metrics;
+  private final DescribeResultCache describeResultCache;
+  private final CatalogResultCache catalogResultCache;
+  private final SqlRewriteCache sqlRewriteCache;
+  private final StatementStatistics statementStatistics = new StatementStatistics();
+  private final ConnectionOptionsCache connectionOptionsCache = new ConnectionOptionsCache();
+  private final CopySchemaCache copySchemaCache = new CopySchemaCache();
+  /** The shared pool of Spanner connections. Only set if transaction pooling is enabled. */
+  @Nullable private final SpannerConnectionPool spannerConnectionPool;
+  /** Executor for encoding rows in pipelined mode. This executor is created when it is needed. */
+  private ExecutorService rowEncodingExecutor;
+
+  private ExecutorService partitionExecutor;
+  /** Executor for queries in a query pipeline. This executor is created when it is needed. */
+  private ExecutorService queryPipelineExecutor;
+  /** Executor for COPY statements. This executor is created when it is needed. */
+  private ListeningExecutorService copyExecutor;
+  /** The warm-up of the databases of this server. Only set if warm-up is enabled. */
+  private ServerWarmup serverWarmup;
+
+  private MetricsEndpoint metricsEndpoint;
+
   private final Properties properties;
   private final List<ConnectionHandler> handlers = new LinkedList<>();
 
@@ -79,6 +118,8 @@ public class ProxyServer extends AbstractApiService {
    * of each type.
    */
   private final List<ServerSocket> serverSockets = Collections.synchronizedList(new LinkedList<>());
+  /** The non-blocking front-ends that are used for TCP connections if NIO has been enabled. */
+  private final List<NioServer> nioServers = Collections.synchronizedList(new LinkedList<>());
 
   private int localPort;
 
@@ -157,6 +198,20 @@ public class ProxyServer extends AbstractApiService {
         optionsMetadata.isEnableOpenTelemetryMetrics()
             ? new Metrics(openTelemetry)
             : new Metrics(OpenTelemetry.noop());
+    this.describeResultCache =
+        optionsMetadata.getDescribeCacheSizeMb() > 0
+            ? new DescribeResultCache(this.metrics, optionsMetadata.getDescribeCacheSizeMb())
+            : null;
+    this.sqlRewriteCache = new SqlRewriteCache(this.metrics);
+    this.catalogResultCache =
+        optionsMetadata.getCatalogCacheTtlSeconds() > 0
+            ? new CatalogResultCache(
+                this.metrics, Duration.ofSeconds(optionsMetadata.getCatalogCacheTtlSeconds()))
+            : null;
+    this.spannerConnectionPool =
+        optionsMetadata.isTransactionPooling()
+            ? new SpannerConnectionPool(optionsMetadata.getTransactionPoolSize())
+            : null;
     this.localPort = optionsMetadata.getProxyPort();
     this.properties = properties;
     this.debugMode = optionsMetadata.isDebugMode();
@@ -187,6 +242,18 @@ public class ProxyServer extends AbstractApiService {
   @Override
   protected void doStart() {
     try {
+      if (options.isUseNioFrontEnd() && options.getSslMode().isSslEnabled()) {
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.INVALID_ARGUMENT,
+            "The NIO front-end cannot be used in combination with SSL. "
+                + "Either disable SSL or disable the NIO front-end.");
+      }
+      if (!options.getWarmupDatabases().isEmpty()) {
+        // Warm up the databases before opening any server sockets. This ensures that the server
+        // only accepts connections when the warm-up has finished.
+        this.serverWarmup = new ServerWarmup(this);
+        this.serverWarmup.run();
+      }
       ImmutableList.Builder<ServerRunnable> serverSocketsBuilder = ImmutableList.builder();
       boolean allowRemoteConnections =
           options.disableLocalhostCheck() || options.getSslMode().isSslEnabled();
@@ -206,6 +273,10 @@ public class ProxyServer extends AbstractApiService {
       if (options.isDomainSocketEnabled()) {
         serverSocketsBuilder.add(this::runDomainSocketServer);
       }
+      if (options.getMetricsPort() > 0) {
+        this.metricsEndpoint =
+            MetricsEndpoint.start(this.metrics.getLocalMetrics(), options.getMetricsPort());
+      }
       ImmutableList<ServerRunnable> serverRunnables = serverSocketsBuilder.build();
       CountDownLatch startupLatch = new CountDownLatch(serverRunnables.size());
       CountDownLatch stoppedLatch = new CountDownLatch(serverRunnables.size());
@@ -231,6 +302,10 @@ public class ProxyServer extends AbstractApiService {
       }
       try {
         if (startupLatch.await(options.getStartupTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+          if (options.getReadinessFile() != null) {
+            Files.write(
+                Paths.get(options.getReadinessFile()), "ready\n".getBytes(StandardCharsets.UTF_8));
+          }
           notifyStarted();
         } else {
           throw SpannerExceptionFactory.newSpannerException(
@@ -247,6 +322,9 @@ public class ProxyServer extends AbstractApiService {
   @Override
   protected void doStop() {
     logger.log(Level.INFO, "Stopping server using shutdown mode {0}", this.shutdownMode.get());
+    if (this.metricsEndpoint != null) {
+      this.metricsEndpoint.stop();
+    }
     for (ServerSocket serverSocket : this.serverSockets) {
       try {
         logger.log(
@@ -261,6 +339,11 @@ public class ProxyServer extends AbstractApiService {
             () -> String.format("Closing server socket %s failed: %s", serverSocket, exception));
       }
     }
+    synchronized (this.nioServers) {
+      for (NioServer nioServer : this.nioServers) {
+        nioServer.wakeup();
+      }
+    }
     if (this.shutdownMode.get() == ShutdownMode.SMART) {
       try {
         waitForAllConnectionsToTerminate();
@@ -273,6 +356,9 @@ public class ProxyServer extends AbstractApiService {
     } else {
       terminateAllConnectionHandlers();
     }
+    if (this.spannerConnectionPool != null) {
+      this.spannerConnectionPool.close();
+    }
     try {
       // Do a shoot-and-forget close of the underlying Spanner pool.
       ExecutorService service = Executors.newSingleThreadExecutor(threadFactory);
@@ -286,6 +372,30 @@ public class ProxyServer extends AbstractApiService {
       }
     } catch (Throwable ignore) {
     }
+    synchronized (this) {
+      if (this.rowEncodingExecutor != null) {
+        this.rowEncodingExecutor.shutdown();
+      }
+      if (this.partitionExecutor != null) {
+        this.partitionExecutor.shutdown();
+      }
+      if (this.queryPipelineExecutor != null) {
+        this.queryPipelineExecutor.shutdown();
+      }
+      if (this.copyExecutor != null) {
+        this.copyExecutor.shutdown();
+      }
+    }
+    if (this.serverWarmup != null) {
+      this.serverWarmup.close();
+    }
+    if (options.getReadinessFile() != null) {
+      try {
+        Files.deleteIfExists(Paths.get(options.getReadinessFile()));
+      } catch (IOException ioException) {
+        logger.log(Level.WARNING, "Failed to delete readiness file", ioException);
+      }
+    }
     if (openTelemetry instanceof Closeable) {
       try {
         ((Closeable) openTelemetry).close();
@@ -353,6 +463,10 @@ public class ProxyServer extends AbstractApiService {
       throw SpannerExceptionFactory.newSpannerException(
           ErrorCode.DEADLINE_EXCEEDED, "Timeout while waiting for TCP server to start");
     }
+    if (options.isUseNioFrontEnd()) {
+      runNioTcpServer(address, startupLatch, stoppedLatch);
+      return;
+    }
     ServerSocket tcpSocket =
         new ServerSocket(
             this.localPort == 0 ? this.options.getProxyPort() : this.localPort,
@@ -366,6 +480,23 @@ public class ProxyServer extends AbstractApiService {
     runServer(tcpSocket, startupLatch, stoppedLatch);
   }
 
+  /** Opens a non-blocking TCP server socket and runs a selector loop for all its connections. */
+  private void runNioTcpServer(
+      InetAddress address, CountDownLatch startupLatch, CountDownLatch stoppedLatch)
+      throws IOException {
+    ServerSocketChannel channel = ServerSocketChannel.open();
+    channel.bind(
+        new InetSocketAddress(
+            address, this.localPort == 0 ? this.options.getProxyPort() : this.localPort),
+        this.options.getMaxBacklog());
+    this.serverSockets.add(channel.socket());
+    this.localPort = channel.socket().getLocalPort();
+    NioServer nioServer = new NioServer(this, channel, threadFactory);
+    this.nioServers.add(nioServer);
+    tcpStartedLatch.countDown();
+    nioServer.run(startupLatch, stoppedLatch);
+  }
+
   void runDomainSocketServer(CountDownLatch startupLatch, CountDownLatch stoppedLatch)
       throws IOException, InterruptedException {
     // Wait until the TCP server has started if it is using a dynamic port, so we can get the port
@@ -445,6 +576,13 @@ public class ProxyServer extends AbstractApiService {
     }
   }
 
+  /** Returns an immutable copy of the non-blocking front-ends of this server. */
+  ImmutableList<NioServer> getNioServers() {
+    synchronized (this.nioServers) {
+      return ImmutableList.copyOf(this.nioServers);
+    }
+  }
+
   private void createConnectionHandlersTerminatedLatch() {
     synchronized (this.handlers) {
       this.allHandlersTerminatedLatch.set(new CountDownLatch(handlers.isEmpty() ? 0 : 1));
@@ -456,10 +594,11 @@ public class ProxyServer extends AbstractApiService {
    *
    * @param handler The handler currently in use.
    */
-  private void register(ConnectionHandler handler) {
+  void register(ConnectionHandler handler) {
     synchronized (this.handlers) {
       this.handlers.add(handler);
     }
+    this.metrics.recordConnectionOpened();
   }
 
   /**
@@ -469,7 +608,9 @@ public class ProxyServer extends AbstractApiService {
    */
   void deregister(ConnectionHandler handler) {
     synchronized (this.handlers) {
-      this.handlers.remove(handler);
+      if (this.handlers.remove(handler)) {
+        this.metrics.recordConnectionClosed();
+      }
       if (this.handlers.isEmpty() && this.allHandlersTerminatedLatch.get() != null) {
         this.allHandlersTerminatedLatch.get().countDown();
       }
@@ -494,6 +635,150 @@ public class ProxyServer extends AbstractApiService {
     return this.metrics;
   }
 
+  /** Returns the local metrics endpoint of this server, or null if it has not been enabled. */
+  @Nullable
+  public MetricsEndpoint getMetricsEndpoint() {
+    return this.metricsEndpoint;
+  }
+
+  /**
+   * Returns the server-wide cache for auto-described statements. This cache is shared by all
+   * connections. Returns null if the cache has been disabled.
+   */
+  @Nullable
+  public DescribeResultCache getDescribeResultCache() {
+    return this.describeResultCache;
+  }
+
+  /**
+   * Returns the server-wide cache for the rewritten SQL strings of statements. This cache is shared
+   * by all connections.
+   */
+  public SqlRewriteCache getSqlRewriteCache() {
+    return this.sqlRewriteCache;
+  }
+
+  /**
+   * Returns the server-wide statistics of the statements that have been executed by all
+   * connections. These are returned by the pg_stat_statements view.
+   */
+  public StatementStatistics getStatementStatistics() {
+    return this.statementStatistics;
+  }
+
+  /**
+   * Returns the server-wide cache for the results of catalog queries, or null if the cache has not
+   * been enabled. This cache is shared by all connections.
+   */
+  @Nullable
+  public CatalogResultCache getCatalogResultCache() {
+    return this.catalogResultCache;
+  }
+
+  /**
+   * Returns the server-wide cache for the connection options and validation results of the
+   * databases that clients connect to. This cache is shared by all connections.
+   */
+  public ConnectionOptionsCache getConnectionOptionsCache() {
+    return this.connectionOptionsCache;
+  }
+
+  /**
+   * Returns the server-wide cache for the table metadata of COPY ... FROM STDIN statements. This
+   * cache is shared by all connections.
+   */
+  public CopySchemaCache getCopySchemaCache() {
+    return this.copySchemaCache;
+  }
+
+  /**
+   * Returns the server-wide pool of Spanner connections that is used in transaction pooling mode,
+   * or null if transaction pooling is not enabled.
+   */
+  @Nullable
+  public SpannerConnectionPool getSpannerConnectionPool() {
+    return this.spannerConnectionPool;
+  }
+
+  /**
+   * Returns the shared executor that is used to encode rows when a query result is sent using a
+   * pipeline. The executor uses a fixed number of threads equal to the number of available
+   * processors, as encoding rows is CPU bound.
+   */
+  public synchronized ExecutorService getRowEncodingExecutor() {
+    if (this.rowEncodingExecutor == null) {
+      this.rowEncodingExecutor =
+          Executors.newFixedThreadPool(
+              Runtime.getRuntime().availableProcessors(),
+              ThreadFactoryUtil.createVirtualOrPlatformDaemonThreadFactory(
+                  "pgadapter-row-encoder", false));
+    }
+    return this.rowEncodingExecutor;
+  }
+
+  /**
+   * Returns the shared executor that is used to execute the partitions of partitioned queries, such
+   * as COPY TO STDOUT. The partitions of a query block while a slow client reads the results, and
+   * the number of threads of this executor is therefore not limited. Instead, each query limits the
+   * number of partitions that it executes at the same time.
+   */
+  public synchronized ExecutorService getPartitionExecutor() {
+    if (this.partitionExecutor == null) {
+      this.partitionExecutor =
+          Executors.newCachedThreadPool(
+              ThreadFactoryUtil.createVirtualOrPlatformDaemonThreadFactory(
+                  "pgadapter-partition", false));
+    }
+    return this.partitionExecutor;
+  }
+
+  /**
+   * Returns the shared executor that is used to execute the queries of a query pipeline
+   * concurrently. The threads of this executor wait for the first results of the queries from
+   * Spanner, and the executor therefore uses more threads than the number of available processors.
+   */
+  public synchronized ExecutorService getQueryPipelineExecutor() {
+    if (this.queryPipelineExecutor == null) {
+      this.queryPipelineExecutor =
+          Executors.newFixedThreadPool(
+              8 * Runtime.getRuntime().availableProcessors(),
+              ThreadFactoryUtil.createVirtualOrPlatformDaemonThreadFactory(
+                  "pgadapter-query-pipeline", false));
+    }
+    return this.queryPipelineExecutor;
+  }
+
+  /**
+   * Returns the shared executor that is used for COPY statements. This executor is used both to
+   * read and write the data of a COPY statement, and to parse the data and to commit the mutations
+   * of COPY ... FROM STDIN statements. The tasks of a COPY statement wait for each other, and the
+   * number of threads of this executor is therefore not limited.
+   */
+  public synchronized ListeningExecutorService getCopyExecutor() {
+    if (this.copyExecutor == null) {
+      this.copyExecutor =
+          MoreExecutors.listeningDecorator(
+              Executors.newCachedThreadPool(
+                  ThreadFactoryUtil.createVirtualOrPlatformDaemonThreadFactory(
+                      "copy-worker", true)));
+    }
+    return this.copyExecutor;
+  }
+
+  /**
+   * Called when a DDL statement has been executed on the given database through this server. This
+   * invalidates all server-wide caches that could contain stale metadata for the database.
+   */
+  public void invalidateCachesForDatabase(DatabaseId databaseId) {
+    if (this.describeResultCache != null) {
+      this.describeResultCache.invalidate(databaseId);
+    }
+    this.copySchemaCache.invalidate(databaseId);
+    if (this.catalogResultCache != null) {
+      this.catalogResultCache.invalidate(databaseId);
+    }
+  }
+
   /** @return the JDBC connection properties that are used by this server */
   public Properties getProperties() {
     return (Properties) this.properties.clone();
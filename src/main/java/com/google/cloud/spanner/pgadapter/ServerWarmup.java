@@ -0,0 +1,199 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.pgadapter.metadata.CatalogResultCache;
+import com.google.cloud.spanner.pgadapter.metadata.ConnectionOptionsCache;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.PgCatalog;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Warms up the connections to the databases that are set with the -warmup_databases option when the
+ * server starts. The first connection to a database otherwise pays for creating the Spanner client,
+ * the gRPC channels and the session, and for validating the database. Warming up a database
+ * executes all these steps, and also executes a couple of pg_catalog queries to warm up the
+ * emulated catalog tables.
+ *
+ * <p>The connections that are created during the warm-up are kept open until the server stops. This
+ * keeps the Spanner client of the databases in the shared pool of Spanner clients.
+ */
+final class ServerWarmup {
+  private static final Logger logger = Logger.getLogger(ServerWarmup.class.getName());
+
+  /** The pg_catalog queries that are executed once for each database during warm-up. */
+  @VisibleForTesting
+  static final ImmutableList<String> CATALOG_QUERIES =
+      ImmutableList.of("select * from pg_catalog.pg_type", "select * from pg_catalog.pg_namespace");
+
+  /** The time that each phase of the warm-up of a database took. */
+  static final class Result {
+    private final String database;
+    private long connectMillis;
+    private long validateMillis;
+    private long catalogMillis;
+    @Nullable private Throwable error;
+
+    private Result(String database) {
+      this.database = database;
+    }
+
+    /** Returns the error that stopped the warm-up of the database, or null if it succeeded. */
+    @Nullable
+    Throwable getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%s: connect %dms, validate %dms, catalog %dms%s",
+          database,
+          connectMillis,
+          validateMillis,
+          catalogMillis,
+          error == null ? "" : ", failed: " + error.getMessage());
+    }
+  }
+
+  private final ProxyServer server;
+  private final List<Connection> connections = new ArrayList<>();
+
+  ServerWarmup(ProxyServer server) {
+    this.server = server;
+  }
+
+  /**
+   * Warms up all databases of the server. Failures are logged, but do not stop the warm-up of other
+   * databases, or the startup of the server.
+   */
+  ImmutableList<Result> run() {
+    ImmutableList<String> databases = server.getOptions().getWarmupDatabases();
+    ImmutableList.Builder<Result> results = ImmutableList.builder();
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (String database : databases) {
+      Result result = warmup(database);
+      results.add(result);
+      if (result.error == null) {
+        logger.log(Level.INFO, () -> String.format("Warmed up database %s", result));
+      } else {
+        logger.log(
+            Level.WARNING, result.error, () -> String.format("Warm-up of database %s", result));
+      }
+    }
+    logger.log(
+        Level.INFO,
+        () ->
+            String.format(
+                "Warm-up of %d database(s) finished in %dms",
+                databases.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    return results.build();
+  }
+
+  private Result warmup(String database) {
+    Result result = new Result(database);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    try {
+      // Use the same cache entry as client connections, so the first client connection to the
+      // database can skip the validation of the database.
+      ConnectionOptionsCache.Entry entry =
+          server
+              .getConnectionOptionsCache()
+              .get(
+                  database,
+                  null,
+                  () -> ConnectionHandler.createConnectionOptions(server, database, null));
+      Connection connection = entry.getConnectionOptions().getConnection();
+      connections.add(connection);
+      result.connectMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+      stopwatch.reset().start();
+      Dialect dialect = connection.getDialect();
+      if (dialect != Dialect.POSTGRESQL) {
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.FAILED_PRECONDITION, "The database uses dialect " + dialect);
+      }
+      entry.markValidated();
+      result.validateMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+      stopwatch.reset().start();
+      executeCatalogQueries(connection, entry.getConnectionOptions().getDatabaseId());
+      result.catalogMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    } catch (Throwable error) {
+      result.error = error;
+    }
+    return result;
+  }
+
+  private void executeCatalogQueries(Connection connection, DatabaseId databaseId) {
+    PgCatalog pgCatalog =
+        new PgCatalog(new SessionState(server.getOptions()), WellKnownClient.UNSPECIFIED);
+    CatalogResultCache catalogResultCache = server.getCatalogResultCache();
+    for (String sql : CATALOG_QUERIES) {
+      Statement statement = createCatalogQuery(pgCatalog, sql);
+      ResultSet resultSet = connection.executeQuery(statement);
+      if (catalogResultCache != null) {
+        resultSet = catalogResultCache.put(databaseId, statement, resultSet);
+      }
+      try {
+        //noinspection StatementWithEmptyBody
+        while (resultSet.next()) {}
+      } finally {
+        resultSet.close();
+      }
+    }
+  }
+
+  /** Returns the statement that is sent to Spanner for the given pg_catalog query. */
+  @VisibleForTesting
+  static Statement createCatalogQuery(OptionsMetadata options, String sql) {
+    return createCatalogQuery(
+        new PgCatalog(new SessionState(options), WellKnownClient.UNSPECIFIED), sql);
+  }
+
+  private static Statement createCatalogQuery(PgCatalog pgCatalog, String sql) {
+    return pgCatalog.replacePgCatalogTables(Statement.of(sql), sql.toLowerCase(Locale.ENGLISH));
+  }
+
+  /** Closes all connections that were created during the warm-up. */
+  void close() {
+    for (Connection connection : connections) {
+      try {
+        connection.close();
+      } catch (Throwable ignore) {
+        // Ignore, as the server is stopping.
+      }
+    }
+    connections.clear();
+  }
+}
@@ -0,0 +1,174 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.pgadapter.statements.ClientSideResultSet;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import java.time.Duration;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache for the results of queries that only reference pg_catalog and
+ * information_schema tables. Many tools execute the same (large) catalog queries each time that
+ * they open a connection. The results of these queries only change when the schema of the database
+ * changes, and can therefore be shared by all connections to the same database.
+ *
+ * <p>Entries are keyed by the database, the rewritten SQL string and the parameter values of the
+ * query. Entries expire after a fixed time, and all entries for a database are invalidated when a
+ * DDL statement is executed on that database through PGAdapter. Schema changes that are made
+ * through other tools are only visible once the cached results have expired.
+ */
+@InternalApi
+public class CatalogResultCache {
+  /** The default maximum number of results in the cache. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 1_000L;
+
+  /** The default maximum number of rows of a result that is added to the cache. */
+  public static final int DEFAULT_MAX_ROWS = 10_000;
+
+  @VisibleForTesting
+  static final class Key {
+    private final DatabaseId databaseId;
+    private final Statement statement;
+    private final int hashCode;
+
+    Key(@Nullable DatabaseId databaseId, Statement statement) {
+      this.databaseId = databaseId;
+      this.statement = Preconditions.checkNotNull(statement);
+      this.hashCode = Objects.hash(databaseId, statement);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(this.databaseId, other.databaseId)
+          && this.statement.equals(other.statement);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** The type and rows of a cached query result. */
+  private static final class CachedResult {
+    private final Type type;
+    private final ImmutableList<Struct> rows;
+
+    CachedResult(Type type, ImmutableList<Struct> rows) {
+      this.type = type;
+      this.rows = rows;
+    }
+
+    ResultSet toResultSet() {
+      return ClientSideResultSet.forRows(type, rows);
+    }
+  }
+
+  private final Cache<Key, CachedResult> cache;
+  private final Metrics metrics;
+  private final int maxRows;
+
+  public CatalogResultCache(Metrics metrics, Duration expireAfterWrite) {
+    this(metrics, expireAfterWrite, DEFAULT_MAXIMUM_SIZE, DEFAULT_MAX_ROWS);
+  }
+
+  /**
+   * Creates a cache that contains at most the given number of results. Results with more than
+   * maxRows rows are not cached.
+   */
+  public CatalogResultCache(
+      Metrics metrics, Duration expireAfterWrite, long maximumSize, int maxRows) {
+    Preconditions.checkArgument(maxRows > 0, "maxRows must be positive");
+    this.metrics = Preconditions.checkNotNull(metrics);
+    this.maxRows = maxRows;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .build();
+  }
+
+  /**
+   * Returns a result set for the cached result of the given query, or null if there is no cached
+   * result. Each call returns a new result set that can be consumed independently of other result
+   * sets for the same query.
+   */
+  @Nullable
+  public ResultSet get(@Nullable DatabaseId databaseId, Statement statement) {
+    CachedResult result = cache.getIfPresent(new Key(databaseId, statement));
+    if (result == null) {
+      metrics.recordCatalogCacheMiss();
+      return null;
+    }
+    metrics.recordCatalogCacheHit();
+    return result.toResultSet();
+  }
+
+  /**
+   * Reads all rows from the given result set and adds these to the cache, unless the result
+   * contains more than the maximum number of rows. The given result set is closed, and a new result
+   * set for the same rows is returned.
+   */
+  public ResultSet put(@Nullable DatabaseId databaseId, Statement statement, ResultSet resultSet) {
+    ImmutableList.Builder<Struct> rows = ImmutableList.builder();
+    int numRows = 0;
+    CachedResult result;
+    try {
+      while (resultSet.next()) {
+        rows.add(resultSet.getCurrentRowAsStruct());
+        numRows++;
+      }
+      result = new CachedResult(resultSet.getType(), rows.build());
+    } finally {
+      resultSet.close();
+    }
+    if (numRows <= maxRows) {
+      cache.put(new Key(databaseId, statement), result);
+    }
+    return result.toResultSet();
+  }
+
+  /** Removes all entries for the given database. */
+  public void invalidate(@Nullable DatabaseId databaseId) {
+    cache.asMap().keySet().removeIf(key -> Objects.equals(key.databaseId, databaseId));
+  }
+
+  /** Removes all entries from the cache. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the approximate number of entries in the cache. */
+  public long size() {
+    return cache.size();
+  }
+}
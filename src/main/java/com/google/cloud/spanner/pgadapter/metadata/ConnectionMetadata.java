@@ -17,6 +17,8 @@ package com.google.cloud.spanner.pgadapter.metadata;
 import com.google.api.core.InternalApi;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
@@ -32,6 +34,10 @@ public class ConnectionMetadata implements AutoCloseable {
 
   private final DataInputStream inputStream;
   private final DataOutputStream outputStream;
+  private final CountingInputStream countingInputStream;
+  private final CountingOutputStream countingOutputStream;
+  private long reportedBytesReceived;
+  private long reportedBytesSent;
   private boolean markedForRestart;
 
   /**
@@ -39,14 +45,34 @@ public class ConnectionMetadata implements AutoCloseable {
    * pushes these as the current streams to use for communication for a connection.
    */
   public ConnectionMetadata(InputStream rawInputStream, OutputStream rawOutputStream) {
-    this.inputStream =
-        new DataInputStream(
-            new BufferedInputStream(
-                Preconditions.checkNotNull(rawInputStream), SOCKET_BUFFER_SIZE));
-    this.outputStream =
-        new DataOutputStream(
-            new BufferedOutputStream(
-                Preconditions.checkNotNull(rawOutputStream), SOCKET_BUFFER_SIZE));
+    this(rawInputStream, rawOutputStream, true);
+  }
+
+  /**
+   * Creates a {@link DataInputStream} and a {@link DataOutputStream} from the given raw streams.
+   * The raw streams are only wrapped in a buffered stream if buffered=true. Streams that already do
+   * their own buffering, such as the streams that are used by the non-blocking front-end, should
+   * use buffered=false. The input stream must support mark/reset if it is not buffered.
+   */
+  public ConnectionMetadata(
+      InputStream rawInputStream, OutputStream rawOutputStream, boolean buffered) {
+    Preconditions.checkNotNull(rawInputStream);
+    Preconditions.checkNotNull(rawOutputStream);
+    // The raw streams are wrapped in counting streams to keep track of the number of bytes that are
+    // received from and sent to the client.
+    this.countingInputStream = new CountingInputStream(rawInputStream);
+    this.countingOutputStream = new CountingOutputStream(rawOutputStream);
+    if (buffered) {
+      this.inputStream =
+          new DataInputStream(new BufferedInputStream(countingInputStream, SOCKET_BUFFER_SIZE));
+      this.outputStream =
+          new DataOutputStream(new BufferedOutputStream(countingOutputStream, SOCKET_BUFFER_SIZE));
+    } else {
+      Preconditions.checkArgument(
+          rawInputStream.markSupported(), "Unbuffered input streams must support mark/reset");
+      this.inputStream = new DataInputStream(countingInputStream);
+      this.outputStream = new DataOutputStream(countingOutputStream);
+    }
   }
 
   public void markForRestart() {
@@ -71,6 +97,30 @@ public class ConnectionMetadata implements AutoCloseable {
     return outputStream;
   }
 
+  /**
+   * Returns the number of bytes that have been received from the client since the last time that
+   * this method was called. This method should only be called by the thread that handles the
+   * connection.
+   */
+  public long getUnreportedBytesReceived() {
+    long total = countingInputStream.getCount();
+    long result = total - reportedBytesReceived;
+    reportedBytesReceived = total;
+    return result;
+  }
+
+  /**
+   * Returns the number of bytes that have been sent to the client since the last time that this
+   * method was called. Bytes that are still in the output buffer are not included. This method
+   * should only be called by the thread that handles the connection.
+   */
+  public long getUnreportedBytesSent() {
+    long total = countingOutputStream.getCount();
+    long result = total - reportedBytesSent;
+    reportedBytesSent = total;
+    return result;
+  }
+
   /**
    * Returns the next byte in the input stream without removing it. Returns zero if no bytes are
    * available. This method will wait for up to maxWaitMillis milliseconds to allow pending data to
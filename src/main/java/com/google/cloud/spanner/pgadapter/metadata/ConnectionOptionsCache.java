@@ -0,0 +1,158 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.auth.Credentials;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache for the {@link ConnectionOptions} that are used to connect to a database.
+ * Building the {@link ConnectionOptions} for a connection and verifying that the database exists
+ * and uses the PostgreSQL dialect only depends on the database and the credentials that are used,
+ * so the result can be shared by all connections that use the same database and credentials. This
+ * allows a new client connection to an already validated database to skip all remote calls during
+ * startup.
+ *
+ * <p>Entries expire after a fixed time, so a database that has been dropped is eventually detected
+ * during startup again.
+ */
+@InternalApi
+public class ConnectionOptionsCache {
+  /** The default maximum number of entries in the cache. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 1_000L;
+  /** The default time that an entry stays in the cache after it has been added. */
+  public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(10L);
+
+  /**
+   * The key of the cache. Credentials are compared by identity, as not all implementations of
+   * {@link Credentials} include the actual secret in their equals method. Using equality could
+   * therefore return the connection options of a different client. Credentials that are created for
+   * each client connection, for example from a password message, are therefore never shared.
+   */
+  @VisibleForTesting
+  static final class Key {
+    @Nullable private final String database;
+    @Nullable private final Credentials credentials;
+
+    Key(@Nullable String database, @Nullable Credentials credentials) {
+      this.database = database;
+      this.credentials = credentials;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(this.database, other.database) && this.credentials == other.credentials;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(database) * 31 + System.identityHashCode(credentials);
+    }
+  }
+
+  /** The cached {@link ConnectionOptions} for a database and whether the database is valid. */
+  public static final class Entry {
+    private final ConnectionOptions connectionOptions;
+    private volatile boolean validated;
+
+    private Entry(ConnectionOptions connectionOptions) {
+      this.connectionOptions = Preconditions.checkNotNull(connectionOptions);
+    }
+
+    public ConnectionOptions getConnectionOptions() {
+      return connectionOptions;
+    }
+
+    /**
+     * Returns true if a connection has successfully been created with these options, and it has
+     * been verified that the database exists and uses the PostgreSQL dialect.
+     */
+    public boolean isValidated() {
+      return validated;
+    }
+
+    /** Marks the database of this entry as existing and using the PostgreSQL dialect. */
+    public void markValidated() {
+      this.validated = true;
+    }
+  }
+
+  private final Cache<Key, Entry> cache;
+
+  public ConnectionOptionsCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE);
+  }
+
+  public ConnectionOptionsCache(long maximumSize, Duration expireAfterWrite) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .build();
+  }
+
+  /**
+   * Returns the cached entry for the given database and credentials. A new entry is created with
+   * the given supplier if there is no entry in the cache. Any exception that is thrown by the
+   * supplier is propagated to the caller, and no entry is added to the cache in that case. The
+   * database is null if the client did not specify a database and the default database of the
+   * server is used.
+   */
+  public Entry get(
+      @Nullable String database,
+      @Nullable Credentials credentials,
+      Supplier<ConnectionOptions> connectionOptionsSupplier) {
+    Key key = new Key(database, credentials);
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null) {
+      // Building the options is cheap compared to the remote calls that are saved by this cache,
+      // so we accept that two concurrent connections could both build the options.
+      Entry newEntry = new Entry(connectionOptionsSupplier.get());
+      entry = cache.asMap().putIfAbsent(key, newEntry);
+      if (entry == null) {
+        entry = newEntry;
+      }
+    }
+    return entry;
+  }
+
+  /** Removes the entry for the given database and credentials. */
+  public void invalidate(@Nullable String database, @Nullable Credentials credentials) {
+    cache.invalidate(new Key(database, credentials));
+  }
+
+  /** Removes all entries from the cache. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the approximate number of entries in the cache. */
+  public long size() {
+    return cache.size();
+  }
+}
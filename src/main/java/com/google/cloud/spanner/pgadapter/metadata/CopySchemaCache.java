@@ -0,0 +1,161 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Type;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache for the table metadata that is needed to execute a COPY ... FROM STDIN
+ * statement. A COPY statement needs the names and types of the columns that are copied, and the
+ * number of indexed columns to calculate the number of mutations per row. Looking these up requires
+ * two queries on information_schema, which often take longer than the COPY of a small number of
+ * rows. The metadata only depends on the database, the table and the column list of the COPY
+ * statement, so it can safely be shared by all connections to the same database.
+ *
+ * <p>Entries for a database are invalidated when a DDL statement is executed on that database
+ * through PGAdapter. Entries also expire after a fixed time, so schema changes that are executed
+ * through other clients are eventually picked up.
+ */
+@InternalApi
+public class CopySchemaCache {
+  /** The default maximum number of entries in the cache. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+  /** The default time that an entry stays in the cache after it has been added. */
+  public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(30L);
+
+  /** The columns and the number of indexed columns of a table that is used for COPY. */
+  public static final class TableSchema {
+    private final ImmutableMap<String, Type> columns;
+    private final int indexedColumnsCount;
+
+    public TableSchema(Map<String, Type> columns, int indexedColumnsCount) {
+      this.columns = ImmutableMap.copyOf(columns);
+      this.indexedColumnsCount = indexedColumnsCount;
+    }
+
+    /** Returns the copied columns and their types in the order of the COPY statement. */
+    public ImmutableMap<String, Type> getColumns() {
+      return columns;
+    }
+
+    /** Returns the number of copied columns that are part of at least one index. */
+    public int getIndexedColumnsCount() {
+      return indexedColumnsCount;
+    }
+  }
+
+  @VisibleForTesting
+  static final class Key {
+    private final DatabaseId databaseId;
+    private final String schema;
+    private final String table;
+    private final ImmutableList<String> columns;
+    private final int hashCode;
+
+    Key(
+        @Nullable DatabaseId databaseId,
+        String schema,
+        String table,
+        @Nullable ImmutableList<String> columns) {
+      this.databaseId = databaseId;
+      this.schema = Preconditions.checkNotNull(schema);
+      this.table = Preconditions.checkNotNull(table);
+      this.columns = columns == null ? ImmutableList.of() : columns;
+      this.hashCode = Objects.hash(databaseId, schema, table, this.columns);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(this.databaseId, other.databaseId)
+          && this.schema.equals(other.schema)
+          && this.table.equals(other.table)
+          && this.columns.equals(other.columns);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private final Cache<Key, TableSchema> cache;
+
+  public CopySchemaCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_EXPIRE_AFTER_WRITE);
+  }
+
+  public CopySchemaCache(long maximumSize, Duration expireAfterWrite) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .build();
+  }
+
+  /**
+   * Returns the cached schema for a COPY statement on the given table and columns, or null if there
+   * is no cached schema. An empty or null list of columns means that all columns of the table are
+   * copied.
+   */
+  @Nullable
+  public TableSchema get(
+      @Nullable DatabaseId databaseId,
+      String schema,
+      String table,
+      @Nullable ImmutableList<String> columns) {
+    return cache.getIfPresent(new Key(databaseId, schema, table, columns));
+  }
+
+  /** Adds the schema of a COPY statement on the given table and columns to the cache. */
+  public void put(
+      @Nullable DatabaseId databaseId,
+      String schema,
+      String table,
+      @Nullable ImmutableList<String> columns,
+      TableSchema tableSchema) {
+    cache.put(new Key(databaseId, schema, table, columns), Preconditions.checkNotNull(tableSchema));
+  }
+
+  /** Removes all entries for the given database. */
+  public void invalidate(@Nullable DatabaseId databaseId) {
+    cache.asMap().keySet().removeIf(key -> Objects.equals(key.databaseId, databaseId));
+  }
+
+  /** Removes all entries from the cache. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the approximate number of entries in the cache. */
+  public long size() {
+    return cache.size();
+  }
+}
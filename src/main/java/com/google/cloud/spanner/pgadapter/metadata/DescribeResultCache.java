@@ -0,0 +1,192 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache for the results of auto-describing statements. Auto-describing a statement
+ * requires a round-trip to Spanner to determine the types of untyped parameters. The result only
+ * depends on the database, the SQL string and the parameter types that were given by the client, so
+ * it can safely be shared by all connections to the same database.
+ *
+ * <p>The cache is used both for auto-described statements and for Describe messages for prepared
+ * statements, so connections that prepare the same statements only need to describe them once.
+ *
+ * <p>Only successfully completed describe results are stored in this cache. Entries for a database
+ * are invalidated when a DDL statement is executed on that database through PGAdapter.
+ */
+@InternalApi
+public class DescribeResultCache {
+  /** The default time that an entry stays in the cache after it has been added. */
+  public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(30L);
+
+  @VisibleForTesting
+  static final class Key {
+    private final DatabaseId databaseId;
+    private final String sql;
+    private final int[] givenParameterTypes;
+    private final int hashCode;
+
+    Key(@Nullable DatabaseId databaseId, String sql, int[] givenParameterTypes) {
+      this.databaseId = databaseId;
+      this.sql = Preconditions.checkNotNull(sql);
+      // Copy the parameter types, as the array that is given by the statement can be modified
+      // after the statement has been described.
+      this.givenParameterTypes = givenParameterTypes.clone();
+      this.hashCode =
+          Objects.hash(databaseId, sql) * 31 + Arrays.hashCode(this.givenParameterTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return Objects.equals(this.databaseId, other.databaseId)
+          && this.sql.equals(other.sql)
+          && Arrays.equals(this.givenParameterTypes, other.givenParameterTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /** The estimated fixed number of bytes that is used by an entry in the cache. */
+  private static final int ENTRY_OVERHEAD = 128;
+  /** The estimated fixed number of bytes that is used by a column of a cached row description. */
+  private static final int COLUMN_OVERHEAD = 64;
+
+  private final Cache<Key, DescribeResult> cache;
+  private final Metrics metrics;
+
+  public DescribeResultCache(Metrics metrics) {
+    this(metrics, OptionsMetadata.DEFAULT_DESCRIBE_CACHE_SIZE_MB);
+  }
+
+  /**
+   * Creates a cache that uses at most approximately the given number of megabytes. The size of an
+   * entry is estimated from the length of the SQL string, the number of parameters and the number
+   * and names of the columns.
+   */
+  public DescribeResultCache(Metrics metrics, int maximumSizeMb) {
+    this.metrics = Preconditions.checkNotNull(metrics);
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maximumSizeMb * 1024L * 1024L)
+            .weigher(DescribeResultCache::estimateSize)
+            .expireAfterWrite(DEFAULT_EXPIRE_AFTER_WRITE)
+            .removalListener(createEvictionListener(metrics))
+            .build();
+  }
+
+  /** Creates a cache that contains at most the given number of entries. */
+  public DescribeResultCache(Metrics metrics, long maximumSize, Duration expireAfterWrite) {
+    this.metrics = Preconditions.checkNotNull(metrics);
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .removalListener(createEvictionListener(metrics))
+            .build();
+  }
+
+  private static RemovalListener<Key, DescribeResult> createEvictionListener(Metrics metrics) {
+    return notification -> {
+      if (notification.wasEvicted()) {
+        metrics.recordDescribeCacheEviction();
+      }
+    };
+  }
+
+  /** Returns the estimated number of bytes that the given entry uses. */
+  @VisibleForTesting
+  static int estimateSize(Key key, DescribeResult describeResult) {
+    int size =
+        ENTRY_OVERHEAD
+            + 2 * key.sql.length()
+            + Integer.BYTES * key.givenParameterTypes.length
+            + Integer.BYTES * describeResult.getParameters().length;
+    Type columns = describeResult.getColumns();
+    if (columns != null) {
+      for (StructField field : columns.getStructFields()) {
+        size += COLUMN_OVERHEAD + 2 * field.getName().length();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Returns the cached describe result for the given statement, or null if there is no cached
+   * result.
+   */
+  @Nullable
+  public DescribeResult get(
+      @Nullable DatabaseId databaseId, String sql, int[] givenParameterTypes) {
+    DescribeResult result = cache.getIfPresent(new Key(databaseId, sql, givenParameterTypes));
+    if (result == null) {
+      metrics.recordDescribeCacheMiss();
+    } else {
+      metrics.recordDescribeCacheHit();
+    }
+    return result;
+  }
+
+  /** Adds a successfully completed describe result to the cache. */
+  public void put(
+      @Nullable DatabaseId databaseId,
+      String sql,
+      int[] givenParameterTypes,
+      DescribeResult describeResult) {
+    cache.put(
+        new Key(databaseId, sql, givenParameterTypes), Preconditions.checkNotNull(describeResult));
+  }
+
+  /** Removes all entries for the given database. */
+  public void invalidate(@Nullable DatabaseId databaseId) {
+    cache.asMap().keySet().removeIf(key -> Objects.equals(key.databaseId, databaseId));
+  }
+
+  /** Removes all entries from the cache. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the approximate number of entries in the cache. */
+  public long size() {
+    return cache.size();
+  }
+
+  @VisibleForTesting
+  void cleanUp() {
+    cache.cleanUp();
+  }
+}
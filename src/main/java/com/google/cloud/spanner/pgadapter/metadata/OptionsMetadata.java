@@ -101,6 +101,14 @@ public class OptionsMetadata {
     private boolean autoConfigEmulator;
     private boolean logGrpcMessages;
     private boolean allowShutdownStatement;
+    private boolean useNioFrontEnd;
+    private int nioWorkerThreads = DEFAULT_NIO_WORKER_THREADS;
+    private int transactionPoolSize;
+    private int describeCacheSizeMb = DEFAULT_DESCRIBE_CACHE_SIZE_MB;
+    private int metricsPort;
+    private int catalogCacheTtlSeconds;
+    private ImmutableList<String> warmupDatabases = ImmutableList.of();
+    private String readinessFile;
     private boolean debugMode;
     private String endpoint;
     private boolean usePlainText;
@@ -379,6 +387,106 @@ public class OptionsMetadata {
       return this;
     }
 
+    /**
+     * Uses a non-blocking front-end for TCP connections. The front-end uses a single selector
+     * thread per server socket to receive data from all clients, and only hands a connection to a
+     * worker thread once a complete batch of messages has been received. Idle connections then do
+     * not occupy a thread or any socket buffers. This option cannot be combined with SSL.
+     */
+    public Builder setUseNioFrontEnd(boolean useNioFrontEnd) {
+      this.useNioFrontEnd = useNioFrontEnd;
+      return this;
+    }
+
+    /**
+     * Enables transaction pooling with at most the given number of Spanner connections in use at
+     * the same time. Client connections then only hold a Spanner connection while they are
+     * executing statements or have an active transaction, and return it to a shared pool when they
+     * become idle. Set to 0 (the default) to give each client connection its own Spanner
+     * connection.
+     */
+    public Builder setTransactionPoolSize(int transactionPoolSize) {
+      Preconditions.checkArgument(
+          transactionPoolSize >= 0, "The transaction pool size must be non-negative");
+      this.transactionPoolSize = transactionPoolSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of worker threads that the non-blocking front-end uses to process the
+     * messages of client connections. The same number of threads is used to start and authenticate
+     * new connections. The default is 64.
+     */
+    public Builder setNioWorkerThreads(int nioWorkerThreads) {
+      Preconditions.checkArgument(
+          nioWorkerThreads > 0, "The number of NIO worker threads must be positive");
+      this.nioWorkerThreads = nioWorkerThreads;
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount of memory in megabytes that the server-wide cache for the parameter
+     * types and row descriptions of prepared statements may use. The default is 32 MB. Set to 0 to
+     * disable the cache.
+     */
+    public Builder setDescribeCacheSizeMb(int describeCacheSizeMb) {
+      Preconditions.checkArgument(
+          describeCacheSizeMb >= 0, "The describe cache size must be non-negative");
+      this.describeCacheSizeMb = describeCacheSizeMb;
+      return this;
+    }
+
+    /**
+     * Sets the port of the local HTTP endpoint that returns the metrics of PGAdapter in the
+     * Prometheus text format. The endpoint only listens on the loopback address. The default is 0,
+     * which disables the endpoint.
+     */
+    public Builder setMetricsPort(int metricsPort) {
+      Preconditions.checkArgument(
+          metricsPort >= 0 && metricsPort <= 65535, "The metrics port must be between 0 and 65535");
+      this.metricsPort = metricsPort;
+      return this;
+    }
+
+    /**
+     * Sets the number of seconds that the results of queries that only reference pg_catalog and
+     * information_schema tables are cached by the server. The cached results are shared by all
+     * connections to the same database, and are invalidated when a DDL statement is executed on
+     * that database through PGAdapter. The default is 0, which disables the cache.
+     */
+    public Builder setCatalogCacheTtlSeconds(int catalogCacheTtlSeconds) {
+      Preconditions.checkArgument(
+          catalogCacheTtlSeconds >= 0, "The catalog cache TTL must be non-negative");
+      this.catalogCacheTtlSeconds = catalogCacheTtlSeconds;
+      return this;
+    }
+
+    /**
+     * Sets the databases that the server should connect to when it starts. The server creates a
+     * Spanner connection for each database, validates the database, and executes a set of
+     * pg_catalog queries before it starts to accept client connections. The names are resolved in
+     * the same way as the database name in a connection request.
+     */
+    public Builder setWarmupDatabases(String... databases) {
+      for (String database : databases) {
+        Preconditions.checkArgument(
+            !Strings.isNullOrEmpty(database) && !database.contains(","),
+            "Invalid warm-up database: " + database);
+      }
+      this.warmupDatabases = ImmutableList.copyOf(databases);
+      return this;
+    }
+
+    /**
+     * Sets a file that the server creates when it has started and is ready to accept connections.
+     * The file is created after all warm-up databases have been warmed up, and is deleted when the
+     * server stops.
+     */
+    public Builder setReadinessFile(String readinessFile) {
+      this.readinessFile = Preconditions.checkNotNull(readinessFile);
+      return this;
+    }
+
     Builder enableDebugMode() {
       this.debugMode = true;
       return this;
@@ -499,6 +607,31 @@ public class OptionsMetadata {
       if (allowShutdownStatement) {
         addOption(args, OPTION_ALLOW_SHUTDOWN_STATEMENT);
       }
+      if (useNioFrontEnd) {
+        addOption(args, OPTION_USE_NIO_FRONT_END);
+      }
+      if (nioWorkerThreads != DEFAULT_NIO_WORKER_THREADS) {
+        addLongOption(args, OPTION_NIO_WORKER_THREADS, String.valueOf(nioWorkerThreads));
+      }
+      if (transactionPoolSize > 0) {
+        addLongOption(args, OPTION_TRANSACTION_POOL_SIZE, String.valueOf(transactionPoolSize));
+      }
+      if (describeCacheSizeMb != DEFAULT_DESCRIBE_CACHE_SIZE_MB) {
+        addLongOption(args, OPTION_DESCRIBE_CACHE_SIZE_MB, String.valueOf(describeCacheSizeMb));
+      }
+      if (metricsPort > 0) {
+        addLongOption(args, OPTION_METRICS_PORT, String.valueOf(metricsPort));
+      }
+      if (catalogCacheTtlSeconds > 0) {
+        addLongOption(
+            args, OPTION_CATALOG_CACHE_TTL_SECONDS, String.valueOf(catalogCacheTtlSeconds));
+      }
+      if (!warmupDatabases.isEmpty()) {
+        addLongOption(args, OPTION_WARMUP_DATABASES, String.join(",", warmupDatabases));
+      }
+      if (readinessFile != null) {
+        addLongOption(args, OPTION_READINESS_FILE, readinessFile);
+      }
       if (debugMode) {
         addOption(args, OPTION_INTERNAL_DEBUG_MODE);
         addOption(args, OPTION_SKIP_INTERNAL_DEBUG_MODE_WARNING);
@@ -574,6 +707,11 @@ public class OptionsMetadata {
 
   private static final Logger logger = Logger.getLogger(OptionsMetadata.class.getName());
   public static final String DEFAULT_SERVER_VERSION = "14.1";
+  /** The default maximum size in MB of the server-wide cache for describe results. */
+  public static final int DEFAULT_DESCRIBE_CACHE_SIZE_MB = 32;
+  /** The default maximum number of worker threads of the non-blocking front-end. */
+  public static final int DEFAULT_NIO_WORKER_THREADS = 64;
+
   private static final String DEFAULT_USER_AGENT = "pg-adapter";
 
   private static final String OPTION_SERVER_PORT = "s";
@@ -618,6 +756,14 @@ public class OptionsMetadata {
   private static final String OPTION_LEGACY_LOGGING = "legacy_logging";
   private static final String OPTION_LOG_GRPC_MESSAGES = "log_grpc_messages";
   private static final String OPTION_ALLOW_SHUTDOWN_STATEMENT = "allow_shutdown_statement";
+  private static final String OPTION_USE_NIO_FRONT_END = "nio_frontend";
+  private static final String OPTION_NIO_WORKER_THREADS = "nio_worker_threads";
+  private static final String OPTION_TRANSACTION_POOL_SIZE = "transaction_pool_size";
+  private static final String OPTION_DESCRIBE_CACHE_SIZE_MB = "describe_cache_size_mb";
+  private static final String OPTION_METRICS_PORT = "metrics_port";
+  private static final String OPTION_CATALOG_CACHE_TTL_SECONDS = "catalog_cache_ttl_seconds";
+  private static final String OPTION_WARMUP_DATABASES = "warmup_databases";
+  private static final String OPTION_READINESS_FILE = "readiness_file";
 
   private final Map<String, String> environment;
   private final String osName;
@@ -650,6 +796,14 @@ public class OptionsMetadata {
   private final Duration startupTimeout;
   private final boolean logGrpcMessages;
   private final boolean allowShutdownStatement;
+  private final boolean useNioFrontEnd;
+  private final int nioWorkerThreads;
+  private final int transactionPoolSize;
+  private final int describeCacheSizeMb;
+  private final int metricsPort;
+  private final int catalogCacheTtlSeconds;
+  private final ImmutableList<String> warmupDatabases;
+  private final String readinessFile;
 
   /**
    * Creates a new instance of {@link OptionsMetadata} from the given arguments.
@@ -744,6 +898,14 @@ public class OptionsMetadata {
     this.debugMode = commandLine.hasOption(OPTION_INTERNAL_DEBUG_MODE);
     this.logGrpcMessages = commandLine.hasOption(OPTION_LOG_GRPC_MESSAGES);
     this.allowShutdownStatement = commandLine.hasOption(OPTION_ALLOW_SHUTDOWN_STATEMENT);
+    this.useNioFrontEnd = commandLine.hasOption(OPTION_USE_NIO_FRONT_END);
+    this.nioWorkerThreads = buildNioWorkerThreads(commandLine);
+    this.transactionPoolSize = buildTransactionPoolSize(commandLine);
+    this.describeCacheSizeMb = buildDescribeCacheSizeMb(commandLine);
+    this.metricsPort = buildMetricsPort(commandLine);
+    this.catalogCacheTtlSeconds = buildCatalogCacheTtlSeconds(commandLine);
+    this.warmupDatabases = buildWarmupDatabases(commandLine);
+    this.readinessFile = commandLine.getOptionValue(OPTION_READINESS_FILE);
     this.startupTimeout = startupTimeout;
   }
 
@@ -819,6 +981,14 @@ public class OptionsMetadata {
     this.debugMode = false;
     this.logGrpcMessages = false;
     this.allowShutdownStatement = false;
+    this.useNioFrontEnd = false;
+    this.nioWorkerThreads = DEFAULT_NIO_WORKER_THREADS;
+    this.transactionPoolSize = 0;
+    this.describeCacheSizeMb = DEFAULT_DESCRIBE_CACHE_SIZE_MB;
+    this.metricsPort = 0;
+    this.catalogCacheTtlSeconds = 0;
+    this.warmupDatabases = ImmutableList.of();
+    this.readinessFile = null;
     this.startupTimeout = DEFAULT_STARTUP_TIMEOUT;
   }
 
@@ -935,6 +1105,72 @@ public class OptionsMetadata {
     return backlog;
   }
 
+  private int buildTransactionPoolSize(CommandLine commandLine) {
+    int poolSize =
+        Integer.parseInt(commandLine.getOptionValue(OPTION_TRANSACTION_POOL_SIZE, "0").trim());
+    if (poolSize < 0) {
+      throw new IllegalArgumentException("Transaction pool size must be non-negative");
+    }
+    return poolSize;
+  }
+
+  private int buildNioWorkerThreads(CommandLine commandLine) {
+    int threads =
+        Integer.parseInt(
+            commandLine
+                .getOptionValue(
+                    OPTION_NIO_WORKER_THREADS, String.valueOf(DEFAULT_NIO_WORKER_THREADS))
+                .trim());
+    if (threads <= 0) {
+      throw new IllegalArgumentException("Number of NIO worker threads must be positive");
+    }
+    return threads;
+  }
+
+  private int buildDescribeCacheSizeMb(CommandLine commandLine) {
+    int size =
+        Integer.parseInt(
+            commandLine
+                .getOptionValue(
+                    OPTION_DESCRIBE_CACHE_SIZE_MB, String.valueOf(DEFAULT_DESCRIBE_CACHE_SIZE_MB))
+                .trim());
+    if (size < 0) {
+      throw new IllegalArgumentException("Describe cache size must be non-negative");
+    }
+    return size;
+  }
+
+  private int buildMetricsPort(CommandLine commandLine) {
+    int port = Integer.parseInt(commandLine.getOptionValue(OPTION_METRICS_PORT, "0").trim());
+    if (port < 0 || port > 65535) {
+      throw new IllegalArgumentException("Metrics port must be between 0 and 65535");
+    }
+    return port;
+  }
+
+  private int buildCatalogCacheTtlSeconds(CommandLine commandLine) {
+    int ttl =
+        Integer.parseInt(commandLine.getOptionValue(OPTION_CATALOG_CACHE_TTL_SECONDS, "0").trim());
+    if (ttl < 0) {
+      throw new IllegalArgumentException("Catalog cache TTL must be non-negative");
+    }
+    return ttl;
+  }
+
+  private ImmutableList<String> buildWarmupDatabases(CommandLine commandLine) {
+    String databases = commandLine.getOptionValue(OPTION_WARMUP_DATABASES);
+    if (Strings.isNullOrEmpty(databases)) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<String> builder = ImmutableList.builder();
+    for (String database : databases.split(",")) {
+      if (!database.trim().isEmpty()) {
+        builder.add(database.trim());
+      }
+    }
+    return builder.build();
+  }
+
   /**
    * Returns the {@link Credentials} instance that has been set for this {@link OptionsMetadata}.
    * This overrides both any credentials file and any default credentials in the current runtime
@@ -1314,6 +1550,60 @@ public class OptionsMetadata {
         "allow-shutdown-statement",
         false,
         "Allows the proxy server to be shutdown by executing the SHUTDOWN [SMART | FAST | IMMEDIATE] statement.");
+    options.addOption(
+        OPTION_USE_NIO_FRONT_END,
+        "use-nio-frontend",
+        false,
+        "Use a non-blocking (NIO) front-end for TCP connections. A single selector thread receives the data of all\n"
+            + "connections, and a connection is only assigned a worker thread when it has received a complete batch\n"
+            + "of messages. This reduces the number of threads and buffers that are needed for idle connections.\n"
+            + "This option cannot be used in combination with SSL.");
+    options.addOption(
+        null,
+        OPTION_NIO_WORKER_THREADS,
+        true,
+        "The maximum number of worker threads that the non-blocking front-end uses to process messages.\n"
+            + "The same number of threads is used to start and authenticate new connections. Connections that\n"
+            + "have received a complete batch of messages wait for a free worker. Defaults to 64.");
+    options.addOption(
+        null,
+        OPTION_TRANSACTION_POOL_SIZE,
+        true,
+        "Enables transaction pooling with at most this number of Spanner connections in use at the same time.\n"
+            + "Client connections only hold a Spanner connection while they execute statements or have an active\n"
+            + "transaction, and return it to a shared pool when they become idle. Defaults to 0 (disabled).");
+    options.addOption(
+        null,
+        OPTION_DESCRIBE_CACHE_SIZE_MB,
+        true,
+        "The maximum amount of memory in MB that is used to cache the parameter types and row descriptions of\n"
+            + "prepared statements. The cache is shared by all connections. Defaults to 32. Set to 0 to disable.");
+    options.addOption(
+        null,
+        OPTION_METRICS_PORT,
+        true,
+        "Starts a local HTTP endpoint on this port that returns the metrics of PGAdapter in the Prometheus\n"
+            + "text format at the path /metrics. The endpoint only listens on the loopback address.\n"
+            + "Defaults to 0 (disabled).");
+    options.addOption(
+        null,
+        OPTION_CATALOG_CACHE_TTL_SECONDS,
+        true,
+        "Caches the results of queries that only reference pg_catalog and information_schema tables for\n"
+            + "this number of seconds. The cache is shared by all connections to the same database, and is\n"
+            + "invalidated when a DDL statement is executed through PGAdapter. Defaults to 0 (disabled).");
+    options.addOption(
+        null,
+        OPTION_WARMUP_DATABASES,
+        true,
+        "Comma-separated list of databases that PGAdapter connects to when it starts. PGAdapter only\n"
+            + "starts to accept client connections when all these databases have been warmed up.");
+    options.addOption(
+        null,
+        OPTION_READINESS_FILE,
+        true,
+        "File that PGAdapter creates when it is ready to accept client connections. The file is\n"
+            + "deleted when PGAdapter stops.");
     options.addOption(
         OPTION_INTERNAL_DEBUG_MODE,
         "internal-debug-mode",
@@ -1418,6 +1708,65 @@ public class OptionsMetadata {
     return this.allowShutdownStatement;
   }
 
+  public boolean isUseNioFrontEnd() {
+    return this.useNioFrontEnd;
+  }
+
+  /** Returns the maximum number of worker threads of the non-blocking front-end. */
+  public int getNioWorkerThreads() {
+    return this.nioWorkerThreads;
+  }
+
+  /** Returns true if client connections share a pool of Spanner connections. */
+  public boolean isTransactionPooling() {
+    return this.transactionPoolSize > 0;
+  }
+
+  /**
+   * Returns the maximum number of Spanner connections that can be in use at the same time when
+   * transaction pooling is enabled.
+   */
+  public int getTransactionPoolSize() {
+    return this.transactionPoolSize;
+  }
+
+  /**
+   * Returns the maximum amount of memory in megabytes that the server-wide cache for the parameter
+   * types and row descriptions of prepared statements may use.
+   */
+  public int getDescribeCacheSizeMb() {
+    return this.describeCacheSizeMb;
+  }
+
+  /**
+   * Returns the port of the local metrics endpoint, or 0 if the local metrics endpoint is disabled.
+   */
+  public int getMetricsPort() {
+    return this.metricsPort;
+  }
+
+  /**
+   * Returns the number of seconds that the results of catalog queries are cached, or 0 if the
+   * catalog result cache is disabled.
+   */
+  public int getCatalogCacheTtlSeconds() {
+    return this.catalogCacheTtlSeconds;
+  }
+
+  /** Returns the databases that the server connects to when it starts. */
+  public ImmutableList<String> getWarmupDatabases() {
+    return this.warmupDatabases;
+  }
+
+  /**
+   * Returns the file that the server creates when it is ready to accept connections, or null if no
+   * readiness file should be created.
+   */
+  @Nullable
+  public String getReadinessFile() {
+    return this.readinessFile;
+  }
+
   public boolean isDebugMode() {
     return this.debugMode;
   }
@@ -0,0 +1,132 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * Server-wide cache for the SQL rewrites that PGAdapter applies to statements before they are sent
+ * to Spanner, such as replacing pg_catalog tables with common table expressions and replacing FOR
+ * UPDATE clauses with a hint. The result of these rewrites only depends on the SQL string, the
+ * client that is connected and a number of session settings, so it can be computed once and shared
+ * by all executions of the same statement. The cached statements do not contain any parameter
+ * values. These are bound to the cached statement for each execution.
+ *
+ * <p>Rewrites that depend on other session state, for example the current values of all settings
+ * that are returned by pg_settings, should not be added to this cache.
+ */
+@InternalApi
+public class SqlRewriteCache {
+  /** The default maximum number of entries in the cache. */
+  public static final long DEFAULT_MAXIMUM_SIZE = 10_000L;
+
+  /** Flag for statements where pg_catalog tables are replaced with common table expressions. */
+  public static final int REPLACE_PG_CATALOG_TABLES = 1;
+  /** Flag for statements where pg_class and related tables are emulated. */
+  public static final int EMULATE_PG_CLASS_TABLES = 1 << 1;
+  /** Flag for statements where FOR UPDATE clauses are replaced with a hint. */
+  public static final int REPLACE_FOR_UPDATE = 1 << 2;
+  /** Flag for statements where a LIMIT clause is added for parameterized OFFSET clauses. */
+  public static final int AUTO_ADD_LIMIT_CLAUSE = 1 << 3;
+
+  @VisibleForTesting
+  static final class Key {
+    private final String sql;
+    private final WellKnownClient wellKnownClient;
+    private final int flags;
+    private final int hashCode;
+
+    Key(String sql, WellKnownClient wellKnownClient, int flags) {
+      this.sql = Preconditions.checkNotNull(sql);
+      this.wellKnownClient = Preconditions.checkNotNull(wellKnownClient);
+      this.flags = flags;
+      this.hashCode = Objects.hash(sql, wellKnownClient, flags);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return this.flags == other.flags
+          && this.wellKnownClient == other.wellKnownClient
+          && this.sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private final Cache<Key, Statement> cache;
+  private final Metrics metrics;
+
+  public SqlRewriteCache(Metrics metrics) {
+    this(metrics, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  public SqlRewriteCache(Metrics metrics, long maximumSize) {
+    this.metrics = Preconditions.checkNotNull(metrics);
+    this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+  }
+
+  /**
+   * Returns the cached rewritten statement for the given SQL string, client and rewrite flags, or
+   * null if there is no cached statement.
+   */
+  @Nullable
+  public Statement get(String sql, WellKnownClient wellKnownClient, int flags) {
+    Statement statement = cache.getIfPresent(new Key(sql, wellKnownClient, flags));
+    if (statement == null) {
+      metrics.recordSqlRewriteCacheMiss();
+    } else {
+      metrics.recordSqlRewriteCacheHit();
+    }
+    return statement;
+  }
+
+  /** Adds a rewritten statement without any parameter values to the cache. */
+  public void put(String sql, WellKnownClient wellKnownClient, int flags, Statement statement) {
+    Preconditions.checkArgument(
+        statement.getParameters().isEmpty(), "Cached statements may not contain parameters");
+    cache.put(new Key(sql, wellKnownClient, flags), statement);
+  }
+
+  /** Returns the ratio of lookups that returned a cached statement since this cache was created. */
+  public double hitRatio() {
+    return cache.stats().hitRate();
+  }
+
+  /** Removes all entries from the cache. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /** Returns the approximate number of entries in the cache. */
+  public long size() {
+    return cache.size();
+  }
+}
@@ -0,0 +1,261 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.statements.SimpleParser;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Server-wide statistics for the statements that are executed through PGAdapter, similar to the
+ * pg_stat_statements extension in PostgreSQL. Statements are grouped by their fingerprint, which is
+ * the SQL string with all literals replaced by query parameters, so executions of the same
+ * statement with different literal values are counted as the same statement.
+ *
+ * <p>The statistics are divided over a fixed number of stripes that each have their own lock, so
+ * connections that execute different statements do not contend for the same lock. The number of
+ * statements that are tracked is bounded. The statement with the lowest number of calls in a stripe
+ * is removed when a new statement is added to a full stripe.
+ *
+ * <p>The execution time of a query includes the time that it takes to execute the query on Spanner
+ * and to return the first results, but not the time that it takes to send all rows to the client.
+ */
+@InternalApi
+public class StatementStatistics {
+  /** The default maximum number of statements that are tracked. */
+  public static final int DEFAULT_MAX_STATEMENTS = 5000;
+
+  private static final int NUM_STRIPES = 16;
+
+  /** The maximum number of SQL strings for which the fingerprint is cached. */
+  private static final long MAX_CACHED_FINGERPRINTS = 10_000L;
+
+  /** An immutable snapshot of the statistics of one statement. */
+  @InternalApi
+  public static final class Snapshot {
+    private final long queryId;
+    private final String query;
+    private final long calls;
+    private final long totalNanos;
+    private final long minNanos;
+    private final long maxNanos;
+    private final long spannerNanos;
+    private final long rows;
+
+    private Snapshot(String query, Entry entry) {
+      this.queryId = entry.queryId;
+      this.query = query;
+      this.calls = entry.calls;
+      this.totalNanos = entry.totalNanos;
+      this.minNanos = entry.minNanos;
+      this.maxNanos = entry.maxNanos;
+      this.spannerNanos = entry.spannerNanos;
+      this.rows = entry.rows;
+    }
+
+    /** Returns a hash of the normalized query string. */
+    public long getQueryId() {
+      return queryId;
+    }
+
+    /** Returns the normalized query string. */
+    public String getQuery() {
+      return query;
+    }
+
+    public long getCalls() {
+      return calls;
+    }
+
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    public long getMinNanos() {
+      return minNanos;
+    }
+
+    public long getMaxNanos() {
+      return maxNanos;
+    }
+
+    public long getMeanNanos() {
+      return calls == 0L ? 0L : totalNanos / calls;
+    }
+
+    /** Returns the total time that was spent waiting for Spanner to execute the statement. */
+    public long getSpannerNanos() {
+      return spannerNanos;
+    }
+
+    /** Returns the total time that was spent in PGAdapter for executing the statement. */
+    public long getAdapterNanos() {
+      return Math.max(0L, totalNanos - spannerNanos);
+    }
+
+    /** Returns the total number of rows that were returned or affected by the statement. */
+    public long getRows() {
+      return rows;
+    }
+  }
+
+  /** The mutable statistics of one statement. All fields are guarded by the lock of the stripe. */
+  private static final class Entry {
+    private final long queryId;
+    private long calls;
+    private long totalNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+    private long spannerNanos;
+    private long rows;
+
+    private Entry(long queryId) {
+      this.queryId = queryId;
+    }
+  }
+
+  private static final class Stripe {
+    private final Map<String, Entry> entries = new HashMap<>();
+  }
+
+  private final int maxStatementsPerStripe;
+  private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+  private final Cache<String, String> fingerprints =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_FINGERPRINTS).build();
+
+  public StatementStatistics() {
+    this(DEFAULT_MAX_STATEMENTS);
+  }
+
+  public StatementStatistics(int maxStatements) {
+    Preconditions.checkArgument(maxStatements > 0, "maxStatements must be positive");
+    this.maxStatementsPerStripe = Math.max(1, maxStatements / NUM_STRIPES);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  /** Returns the fingerprint of the given SQL string. */
+  @VisibleForTesting
+  String fingerprint(String sql) {
+    try {
+      return fingerprints.get(sql, () -> SimpleParser.normalizeLiterals(sql));
+    } catch (ExecutionException | RuntimeException exception) {
+      // The parser is not able to normalize all possible (invalid) SQL strings. Use the SQL string
+      // as-is for these statements.
+      return sql;
+    }
+  }
+
+  private Stripe getStripe(String fingerprint) {
+    // Spread the hash code in the same way as HashMap does before selecting a stripe.
+    int hash = fingerprint.hashCode();
+    return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % NUM_STRIPES];
+  }
+
+  /**
+   * Records one execution of the given SQL statement. The Spanner time is the part of the total
+   * execution time that was spent waiting for Spanner.
+   */
+  public void record(String sql, long totalNanos, long spannerNanos, long rows) {
+    String fingerprint = fingerprint(sql);
+    Stripe stripe = getStripe(fingerprint);
+    synchronized (stripe) {
+      Entry entry = stripe.entries.get(fingerprint);
+      if (entry == null) {
+        if (stripe.entries.size() >= maxStatementsPerStripe) {
+          evictLeastCalled(stripe);
+        }
+        entry =
+            new Entry(
+                Hashing.farmHashFingerprint64()
+                    .hashString(fingerprint, StandardCharsets.UTF_8)
+                    .asLong());
+        stripe.entries.put(fingerprint, entry);
+      }
+      entry.calls++;
+      entry.totalNanos += totalNanos;
+      entry.minNanos = Math.min(entry.minNanos, totalNanos);
+      entry.maxNanos = Math.max(entry.maxNanos, totalNanos);
+      entry.spannerNanos += spannerNanos;
+      entry.rows += rows;
+    }
+  }
+
+  /**
+   * Adds the given number of rows to the statistics of the given SQL statement. This is used for
+   * queries, as the number of rows of a query is only known after all rows have been sent to the
+   * client. The rows are ignored if the statement is not (or no longer) tracked.
+   */
+  public void addRows(String sql, long rows) {
+    String fingerprint = fingerprint(sql);
+    Stripe stripe = getStripe(fingerprint);
+    synchronized (stripe) {
+      Entry entry = stripe.entries.get(fingerprint);
+      if (entry != null) {
+        entry.rows += rows;
+      }
+    }
+  }
+
+  private static void evictLeastCalled(Stripe stripe) {
+    String leastCalled = null;
+    long leastCalls = Long.MAX_VALUE;
+    for (Map.Entry<String, Entry> entry : stripe.entries.entrySet()) {
+      if (entry.getValue().calls < leastCalls) {
+        leastCalled = entry.getKey();
+        leastCalls = entry.getValue().calls;
+      }
+    }
+    stripe.entries.remove(leastCalled);
+  }
+
+  /**
+   * Returns a snapshot of the statistics of all tracked statements, ordered by the total execution
+   * time in descending order.
+   */
+  public List<Snapshot> getSnapshots() {
+    List<Snapshot> result = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (Map.Entry<String, Entry> entry : stripe.entries.entrySet()) {
+          result.add(new Snapshot(entry.getKey(), entry.getValue()));
+        }
+      }
+    }
+    result.sort(Comparator.comparingLong(Snapshot::getTotalNanos).reversed());
+    return result;
+  }
+
+  /** Removes all statistics. */
+  public void reset() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.entries.clear();
+      }
+    }
+  }
+}
@@ -22,10 +22,12 @@ import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import com.google.common.io.CharSource;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import javax.annotation.Nonnull;
@@ -137,7 +139,94 @@ public class BinaryParser extends Parser<ByteArray> {
     }
   }
 
-  static int copy(int length, InputStream from, DataOutputStream to, int bufferSize)
+  /**
+   * Writes the value at the given position directly into the given buffer, including the length of
+   * the value. Values that are larger than the binary conversion buffer size are not copied into
+   * the buffer, but are decoded and written directly to the client in chunks of that size.
+   */
+  public static void writeToPG(
+      SessionState sessionState,
+      DataRowBuffer buffer,
+      ResultSet resultSet,
+      int position,
+      DataFormat format) {
+    int bufferSize = sessionState.getBinaryConversionBufferSize();
+    String base64 = resultSet.getValue(position).getAsString();
+    int length = base64ByteLength(base64);
+    boolean stream = bufferSize > 0 && length > bufferSize;
+    switch (format) {
+      case SPANNER:
+      case POSTGRESQL_BINARY:
+        if (stream) {
+          buffer.writeLargeValue(length, output -> decode(base64, length, output, bufferSize));
+        } else {
+          buffer.writeInt(length);
+          buffer.writeBytes(Base64.getDecoder().decode(base64));
+        }
+        return;
+      case POSTGRESQL_TEXT:
+        if (stream) {
+          // The text format is '\x' followed by two hex digits for each byte.
+          buffer.writeLargeValue(
+              Math.addExact(2, Math.multiplyExact(2, length)),
+              output -> {
+                output.write('\\');
+                output.write('x');
+                decode(base64, length, new HexOutputStream(output, bufferSize), bufferSize);
+              });
+        } else {
+          byte[] hex = bytesToHex(Base64.getDecoder().decode(base64));
+          buffer.writeInt(hex.length);
+          buffer.writeBytes(hex);
+        }
+        return;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
+  /** Decodes the given base64 string and writes it to the given stream in chunks. */
+  private static void decode(String base64, int length, OutputStream output, int bufferSize)
+      throws IOException {
+    try (InputStream inputStream =
+        Base64.getDecoder()
+            .wrap(CharSource.wrap(base64).asByteSource(StandardCharsets.ISO_8859_1).openStream())) {
+      copy(length, inputStream, output, bufferSize);
+    }
+  }
+
+  /** Writes the hex representation of all bytes that are written to it to the delegate stream. */
+  private static final class HexOutputStream extends OutputStream {
+    private final OutputStream delegate;
+    private final byte[] hex;
+
+    HexOutputStream(OutputStream delegate, int bufferSize) {
+      this.delegate = delegate;
+      this.hex = new byte[2 * bufferSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        int chunk = Math.min(length, hex.length / 2);
+        for (int index = 0; index < chunk; index++) {
+          int v = bytes[offset + index] & 0xFF;
+          hex[2 * index] = HEX_ARRAY[v >>> 4];
+          hex[2 * index + 1] = HEX_ARRAY[v & 0x0F];
+        }
+        delegate.write(hex, 0, 2 * chunk);
+        offset += chunk;
+        length -= chunk;
+      }
+    }
+  }
+
+  static int copy(int length, InputStream from, OutputStream to, int bufferSize)
       throws IOException {
     byte[] buf = new byte[Math.min(length, bufferSize)];
     int total = 0;
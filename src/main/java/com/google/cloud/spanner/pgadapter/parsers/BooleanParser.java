@@ -21,6 +21,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import com.google.common.collect.ImmutableSet;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
@@ -136,6 +137,28 @@ public class BooleanParser extends Parser<Boolean> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer. This does not write the
+   * length of the value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer, ResultSet resultSet, int position, DataFormat format) {
+    switch (format) {
+      case SPANNER:
+        buffer.writeAscii(resultSet.getBoolean(position) ? "true" : "false");
+        break;
+      case POSTGRESQL_TEXT:
+        buffer.writeBytes(resultSet.getBoolean(position) ? TRUE_VALUE_BYTES : FALSE_VALUE_BYTES);
+        break;
+      case POSTGRESQL_BINARY:
+        buffer.writeBytes(
+            resultSet.getBoolean(position) ? TRUE_VALUE_BYTES_BINARY : FALSE_VALUE_BYTES_BINARY);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   @Override
   public void bind(Statement.Builder statementBuilder, String name) {
     statementBuilder.bind(name).to(this.item);
@@ -22,6 +22,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
@@ -59,7 +60,10 @@ public class DateParser extends Parser<Date> {
           // Use the first 10 characters of the date string, as the string might contain a timezone
           // identifier, which is not supported by parseDate(String).
           if (stringValue.length() >= 10) {
-            this.item = Date.parseDate(stringValue.substring(0, 10));
+            this.item = DateTimeCodec.parseDate(stringValue, 0, 10);
+            if (this.item == null) {
+              this.item = Date.parseDate(stringValue.substring(0, 10));
+            }
           } else {
             throw PGExceptionFactory.newPGException("Invalid date value: " + stringValue);
           }
@@ -73,6 +77,12 @@ public class DateParser extends Parser<Date> {
     }
   }
 
+  /** Converts the given string in the format yyyy-MM-dd to a {@link Date}. */
+  public static Date toDate(@Nonnull String value) {
+    Date date = DateTimeCodec.parseDate(value, 0, value.length());
+    return date == null ? Date.parseDate(value) : date;
+  }
+
   /** Converts the binary data to a {@link Date}. */
   public static Date toDate(@Nonnull byte[] data) {
     if (data.length < 4) {
@@ -142,6 +152,37 @@ public class DateParser extends Parser<Date> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer. This does not write the
+   * length of the value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer, ResultSet resultSet, int position, DataFormat format) {
+    Date date = resultSet.getDate(position);
+    switch (format) {
+      case SPANNER:
+      case POSTGRESQL_TEXT:
+        int year = date.getYear();
+        if (year > 9999) {
+          buffer.write('+');
+          buffer.writeDecimal(year);
+        } else {
+          buffer.writeDecimal(year, 4);
+        }
+        buffer.write('-');
+        buffer.writeDecimal(date.getMonth(), 2);
+        buffer.write('-');
+        buffer.writeDecimal(date.getDayOfMonth(), 2);
+        break;
+      case POSTGRESQL_BINARY:
+        LocalDate localDate = LocalDate.of(date.getYear(), date.getMonth(), date.getDayOfMonth());
+        buffer.writeInt(validateRange(localDate.toEpochDay() - PG_EPOCH_DAYS));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   /**
    * Dates are stored as long, but technically cannot be longer than int. Here we ensure that is the
    * case.
@@ -0,0 +1,368 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import javax.annotation.Nullable;
+
+/**
+ * Hand-written parser and formatter for the text representation of PostgreSQL timestamps and dates.
+ * The parse methods only accept the layouts that are sent by most drivers and tools, and return
+ * null for any other value. Callers should fall back to the more lenient {@link
+ * java.time.format.DateTimeFormatter} based parsers for those values. This ensures that parsing
+ * common values neither throws and catches an exception, nor creates any intermediate objects.
+ */
+@InternalApi
+public final class DateTimeCodec {
+  /** The maximum length of a timestamp that is formatted by this codec. */
+  static final int MAX_TIMESTAMP_LENGTH = "9999-12-31 23:59:59.999999+18:00:00".length();
+
+  private static final long SECONDS_PER_DAY = 86400L;
+  private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+  private static final long MIN_SECONDS = Timestamp.MIN_VALUE.getSeconds();
+  private static final long MAX_SECONDS = Timestamp.MAX_VALUE.getSeconds();
+
+  /** Java 8 does not support seconds in a timezone offset. */
+  private static final boolean INCLUDE_OFFSET_SECONDS = !OptionsMetadata.isJava8();
+
+  private DateTimeCodec() {}
+
+  /** Returns true if the given year, month and day form a valid date. */
+  public static boolean isValidDate(int year, int month, int day) {
+    if (year < 1 || month < 1 || month > 12 || day < 1) {
+      return false;
+    }
+    switch (month) {
+      case 2:
+        boolean leapYear = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+        return day <= (leapYear ? 29 : 28);
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return day <= 30;
+      default:
+        return day <= 31;
+    }
+  }
+
+  /** Returns the number of days since 1970-01-01 for the given date in the proleptic calendar. */
+  public static long daysSinceEpoch(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = (y >= 0 ? y : y - 399) / 400;
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * Parses a date in the format yyyy-MM-dd from the given range of the value, or returns null if
+   * the range contains any other value.
+   */
+  @Nullable
+  public static Date parseDate(CharSequence value, int start, int end) {
+    if (end - start != 10 || value.charAt(start + 4) != '-' || value.charAt(start + 7) != '-') {
+      return null;
+    }
+    int year = parseDigits(value, start, 4);
+    int month = parseDigits(value, start + 5, 2);
+    int day = parseDigits(value, start + 8, 2);
+    if (!isValidDate(year, month, day)) {
+      return null;
+    }
+    return Date.fromYearMonthDay(year, month, day);
+  }
+
+  /**
+   * Parses a timestamp in the format yyyy-MM-dd[( |T)HH:mm[:ss[.fffffffff]][ ][offset]], or returns
+   * null for any other value. The offset can be 'Z' or (+|-)HH[[:]mm[[:]ss]]. The given timezone is
+   * used for values without an offset.
+   */
+  @Nullable
+  public static Timestamp parseTimestamp(CharSequence value, ZoneId timezone) {
+    int length = value.length();
+    if (length < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+      return null;
+    }
+    int year = parseDigits(value, 0, 4);
+    int month = parseDigits(value, 5, 2);
+    int day = parseDigits(value, 8, 2);
+    if (!isValidDate(year, month, day)) {
+      return null;
+    }
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int nanos = 0;
+    int position = 10;
+    if (position < length) {
+      char separator = value.charAt(position);
+      if ((separator != ' ' && separator != 'T' && separator != 't')
+          || length < 16
+          || value.charAt(13) != ':') {
+        return null;
+      }
+      hour = parseDigits(value, 11, 2);
+      minute = parseDigits(value, 14, 2);
+      position = 16;
+      if (position < length && value.charAt(position) == ':') {
+        if (length < 19) {
+          return null;
+        }
+        second = parseDigits(value, 17, 2);
+        position = 19;
+        if (position < length && value.charAt(position) == '.') {
+          position++;
+          int fractionDigits = 0;
+          while (position < length && isDigit(value.charAt(position))) {
+            if (++fractionDigits > 9) {
+              return null;
+            }
+            nanos = nanos * 10 + (value.charAt(position++) - '0');
+          }
+          if (fractionDigits == 0) {
+            return null;
+          }
+          for (int i = fractionDigits; i < 9; i++) {
+            nanos *= 10;
+          }
+        }
+      }
+      if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+        return null;
+      }
+    }
+    long localSeconds =
+        daysSinceEpoch(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+    long seconds;
+    if (position == length) {
+      seconds = toEpochSeconds(localSeconds, year, month, day, hour, minute, second, timezone);
+    } else {
+      if (value.charAt(position) == ' ') {
+        position++;
+      }
+      int offsetSeconds = parseOffset(value, position);
+      if (offsetSeconds == Integer.MIN_VALUE) {
+        return null;
+      }
+      seconds = localSeconds - offsetSeconds;
+    }
+    if (seconds < MIN_SECONDS || seconds > MAX_SECONDS) {
+      return null;
+    }
+    return Timestamp.ofTimeSecondsAndNanos(seconds, nanos);
+  }
+
+  /**
+   * Parses a timezone offset that starts at the given position and runs until the end of the value.
+   * Returns the offset in seconds, or Integer.MIN_VALUE if it is not a valid offset.
+   */
+  private static int parseOffset(CharSequence value, int position) {
+    int length = value.length();
+    if (position >= length) {
+      return Integer.MIN_VALUE;
+    }
+    char sign = value.charAt(position);
+    if (sign == 'Z' || sign == 'z') {
+      return position + 1 == length ? 0 : Integer.MIN_VALUE;
+    }
+    if ((sign != '+' && sign != '-') || position + 3 > length) {
+      return Integer.MIN_VALUE;
+    }
+    int offsetSeconds = 0;
+    position++;
+    // Parse the hours, and then the optional minutes and seconds, each optionally preceded by ':'.
+    for (int part = 0; part < 3 && position < length; part++) {
+      if (part > 0 && value.charAt(position) == ':') {
+        position++;
+      }
+      if (position + 2 > length) {
+        return Integer.MIN_VALUE;
+      }
+      int digits = parseDigits(value, position, 2);
+      if (digits < 0 || (part > 0 && digits > 59)) {
+        return Integer.MIN_VALUE;
+      }
+      offsetSeconds += digits * (part == 0 ? 3600 : part == 1 ? 60 : 1);
+      position += 2;
+    }
+    if (position != length || offsetSeconds > MAX_OFFSET_SECONDS) {
+      return Integer.MIN_VALUE;
+    }
+    return sign == '-' ? -offsetSeconds : offsetSeconds;
+  }
+
+  private static long toEpochSeconds(
+      long localSeconds,
+      int year,
+      int month,
+      int day,
+      int hour,
+      int minute,
+      int second,
+      ZoneId timezone) {
+    if (timezone instanceof ZoneOffset) {
+      return localSeconds - ((ZoneOffset) timezone).getTotalSeconds();
+    }
+    ZoneRules rules = timezone.getRules();
+    if (rules.isFixedOffset()) {
+      return localSeconds - rules.getOffset(Instant.EPOCH).getTotalSeconds();
+    }
+    // Let java.time resolve gaps and overlaps in the timezone.
+    return LocalDateTime.of(year, month, day, hour, minute, second)
+        .atZone(timezone)
+        .toEpochSecond();
+  }
+
+  /**
+   * Formats the given timestamp in the given timezone as yyyy-MM-dd
+   * HH:mm:ss[.ffffff](+|-)HH[:mm[:ss]] into the given array, and returns the number of bytes that
+   * were written. The array must have room for {@link #MAX_TIMESTAMP_LENGTH} bytes. The fraction is
+   * truncated to microseconds, and trailing zeros are removed.
+   *
+   * <p>Returns -1 without writing anything if the local year is outside the range [1, 9999]. This
+   * can happen for the minimum and maximum timestamp in timezones with a negative or positive
+   * offset. The caller must then use {@link TimestampParser#toPGStringWithFormatter(Timestamp,
+   * ZoneId)}, which formats these years with a sign or an extra digit.
+   */
+  static int formatTimestamp(Timestamp value, ZoneId timezone, byte[] target) {
+    return formatTimestamp(value, timezone, target, 0);
+  }
+
+  /**
+   * Formats the given timestamp into the given array starting at the given offset, and returns the
+   * offset directly after the last byte that was written, or -1 if the local year is outside the
+   * range that this codec supports. See {@link #formatTimestamp(Timestamp, ZoneId, byte[])}.
+   */
+  static int formatTimestamp(Timestamp value, ZoneId timezone, byte[] target, int offset) {
+    long seconds = value.getSeconds();
+    int offsetSeconds;
+    if (timezone instanceof ZoneOffset) {
+      offsetSeconds = ((ZoneOffset) timezone).getTotalSeconds();
+    } else {
+      offsetSeconds =
+          timezone.getRules().getOffset(Instant.ofEpochSecond(seconds)).getTotalSeconds();
+    }
+    long localSeconds = seconds + offsetSeconds;
+    long epochDay = Math.floorDiv(localSeconds, SECONDS_PER_DAY);
+    int secondOfDay = (int) Math.floorMod(localSeconds, SECONDS_PER_DAY);
+
+    // Convert the epoch day to a year, month and day in the proleptic calendar.
+    long z = epochDay + 719468;
+    long era = (z >= 0 ? z : z - 146096) / 146097;
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+    int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+    int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+    if (year < 1 || year > 9999) {
+      return -1;
+    }
+
+    int position = writeDigits(target, offset, year, 4);
+    target[position++] = '-';
+    position = writeDigits(target, position, month, 2);
+    target[position++] = '-';
+    position = writeDigits(target, position, day, 2);
+    target[position++] = ' ';
+    position = writeDigits(target, position, secondOfDay / 3600, 2);
+    target[position++] = ':';
+    position = writeDigits(target, position, secondOfDay / 60 % 60, 2);
+    target[position++] = ':';
+    position = writeDigits(target, position, secondOfDay % 60, 2);
+    int nanos = value.getNanos();
+    if (nanos > 0) {
+      // Remove the trailing zeros of the nanoseconds, and then truncate to at most microseconds.
+      // This gives the same result as DateTimeFormatterBuilder#appendFraction(NANO_OF_SECOND, 0,
+      // 6).
+      int digits = 9;
+      int fraction = nanos;
+      while (fraction % 10 == 0) {
+        fraction /= 10;
+        digits--;
+      }
+      if (digits > 6) {
+        fraction = nanos / 1000;
+        digits = 6;
+      }
+      target[position++] = '.';
+      position = writeDigits(target, position, fraction, digits);
+    }
+    // The minutes and seconds of the offset are only included if these are not zero.
+    target[position++] = (byte) (offsetSeconds < 0 ? '-' : '+');
+    int absOffset = Math.abs(offsetSeconds);
+    position = writeDigits(target, position, absOffset / 3600, 2);
+    boolean includeSeconds = INCLUDE_OFFSET_SECONDS && absOffset % 60 != 0;
+    if (includeSeconds || absOffset / 60 % 60 != 0) {
+      target[position++] = ':';
+      position = writeDigits(target, position, absOffset / 60 % 60, 2);
+    }
+    if (includeSeconds) {
+      target[position++] = ':';
+      position = writeDigits(target, position, absOffset % 60, 2);
+    }
+    return position;
+  }
+
+  /** Formats the given timestamp in the given timezone. See {@link #formatTimestamp}. */
+  static String formatTimestamp(Timestamp value, ZoneId timezone) {
+    byte[] result = new byte[MAX_TIMESTAMP_LENGTH];
+    int length = formatTimestamp(value, timezone, result);
+    if (length < 0) {
+      return TimestampParser.toPGStringWithFormatter(value, timezone);
+    }
+    return new String(result, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  private static int writeDigits(byte[] target, int position, int value, int digits) {
+    for (int index = position + digits - 1; index >= position; index--) {
+      target[index] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return position + digits;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Parses the given number of decimal digits, or returns -1 if any of the characters is not a
+   * digit.
+   */
+  private static int parseDigits(CharSequence value, int start, int count) {
+    int result = 0;
+    for (int i = start; i < start + count; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c)) {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+}
@@ -21,6 +21,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nonnull;
 import org.postgresql.util.ByteConverter;
@@ -97,6 +98,25 @@ public class DoubleParser extends Parser<Double> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer. This does not write the
+   * length of the value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer, ResultSet resultSet, int position, DataFormat format) {
+    switch (format) {
+      case SPANNER:
+      case POSTGRESQL_TEXT:
+        buffer.writeAscii(Double.toString(resultSet.getDouble(position)));
+        break;
+      case POSTGRESQL_BINARY:
+        buffer.writeDouble(resultSet.getDouble(position));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   @Override
   public void bind(Statement.Builder statementBuilder, String name) {
     statementBuilder.bind(name).to(this.item);
@@ -23,6 +23,7 @@ import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import java.io.DataOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
@@ -31,6 +32,7 @@ import javax.annotation.Nonnull;
 /** Translate from wire protocol to jsonb. */
 @InternalApi
 public class JsonbParser extends Parser<String> {
+  private static final byte[] TEXT_HEADER = new byte[0];
   private static final byte[] BINARY_HEADER = new byte[] {1};
 
   JsonbParser(ResultSet item, int position) {
@@ -114,6 +116,29 @@ public class JsonbParser extends Parser<String> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer, including the length of
+   * the value.
+   */
+  public static void writeToPG(
+      SessionState sessionState,
+      DataRowBuffer buffer,
+      ResultSet resultSet,
+      int position,
+      DataFormat format) {
+    switch (format) {
+      case SPANNER:
+      case POSTGRESQL_TEXT:
+        StringParser.writeToPG(sessionState, buffer, resultSet.getPgJsonb(position), TEXT_HEADER);
+        return;
+      case POSTGRESQL_BINARY:
+        StringParser.writeToPG(sessionState, buffer, resultSet.getPgJsonb(position), BINARY_HEADER);
+        return;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   @Override
   public void bind(Statement.Builder statementBuilder, String name) {
     statementBuilder.bind(name).to(Value.pgJsonb(this.item));
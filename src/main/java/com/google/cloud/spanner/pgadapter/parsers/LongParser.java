@@ -21,6 +21,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
@@ -107,6 +108,25 @@ public class LongParser extends Parser<Long> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer. This does not write the
+   * length of the value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer, ResultSet resultSet, int position, DataFormat format) {
+    switch (format) {
+      case SPANNER:
+      case POSTGRESQL_TEXT:
+        buffer.writeDecimal(resultSet.getLong(position));
+        break;
+      case POSTGRESQL_BINARY:
+        buffer.writeLong(resultSet.getLong(position));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   @Override
   public void bind(Statement.Builder statementBuilder, String name) {
     statementBuilder.bind(name).to(this.item);
@@ -19,10 +19,10 @@ import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
-import com.google.common.base.Utf8;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import javax.annotation.Nonnull;
 
@@ -69,6 +69,34 @@ public class StringParser extends Parser<String> {
     return null;
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer, including the length of
+   * the value. Values that are longer than the string conversion buffer size are not copied into
+   * the buffer, but are written directly to the client in chunks of that size.
+   */
+  public static void writeToPG(
+      SessionState sessionState, DataRowBuffer buffer, ResultSet resultSet, int position) {
+    writeToPG(sessionState, buffer, resultSet.getString(position), HEADER);
+  }
+
+  static void writeToPG(
+      SessionState sessionState, DataRowBuffer buffer, String value, byte[] header) {
+    int bufferSize = sessionState.getStringConversionBufferSize();
+    if (bufferSize <= 0 || value.length() < bufferSize) {
+      int lengthPosition = buffer.beginValue();
+      buffer.write(header, 0, header.length);
+      buffer.writeUtf8(value);
+      buffer.endValue(lengthPosition);
+    } else {
+      buffer.writeLargeValue(
+          header.length + DataRowBuffer.utf8Length(value),
+          output -> {
+            output.write(header);
+            writeUtf8(output, value, bufferSize);
+          });
+    }
+  }
+
   static void writeToPG(
       SessionState sessionState, DataOutputStream dataOutputStream, String value) {
     writeToPG(sessionState, dataOutputStream, value, HEADER);
@@ -85,22 +113,36 @@ public class StringParser extends Parser<String> {
         dataOutputStream.write(header);
         dataOutputStream.write(bytes);
       } else {
-        try (OutputStreamWriter writer =
-            new OutputStreamWriter(dataOutputStream, StandardCharsets.UTF_8)) {
-          int utf8Length = Utf8.encodedLength(value) + header.length;
-          dataOutputStream.writeInt(utf8Length);
-          dataOutputStream.write(header);
-          for (int offset = 0; offset < length; offset += bufferSize) {
-            int writeLen = Math.min(bufferSize, length - offset);
-            writer.write(value, offset, writeLen);
-          }
-        }
+        dataOutputStream.writeInt(DataRowBuffer.utf8Length(value) + header.length);
+        dataOutputStream.write(header);
+        writeUtf8(dataOutputStream, value, bufferSize);
       }
     } catch (IOException ioException) {
       throw SpannerExceptionFactory.asSpannerException(ioException);
     }
   }
 
+  /**
+   * Writes the given value encoded as UTF-8 to the given stream in chunks of at most chunkSize
+   * characters. The stream is not closed.
+   */
+  private static void writeUtf8(OutputStream output, String value, int chunkSize)
+      throws IOException {
+    int length = value.length();
+    // A chunk must be able to contain a complete surrogate pair.
+    chunkSize = Math.max(2, chunkSize);
+    int offset = 0;
+    while (offset < length) {
+      int end = Math.min(length, offset + chunkSize);
+      // Do not split a surrogate pair, as each half would then be encoded as '?'.
+      if (end < length && Character.isHighSurrogate(value.charAt(end - 1))) {
+        end--;
+      }
+      output.write(value.substring(offset, end).getBytes(StandardCharsets.UTF_8));
+      offset = end;
+    }
+  }
+
   public static byte[] binaryParse(ResultSet resultSet, int position) {
     return resultSet.isNull(position)
         ? null
@@ -24,6 +24,8 @@ import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
+import com.google.common.annotations.VisibleForTesting;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -127,6 +129,17 @@ public class TimestampParser extends Parser<Timestamp> {
    */
   public static Timestamp toTimestamp(@Nonnull String value, @Nonnull ZoneId timezone) {
     value = stripBracketsAndQuotes(value);
+    // Most values use one of the common layouts that can be parsed without a DateTimeFormatter.
+    Timestamp timestamp = DateTimeCodec.parseTimestamp(value, timezone);
+    if (timestamp != null) {
+      return timestamp;
+    }
+    return toTimestampWithFormatter(value, timezone);
+  }
+
+  /** Parses the given timestamp string using the lenient {@link DateTimeFormatter}s. */
+  @VisibleForTesting
+  static Timestamp toTimestampWithFormatter(@Nonnull String value, @Nonnull ZoneId timezone) {
     try {
       String stringValue = toPGString(value);
       TemporalAccessor temporalAccessor = TIMESTAMPTZ_INPUT_FORMATTER.parse(stringValue);
@@ -224,6 +237,40 @@ public class TimestampParser extends Parser<Timestamp> {
     }
   }
 
+  /**
+   * Writes the value at the given position directly into the given buffer. This does not write the
+   * length of the value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer, ResultSet resultSet, int position, DataFormat format, ZoneId zoneId) {
+    switch (format) {
+      case SPANNER:
+        buffer.writeAscii(resultSet.getTimestamp(position).toString());
+        break;
+      case POSTGRESQL_TEXT:
+        // The value is formatted directly into the buffer.
+        Timestamp timestamp = resultSet.getTimestamp(position);
+        int start = buffer.size();
+        int end =
+            DateTimeCodec.formatTimestamp(
+                timestamp, zoneId, buffer.reserve(DateTimeCodec.MAX_TIMESTAMP_LENGTH), start);
+        if (end < 0) {
+          buffer.writeAscii(toPGStringWithFormatter(timestamp, zoneId));
+        } else {
+          buffer.advance(end - start);
+        }
+        break;
+      case POSTGRESQL_BINARY:
+        Timestamp value = resultSet.getTimestamp(position);
+        buffer.writeLong(
+            ((value.getSeconds() - PG_EPOCH_SECONDS) * MICROSECONDS_IN_SECOND)
+                + (value.getNanos() / NANOSECONDS_IN_MICROSECONDS));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown data format: " + format);
+    }
+  }
+
   /**
    * Converts the given {@link Timestamp} to a text value that is understood by PostgreSQL. That
    * means a space delimiter between date and time values, and no trailing 'Z'.
@@ -235,6 +282,12 @@ public class TimestampParser extends Parser<Timestamp> {
   }
 
   private static String toPGString(Timestamp value, ZoneId zoneId) {
+    return DateTimeCodec.formatTimestamp(value, zoneId);
+  }
+
+  /** Formats the given timestamp using a {@link DateTimeFormatter}. */
+  @VisibleForTesting
+  static String toPGStringWithFormatter(Timestamp value, ZoneId zoneId) {
     OffsetDateTime offsetDateTime =
         OffsetDateTime.ofInstant(
             Instant.ofEpochSecond(value.getSeconds(), value.getNanos()), zoneId);
@@ -25,6 +25,26 @@ public class CopySettings {
 
   private final SessionState sessionState;
 
+  private static final String[] LEGACY_SYSTEM_PROPERTIES =
+      new String[] {
+        "copy_in_max_parallelism",
+        "copy_in_insert_or_update",
+        "copy_in_mutation_limit",
+        "copy_in_commit_limit",
+        "copy_in_commit_limit_multiplier_factor",
+        "copy_in_pipe_buffer_size"
+      };
+
+  /** Returns true if any of the System properties that are used as COPY defaults has been set. */
+  static boolean hasLegacySystemProperties() {
+    for (String property : LEGACY_SYSTEM_PROPERTIES) {
+      if (System.getProperty(property) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   static void initCopySettings(Map<String, PGSetting> settings) {
     // COPY settings could originally be set using System properties. Use these system properties as
     // the default if they have been set.
@@ -107,6 +127,24 @@ public class CopySettings {
     }
   }
 
+  /**
+   * Returns whether non-atomic COPY FROM STDIN operations should adjust the batch size and the
+   * number of parallel transactions to the observed commit latency and errors. The batch size and
+   * max parallelism settings are used as upper limits when this is enabled.
+   */
+  public boolean isAdaptiveBatching() {
+    return sessionState.getBoolSetting("spanner", "copy_adaptive_batching", false);
+  }
+
+  /**
+   * Returns the commit latency in milliseconds that adaptive batching aims for. The batch size is
+   * decreased if commits take longer than this.
+   */
+  public int getTargetCommitLatencyMillis() {
+    return Math.max(
+        sessionState.getIntegerSetting("spanner", "copy_target_commit_latency", 1000), 1);
+  }
+
   /** Returns the batch size to use for non-atomic COPY FROM STDIN operations. */
   public int getNonAtomicBatchSize() {
     return sessionState.getIntegerSetting("spanner", "copy_batch_size", 5000);
@@ -139,11 +177,24 @@ public class CopySettings {
     return sessionState.getFloatSetting("spanner", "copy_commit_size_multiplier_factor", 2.0f);
   }
 
-  /** Returns the buffer size to use for incoming COPY data messages. */
+  /**
+   * Returns the buffer size to use for incoming COPY data messages. The connection stops reading
+   * COPY data messages from the client when this number of bytes has been received and not yet
+   * parsed.
+   */
   public int getPipeBufferSize() {
     return sessionState.getIntegerSetting("spanner", "copy_pipe_buffer_size", 1 << 16);
   }
 
+  /**
+   * Returns the number of threads that are used to parse the data of a COPY FROM STDIN operation
+   * and to build mutations from it. The data is parsed on a single thread if this is 1. Parallel
+   * parsing is only supported for the TEXT and CSV formats.
+   */
+  public int getParseParallelism() {
+    return Math.max(sessionState.getIntegerSetting("spanner", "copy_parse_parallelism", 1), 1);
+  }
+
   /**
    * Returns whether COPY FROM STDIN operations should use upsert instead of insert.
    *
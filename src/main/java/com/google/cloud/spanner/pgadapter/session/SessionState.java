@@ -27,6 +27,8 @@ import com.google.cloud.spanner.pgadapter.session.PGSetting.Context;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
@@ -82,7 +84,25 @@ public class SessionState {
     }
   }
 
-  private final Map<String, PGSetting> settings;
+  /**
+   * The base settings of all sessions that use the same {@link OptionsMetadata}. The base settings
+   * are immutable and are shared by all these sessions, so creating a session does not need to copy
+   * all settings.
+   */
+  private static final Map<OptionsMetadata, ImmutableMap<String, PGSetting>> BASE_SETTINGS =
+      CacheBuilder.newBuilder()
+          .weakKeys()
+          .<OptionsMetadata, ImmutableMap<String, PGSetting>>build()
+          .asMap();
+
+  /** baseSettings are the shared server settings. These may never be modified. */
+  private final ImmutableMap<String, PGSetting> baseSettings;
+
+  /**
+   * settings are the session settings that differ from the base settings. A setting is copied from
+   * the base settings the first time that it is changed by this session.
+   */
+  private final Map<String, PGSetting> settings = new HashMap<>();
 
   /** transactionSettings are the modified session settings during a transaction. */
   private Map<String, PGSetting> transactionSettings;
@@ -97,34 +117,79 @@ public class SessionState {
   SessionState(Map<String, PGSetting> extraServerSettings, OptionsMetadata options) {
     Preconditions.checkNotNull(extraServerSettings);
     Preconditions.checkNotNull(options);
-    this.settings = new HashMap<>(SERVER_SETTINGS.size() + extraServerSettings.size());
+    // The base settings are not shared if COPY settings are set through System properties, as these
+    // could change between sessions.
+    this.baseSettings =
+        extraServerSettings.isEmpty() && !CopySettings.hasLegacySystemProperties()
+            ? BASE_SETTINGS.computeIfAbsent(
+                options, key -> createBaseSettings(ImmutableMap.of(), key))
+            : createBaseSettings(extraServerSettings, options);
+  }
+
+  /** Creates the immutable base settings for sessions that use the given options. */
+  private static ImmutableMap<String, PGSetting> createBaseSettings(
+      Map<String, PGSetting> extraServerSettings, OptionsMetadata options) {
+    Map<String, PGSetting> settings =
+        new HashMap<>(SERVER_SETTINGS.size() + extraServerSettings.size());
     for (Entry<String, PGSetting> entry : SERVER_SETTINGS.entrySet()) {
-      this.settings.put(entry.getKey(), entry.getValue().copy());
+      settings.put(entry.getKey(), entry.getValue().copy());
     }
     for (Entry<String, PGSetting> entry : extraServerSettings.entrySet()) {
-      this.settings.put(entry.getKey(), entry.getValue().copy());
+      settings.put(entry.getKey(), entry.getValue().copy());
     }
-    this.settings.get("server_version").initSettingValue(options.getServerVersion());
-    this.settings.get("server_version_num").initSettingValue(options.getServerVersionNum());
+    settings.get("server_version").initSettingValue(options.getServerVersion());
+    settings.get("server_version_num").initSettingValue(options.getServerVersionNum());
     initSettingValue(
+        settings,
         "spanner.ddl_transaction_mode",
         MoreObjects.firstNonNull(options.getDdlTransactionMode(), DdlTransactionMode.Batch).name());
     initSettingValue(
-        "spanner.replace_pg_catalog_tables", Boolean.toString(options.replacePgCatalogTables()));
+        settings,
+        "spanner.replace_pg_catalog_tables",
+        Boolean.toString(options.replacePgCatalogTables()));
 
-    initCopySettings(this.settings);
+    initCopySettings(settings);
+    return ImmutableMap.copyOf(settings);
   }
 
+  private static void initSettingValue(Map<String, PGSetting> settings, String key, String value) {
+    PGSetting setting = settings.get(key);
+    if (setting != null) {
+      setting.initSettingValue(value);
+    }
+  }
+
+  /** Returns the settings that have been changed by this session. */
   @VisibleForTesting
   Map<String, PGSetting> getSettings() {
     return this.settings;
   }
 
-  void initSettingValue(String key, String value) {
-    PGSetting setting = this.settings.get(key);
-    if (setting != null) {
-      setting.initSettingValue(value);
+  /**
+   * Returns the session value of the given setting, or the shared base value if it is unchanged.
+   */
+  @Nullable
+  private PGSetting getSessionOrBaseSetting(String key) {
+    PGSetting setting = settings.get(key);
+    return setting != null ? setting : baseSettings.get(key);
+  }
+
+  /**
+   * Returns the session copy of the given setting that may be modified. The setting is copied from
+   * the shared base settings if this session has not changed it before. Returns null if the setting
+   * does not exist.
+   */
+  @Nullable
+  private PGSetting getModifiableSessionSetting(String key) {
+    PGSetting setting = settings.get(key);
+    if (setting == null) {
+      PGSetting baseSetting = baseSettings.get(key);
+      if (baseSetting != null) {
+        setting = baseSetting.copy();
+        settings.put(key, setting);
+      }
     }
+    return setting;
   }
 
   /**
@@ -183,11 +248,12 @@ public class SessionState {
   /** Sets the value of the specified setting at connection startup. */
   public void setConnectionStartupValue(String extension, String name, String value) {
     String key = toKey(extension, name);
-    PGSetting setting = this.settings.get(key);
+    PGSetting setting = getModifiableSessionSetting(key);
     if (setting == null && extension == null) {
       // Ignore unknown settings.
       return;
     }
+    clearCachedValues();
     if (setting == null) {
       setting = new PGSetting(extension, name);
       this.settings.put(key, setting);
@@ -198,7 +264,7 @@ public class SessionState {
       // message. This is something that is not supported by PostgreSQL, but for PGAdapter the
       // minimum context needed for setting the server_version is BACKEND.
       if (key.equals(toKey(null, "server_version"))) {
-        setting = this.settings.get(toKey(null, "server_version_num"));
+        setting = getModifiableSessionSetting(toKey(null, "server_version_num"));
         setting.setSetting(Context.INTERNAL, OptionsMetadata.toServerVersionNum(value));
       }
     } catch (Exception ignore) {
@@ -242,7 +308,7 @@ public class SessionState {
     String key = toKey(extension, name);
     PGSetting newSetting = currentSettings.get(key);
     if (newSetting == null) {
-      PGSetting existingSetting = settings.get(key);
+      PGSetting existingSetting = getSessionOrBaseSetting(key);
       if (existingSetting == null) {
         if (extension == null) {
           throw unknownParamError(key);
@@ -260,8 +326,26 @@ public class SessionState {
     currentSettings.put(key, newSetting);
   }
 
+  /*
+   * Cached values of settings that are read for (almost) every statement. These are cleared each
+   * time that a setting is changed, committed or rolled back.
+   */
+  private ZoneId cachedZoneId;
+  private Boolean cachedReplacePgCatalogTables;
+  private Boolean cachedEmulatePgClassTables;
+  private Boolean cachedReplaceForUpdateClause;
+  private Boolean cachedAutoAddLimitClause;
+  private Boolean cachedForceAutocommit;
+  private Integer cachedDmlBatchUpdateCount;
+
   private void clearCachedValues() {
     cachedZoneId = null;
+    cachedReplacePgCatalogTables = null;
+    cachedEmulatePgClassTables = null;
+    cachedReplaceForUpdateClause = null;
+    cachedAutoAddLimitClause = null;
+    cachedForceAutocommit = null;
+    cachedDmlBatchUpdateCount = null;
   }
 
   /** Returns the current value of the specified setting. */
@@ -276,14 +360,15 @@ public class SessionState {
   }
 
   private PGSetting internalGet(String key, boolean throwForUnknownParam) {
-    if (localSettings != null && localSettings.containsKey(key)) {
-      return localSettings.get(key);
+    PGSetting setting;
+    if (localSettings != null && (setting = localSettings.get(key)) != null) {
+      return setting;
     }
-    if (transactionSettings != null && transactionSettings.containsKey(key)) {
-      return transactionSettings.get(key);
+    if (transactionSettings != null && (setting = transactionSettings.get(key)) != null) {
+      return setting;
     }
-    if (settings.containsKey(key)) {
-      return settings.get(key);
+    if ((setting = getSessionOrBaseSetting(key)) != null) {
+      return setting;
     }
     if (throwForUnknownParam) {
       throw unknownParamError(key);
@@ -331,19 +416,8 @@ public class SessionState {
 
   /** Returns all settings and their current values. */
   public List<PGSetting> getAll() {
-    List<PGSetting> result =
-        new ArrayList<>(
-            (localSettings == null ? 0 : localSettings.size())
-                + (transactionSettings == null ? 0 : transactionSettings.size())
-                + settings.size());
-    Set<String> keys =
-        Sets.union(
-            settings.keySet(),
-            Sets.union(
-                localSettings == null ? Collections.emptySet() : localSettings.keySet(),
-                transactionSettings == null
-                    ? Collections.emptySet()
-                    : transactionSettings.keySet()));
+    Set<String> keys = getAllKeys();
+    List<PGSetting> result = new ArrayList<>(keys.size());
     for (String key : keys) {
       result.add(internalGet(key, true));
     }
@@ -351,9 +425,20 @@ public class SessionState {
     return result;
   }
 
+  /** Returns a view of the keys of all settings that are defined for this session. */
+  private Set<String> getAllKeys() {
+    return Sets.union(
+        Sets.union(baseSettings.keySet(), settings.keySet()),
+        Sets.union(
+            localSettings == null ? Collections.emptySet() : localSettings.keySet(),
+            transactionSettings == null ? Collections.emptySet() : transactionSettings.keySet()));
+  }
+
   /** Resets all values to their 'reset' value. */
   public void resetAll() {
-    for (PGSetting setting : getAll()) {
+    // Copy the keys, as resetting a setting adds it to the transaction settings.
+    for (String key : ImmutableList.copyOf(getAllKeys())) {
+      PGSetting setting = internalGet(key, true);
       if (setting.isSettable(Context.SUPERUSER)
           && !Objects.equals(setting.getSetting(), setting.getResetVal())) {
         set(setting.getExtension(), setting.getName(), setting.getResetVal());
@@ -372,6 +457,9 @@ public class SessionState {
    * changes).
    */
   public void commit() {
+    if (transactionSettings != null || localSettings != null) {
+      clearCachedValues();
+    }
     if (transactionSettings != null) {
       for (PGSetting setting : transactionSettings.values()) {
         settings.put(toKey(setting.getExtension(), setting.getName()), setting);
@@ -383,6 +471,9 @@ public class SessionState {
 
   /** Rolls back the current transaction and abandons any pending changes to the settings. */
   public void rollback() {
+    if (transactionSettings != null || localSettings != null) {
+      clearCachedValues();
+    }
     this.localSettings = null;
     this.transactionSettings = null;
   }
@@ -413,12 +504,72 @@ public class SessionState {
     return getBoolSetting("spanner", "copy_partition_query", true);
   }
 
+  /**
+   * Returns the size in bytes of the buffer that each partition of a partitioned query, such as
+   * COPY TO STDOUT, uses to encode its rows. Each partition hands whole buffers to a single writer
+   * that sends them to the client, instead of writing each row directly to the client. Zero means
+   * that no buffer is used.
+   */
+  public int getPartitionedQueryBufferSize() {
+    return getIntegerSetting("spanner", "partitioned_query_buffer_size", 0);
+  }
+
+  /**
+   * Returns the maximum number of statements that are returned by the pg_stat_statements view. The
+   * view returns the statements with the highest total execution time.
+   */
+  public int getPgStatStatementsLimit() {
+    return getIntegerSetting("spanner", "pg_stat_statements_limit", 1000);
+  }
+
+  /**
+   * Returns whether query results should be sent using a pipeline where fetching rows from Spanner,
+   * encoding rows as DataRow messages, and writing the messages to the client are executed as
+   * separate stages. Rows are encoded in batches on a pool of encoder threads. This increases the
+   * throughput for large results with many columns that are expensive to encode, such as
+   * timestamps, numerics and arrays, at the cost of additional CPU usage.
+   */
+  public boolean isPipelinedResultEncoding() {
+    return getBoolSetting("spanner", "pipelined_result_encoding", false);
+  }
+
+  /**
+   * Returns the maximum number of queries in a batch of extended query protocol messages that are
+   * executed concurrently on Spanner. The results of the queries are still returned in order. A
+   * value of 1 or less means that all queries are executed one after another.
+   */
+  public int getMaxPipelinedQueries() {
+    return getIntegerSetting("spanner", "max_pipelined_queries", 1);
+  }
+
+  /**
+   * Returns the maximum number of tables that a TRUNCATE statement in partitioned DML mode deletes
+   * concurrently. The tables are truncated one after another if this is 1. The default is 1, as
+   * there might be dependencies between the tables that are being truncated.
+   */
+  public int getTruncateParallelism() {
+    return Math.max(getIntegerSetting("spanner", "truncate_parallelism", 1), 1);
+  }
+
+  /**
+   * Returns whether a transaction block that is started by BEGIN, only contains queries, and is
+   * ended by COMMIT or ROLLBACK in the same batch of statements should automatically be executed as
+   * a read-only transaction with strong reads. This is disabled by default.
+   */
+  public boolean isAutoDetectReadOnlyTransactions() {
+    return getBoolSetting("spanner", "auto_detect_read_only_transactions", false);
+  }
+
   /**
    * Returns whether transaction statements should be ignored and all statements should be executed
    * in autocommit mode.
    */
   public boolean isForceAutocommit() {
-    return getBoolSetting("spanner", "force_autocommit", false);
+    Boolean value = cachedForceAutocommit;
+    if (value == null) {
+      value = cachedForceAutocommit = getBoolSetting("spanner", "force_autocommit", false);
+    }
+    return value;
   }
 
   /**
@@ -439,7 +590,11 @@ public class SessionState {
   // TODO: Remove when Cloud Spanner supports parametrized OFFSET clauses without a LIMIT clause.
   @InternalApi
   public boolean isAutoAddLimitClause() {
-    return getBoolSetting("spanner", "auto_add_limit_clause", false);
+    Boolean value = cachedAutoAddLimitClause;
+    if (value == null) {
+      value = cachedAutoAddLimitClause = getBoolSetting("spanner", "auto_add_limit_clause", false);
+    }
+    return value;
   }
 
   /**
@@ -451,20 +606,28 @@ public class SessionState {
    */
   // TODO: Remove when Cloud Spanner supports SELECT ... FOR UPDATE.
   public boolean isReplaceForUpdateClause() {
-    return getBoolSetting("spanner", "replace_for_update", true);
+    Boolean value = cachedReplaceForUpdateClause;
+    if (value == null) {
+      value = cachedReplaceForUpdateClause = getBoolSetting("spanner", "replace_for_update", true);
+    }
+    return value;
   }
 
   /** Returns the current setting for replacing pg_catalog tables with common table expressions. */
   public boolean isReplacePgCatalogTables() {
-    PGSetting setting = internalGet(toKey("spanner", "replace_pg_catalog_tables"), false);
-    if (setting == null) {
-      return true;
+    Boolean value = cachedReplacePgCatalogTables;
+    if (value == null) {
+      PGSetting setting = internalGet(toKey("spanner", "replace_pg_catalog_tables"), false);
+      value =
+          cachedReplacePgCatalogTables =
+              setting == null
+                  || tryGetFirstNonNull(
+                      true,
+                      () -> BooleanParser.toBoolean(setting.getSetting()),
+                      () -> BooleanParser.toBoolean(setting.getResetVal()),
+                      () -> BooleanParser.toBoolean(setting.getBootVal()));
     }
-    return tryGetFirstNonNull(
-        true,
-        () -> BooleanParser.toBoolean(setting.getSetting()),
-        () -> BooleanParser.toBoolean(setting.getResetVal()),
-        () -> BooleanParser.toBoolean(setting.getBootVal()));
+    return value;
   }
 
   /**
@@ -472,15 +635,19 @@ public class SessionState {
    * use the object name as OID.
    */
   public boolean isEmulatePgClassTables() {
-    PGSetting setting = internalGet(toKey("spanner", "emulate_pg_class_tables"), false);
-    if (setting == null) {
-      return false;
+    Boolean value = cachedEmulatePgClassTables;
+    if (value == null) {
+      PGSetting setting = internalGet(toKey("spanner", "emulate_pg_class_tables"), false);
+      value =
+          cachedEmulatePgClassTables =
+              setting != null
+                  && tryGetFirstNonNull(
+                      true,
+                      () -> BooleanParser.toBoolean(setting.getSetting()),
+                      () -> BooleanParser.toBoolean(setting.getResetVal()),
+                      () -> BooleanParser.toBoolean(setting.getBootVal()));
     }
-    return tryGetFirstNonNull(
-        true,
-        () -> BooleanParser.toBoolean(setting.getSetting()),
-        () -> BooleanParser.toBoolean(setting.getResetVal()),
-        () -> BooleanParser.toBoolean(setting.getBootVal()));
+    return value;
   }
 
   /** Returns the {@link DdlTransactionMode} that is used for this connection at this time. */
@@ -542,11 +709,13 @@ public class SessionState {
    * }</pre>
    */
   public int getDmlBatchUpdateCount() {
-    return getIntegerSetting("spanner", "dml_batch_update_count", 0);
+    Integer value = cachedDmlBatchUpdateCount;
+    if (value == null) {
+      value = cachedDmlBatchUpdateCount = getIntegerSetting("spanner", "dml_batch_update_count", 0);
+    }
+    return value;
   }
 
-  private ZoneId cachedZoneId;
-
   /** Returns the {@link ZoneId} of the current timezone for this session. */
   public ZoneId getTimezone() {
     if (cachedZoneId != null) {
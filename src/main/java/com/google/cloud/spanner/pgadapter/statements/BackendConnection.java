@@ -14,6 +14,7 @@
 
 package com.google.cloud.spanner.pgadapter.statements;
 
+import static com.google.cloud.spanner.ThreadFactoryUtil.createVirtualOrPlatformDaemonThreadFactory;
 import static com.google.cloud.spanner.pgadapter.error.PGExceptionFactory.toPGException;
 import static com.google.cloud.spanner.pgadapter.statements.IntermediateStatement.PARSER;
 import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.addLimitIfParameterizedOffset;
@@ -22,25 +23,37 @@ import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.replace
 import static com.google.cloud.spanner.pgadapter.wireprotocol.QueryMessage.SHOW;
 
 import com.google.api.core.InternalApi;
+import com.google.api.gax.grpc.GrpcCallContext;
+import com.google.api.gax.rpc.ApiCallContext;
 import com.google.cloud.ByteArray;
 import com.google.cloud.Timestamp;
 import com.google.cloud.Tuple;
 import com.google.cloud.spanner.BatchClient;
 import com.google.cloud.spanner.BatchReadOnlyTransaction;
 import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.ForwardingResultSet;
+import com.google.cloud.spanner.Options;
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.Options.RpcPriority;
+import com.google.cloud.spanner.Options.UpdateOption;
 import com.google.cloud.spanner.Partition;
 import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.ReadContext;
 import com.google.cloud.spanner.ReadContext.QueryAnalyzeMode;
+import com.google.cloud.spanner.ReadOnlyTransaction;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.Spanner;
 import com.google.cloud.spanner.SpannerBatchUpdateException;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TimestampBound;
 import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Type.StructField;
 import com.google.cloud.spanner.connection.AbstractStatementParser;
@@ -51,12 +64,16 @@ import com.google.cloud.spanner.connection.Connection;
 import com.google.cloud.spanner.connection.ResultSetHelper;
 import com.google.cloud.spanner.connection.StatementResult;
 import com.google.cloud.spanner.connection.StatementResult.ClientSideStatementType;
+import com.google.cloud.spanner.connection.StatementResult.ResultType;
 import com.google.cloud.spanner.connection.TransactionRetryListener;
 import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.metadata.CatalogResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.DdlTransactionMode;
+import com.google.cloud.spanner.pgadapter.metadata.SqlRewriteCache;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.SessionStatementParser.SessionStatement;
 import com.google.cloud.spanner.pgadapter.statements.SimpleParser.TableOrIndexName;
@@ -66,12 +83,15 @@ import com.google.cloud.spanner.pgadapter.utils.CopyDataReceiver;
 import com.google.cloud.spanner.pgadapter.utils.Logging;
 import com.google.cloud.spanner.pgadapter.utils.Logging.Action;
 import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.cloud.spanner.pgadapter.utils.MutationWriter;
+import com.google.cloud.spanner.pgadapter.utils.PooledConnection;
 import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse.Status;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -82,6 +102,8 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryOptions;
+import io.grpc.MethodDescriptor;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanBuilder;
@@ -103,14 +125,21 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -136,6 +165,12 @@ public class BackendConnection {
 
   private UUID currentTransactionId;
 
+  /**
+   * The read-only staleness of the connection before a transaction block was automatically
+   * converted to a read-only transaction with strong reads.
+   */
+  @Nullable private TimestampBound readOnlyStalenessToRestore;
+
   public static final String TRANSACTION_ABORTED_ERROR =
       "current transaction is aborted, commands ignored until end of transaction block";
 
@@ -257,6 +292,14 @@ public class BackendConnection {
     private final String command;
     private final Function<Statement, Statement> statementBinder;
     private final boolean analyze;
+    /** The time that this statement has spent waiting for Spanner to execute it. */
+    private long spannerNanos;
+    /** The time that the execution of this statement in a query pipeline was started. */
+    private long pipelineStartNanos;
+    /** The result of this statement if it is executed in a query pipeline. */
+    private ListenableFuture<ResultSet> pipelinedResult;
+    /** Releases the reference of this statement to the transaction of the query pipeline. */
+    private Runnable pipelineRelease;
 
     Execute(
         String command,
@@ -295,14 +338,12 @@ public class BackendConnection {
 
     @Override
     void doExecute() {
+      long startNanos = System.nanoTime();
       Statement updatedStatement = statement;
       try {
         checkConnectionState();
-        // TODO(b/235719478): If the statement is a BEGIN statement and there is a COMMIT statement
-        //  at a later point in the batch, and all the statements in the transaction block are
-        //  SELECT statements, then we should create a read-only transaction. Also, if a transaction
-        //  block always ends with a ROLLBACK, PGAdapter should skip the entire execution of that
-        //  block.
+        // TODO(b/235719478): If a transaction block always ends with a ROLLBACK, PGAdapter should
+        //  skip the entire execution of that block.
         SessionStatement sessionStatement =
             getSessionManagementStatement(updatedStatement, parsedStatement);
         if (!localStatements.get().isEmpty()
@@ -348,24 +389,28 @@ public class BackendConnection {
           if (analyze) {
             result.set(NO_RESULT);
           } else {
-            result.set(ddlExecutor.execute(parsedStatement, statement));
+            try {
+              result.set(ddlExecutor.execute(parsedStatement, statement));
+            } finally {
+              ddlExecutedCallback.run();
+            }
           }
         } else {
-          String sqlLowerCase = updatedStatement.getSql().toLowerCase(Locale.ENGLISH);
-          // Potentially replace pg_catalog table references with common table expressions.
-          updatedStatement =
-              parsedStatement.getType() != StatementType.CLIENT_SIDE
-                      && sessionState.isReplacePgCatalogTables()
-                  ? pgCatalog.get().replacePgCatalogTables(updatedStatement, sqlLowerCase)
-                  : updatedStatement;
-          // TODO: Remove the check for isDelayBeginTransactionStartUntilFirstWrite when that
-          //       feature is able to detect the LOCK_SCANNED_RANGES=exclusive hint as a write.
-          if (sessionState.isReplaceForUpdateClause()
-              && !spannerConnection.isDelayTransactionStartUntilFirstWrite()) {
-            updatedStatement = replaceForUpdate(updatedStatement, sqlLowerCase);
+          // The rewritten statement only depends on the SQL string and a couple of settings, and
+          // is therefore computed once and shared by all executions of the same statement. Only
+          // the parameter values are bound for each execution.
+          long rewriteStartNanos = System.nanoTime();
+          Statement rewrittenStatement = rewriteStatement(updatedStatement);
+          metrics.recordPhaseLatency(Phase.REWRITE, System.nanoTime() - rewriteStartNanos);
+          updatedStatement = statementBinder.apply(rewrittenStatement);
+          if (!analyze && isCatalogResultCacheable()) {
+            result.set(executeCatalogQuery(updatedStatement));
+          } else {
+            result.set(analyzeOrExecute(updatedStatement));
           }
-          updatedStatement = bindStatement(updatedStatement, sqlLowerCase);
-          result.set(analyzeOrExecute(updatedStatement));
+        }
+        if (!analyze) {
+          recordStatistics(System.nanoTime() - startNanos, Futures.getUnchecked(result));
         }
       } catch (SpannerException spannerException) {
         // Executing queries against the information schema in a transaction is unsupported.
@@ -394,6 +439,114 @@ public class BackendConnection {
       }
     }
 
+    /**
+     * Records the execution of this statement in the statement statistics. The number of rows of a
+     * query is added when the result has been sent to the client.
+     */
+    void recordStatistics(long totalNanos, @Nullable StatementResult statementResult) {
+      statementStatistics.record(
+          statement.getSql(),
+          totalNanos,
+          spannerNanos,
+          statementResult != null && statementResult.getResultType() == ResultType.UPDATE_COUNT
+              ? statementResult.getUpdateCount()
+              : 0L);
+    }
+
+    /**
+     * Applies the SQL rewrites that PGAdapter does for statements that are sent to Spanner, such as
+     * replacing pg_catalog tables with common table expressions. The rewritten statement is looked
+     * up in and added to the server-wide {@link SqlRewriteCache}, unless the statement already
+     * contains parameter values or the result of the rewrite depends on other session state.
+     */
+    Statement rewriteStatement(Statement statement) {
+      int flags = 0;
+      WellKnownClient client = WellKnownClient.UNSPECIFIED;
+      if (parsedStatement.getType() != StatementType.CLIENT_SIDE
+          && sessionState.isReplacePgCatalogTables()) {
+        flags |= SqlRewriteCache.REPLACE_PG_CATALOG_TABLES;
+        if (sessionState.isEmulatePgClassTables()) {
+          flags |= SqlRewriteCache.EMULATE_PG_CLASS_TABLES;
+        }
+        client = pgCatalog.get().getWellKnownClient();
+      }
+      // TODO: Remove the check for isDelayBeginTransactionStartUntilFirstWrite when that
+      //       feature is able to detect the LOCK_SCANNED_RANGES=exclusive hint as a write.
+      if (sessionState.isReplaceForUpdateClause()
+          && !spannerConnection.isDelayTransactionStartUntilFirstWrite()) {
+        flags |= SqlRewriteCache.REPLACE_FOR_UPDATE;
+      }
+      if (sessionState.isAutoAddLimitClause()) {
+        flags |= SqlRewriteCache.AUTO_ADD_LIMIT_CLAUSE;
+      }
+      if (flags == 0) {
+        return statement;
+      }
+      boolean cacheable = statement.getParameters().isEmpty();
+      if (cacheable) {
+        Statement cachedStatement = sqlRewriteCache.get(statement.getSql(), client, flags);
+        if (cachedStatement != null) {
+          return cachedStatement;
+        }
+      }
+
+      String sqlLowerCase = statement.getSql().toLowerCase(Locale.ENGLISH);
+      Statement rewrittenStatement = statement;
+      if ((flags & SqlRewriteCache.REPLACE_PG_CATALOG_TABLES) != 0) {
+        // Potentially replace pg_catalog table references with common table expressions.
+        rewrittenStatement =
+            pgCatalog.get().replacePgCatalogTables(rewrittenStatement, sqlLowerCase);
+      }
+      if ((flags & SqlRewriteCache.REPLACE_FOR_UPDATE) != 0) {
+        rewrittenStatement = replaceForUpdate(rewrittenStatement, sqlLowerCase);
+      }
+      if ((flags & SqlRewriteCache.AUTO_ADD_LIMIT_CLAUSE) != 0) {
+        // Add a LIMIT clause to the statement if it contains an OFFSET clause that uses a query
+        // parameter and there is no existing LIMIT clause in the query.
+        rewrittenStatement = addLimitIfParameterizedOffset(rewrittenStatement, sqlLowerCase);
+      }
+      // The pg_settings table and the version functions are replaced with the values of this
+      // session, and pg_stat_statements is replaced with the current statistics. These can
+      // therefore not be shared with other connections or executions.
+      if (cacheable
+          && !(sqlLowerCase.contains("pg_settings")
+              || sqlLowerCase.contains("version(")
+              || sqlLowerCase.contains("server_version_num")
+              || sqlLowerCase.contains("pg_stat_statements"))) {
+        sqlRewriteCache.put(statement.getSql(), client, flags, rewrittenStatement);
+      }
+      return rewrittenStatement;
+    }
+
+    /**
+     * Returns true if the catalog result cache is enabled and this statement is a query that only
+     * reads from pg_catalog and information_schema tables.
+     */
+    boolean isCatalogResultCacheable() {
+      return catalogResultCache != null
+          && parsedStatement.isQuery()
+          && !spannerConnection.isDmlBatchActive()
+          && !spannerConnection.isDdlBatchActive()
+          && pgCatalog
+              .get()
+              .isCatalogQuery(statement, statement.getSql().toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * Returns the result of the given catalog query from the server-wide {@link
+     * CatalogResultCache}, or executes the query on Spanner and adds the result to the cache if
+     * there is no cached result.
+     */
+    StatementResult executeCatalogQuery(Statement statement) {
+      ResultSet resultSet = catalogResultCache.get(databaseId, statement);
+      if (resultSet == null) {
+        resultSet =
+            catalogResultCache.put(
+                databaseId, statement, executeOnSpanner(statement).getResultSet());
+      }
+      return new QueryResult(resultSet);
+    }
+
     Statement bindStatement(Statement statement, @Nullable String lowerCaseSql) {
       Statement boundStatement = statementBinder.apply(statement);
       // Add a LIMIT clause to the statement if it contains an OFFSET clause that uses a query
@@ -479,32 +632,158 @@ public class BackendConnection {
                 () -> String.format("Statement: %s", statement.getSql())));
         Stopwatch stopwatch = Stopwatch.createStarted();
         StatementResult result = spannerConnection.execute(statement);
-        Duration executionDuration = stopwatch.elapsed();
-        metrics.recordClientLibLatency(executionDuration.toMillis(), metricAttributes);
+        recordExecution(statement, stopwatch.elapsed());
+        return result;
+      } catch (Throwable exception) {
+        span.setStatus(StatusCode.ERROR, exception.getMessage());
+        span.recordException(exception);
+        throw exception;
+      } finally {
+        span.end();
+        statementContext.pop();
+      }
+    }
+
+    /** Records the time that Spanner needed to execute the given statement. */
+    private void recordExecution(Statement statement, Duration executionDuration) {
+      metrics.recordClientLibLatency(executionDuration.toMillis(), metricAttributes);
+      metrics.recordPhaseLatency(Phase.SPANNER, executionDuration.toNanos());
+      spannerNanos += executionDuration.toNanos();
+      logger.log(
+          Level.FINER,
+          Logging.format(
+              "Executing",
+              Action.Finished,
+              () -> String.format("Statement: %s", statement.getSql())));
+      if (executionDuration.compareTo(sessionState.getLogSlowStatementThreshold()) >= 0) {
         logger.log(
-            Level.FINER,
+            Level.FINE,
             Logging.format(
                 "Executing",
-                Action.Finished,
-                () -> String.format("Statement: %s", statement.getSql())));
-        if (executionDuration.compareTo(sessionState.getLogSlowStatementThreshold()) >= 0) {
-          logger.log(
-              Level.FINE,
-              Logging.format(
-                  "Executing",
-                  () ->
-                      String.format(
-                          "Slow statement: %s\n" + "Duration: %s",
-                          statement.getSql(), executionDuration)));
+                () ->
+                    String.format(
+                        "Slow statement: %s\n" + "Duration: %s",
+                        statement.getSql(), executionDuration)));
+      }
+    }
+
+    /**
+     * Returns true if this statement is a query that is sent to Spanner without any additional
+     * processing, and that can therefore be executed concurrently with other queries in a query
+     * pipeline.
+     */
+    boolean isPipeliningPossible() {
+      return !analyze
+          && parsedStatement.getType() == StatementType.QUERY
+          && !parsedStatement.getSqlWithoutComments().isEmpty()
+          && !localStatements.get().containsKey(statement.getSql())
+          && getSessionManagementStatement(statement, parsedStatement) == null
+          && !isCatalogResultCacheable();
+    }
+
+    /**
+     * Rewrites and binds this query, and starts the execution of it in the given pipeline
+     * transaction on the given executor. The result of this statement is set by {@link
+     * #finishPipelinedExecution()}. The transaction is kept open until the result of this query has
+     * been closed.
+     */
+    void startPipelinedExecution(
+        PipelineTransaction transaction, ListeningExecutorService executor, QueryOption[] options) {
+      pipelineStartNanos = System.nanoTime();
+      pipelineRelease = transaction.retain();
+      ReadContext readContext = transaction.getReadContext();
+      try {
+        long rewriteStartNanos = System.nanoTime();
+        Statement rewrittenStatement = rewriteStatement(statement);
+        metrics.recordPhaseLatency(Phase.REWRITE, System.nanoTime() - rewriteStartNanos);
+        Statement boundStatement =
+            withConnectionQueryOptions(statementBinder.apply(rewrittenStatement));
+        Context parent = Context.current();
+        pipelinedResult =
+            executor.submit(() -> executePipelined(readContext, boundStatement, options, parent));
+      } catch (Throwable exception) {
+        pipelineRelease.run();
+        pipelinedResult = Futures.immediateFailedFuture(exception);
+      }
+    }
+
+    /**
+     * Executes the given query in the given read context and waits for the first row to be
+     * returned. This method is executed on a thread of the query pipeline executor.
+     */
+    private ResultSet executePipelined(
+        ReadContext readContext, Statement statement, QueryOption[] options, Context parent) {
+      String spanName = "execute_on_spanner";
+      if (command != null) {
+        spanName += " (" + command + ")";
+      }
+      Span span = createSpan(spanName, statement, parent);
+      try (Scope ignore = span.makeCurrent()) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ResultSet resultSet;
+        try {
+          resultSet =
+              ResultSetHelper.toDirectExecuteResultSet(
+                  readContext.executeQuery(statement, options));
+        } catch (SpannerException spannerException) {
+          // INFORMATION_SCHEMA queries can only be executed in a single-use transaction.
+          if (!isUnsupportedConcurrencyModeException(spannerException)) {
+            throw spannerException;
+          }
+          resultSet =
+              ResultSetHelper.toDirectExecuteResultSet(
+                  spannerConnection
+                      .getDatabaseClient()
+                      .singleUse(spannerConnection.getReadOnlyStaleness())
+                      .executeQuery(statement, options));
         }
-        return result;
+        recordExecution(statement, stopwatch.elapsed());
+        return new PipelinedResultSet(resultSet, pipelineRelease);
       } catch (Throwable exception) {
+        pipelineRelease.run();
         span.setStatus(StatusCode.ERROR, exception.getMessage());
         span.recordException(exception);
         throw exception;
       } finally {
         span.end();
-        statementContext.pop();
+      }
+    }
+
+    /** Waits for the execution of this query in a query pipeline to finish and sets the result. */
+    void finishPipelinedExecution() {
+      try {
+        QueryResult queryResult = new QueryResult(pipelinedResult.get());
+        result.set(queryResult);
+        recordStatistics(System.nanoTime() - pipelineStartNanos, queryResult);
+      } catch (InterruptedException interruptedException) {
+        throw setAndReturn(result, PGExceptionFactory.newQueryCancelledException());
+      } catch (ExecutionException executionException) {
+        Throwable cause = executionException.getCause();
+        if (cause instanceof SpannerException
+            && ((SpannerException) cause).getErrorCode() == ErrorCode.CANCELLED) {
+          throw setAndReturn(result, PGExceptionFactory.newQueryCancelledException());
+        }
+        throw setAndReturn(result, cause);
+      }
+    }
+
+    /**
+     * Cancels the execution of this query in a query pipeline, and closes the result if the query
+     * has already returned a result.
+     */
+    void cancelPipelinedExecution() {
+      if (pipelinedResult == null) {
+        return;
+      }
+      if (pipelinedResult.cancel(true)) {
+        // The result of the query will never be returned.
+        pipelineRelease.run();
+      } else {
+        try {
+          Futures.getDone(pipelinedResult).close();
+        } catch (Throwable ignore) {
+          // Ignore, as the query failed and there is nothing to close.
+        }
       }
     }
 
@@ -724,11 +1003,18 @@ public class BackendConnection {
             || spannerConnection.getAutocommitDmlMode() == AutocommitDmlMode.TRANSACTIONAL) {
           spannerConnection.executeBatchUpdate(truncateStatement.getDeleteStatements());
         } else {
-          // BatchDML is not supported for PDML, so we have to loop over the statements.
-          // We do not execute the statements in parallel, as there might be dependencies between
-          // the tables that are being truncated.
-          for (Statement statement : truncateStatement.getDeleteStatements()) {
-            spannerConnection.executeUpdate(statement);
+          List<Statement> statements = truncateStatement.getDeleteStatements();
+          int parallelism = Math.min(sessionState.getTruncateParallelism(), statements.size());
+          if (parallelism > 1) {
+            executeDeletesInParallel(statements, parallelism);
+          } else {
+            // BatchDML is not supported for PDML, so we have to loop over the statements.
+            // We do not execute the statements in parallel by default, as there might be
+            // dependencies between the tables that are being truncated.
+            for (int index = 0; index < statements.size(); index++) {
+              spannerConnection.executeUpdate(statements.get(index));
+              sendTruncatedTableNotice(index, index + 1);
+            }
           }
         }
         result.set(NO_RESULT);
@@ -737,6 +1023,118 @@ public class BackendConnection {
         throw exception;
       }
     }
+
+    /**
+     * Executes the partitioned DML statements of a TRUNCATE statement concurrently. The statements
+     * are executed directly on the {@link DatabaseClient}, as a Spanner connection can only execute
+     * one statement at a time. At most parallelism statements are executed at the same time. No new
+     * statements are started after a statement has failed, and the error is thrown when all
+     * statements that had already been started have finished.
+     *
+     * <p>Partitioned DML statements can run for a long time, and the statements are therefore
+     * executed on a thread pool that is only used for this TRUNCATE statement.
+     *
+     * <p>The RPC priority, statement tag and statement timeout of the Spanner connection are
+     * applied to each statement, in the same way as for statements that are executed on the
+     * connection.
+     */
+    private void executeDeletesInParallel(List<Statement> statements, int parallelism) {
+      ListeningExecutorService executor =
+          MoreExecutors.listeningDecorator(
+              Executors.newFixedThreadPool(
+                  parallelism, createVirtualOrPlatformDaemonThreadFactory("truncate", false)));
+      DatabaseClient client = spannerConnection.getDatabaseClient();
+      UpdateOption[] options = getPartitionedUpdateOptions();
+      io.grpc.Context context = getPartitionedUpdateContext();
+      // The statement tag is only valid for the next statement on the connection.
+      spannerConnection.setStatementTag(null);
+      List<ListenableFuture<Long>> futures = new ArrayList<>(statements.size());
+      BlockingQueue<Integer> finishedIndexes = new LinkedBlockingQueue<>();
+      Throwable error = null;
+      int finished = 0;
+      try {
+        while (finished < futures.size() || (futures.size() < statements.size() && error == null)) {
+          while (error == null
+              && futures.size() < statements.size()
+              && futures.size() - finished < parallelism) {
+            int index = futures.size();
+            ListenableFuture<Long> future =
+                executor.submit(
+                    () ->
+                        context.call(
+                            () -> client.executePartitionedUpdate(statements.get(index), options)));
+            future.addListener(() -> finishedIndexes.add(index), MoreExecutors.directExecutor());
+            futures.add(future);
+          }
+          int index = finishedIndexes.take();
+          finished++;
+          try {
+            Futures.getDone(futures.get(index));
+            sendTruncatedTableNotice(index, finished);
+          } catch (ExecutionException executionException) {
+            if (error == null) {
+              error = executionException.getCause();
+            }
+          }
+        }
+      } catch (InterruptedException interruptedException) {
+        futures.forEach(future -> future.cancel(true));
+        throw PGExceptionFactory.newQueryCancelledException();
+      } finally {
+        executor.shutdown();
+      }
+      if (error != null) {
+        throw SpannerExceptionFactory.asSpannerException(error);
+      }
+    }
+
+    /** Returns the options of the Spanner connection that are used for partitioned updates. */
+    private UpdateOption[] getPartitionedUpdateOptions() {
+      List<UpdateOption> options = new ArrayList<>(2);
+      RpcPriority priority = spannerConnection.getRPCPriority();
+      if (priority != null) {
+        options.add(Options.priority(priority));
+      }
+      String statementTag = spannerConnection.getStatementTag();
+      if (!Strings.isNullOrEmpty(statementTag)) {
+        options.add(Options.tag(statementTag));
+      }
+      return options.toArray(new UpdateOption[0]);
+    }
+
+    /**
+     * Returns the context that is used for partitioned updates. The context applies the statement
+     * timeout of the Spanner connection to all RPCs of a partitioned update.
+     */
+    private io.grpc.Context getPartitionedUpdateContext() {
+      if (!spannerConnection.hasStatementTimeout()) {
+        return io.grpc.Context.current();
+      }
+      Duration timeout =
+          Duration.ofNanos(spannerConnection.getStatementTimeout(TimeUnit.NANOSECONDS));
+      return io.grpc.Context.current()
+          .withValue(
+              SpannerOptions.CALL_CONTEXT_CONFIGURATOR_KEY,
+              new SpannerOptions.CallContextConfigurator() {
+                @Override
+                public <ReqT, RespT> ApiCallContext configure(
+                    ApiCallContext context, ReqT request, MethodDescriptor<ReqT, RespT> method) {
+                  return GrpcCallContext.createDefault().withTimeoutDuration(timeout);
+                }
+              });
+    }
+
+    /**
+     * Sends a progress notice for a truncated table to the client. The notice is only informative,
+     * and a failure to send it does not fail the TRUNCATE statement.
+     */
+    private void sendTruncatedTableNotice(int index, int truncatedCount) {
+      try {
+        truncateStatement.sendTruncatedTableNotice(index, truncatedCount);
+      } catch (Exception exception) {
+        logger.log(Level.FINE, "Failed to send TRUNCATE progress notice", exception);
+      }
+    }
   }
 
   private final class Savepoint extends BufferedStatement<StatementResult> {
@@ -827,6 +1225,14 @@ public class BackendConnection {
   static final StatementResult NO_RESULT = new NoResult();
   private static final StatementResult ROLLBACK_RESULT = new NoResult("ROLLBACK");
   private static final Statement ROLLBACK = Statement.of("ROLLBACK");
+  private static final Pattern READ_ONLY_OR_READ_WRITE_PATTERN =
+      Pattern.compile("\\bread\\s+(only|write)\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern FOR_UPDATE_PATTERN =
+      Pattern.compile("\\bfor\\s+update\\b", Pattern.CASE_INSENSITIVE);
+  /** Functions that modify the database, and that therefore require a read/write transaction. */
+  private static final Pattern WRITE_FUNCTION_PATTERN =
+      Pattern.compile(
+          "\\b(nextval|setval|get_next_sequence_value)\\s*\\(", Pattern.CASE_INSENSITIVE);
 
   private final Runnable closeAllPortals;
   private final SessionState sessionState;
@@ -837,8 +1243,17 @@ public class BackendConnection {
   private final String currentSchema = "public";
   private final LinkedList<BufferedStatement<?>> bufferedStatements = new LinkedList<>();
   private final Connection spannerConnection;
+  /** The pooled connection of this backend connection, if transaction pooling is enabled. */
+  @Nullable private final PooledConnection pooledConnection;
+
   private final DatabaseId databaseId;
   private final DdlExecutor ddlExecutor;
+  private final Runnable ddlExecutedCallback;
+  private final SqlRewriteCache sqlRewriteCache;
+  private final StatementStatistics statementStatistics;
+  @Nullable private final CatalogResultCache catalogResultCache;
+  /** The executor for query pipelines. Query pipelines are not used if this is null. */
+  @Nullable private final Supplier<ExecutorService> queryPipelineExecutor;
 
   /** Creates a PG backend connection that uses the given Spanner {@link Connection} and options. */
   BackendConnection(
@@ -852,6 +1267,115 @@ public class BackendConnection {
       Supplier<WellKnownClient> wellKnownClient,
       OptionsMetadata optionsMetadata,
       Supplier<ImmutableList<LocalStatement>> localStatements) {
+    this(
+        tracer,
+        metrics,
+        metricAttributes,
+        connectionId,
+        closeAllPortals,
+        databaseId,
+        spannerConnection,
+        wellKnownClient,
+        optionsMetadata,
+        localStatements,
+        () -> {});
+  }
+
+  /**
+   * Creates a PG backend connection that uses the given Spanner {@link Connection} and options. The
+   * given callback is invoked each time that a DDL statement has been sent to Spanner on this
+   * connection, and can be used to invalidate any cached information about the schema.
+   */
+  BackendConnection(
+      Tracer tracer,
+      Metrics metrics,
+      Attributes metricAttributes,
+      String connectionId,
+      Runnable closeAllPortals,
+      DatabaseId databaseId,
+      Connection spannerConnection,
+      Supplier<WellKnownClient> wellKnownClient,
+      OptionsMetadata optionsMetadata,
+      Supplier<ImmutableList<LocalStatement>> localStatements,
+      Runnable ddlExecutedCallback) {
+    this(
+        tracer,
+        metrics,
+        metricAttributes,
+        connectionId,
+        closeAllPortals,
+        databaseId,
+        spannerConnection,
+        wellKnownClient,
+        optionsMetadata,
+        localStatements,
+        ddlExecutedCallback,
+        new SqlRewriteCache(metrics),
+        new StatementStatistics(),
+        null);
+  }
+
+  /**
+   * Creates a PG backend connection that uses the given Spanner {@link Connection} and options. The
+   * rewritten SQL strings of statements are cached in the given {@link SqlRewriteCache}, and the
+   * statistics of the executed statements are recorded in the given {@link StatementStatistics}.
+   * Both can be shared with other connections. The results of catalog queries are cached in the
+   * given {@link CatalogResultCache}, unless it is null.
+   */
+  BackendConnection(
+      Tracer tracer,
+      Metrics metrics,
+      Attributes metricAttributes,
+      String connectionId,
+      Runnable closeAllPortals,
+      DatabaseId databaseId,
+      Connection spannerConnection,
+      Supplier<WellKnownClient> wellKnownClient,
+      OptionsMetadata optionsMetadata,
+      Supplier<ImmutableList<LocalStatement>> localStatements,
+      Runnable ddlExecutedCallback,
+      SqlRewriteCache sqlRewriteCache,
+      StatementStatistics statementStatistics,
+      @Nullable CatalogResultCache catalogResultCache) {
+    this(
+        tracer,
+        metrics,
+        metricAttributes,
+        connectionId,
+        closeAllPortals,
+        databaseId,
+        spannerConnection,
+        wellKnownClient,
+        optionsMetadata,
+        localStatements,
+        ddlExecutedCallback,
+        sqlRewriteCache,
+        statementStatistics,
+        catalogResultCache,
+        null);
+  }
+
+  /**
+   * Creates a PG backend connection that uses the given Spanner {@link Connection} and options.
+   * Queries in a query pipeline are executed on the executor that is returned by the given
+   * supplier. Query pipelines are disabled if the supplier is null.
+   */
+  BackendConnection(
+      Tracer tracer,
+      Metrics metrics,
+      Attributes metricAttributes,
+      String connectionId,
+      Runnable closeAllPortals,
+      DatabaseId databaseId,
+      Connection spannerConnection,
+      Supplier<WellKnownClient> wellKnownClient,
+      OptionsMetadata optionsMetadata,
+      Supplier<ImmutableList<LocalStatement>> localStatements,
+      Runnable ddlExecutedCallback,
+      SqlRewriteCache sqlRewriteCache,
+      StatementStatistics statementStatistics,
+      @Nullable CatalogResultCache catalogResultCache,
+      @Nullable Supplier<ExecutorService> queryPipelineExecutor) {
     this.tracer = tracer;
     this.metrics = metrics;
     this.metricAttributes = metricAttributes;
@@ -860,8 +1384,13 @@ public class BackendConnection {
     this.sessionState = new SessionState(optionsMetadata);
     this.pgCatalog =
         Suppliers.memoize(
-            () -> new PgCatalog(BackendConnection.this.sessionState, wellKnownClient.get()));
+            () ->
+                new PgCatalog(
+                    BackendConnection.this.sessionState,
+                    wellKnownClient.get(),
+                    BackendConnection.this.statementStatistics));
     this.spannerConnection = spannerConnection;
+    this.pooledConnection = PooledConnection.of(spannerConnection);
     this.spannerConnection.addTransactionRetryListener(
         new TransactionRetryListener() {
           private Span span;
@@ -899,6 +1428,11 @@ public class BackendConnection {
           }
         });
     this.databaseId = databaseId;
+    this.ddlExecutedCallback = Preconditions.checkNotNull(ddlExecutedCallback);
+    this.sqlRewriteCache = Preconditions.checkNotNull(sqlRewriteCache);
+    this.statementStatistics = Preconditions.checkNotNull(statementStatistics);
+    this.catalogResultCache = catalogResultCache;
+    this.queryPipelineExecutor = queryPipelineExecutor;
     this.ddlExecutor =
         new DdlExecutor(this, Suppliers.memoize(() -> wellKnownClient.get().getDdlReplacements()));
     this.localStatements =
@@ -933,6 +1467,11 @@ public class BackendConnection {
     return this.metrics;
   }
 
+  /** Returns the statistics of the statements that are executed on this connection. */
+  public StatementStatistics getStatementStatistics() {
+    return this.statementStatistics;
+  }
+
   Attributes getMetricAttributes() {
     return metricAttributes;
   }
@@ -1106,6 +1645,21 @@ public class BackendConnection {
     return this.spannerConnection;
   }
 
+  /**
+   * Returns the Spanner connection of this backend connection to the shared pool if transaction
+   * pooling is enabled, and this connection has no active transaction or buffered statements. The
+   * next statement on this connection will lease a new Spanner connection from the pool. This
+   * method is a no-op if transaction pooling is not enabled.
+   */
+  public void releaseSpannerConnectionIfIdle() {
+    if (pooledConnection != null
+        && connectionState == ConnectionState.IDLE
+        && transactionMode == TransactionMode.IMPLICIT
+        && bufferedStatements.isEmpty()) {
+      pooledConnection.releaseIfIdle();
+    }
+  }
+
   /** Returns the current schema that is used by this {@link BackendConnection}. */
   public String getCurrentSchema() {
     return this.currentSchema;
@@ -1126,9 +1680,16 @@ public class BackendConnection {
    * end if isSync=true.
    */
   private void flush(boolean isSync) {
+    if (!bufferedStatements.isEmpty()) {
+      metrics.recordBufferedStatements(bufferedStatements.size());
+    }
     int index = 0;
     try {
       while (index < bufferedStatements.size()) {
+        if (isSync && canExecuteInPipeline(index)) {
+          index += executeStatementsInPipeline(index);
+          continue;
+        }
         BufferedStatement<?> bufferedStatement = bufferedStatements.get(index);
         maybeBeginImplicitTransaction(index, isSync);
         // Prepare the connection for executing a DDL statement. This could include committing the
@@ -1162,12 +1723,27 @@ public class BackendConnection {
         if (canUseBatch) {
           index += executeStatementsInBatch(index);
         } else {
+          boolean startsTransaction = isBegin(index) && !spannerConnection.isInTransaction();
           bufferedStatement.execute();
 
           if (isBegin(index)) {
             transactionMode = TransactionMode.EXPLICIT;
             connectionState = ConnectionState.TRANSACTION;
             currentTransactionId = UUID.randomUUID();
+            if (startsTransaction
+                && spannerConnection.isInTransaction()
+                && isReadOnlyTransactionBlock(index)) {
+              // Execute the transaction block as a read-only transaction. This prevents the
+              // queries from taking locks, and makes the COMMIT a no-op. The read-only transaction
+              // uses strong reads, as the block would also have read the latest data if it had
+              // been executed in a read/write transaction. The read-only staleness of the
+              // connection is restored when the transaction ends.
+              spannerConnection.setTransactionMode(
+                  com.google.cloud.spanner.connection.TransactionMode.READ_ONLY_TRANSACTION);
+              readOnlyStalenessToRestore = spannerConnection.getReadOnlyStaleness();
+              spannerConnection.setReadOnlyStaleness(TimestampBound.strong());
+              metrics.recordAutoReadOnlyTransaction(metricAttributes);
+            }
           } else if (isCommit(index) || isRollback(index)) {
             if (isCommit(index)) {
               sessionState.commit();
@@ -1198,6 +1774,7 @@ public class BackendConnection {
       } else if (spannerConnection.isDdlBatchActive()) {
         spannerConnection.abortBatch();
       }
+      maybeRestoreReadOnlyStaleness();
     } finally {
       bufferedStatements.clear();
     }
@@ -1207,6 +1784,18 @@ public class BackendConnection {
     transactionMode = TransactionMode.IMPLICIT;
     connectionState = ConnectionState.IDLE;
     currentTransactionId = null;
+    maybeRestoreReadOnlyStaleness();
+  }
+
+  /**
+   * Restores the read-only staleness of the connection after a transaction block that was
+   * automatically executed as a read-only transaction with strong reads has ended.
+   */
+  private void maybeRestoreReadOnlyStaleness() {
+    if (readOnlyStalenessToRestore != null && !spannerConnection.isInTransaction()) {
+      spannerConnection.setReadOnlyStaleness(readOnlyStalenessToRestore);
+      readOnlyStalenessToRestore = null;
+    }
   }
 
   /** Starts an implicit transaction if that is necessary. */
@@ -1425,6 +2014,37 @@ public class BackendConnection {
     return isBegin(index) || isCommit(index) || isRollback(index);
   }
 
+  /**
+   * Returns true if the BEGIN statement at the given index starts a transaction block that is
+   * completely in the buffer, and that only contains queries that can be executed in a read-only
+   * transaction. This is only the case if the block is ended by a COMMIT or ROLLBACK statement, and
+   * the BEGIN statement does not explicitly specify a transaction mode.
+   */
+  @VisibleForTesting
+  boolean isReadOnlyTransactionBlock(int beginIndex) {
+    if (!sessionState.isAutoDetectReadOnlyTransactions()
+        || READ_ONLY_OR_READ_WRITE_PATTERN
+            .matcher(bufferedStatements.get(beginIndex).parsedStatement.getSqlWithoutComments())
+            .find()) {
+      return false;
+    }
+    for (int index = beginIndex + 1; index < bufferedStatements.size(); index++) {
+      if (isCommit(index) || isRollback(index)) {
+        return true;
+      }
+      BufferedStatement<?> bufferedStatement = bufferedStatements.get(index);
+      if (!(bufferedStatement instanceof Execute) || !bufferedStatement.parsedStatement.isQuery()) {
+        return false;
+      }
+      String sql = bufferedStatement.parsedStatement.getSqlWithoutComments();
+      if (FOR_UPDATE_PATTERN.matcher(sql).find() || WRITE_FUNCTION_PATTERN.matcher(sql).find()) {
+        return false;
+      }
+    }
+    // The transaction block is not ended in this buffer.
+    return false;
+  }
+
   private boolean hasOnlyDmlStatementsAfter(int index) {
     return bufferedStatements.subList(index, bufferedStatements.size()).stream()
         .allMatch(statement -> statement.parsedStatement.getType() == StatementType.UPDATE);
@@ -1468,6 +2088,7 @@ public class BackendConnection {
     Preconditions.checkArgument(fromIndex < getStatementCount() - 1);
     Preconditions.checkArgument(
         canBeBatchedTogether(getStatementType(fromIndex), getStatementType(fromIndex + 1)));
+    long startNanos = System.nanoTime();
     Span span = createSpan("execute_batch", null);
     try (Scope ignore = span.makeCurrent()) {
       statementContext.push(Context.current());
@@ -1519,10 +2140,13 @@ public class BackendConnection {
         long[] counts = spannerConnection.runBatch();
         Duration executionDuration = stopwatch.elapsed();
         metrics.recordClientLibLatency(executionDuration.toMillis(), metricAttributes);
+        metrics.recordPhaseLatency(Phase.SPANNER, executionDuration.toNanos());
         if (batchType == StatementType.DDL) {
           counts = extractDdlUpdateCounts(statementResults, counts);
         }
         updateBatchResultCount(fromIndex, counts);
+        recordBatchStatistics(
+            fromIndex, counts, System.nanoTime() - startNanos, executionDuration.toNanos());
       } catch (SpannerBatchUpdateException batchUpdateException) {
         long[] counts;
         if (batchType == StatementType.DDL) {
@@ -1541,6 +2165,9 @@ public class BackendConnection {
         throw exception;
       } finally {
         runBatchSpan.end();
+        if (batchType == StatementType.DDL) {
+          ddlExecutedCallback.run();
+        }
       }
       return index - fromIndex;
     } catch (Throwable throwable) {
@@ -1552,6 +2179,190 @@ public class BackendConnection {
     }
   }
 
+  /**
+   * Returns true if all statements from fromIndex can be executed concurrently in a query pipeline.
+   * This is only the case if query pipelines have been enabled for this connection, there is no
+   * active transaction or batch, and all remaining statements are at least two queries that are
+   * sent to Spanner.
+   */
+  @VisibleForTesting
+  boolean canExecuteInPipeline(int fromIndex) {
+    if (queryPipelineExecutor == null
+        || getStatementCount() - fromIndex < 2
+        || sessionState.getMaxPipelinedQueries() < 2
+        || connectionState != ConnectionState.IDLE
+        || spannerConnection.isInTransaction()
+        || spannerConnection.isDdlBatchActive()
+        || spannerConnection.isDmlBatchActive()
+        // Query pipelines use the DatabaseClient directly, and do not support the following
+        // connection-specific query features.
+        || spannerConnection.isAutoPartitionMode()
+        || spannerConnection.isDataBoostEnabled()
+        || spannerConnection.getDirectedRead() != null
+        || spannerConnection.getStatementTag() != null) {
+      return false;
+    }
+    return bufferedStatements.subList(fromIndex, getStatementCount()).stream()
+        .allMatch(
+            statement ->
+                statement instanceof Execute && ((Execute) statement).isPipeliningPossible());
+  }
+
+  /**
+   * Executes all statements from fromIndex in a query pipeline. The queries are executed
+   * concurrently in one read-only transaction, so all queries read from the same snapshot. This is
+   * the same transaction semantics as when the queries are executed one after another in an
+   * implicit read-only transaction. At most {@link SessionState#getMaxPipelinedQueries()} queries
+   * are executed at the same time. The results are set in the order of the statements, and no more
+   * results are set after the first query that fails.
+   *
+   * @param fromIndex The index of the statements array where the pipeline should start
+   * @return The number of statements included in the pipeline.
+   */
+  @VisibleForTesting
+  int executeStatementsInPipeline(int fromIndex) {
+    Preconditions.checkArgument(canExecuteInPipeline(fromIndex));
+    int maxInFlight = sessionState.getMaxPipelinedQueries();
+    ListeningExecutorService executor =
+        MoreExecutors.listeningDecorator(Objects.requireNonNull(queryPipelineExecutor).get());
+    QueryOption[] options = getPipelinedQueryOptions();
+    List<Execute> statements =
+        bufferedStatements.subList(fromIndex, getStatementCount()).stream()
+            .map(Execute.class::cast)
+            .collect(Collectors.toList());
+    Span span = createSpan("execute_pipeline", null);
+    // The results of the queries are sent to the client after this method has returned. The
+    // transaction is therefore only closed when all results have been closed.
+    PipelineTransaction transaction =
+        new PipelineTransaction(
+            spannerConnection
+                .getDatabaseClient()
+                .readOnlyTransaction(spannerConnection.getReadOnlyStaleness()));
+    try (Scope ignore = span.makeCurrent()) {
+      statementContext.push(Context.current());
+      int started = 0;
+      int finished = 0;
+      try {
+        while (finished < statements.size()) {
+          while (started < statements.size() && started - finished < maxInFlight) {
+            statements.get(started).startPipelinedExecution(transaction, executor, options);
+            started++;
+          }
+          // Wait for the oldest query in the pipeline. This ensures that the results are set in
+          // the same order as the statements.
+          Execute execute = statements.get(finished);
+          finished++;
+          execute.finishPipelinedExecution();
+        }
+      } catch (Throwable throwable) {
+        // The results of the queries after the failed query will never be sent to the client.
+        for (int i = finished; i < started; i++) {
+          statements.get(i).cancelPipelinedExecution();
+        }
+        throw throwable;
+      }
+      return statements.size();
+    } catch (Throwable throwable) {
+      span.recordException(throwable);
+      throw throwable;
+    } finally {
+      transaction.release();
+      span.end();
+      statementContext.pop();
+    }
+  }
+
+  /**
+   * The read-only transaction of a query pipeline. The transaction is closed when the pipeline and
+   * all the results of the queries in the pipeline have released their reference to it. This
+   * ensures that the session of the transaction is not returned to the session pool while results
+   * are still being streamed to the client.
+   */
+  @VisibleForTesting
+  static final class PipelineTransaction {
+    private final ReadOnlyTransaction transaction;
+    /** The number of references to the transaction. The pipeline itself holds the first one. */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    PipelineTransaction(ReadOnlyTransaction transaction) {
+      this.transaction = Preconditions.checkNotNull(transaction);
+    }
+
+    ReadContext getReadContext() {
+      return transaction;
+    }
+
+    /**
+     * Adds a reference to this transaction and returns the {@link Runnable} that releases it. The
+     * returned {@link Runnable} only releases the reference the first time that it is called.
+     */
+    Runnable retain() {
+      references.incrementAndGet();
+      AtomicBoolean released = new AtomicBoolean();
+      return () -> {
+        if (released.compareAndSet(false, true)) {
+          release();
+        }
+      };
+    }
+
+    /** Releases a reference to this transaction, and closes it if it was the last reference. */
+    void release() {
+      if (references.decrementAndGet() == 0) {
+        transaction.close();
+      }
+    }
+  }
+
+  /** A result of a pipelined query that releases the pipeline transaction when it is closed. */
+  private static final class PipelinedResultSet extends ForwardingResultSet {
+    private final Runnable release;
+
+    PipelinedResultSet(ResultSet delegate, Runnable release) {
+      super(delegate);
+      this.release = release;
+    }
+
+    @Override
+    public void close() {
+      try {
+        super.close();
+      } finally {
+        release.run();
+      }
+    }
+  }
+
+  /** Returns the query options of the Spanner connection that are used for pipelined queries. */
+  private QueryOption[] getPipelinedQueryOptions() {
+    RpcPriority priority = spannerConnection.getRPCPriority();
+    if (priority == null) {
+      return new QueryOption[0];
+    }
+    return new QueryOption[] {Options.priority(priority)};
+  }
+
+  /**
+   * Adds the optimizer version and statistics package of the Spanner connection to the given
+   * statement, unless the statement already has query options.
+   */
+  private Statement withConnectionQueryOptions(Statement statement) {
+    String optimizerVersion = spannerConnection.getOptimizerVersion();
+    String statisticsPackage = spannerConnection.getOptimizerStatisticsPackage();
+    if (statement.getQueryOptions() != null
+        || (Strings.isNullOrEmpty(optimizerVersion) && Strings.isNullOrEmpty(statisticsPackage))) {
+      return statement;
+    }
+    QueryOptions.Builder queryOptions = QueryOptions.newBuilder();
+    if (!Strings.isNullOrEmpty(optimizerVersion)) {
+      queryOptions.setOptimizerVersion(optimizerVersion);
+    }
+    if (!Strings.isNullOrEmpty(statisticsPackage)) {
+      queryOptions.setOptimizerStatisticsPackage(statisticsPackage);
+    }
+    return statement.toBuilder().withQueryOptions(queryOptions.build()).build();
+  }
+
   /** Extracts the update count for a list of DDL statements. */
   static long[] extractDdlUpdateCounts(
       List<StatementResult> statementResults, long[] returnedUpdateCounts) {
@@ -1578,6 +2389,27 @@ public class BackendConnection {
     }
   }
 
+  /**
+   * Records the statements of a batch in the statement statistics. The execution time of the batch
+   * is divided evenly over the statements in the batch.
+   */
+  private void recordBatchStatistics(
+      int fromIndex, long[] updateCounts, long totalNanos, long spannerNanos) {
+    if (updateCounts.length == 0) {
+      return;
+    }
+    for (int index = fromIndex; index < fromIndex + updateCounts.length; index++) {
+      Execute execute = (Execute) bufferedStatements.get(index);
+      statementStatistics.record(
+          execute.statement.getSql(),
+          totalNanos / updateCounts.length,
+          spannerNanos / updateCounts.length,
+          execute.parsedStatement.getType() == StatementType.DDL
+              ? 0L
+              : updateCounts[index - fromIndex]);
+    }
+  }
+
   /**
    * {@link StatementResult} implementation for statements that do not return anything (e.g. DDL).
    */
@@ -28,6 +28,8 @@ import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.metadata.CopySchemaCache;
+import com.google.cloud.spanner.pgadapter.metadata.CopySchemaCache.TableSchema;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.parsers.BooleanParser;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.ParsedCopyStatement.Direction;
@@ -37,12 +39,11 @@ import com.google.cloud.spanner.pgadapter.utils.MutationWriter;
 import com.google.cloud.spanner.pgadapter.utils.MutationWriter.CopyTransactionMode;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.apache.commons.csv.CSVFormat;
@@ -104,13 +105,6 @@ public class CopyStatement extends IntermediatePortalStatement {
   private Map<String, Type> tableColumns;
   private int indexedColumnsCount;
   private MutationWriter mutationWriter;
-  // We need two threads to execute a CopyStatement:
-  // 1. A thread to receive the CopyData messages from the client.
-  // 2. A thread to write the received data to Cloud Spanner.
-  // The two are kept separate to allow each to execute at the maximum speed that it can.
-  // The link between them is a piped output/input stream that ensures that backpressure is applied
-  // to the client if the client is sending data at a higher speed than that the writer can handle.
-  private final ExecutorService executor = Executors.newFixedThreadPool(2);
 
   public CopyStatement(
       ConnectionHandler connectionHandler,
@@ -153,7 +147,6 @@ public class CopyStatement extends IntermediatePortalStatement {
     if (this.mutationWriter != null) {
       this.mutationWriter.close();
     }
-    this.executor.shutdown();
     super.close();
   }
 
@@ -312,6 +305,32 @@ public class CopyStatement extends IntermediatePortalStatement {
   }
 
   private void queryInformationSchema(BackendConnection backendConnection) {
+    String schema =
+        getTableName().schema == null
+            ? backendConnection.getCurrentSchema()
+            : getTableName().getUnquotedSchema();
+    String table = getTableName().getUnquotedName();
+    ImmutableList<String> copyColumnNames =
+        getCopyColumnNames() == null
+            ? null
+            : getCopyColumnNames().stream()
+                .map(TableOrIndexName::getUnquotedName)
+                .collect(ImmutableList.toImmutableList());
+    // The table metadata is shared by all COPY statements on the same table and columns, so small
+    // COPY statements can start without any round-trips to Spanner.
+    CopySchemaCache copySchemaCache = connectionHandler.getServer().getCopySchemaCache();
+    TableSchema tableSchema =
+        copySchemaCache.get(connectionHandler.getDatabaseId(), schema, table, copyColumnNames);
+    if (tableSchema == null) {
+      tableSchema = queryTableSchema(schema, table);
+      copySchemaCache.put(
+          connectionHandler.getDatabaseId(), schema, table, copyColumnNames, tableSchema);
+    }
+    this.tableColumns = tableSchema.getColumns();
+    this.indexedColumnsCount = tableSchema.getIndexedColumnsCount();
+  }
+
+  private TableSchema queryTableSchema(String schema, String table) {
     Map<String, Type> tableColumns = new LinkedHashMap<>();
     String sql =
         "SELECT "
@@ -331,14 +350,7 @@ public class CopyStatement extends IntermediatePortalStatement {
     }
     sql += " ORDER BY ordinal_position";
     Statement.Builder builder =
-        Statement.newBuilder(sql)
-            .bind("p1")
-            .to(
-                getTableName().schema == null
-                    ? backendConnection.getCurrentSchema()
-                    : getTableName().getUnquotedSchema())
-            .bind("p2")
-            .to(getTableName().getUnquotedName());
+        Statement.newBuilder(sql).bind("p1").to(schema).bind("p2").to(table);
     if (getCopyColumnNames() != null && !getCopyColumnNames().isEmpty()) {
       int paramIndex = 3;
       for (TableOrIndexName columnName : getCopyColumnNames()) {
@@ -366,11 +378,11 @@ public class CopyStatement extends IntermediatePortalStatement {
     if (getCopyColumnNames() != null) {
       verifyCopyColumns();
     }
-    this.indexedColumnsCount = queryIndexedColumnsCount(backendConnection, tableColumns.keySet());
+    return new TableSchema(
+        this.tableColumns, queryIndexedColumnsCount(schema, table, tableColumns.keySet()));
   }
 
-  private int queryIndexedColumnsCount(
-      BackendConnection backendConnection, Set<String> columnNames) {
+  private int queryIndexedColumnsCount(String schema, String table, Set<String> columnNames) {
     String sql =
         "SELECT COUNT(*) FROM information_schema.index_columns "
             + "WHERE table_schema=$1 "
@@ -380,14 +392,7 @@ public class CopyStatement extends IntermediatePortalStatement {
                 .mapToObj(i -> String.format("$%d", i))
                 .collect(Collectors.joining(", ", "(", ")"));
     Statement.Builder builder =
-        Statement.newBuilder(sql)
-            .bind("p1")
-            .to(
-                getTableName().schema == null
-                    ? backendConnection.getCurrentSchema()
-                    : getTableName().getUnquotedSchema())
-            .bind("p2")
-            .to(getTableName().getUnquotedName());
+        Statement.newBuilder(sql).bind("p1").to(schema).bind("p2").to(table);
     int paramIndex = 3;
     for (String columnName : columnNames) {
       builder.bind(String.format("p%d", paramIndex)).to(columnName);
@@ -418,6 +423,9 @@ public class CopyStatement extends IntermediatePortalStatement {
     try {
       queryInformationSchema(backendConnection);
       setParserFormat(this.parsedCopyStatement);
+      // The shared COPY executor is used both to write the received data to Cloud Spanner, and by
+      // the MutationWriter to parse the data and to commit the mutations.
+      ListeningExecutorService executor = connectionHandler.getServer().getCopyExecutor();
       mutationWriter =
           new MutationWriter(
               connectionHandler
@@ -431,7 +439,9 @@ public class CopyStatement extends IntermediatePortalStatement {
               indexedColumnsCount,
               parsedCopyStatement.format,
               getParserFormat(),
-              hasHeader());
+              hasHeader(),
+              executor,
+              connectionHandler.getServer().getMetrics());
       setFutureStatementResult(
           backendConnection.executeCopy(
               parsedStatement,
@@ -249,6 +249,12 @@ public class CopyToStatement extends IntermediatePortalStatement {
         : createDataResponse(converter.getResultSet());
   }
 
+  @Override
+  public boolean isPipelinedRowEncodingSupported() {
+    // COPY keeps track of whether the binary header has been sent, and sends text rows as strings.
+    return false;
+  }
+
   @Override
   public WireOutput[] createResultSuffix() {
     return this.parsedCopyStatement.format == Format.BINARY
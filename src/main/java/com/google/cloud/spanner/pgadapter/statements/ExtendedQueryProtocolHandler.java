@@ -21,6 +21,7 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.utils.Logging;
 import com.google.cloud.spanner.pgadapter.utils.Logging.Action;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.cloud.spanner.pgadapter.wireoutput.ReadyResponse;
 import com.google.cloud.spanner.pgadapter.wireprotocol.AbstractQueryProtocolMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.SyncMessage;
@@ -73,7 +74,15 @@ public class ExtendedQueryProtocolHandler {
             connectionHandler.getSpannerConnection(),
             connectionHandler::getWellKnownClient,
             connectionHandler.getServer().getOptions(),
-            () -> connectionHandler.getWellKnownClient().getLocalStatements(connectionHandler)));
+            () -> connectionHandler.getWellKnownClient().getLocalStatements(connectionHandler),
+            () ->
+                connectionHandler
+                    .getServer()
+                    .invalidateCachesForDatabase(connectionHandler.getDatabaseId()),
+            connectionHandler.getServer().getSqlRewriteCache(),
+            connectionHandler.getServer().getStatementStatistics(),
+            connectionHandler.getServer().getCatalogResultCache(),
+            connectionHandler.getServer()::getQueryPipelineExecutor));
   }
 
   /** Constructor only intended for testing. */
@@ -189,16 +198,16 @@ public class ExtendedQueryProtocolHandler {
     addEvent("Received Sync");
     logger.log(Level.FINER, Logging.format("Sync", Action.Starting));
     backendConnection.sync();
-    flushMessages(includeReadyResponse);
+    flushMessages(/* isSync = */ true, includeReadyResponse);
     logger.log(Level.FINER, Logging.format("Sync", Action.Finished));
   }
 
   /** Flushes the wire-protocol messages to the frontend. */
   private void flushMessages() throws Exception {
-    flushMessages(false);
+    flushMessages(/* isSync = */ false, /* includeReadyResponse = */ false);
   }
 
-  private void flushMessages(boolean includeReadyResponse) throws Exception {
+  private void flushMessages(boolean isSync, boolean includeReadyResponse) throws Exception {
     addEvent("Flushing messages");
     logger.log(Level.FINER, Logging.format("Flushing messages", Action.Starting));
     try {
@@ -229,7 +238,17 @@ public class ExtendedQueryProtocolHandler {
       recordException(exception);
       throw exception;
     } finally {
+      if (isSync) {
+        // Results are streamed from the Spanner connection while the messages are flushed, so the
+        // connection can only be returned to the pool (if any) after that. This must be done before
+        // the output is flushed, as the client can send the next message as soon as it has
+        // received the ReadyForQuery message.
+        backendConnection.releaseSpannerConnectionIfIdle();
+      }
+      long flushStartNanos = System.nanoTime();
       connectionHandler.getConnectionMetadata().getOutputStream().flush();
+      connectionHandler.recordPhaseLatency(Phase.FLUSH, System.nanoTime() - flushStartNanos);
+      connectionHandler.recordBytesSentAndReceived();
       messages.clear();
       logger.log(Level.FINER, Logging.format("Flushing messages", Action.Finished));
       endSpan();
@@ -23,11 +23,15 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.statements.BackendConnection.ConnectionState;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import org.postgresql.core.Oid;
@@ -38,6 +42,11 @@ import org.postgresql.core.Oid;
 @InternalApi
 public class IntermediatePreparedStatement extends IntermediateStatement {
   static final int[] NO_PARAMETER_TYPES = new int[0];
+  /** All prefixes that trigger a pg_catalog rewrite for any of the well-known clients. */
+  private static final ImmutableSet<String> CATALOG_CHECK_PREFIXES =
+      Arrays.stream(WellKnownClient.values())
+          .flatMap(client -> client.getPgCatalogCheckPrefixes().stream())
+          .collect(ImmutableSet.toImmutableSet());
 
   private final String name;
   protected final int[] givenParameterDataTypes;
@@ -99,10 +108,24 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
 
   @Override
   public Future<StatementResult> describeAsync(BackendConnection backendConnection) {
+    boolean canUseSharedDescribeResult = canUseSharedDescribeResult(backendConnection);
+    if (canUseSharedDescribeResult) {
+      // Statements with the same SQL string and parameter types that have already been described
+      // by any connection are answered from the server-wide cache.
+      DescribeResult cachedDescribeResult =
+          getConnectionHandler()
+              .getCachedDescribeResult(
+                  this.originalStatement.getSql(), this.givenParameterDataTypes);
+      if (cachedDescribeResult != null) {
+        this.describeResult = Futures.immediateFuture(cachedDescribeResult);
+        this.described = true;
+        return Futures.immediateFuture(BackendConnection.NO_RESULT);
+      }
+    }
     ListenableFuture<StatementResult> statementResultFuture =
         backendConnection.analyze(this.command, this.parsedStatement, this.statement);
     setFutureStatementResult(statementResultFuture);
-    this.describeResult =
+    ListenableFuture<DescribeResult> describeResultFuture =
         Futures.transform(
             statementResultFuture,
             result -> {
@@ -117,10 +140,45 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
               return describeResult;
             },
             MoreExecutors.directExecutor());
+    this.describeResult = describeResultFuture;
     this.described = true;
+    if (canUseSharedDescribeResult) {
+      getConnectionHandler()
+          .cacheDescribeResult(
+              this.originalStatement.getSql(), this.givenParameterDataTypes, describeResultFuture);
+    }
     return statementResultFuture;
   }
 
+  /**
+   * Returns true if the describe result of this statement only depends on the SQL string and the
+   * given parameter types, and can therefore be shared with other connections. This excludes all
+   * special statements that are handled by PGAdapter, and connections in an aborted transaction, as
+   * Spanner should return an error for those. Statements that could reference pg_catalog or
+   * information_schema tables are also excluded, as the rewrite of those statements depends on
+   * session settings like spanner.replace_pg_catalog_tables and the detected client.
+   */
+  private boolean canUseSharedDescribeResult(BackendConnection backendConnection) {
+    return getClass() == IntermediatePreparedStatement.class
+        && (this.parsedStatement.isQuery() || this.parsedStatement.isUpdate())
+        && backendConnection.getConnectionState() != ConnectionState.ABORTED
+        && !mightReferenceCatalogTables(this.originalStatement.getSql());
+  }
+
+  /**
+   * Returns true if the given SQL string contains any of the prefixes that {@link PgCatalog} uses
+   * to determine whether a statement should be rewritten for any of the well-known clients.
+   */
+  static boolean mightReferenceCatalogTables(String sql) {
+    String lowerCaseSql = sql.toLowerCase(Locale.ENGLISH);
+    for (String prefix : CATALOG_CHECK_PREFIXES) {
+      if (lowerCaseSql.contains(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public DescribeResult describe() {
     if (this.describeResult == null) {
@@ -166,7 +224,9 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
       // As this describe-request is an auto-describe request, we can safely try to look it up in a
       // cache.
       Future<DescribeResult> cachedDescribeResult =
-          getConnectionHandler().getAutoDescribedStatement(this.originalStatement.getSql());
+          getConnectionHandler()
+              .getAutoDescribedStatement(
+                  this.originalStatement.getSql(), this.givenParameterDataTypes);
       if (cachedDescribeResult != null) {
         this.described = true;
         this.describeResult = cachedDescribeResult;
@@ -175,7 +235,11 @@ public class IntermediatePreparedStatement extends IntermediateStatement {
       // No cached result found. Add a describe-statement message to the queue.
       describeAsync(backendConnection);
       getConnectionHandler()
-          .registerAutoDescribedStatement(this.originalStatement.getSql(), this.describeResult);
+          .registerAutoDescribedStatement(
+              this.originalStatement.getSql(),
+              this.givenParameterDataTypes,
+              this.describeResult,
+              canUseSharedDescribeResult(backendConnection));
     }
   }
 
@@ -364,6 +364,15 @@ public class IntermediateStatement {
         : new DataRowResponse(this.outputStream, converter);
   }
 
+  /**
+   * Returns true if the rows of this statement can be encoded as {@link DataRowResponse} messages
+   * by a pipeline that runs in parallel with fetching and sending the rows.
+   */
+  public boolean isPipelinedRowEncodingSupported() {
+    // MOVE does not return any data, so there is nothing to encode.
+    return !MOVE_COMMAND_TAG.equals(commandTag);
+  }
+
   public WireOutput[] createResultSuffix() {
     // This is a no-op for a normal query. COPY uses this to send a CopyDoneResponse.
     // COPY table_name TO STDOUT BINARY also uses this to add the binary copy trailer.
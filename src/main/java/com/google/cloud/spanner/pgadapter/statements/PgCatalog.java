@@ -18,6 +18,7 @@ import com.google.api.core.InternalApi;
 import com.google.cloud.Tuple;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.SimpleParser.TableOrIndexName;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
@@ -31,10 +32,12 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 
 @InternalApi
@@ -124,6 +127,15 @@ public class PgCatalog {
               new TableOrIndexName("pg_catalog", "pg_settings"),
               new TableOrIndexName(null, "pg_settings"))
           .put(new TableOrIndexName(null, "pg_settings"), new TableOrIndexName(null, "pg_settings"))
+          .put(
+              new TableOrIndexName("pg_catalog", "pg_stat_statements"),
+              new TableOrIndexName(null, "pg_stat_statements"))
+          .put(
+              new TableOrIndexName("public", "pg_stat_statements"),
+              new TableOrIndexName(null, "pg_stat_statements"))
+          .put(
+              new TableOrIndexName(null, "pg_stat_statements"),
+              new TableOrIndexName(null, "pg_stat_statements"))
           .build();
 
   private static final ImmutableList<QueryPartReplacer> DEFAULT_FUNCTION_REPLACEMENTS =
@@ -154,6 +166,26 @@ public class PgCatalog {
               Pattern.compile("obj_description\\s*\\(\\s*.+\\s*,\\s*'pg_class'\\s*\\)"),
               "''::varchar AS obj_description"));
 
+  /**
+   * Query parts that indicate that the result of a query depends on more than only the schema of
+   * the database.
+   */
+  private static final ImmutableList<String> NON_CATALOG_QUERY_PARTS =
+      ImmutableList.of(
+          "pg_settings",
+          "pg_stat_statements",
+          "current_setting",
+          "version(",
+          "server_version_num",
+          "now(",
+          "current_timestamp",
+          "current_date",
+          "current_time",
+          "current_user",
+          "session_user",
+          "random(",
+          "nextval(");
+
   private final ImmutableSet<String> checkPrefixes;
 
   private final ImmutableMap<TableOrIndexName, TableOrIndexName> tableReplacements;
@@ -178,9 +210,20 @@ public class PgCatalog {
           .put(new TableOrIndexName(null, "pg_extension"), new PgExtension())
           .build();
   private final SessionState sessionState;
+  private final WellKnownClient wellKnownClient;
+  private final StatementStatistics statementStatistics;
 
   public PgCatalog(@Nonnull SessionState sessionState, @Nonnull WellKnownClient wellKnownClient) {
+    this(sessionState, wellKnownClient, new StatementStatistics());
+  }
+
+  public PgCatalog(
+      @Nonnull SessionState sessionState,
+      @Nonnull WellKnownClient wellKnownClient,
+      @Nonnull StatementStatistics statementStatistics) {
     this.sessionState = Preconditions.checkNotNull(sessionState);
+    this.wellKnownClient = Preconditions.checkNotNull(wellKnownClient);
+    this.statementStatistics = Preconditions.checkNotNull(statementStatistics);
     this.checkPrefixes = wellKnownClient.getPgCatalogCheckPrefixes();
     ImmutableMap.Builder<TableOrIndexName, TableOrIndexName> builder =
         ImmutableMap.<TableOrIndexName, TableOrIndexName>builder()
@@ -200,7 +243,8 @@ public class PgCatalog {
             .put(new TableOrIndexName(null, "pg_constraint"), new PgConstraint())
             .put(new TableOrIndexName(null, "pg_index"), new PgIndex())
             .put(new TableOrIndexName(null, "pg_type"), new PgType())
-            .put(new TableOrIndexName(null, "pg_settings"), new PgSettings());
+            .put(new TableOrIndexName(null, "pg_settings"), new PgSettings())
+            .put(new TableOrIndexName(null, "pg_stat_statements"), new PgStatStatements());
     wellKnownClient
         .getPgCatalogTables()
         .forEach((k, v) -> pgCatalogTablesBuilder.put(TableOrIndexName.parse(k), v));
@@ -221,6 +265,11 @@ public class PgCatalog {
             .build();
   }
 
+  /** Returns the client that this {@link PgCatalog} replaces tables and functions for. */
+  public WellKnownClient getWellKnownClient() {
+    return wellKnownClient;
+  }
+
   @VisibleForTesting
   ImmutableList<QueryPartReplacer> getDefaultFunctionReplacements() {
     return DEFAULT_FUNCTION_REPLACEMENTS;
@@ -249,6 +298,36 @@ public class PgCatalog {
     return addCommonTableExpressions(replacedTablesStatement.y(), cteBuilder.build());
   }
 
+  /**
+   * Returns true if the given query only reads from pg_catalog and information_schema tables. The
+   * result of such a query only changes when the schema of the database changes. Queries that
+   * reference tables with session-specific or dynamic content, such as pg_settings and
+   * pg_stat_statements, or that call functions that return session-specific or time-dependent
+   * values, are not considered catalog queries.
+   */
+  public boolean isCatalogQuery(Statement statement, String lowerCaseSql) {
+    if (!(lowerCaseSql.contains("pg_") || lowerCaseSql.contains("information_schema"))
+        || NON_CATALOG_QUERY_PARTS.stream().anyMatch(lowerCaseSql::contains)) {
+      return false;
+    }
+    ImmutableSet<TableOrIndexName> tables = TableParser.detectReferencedTables(statement);
+    if (tables == null || tables.isEmpty()) {
+      return false;
+    }
+    for (TableOrIndexName table : tables) {
+      String schema = table.getUnquotedSchema();
+      if (schema == null) {
+        if (!(tableReplacements.containsKey(table) && table.getUnquotedName().startsWith("pg_"))) {
+          return false;
+        }
+      } else if (!("pg_catalog".equalsIgnoreCase(schema)
+          || "information_schema".equalsIgnoreCase(schema))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   Tuple<String, ReplacementStatus> replaceKnownUnsupportedFunctions(Statement statement) {
     String sql = statement.getSql();
     for (QueryPartReplacer functionReplacement : functionReplacements) {
@@ -526,6 +605,61 @@ public class PgCatalog {
     }
   }
 
+  /**
+   * The pg_stat_statements view of the pg_stat_statements extension. The view contains the
+   * statements with the highest total execution time from the server-wide {@link
+   * StatementStatistics}. All times are in milliseconds. The spanner_exec_time and
+   * adapter_exec_time columns are specific to PGAdapter, and split the total execution time into
+   * the time that was spent waiting for Spanner and the time that was spent in PGAdapter.
+   */
+  @InternalApi
+  public class PgStatStatements implements PgCatalogTable {
+    private static final String PG_STAT_STATEMENTS_ROW_FORMAT =
+        "select 0::bigint as userid, 0::bigint as dbid, true as toplevel, "
+            + "'%d'::bigint as queryid, '%s'::text as query, %d::bigint as calls, "
+            + "'%s'::float8 as total_exec_time, '%s'::float8 as min_exec_time, "
+            + "'%s'::float8 as max_exec_time, '%s'::float8 as mean_exec_time, "
+            + "%d::bigint as rows, '%s'::float8 as spanner_exec_time, "
+            + "'%s'::float8 as adapter_exec_time";
+
+    @Override
+    public String getTableExpression() {
+      List<StatementStatistics.Snapshot> snapshots = statementStatistics.getSnapshots();
+      int limit = Math.max(0, sessionState.getPgStatStatementsLimit());
+      if (snapshots.isEmpty() || limit == 0) {
+        return "pg_stat_statements as (\n"
+            + "  select * from (\n"
+            + "    "
+            + String.format(PG_STAT_STATEMENTS_ROW_FORMAT, 0L, "", 0L, 0d, 0d, 0d, 0d, 0L, 0d, 0d)
+            + "\n  ) t where false\n"
+            + ")";
+      }
+      return "pg_stat_statements as (\n"
+          + snapshots.stream()
+              .limit(limit)
+              .map(
+                  snapshot ->
+                      String.format(
+                          PG_STAT_STATEMENTS_ROW_FORMAT,
+                          snapshot.getQueryId(),
+                          snapshot.getQuery().replace("'", "''"),
+                          snapshot.getCalls(),
+                          toMillis(snapshot.getTotalNanos()),
+                          toMillis(snapshot.getMinNanos()),
+                          toMillis(snapshot.getMaxNanos()),
+                          toMillis(snapshot.getMeanNanos()),
+                          snapshot.getRows(),
+                          toMillis(snapshot.getSpannerNanos()),
+                          toMillis(snapshot.getAdapterNanos())))
+              .collect(Collectors.joining("\nunion all\n"))
+          + "\n)";
+    }
+
+    private String toMillis(long nanos) {
+      return Double.toString(nanos / 1_000_000d);
+    }
+  }
+
   @InternalApi
   public class PgClass implements PgCatalogTable {
     public static final String PG_CLASS_CTE =
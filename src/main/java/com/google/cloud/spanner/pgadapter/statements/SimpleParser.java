@@ -382,6 +382,79 @@ public class SimpleParser {
     return true;
   }
 
+  /**
+   * Returns the normalized form of the given SQL string that is used as the fingerprint of the
+   * statement in statement statistics. All comments and whitespaces are replaced by a single space,
+   * unquoted identifiers and keywords are folded to lower case, and all string and numeric literals
+   * are replaced by query parameters. The query parameters are numbered after the highest query
+   * parameter that is already in the statement, in the same way as pg_stat_statements does.
+   */
+  public static String normalizeLiterals(String sql) {
+    SimpleParser parser = new SimpleParser(sql);
+    StringBuilder result = new StringBuilder(sql.length());
+    List<Integer> literalPositions = new ArrayList<>();
+    int maxParameter = 0;
+    while (true) {
+      int startPos = parser.pos;
+      parser.skipWhitespaces();
+      if (parser.pos >= sql.length()) {
+        break;
+      }
+      if (parser.pos > startPos && result.length() > 0) {
+        result.append(' ');
+      }
+      startPos = parser.pos;
+      char c = sql.charAt(startPos);
+      if (c == SINGLE_QUOTE
+          || (c == 'e' || c == 'E')
+              && sql.length() > startPos + 1
+              && sql.charAt(startPos + 1) == SINGLE_QUOTE) {
+        parser.skipCommentsAndLiterals();
+        literalPositions.add(result.length());
+      } else if (c == DOUBLE_QUOTE) {
+        parser.skipQuotedString(false);
+        result.append(sql, startPos, parser.pos);
+      } else if (c == DOLLAR) {
+        String parameter = parser.readQueryParameter();
+        if (parameter != null) {
+          maxParameter = Math.max(maxParameter, parser.parseInt(parameter.substring(1)));
+          result.append(parameter);
+        } else {
+          parser.pos = startPos;
+          if (parser.skipDollarQuotedString()) {
+            literalPositions.add(result.length());
+          } else {
+            parser.pos = startPos + 1;
+            result.append(c);
+          }
+        }
+      } else if (Character.isDigit(c) && parser.skipNumericLiteral()) {
+        literalPositions.add(result.length());
+      } else if (parser.isValidIdentifierFirstChar(c) || Character.isDigit(c)) {
+        // Numeric literals that are directly followed by an identifier character, such as 1e10, are
+        // not replaced.
+        parser.pos = startPos;
+        while (parser.pos < sql.length() && parser.isValidIdentifierChar(sql.charAt(parser.pos))) {
+          result.append(Character.toLowerCase(sql.charAt(parser.pos)));
+          parser.pos++;
+        }
+      } else {
+        result.append(c);
+        parser.pos++;
+      }
+    }
+    if (literalPositions.isEmpty()) {
+      return result.toString();
+    }
+    StringBuilder normalized = new StringBuilder(result.length() + 3 * literalPositions.size());
+    int previousPosition = 0;
+    for (int position : literalPositions) {
+      normalized.append(result, previousPosition, position).append(DOLLAR).append(++maxParameter);
+      previousPosition = position;
+    }
+    return normalized.append(result, previousPosition, result.length()).toString();
+  }
+
   public static List<String> readArrayLiteral(String expression, boolean returnRawHexValue) {
     List<String> result = new ArrayList<>();
     SimpleParser parser = new SimpleParser(expression);
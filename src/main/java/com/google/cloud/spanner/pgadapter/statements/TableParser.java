@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 class TableParser {
   private static final ImmutableSet<TableOrIndexName> EMPTY_TABLE_SET = ImmutableSet.of();
@@ -31,10 +32,33 @@ class TableParser {
       ImmutableList.of("from", "join", "insert", "update", "delete");
   private final Statement originalStatement;
   private final SimpleParser parser;
+  /** Whether all tables should be collected, and not only the tables in the replacement map. */
+  private final boolean collectReferencedTables;
+
+  private final Set<TableOrIndexName> referencedTables = new HashSet<>();
+  private boolean allReferencedTablesDetected = true;
 
   TableParser(Statement statement) {
+    this(statement, false);
+  }
+
+  private TableParser(Statement statement, boolean collectReferencedTables) {
     this.originalStatement = statement;
     this.parser = new SimpleParser(statement.getSql());
+    this.collectReferencedTables = collectReferencedTables;
+  }
+
+  /**
+   * Returns all tables that are referenced in the statement, including tables in sub-queries, or
+   * null if the statement contains a table reference that could not be parsed.
+   */
+  @Nullable
+  static ImmutableSet<TableOrIndexName> detectReferencedTables(Statement statement) {
+    TableParser tableParser = new TableParser(statement, true);
+    tableParser.detectAndReplaceTables(ImmutableMap.of());
+    return tableParser.allReferencedTablesDetected
+        ? ImmutableSet.copyOf(tableParser.referencedTables)
+        : null;
   }
 
   Tuple<Set<TableOrIndexName>, Statement> detectAndReplaceTables(
@@ -56,7 +80,7 @@ class TableParser {
         break;
       }
     }
-    if (!potentialMatch) {
+    if (!potentialMatch && !collectReferencedTables) {
       return Tuple.of(EMPTY_TABLE_SET, originalStatement);
     }
 
@@ -81,6 +105,7 @@ class TableParser {
           multipleTables = true;
         } else {
           // This shouldn't happen.
+          allReferencedTablesDetected = false;
           return Tuple.of(EMPTY_TABLE_SET, originalStatement);
         }
       }
@@ -116,12 +141,15 @@ class TableParser {
       if (parser.eatToken("(")) {
         int startPosition = parser.getPos();
         String subExpression = parser.eatSubExpression();
-        TableParser subParser = new TableParser(Statement.of(subExpression));
+        TableParser subParser =
+            new TableParser(Statement.of(subExpression), collectReferencedTables);
         Tuple<Set<TableOrIndexName>, Statement> subResult =
             subParser.detectAndReplaceTables(
                 detectAndReplaceMap,
                 replacedTables,
                 subParser.parser.peekKeyword("select") || subParser.parser.peekKeyword("with"));
+        referencedTables.addAll(subParser.referencedTables);
+        allReferencedTablesDetected &= subParser.allReferencedTablesDetected;
         if (!subResult.x().isEmpty()) {
           detectedOrReplacedTable = true;
           detectedTablesBuilder.addAll(subResult.x());
@@ -132,6 +160,9 @@ class TableParser {
           // Set the position of the parser to after the replaced sub-expression.
           parser.setPos(startPosition + subResult.y().getSql().length());
           parser.eatToken(")");
+        } else if (collectReferencedTables) {
+          // Continue with any other tables in the list after the sub-expression.
+          parser.eatToken(")");
         }
       } else {
         // Skip all whitespaces to get the actual position before the next table name.
@@ -139,8 +170,10 @@ class TableParser {
         int positionBeforeName = parser.getPos();
         TableOrIndexName tableOrIndexName = parser.readTableOrIndexName();
         if (tableOrIndexName == null) {
+          allReferencedTablesDetected = false;
           break;
         }
+        referencedTables.add(tableOrIndexName);
         if (detectAndReplaceMap.containsKey(tableOrIndexName)) {
           detectedOrReplacedTable = true;
           // Add the translated table name to the set of discovered tables so that a CTE can be
@@ -20,9 +20,12 @@ import com.google.cloud.spanner.connection.AbstractStatementParser.StatementType
 import com.google.cloud.spanner.connection.StatementResult;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.statements.SimpleParser.TableOrIndexName;
 import com.google.cloud.spanner.pgadapter.statements.TruncateStatement.ParsedTruncateStatement.Builder;
+import com.google.cloud.spanner.pgadapter.wireoutput.NoticeResponse;
+import com.google.cloud.spanner.pgadapter.wireoutput.NoticeResponse.NoticeSeverity;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
@@ -102,6 +105,30 @@ public class TruncateStatement extends IntermediatePortalStatement {
     return statements;
   }
 
+  /**
+   * Sends a notice to the client that the table at the given index in the list of {@link
+   * #getDeleteStatements()} has been truncated. No notice is sent if the statement only truncates
+   * one table.
+   *
+   * @param index the index of the table that has been truncated
+   * @param truncatedCount the number of tables that have been truncated so far
+   */
+  void sendTruncatedTableNotice(int index, int truncatedCount) throws Exception {
+    int tableCount = truncateStatement.tables.size();
+    if (tableCount < 2) {
+      return;
+    }
+    new NoticeResponse(
+            connectionHandler.getConnectionMetadata().getOutputStream(),
+            SQLState.Success,
+            NoticeSeverity.INFO,
+            String.format(
+                "truncated table %s (%d of %d)",
+                truncateStatement.tables.get(index), truncatedCount, tableCount),
+            null)
+        .send(true);
+  }
+
   @Override
   public Future<StatementResult> describeAsync(BackendConnection backendConnection) {
     // Return null to indicate that this TRUNCATE statement does not return any
@@ -0,0 +1,69 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.statements.local;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.connection.StatementResult;
+import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
+import com.google.cloud.spanner.pgadapter.statements.BackendConnection.QueryResult;
+import com.google.cloud.spanner.pgadapter.statements.ClientSideResultSet;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Resets the server-wide statement statistics that are returned by the pg_stat_statements view.
+ * Returns the time of the reset, in the same way as pg_stat_statements_reset() in PostgreSQL 14 and
+ * higher.
+ */
+@InternalApi
+public class SelectPgStatStatementsResetStatement implements LocalStatement {
+  public static final SelectPgStatStatementsResetStatement INSTANCE =
+      new SelectPgStatStatementsResetStatement();
+
+  private SelectPgStatStatementsResetStatement() {}
+
+  @Override
+  public String[] getSql() {
+    return new String[] {
+      "select pg_stat_statements_reset()",
+      "SELECT pg_stat_statements_reset()",
+      "Select pg_stat_statements_reset()",
+      "SELECT PG_STAT_STATEMENTS_RESET()",
+      "select * from pg_stat_statements_reset()",
+      "SELECT * FROM pg_stat_statements_reset()",
+      "Select * from pg_stat_statements_reset()",
+      "SELECT * FROM PG_STAT_STATEMENTS_RESET()",
+      "select public.pg_stat_statements_reset()",
+      "SELECT public.pg_stat_statements_reset()",
+      "select * from public.pg_stat_statements_reset()",
+      "SELECT * FROM public.pg_stat_statements_reset()"
+    };
+  }
+
+  @Override
+  public StatementResult execute(BackendConnection backendConnection) {
+    backendConnection.getStatementStatistics().reset();
+    ResultSet resultSet =
+        ClientSideResultSet.forRows(
+            Type.struct(StructField.of("pg_stat_statements_reset", Type.timestamp())),
+            ImmutableList.of(
+                Struct.newBuilder().set("pg_stat_statements_reset").to(Timestamp.now()).build()));
+    return new QueryResult(resultSet);
+  }
+}
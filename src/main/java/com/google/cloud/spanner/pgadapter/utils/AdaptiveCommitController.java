@@ -0,0 +1,184 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Chooses the number of rows per commit and the number of concurrent commits of a non-atomic COPY
+ * operation based on the observed commit latency and errors. The controller uses additive increase
+ * / multiplicative decrease (AIMD):
+ *
+ * <ul>
+ *   <li>A commit that finishes within the target latency increases the batch size by a fixed step.
+ *       The number of concurrent commits is increased by one each time that as many commits have
+ *       finished within the target latency as the current number of concurrent commits.
+ *   <li>A commit that takes longer than the target latency halves the batch size.
+ *   <li>A commit that fails because Spanner is overloaded halves both the batch size and the number
+ *       of concurrent commits.
+ * </ul>
+ *
+ * <p>The batch size and the number of concurrent commits never exceed the limits that are set for
+ * the COPY operation. A decrease is only applied once for all commits that were started with the
+ * same settings, so a burst of slow or failed commits does not collapse the settings to the
+ * minimum.
+ */
+final class AdaptiveCommitController {
+  /** The fraction of the maximum batch size that is used for the first commits. */
+  @VisibleForTesting static final int INITIAL_BATCH_SIZE_DIVISOR = 8;
+  /** The fraction of the maximum batch size that is added after each fast commit. */
+  @VisibleForTesting static final int BATCH_SIZE_STEP_DIVISOR = 16;
+  /** The number of concurrent commits that is used for the first commits. */
+  @VisibleForTesting static final int INITIAL_PARALLELISM = 8;
+
+  /** A commit that has been started and that holds one of the concurrent commit slots. */
+  static final class Permit {
+    private final long decreases;
+    private final int parallelism;
+
+    private Permit(long decreases, int parallelism) {
+      this.decreases = decreases;
+      this.parallelism = parallelism;
+    }
+
+    /** Returns the maximum number of concurrent commits when this commit was started. */
+    int getParallelism() {
+      return parallelism;
+    }
+  }
+
+  private final int maxBatchSize;
+  private final int maxParallelism;
+  private final int batchSizeStep;
+  private final long targetLatencyNanos;
+
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private int batchSize;
+
+  @GuardedBy("lock")
+  private int parallelism;
+
+  @GuardedBy("lock")
+  private int inFlight;
+
+  @GuardedBy("lock")
+  private int fastCommits;
+
+  /** The number of times that the settings have been decreased. */
+  @GuardedBy("lock")
+  private long decreases;
+
+  AdaptiveCommitController(int maxBatchSize, int maxParallelism, long targetLatencyMillis) {
+    Preconditions.checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+    Preconditions.checkArgument(maxParallelism > 0, "maxParallelism must be positive");
+    Preconditions.checkArgument(targetLatencyMillis > 0L, "targetLatencyMillis must be positive");
+    this.maxBatchSize = maxBatchSize;
+    this.maxParallelism = maxParallelism;
+    this.batchSizeStep = Math.max(maxBatchSize / BATCH_SIZE_STEP_DIVISOR, 1);
+    this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    this.batchSize = Math.max(maxBatchSize / INITIAL_BATCH_SIZE_DIVISOR, 1);
+    this.parallelism = Math.min(INITIAL_PARALLELISM, maxParallelism);
+  }
+
+  /** Returns the number of rows that should be included in the next commit. */
+  int getBatchSize() {
+    synchronized (lock) {
+      return batchSize;
+    }
+  }
+
+  /** Returns the current maximum number of concurrent commits. */
+  int getParallelism() {
+    synchronized (lock) {
+      return parallelism;
+    }
+  }
+
+  /**
+   * Waits until the number of concurrent commits is below the current limit, and then reserves a
+   * slot for a new commit. Blocking the caller applies back-pressure to the client.
+   */
+  Permit acquire() throws InterruptedException {
+    synchronized (lock) {
+      while (inFlight >= parallelism) {
+        lock.wait();
+      }
+      inFlight++;
+      return new Permit(decreases, parallelism);
+    }
+  }
+
+  /** Releases the slot of a commit that has finished, either successfully or not. */
+  void release(Permit permit) {
+    Preconditions.checkNotNull(permit);
+    synchronized (lock) {
+      inFlight--;
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Registers the latency or the error of one attempt of a commit, and adjusts the batch size and
+   * the number of concurrent commits.
+   */
+  void recordCommit(Permit permit, long latencyNanos, @Nullable Throwable error) {
+    synchronized (lock) {
+      boolean overloaded = error != null && isOverloaded(error);
+      if (error != null && !overloaded) {
+        // Other errors do not say anything about the load of the database.
+        return;
+      }
+      if (!overloaded && latencyNanos <= targetLatencyNanos) {
+        batchSize = Math.min(batchSize + batchSizeStep, maxBatchSize);
+        if (++fastCommits >= parallelism) {
+          fastCommits = 0;
+          if (parallelism < maxParallelism) {
+            parallelism++;
+            lock.notifyAll();
+          }
+        }
+        return;
+      }
+      // Only decrease once for all commits that were started before the last decrease.
+      if (permit.decreases < decreases) {
+        return;
+      }
+      decreases++;
+      fastCommits = 0;
+      batchSize = Math.max(batchSize / 2, 1);
+      if (overloaded) {
+        parallelism = Math.max(parallelism / 2, 1);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the given error indicates that Spanner could not handle the commit because of
+   * the current load. A commit that fails with one of these errors has not been applied, and can
+   * safely be retried.
+   */
+  static boolean isOverloaded(Throwable error) {
+    return error instanceof SpannerException
+        && ((SpannerException) error).getErrorCode() == ErrorCode.RESOURCE_EXHAUSTED;
+  }
+}
@@ -36,7 +36,7 @@ import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -58,7 +58,7 @@ class BinaryCopyParser implements CopyInParser {
   private boolean calledIterator = false;
   private short firstRowFieldCount = -1;
 
-  BinaryCopyParser(PipedInputStream inputStream) {
+  BinaryCopyParser(InputStream inputStream) {
     this.dataInputStream = new DataInputStream(new BufferedInputStream(inputStream));
   }
 
@@ -0,0 +1,188 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link OutputStream} that writes to a (non-blocking) {@link SocketChannel}. The stream borrows a
+ * buffer from a shared {@link BufferPool} when data is written, and returns the buffer to the pool
+ * when the stream is flushed. This means that a connection only holds an output buffer while it is
+ * actively sending data to the client.
+ */
+@InternalApi
+public class ChannelOutputStream extends OutputStream {
+
+  /** Simple pool of fixed-size direct buffers that are shared by all connections. */
+  @InternalApi
+  public static class BufferPool {
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final int bufferSize;
+
+    public BufferPool(int bufferSize) {
+      Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+      this.bufferSize = bufferSize;
+    }
+
+    ByteBuffer acquire() {
+      ByteBuffer buffer = buffers.poll();
+      if (buffer == null) {
+        return ByteBuffer.allocateDirect(bufferSize);
+      }
+      return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+      ((Buffer) buffer).clear();
+      buffers.offer(buffer);
+    }
+
+    /** Returns the number of idle buffers in this pool. */
+    public int getIdleBufferCount() {
+      return buffers.size();
+    }
+  }
+
+  private final WritableByteChannel channel;
+  private final BufferPool pool;
+  private ByteBuffer buffer;
+  private boolean closed;
+
+  public ChannelOutputStream(WritableByteChannel channel, BufferPool pool) {
+    this.channel = Preconditions.checkNotNull(channel);
+    this.pool = Preconditions.checkNotNull(pool);
+  }
+
+  /** Returns true if this stream is currently holding a buffer from the pool. */
+  public synchronized boolean hasBuffer() {
+    return buffer != null;
+  }
+
+  @Override
+  public synchronized void write(int b) throws IOException {
+    ensureBuffer(1);
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public synchronized void write(byte[] data, int offset, int length) throws IOException {
+    Preconditions.checkPositionIndexes(offset, offset + length, data.length);
+    while (length > 0) {
+      ensureBuffer(1);
+      int n = Math.min(length, buffer.remaining());
+      buffer.put(data, offset, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  @Override
+  public synchronized void flush() throws IOException {
+    if (buffer == null) {
+      return;
+    }
+    try {
+      writeBuffer();
+    } finally {
+      pool.release(buffer);
+      buffer = null;
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (channel.isOpen()) {
+        flush();
+      }
+    } finally {
+      if (buffer != null) {
+        pool.release(buffer);
+        buffer = null;
+      }
+    }
+  }
+
+  private void ensureBuffer(int required) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (buffer == null) {
+      buffer = pool.acquire();
+    } else if (buffer.remaining() < required) {
+      writeBuffer();
+    }
+  }
+
+  /** Writes all data in the buffer to the channel and clears the buffer. */
+  private void writeBuffer() throws IOException {
+    ((Buffer) buffer).flip();
+    try {
+      Selector selector = null;
+      try {
+        while (buffer.hasRemaining()) {
+          if (channel.write(buffer) == 0) {
+            // The socket send buffer is full. Wait until the channel becomes writable instead of
+            // spinning.
+            if (selector == null) {
+              selector = openWriteSelector();
+            }
+            if (selector == null) {
+              Thread.yield();
+            } else {
+              selector.select(1000L);
+              selector.selectedKeys().clear();
+            }
+          }
+        }
+      } finally {
+        if (selector != null) {
+          selector.close();
+        }
+      }
+    } finally {
+      ((Buffer) buffer).clear();
+    }
+  }
+
+  private Selector openWriteSelector() throws IOException {
+    if (!(channel instanceof SocketChannel)) {
+      return null;
+    }
+    Selector selector = Selector.open();
+    try {
+      ((SocketChannel) channel).register(selector, SelectionKey.OP_WRITE);
+    } catch (ClosedChannelException closedChannelException) {
+      selector.close();
+      throw closedChannelException;
+    }
+    return selector;
+  }
+}
@@ -30,6 +30,7 @@ import com.google.cloud.spanner.pgadapter.statements.local.SelectCurrentDatabase
 import com.google.cloud.spanner.pgadapter.statements.local.SelectCurrentSchemaStatement;
 import com.google.cloud.spanner.pgadapter.statements.local.SelectGolangMigrateAdvisoryLockStatement;
 import com.google.cloud.spanner.pgadapter.statements.local.SelectGolangMigrateAdvisoryUnlockStatement;
+import com.google.cloud.spanner.pgadapter.statements.local.SelectPgStatStatementsResetStatement;
 import com.google.cloud.spanner.pgadapter.statements.local.SelectPrismaAdvisoryLockStatement;
 import com.google.cloud.spanner.pgadapter.statements.local.SelectPrismaAdvisoryUnlockStatement;
 import com.google.cloud.spanner.pgadapter.statements.local.SelectVersionStatement;
@@ -65,6 +66,7 @@ public class ClientAutoDetector {
           SelectCurrentDatabaseStatement.INSTANCE,
           SelectCurrentCatalogStatement.INSTANCE,
           SelectVersionStatement.INSTANCE,
+          SelectPgStatStatementsResetStatement.INSTANCE,
           DjangoGetTableNamesStatement.INSTANCE);
   private static final ImmutableSet<String> DEFAULT_CHECK_PG_CATALOG_PREFIXES =
       ImmutableSet.of("pg_", "information_schema.");
@@ -37,15 +37,14 @@ import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.CopyToStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.common.base.Preconditions;
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
 /** Utility class for converting between generic PostgreSQL conversions. */
 @InternalApi
 public class Converter implements AutoCloseable {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
-  private final DataOutputStream outputStream = new DataOutputStream(buffer);
+  private final DataRowBuffer buffer;
+  private final DataOutputStream outputStream;
   private final IntermediateStatement statement;
   private final QueryMode mode;
   private final OptionsMetadata options;
@@ -53,6 +52,7 @@ public class Converter implements AutoCloseable {
   private final SessionState sessionState;
   private boolean includeBinaryCopyHeaderInFirstRow;
   private boolean firstRow = true;
+  private long encodeNanos;
 
   public Converter(
       IntermediateStatement statement,
@@ -60,6 +60,29 @@ public class Converter implements AutoCloseable {
       OptionsMetadata options,
       ResultSet resultSet,
       boolean includeBinaryCopyHeaderInFirstRow) {
+    this(
+        statement,
+        mode,
+        options,
+        resultSet,
+        includeBinaryCopyHeaderInFirstRow,
+        new DataRowBuffer());
+  }
+
+  /**
+   * Creates a {@link Converter} that encodes rows into the given buffer. The buffer is reset for
+   * each row, and can be reused for multiple converters, as long as these are not used at the same
+   * time.
+   */
+  public Converter(
+      IntermediateStatement statement,
+      QueryMode mode,
+      OptionsMetadata options,
+      ResultSet resultSet,
+      boolean includeBinaryCopyHeaderInFirstRow,
+      DataRowBuffer buffer) {
+    this.buffer = buffer;
+    this.outputStream = buffer.getOutput();
     this.statement = statement;
     this.mode = mode;
     this.options = options;
@@ -92,7 +115,21 @@ public class Converter implements AutoCloseable {
     return resultSet;
   }
 
+  /** Returns the total time in nanoseconds that this converter has spent on encoding rows. */
+  public long getEncodeNanos() {
+    return encodeNanos;
+  }
+
   public int convertResultSetRowToDataRowResponse() throws IOException {
+    long startNanos = System.nanoTime();
+    try {
+      return convertRow();
+    } finally {
+      encodeNanos += System.nanoTime() - startNanos;
+    }
+  }
+
+  private int convertRow() throws IOException {
     DataFormat fixedFormat = null;
     if (statement instanceof CopyToStatement) {
       fixedFormat =
@@ -118,19 +155,92 @@ public class Converter implements AutoCloseable {
             fixedFormat == null
                 ? DataFormat.getDataFormat(column_index, statement, mode, options)
                 : fixedFormat;
-        byte[] column =
-            Converter.convertToPG(outputStream, this.resultSet, column_index, format, sessionState);
+        writeToPG(buffer, this.resultSet, column_index, format, sessionState);
+      }
+    }
+    return buffer.messageSize();
+  }
+
+  /**
+   * Writes the value of the specified column of the {@link ResultSet} directly into the given
+   * buffer, including the length of the value. The column may not contain a null value.
+   */
+  public static void writeToPG(
+      DataRowBuffer buffer,
+      ResultSet result,
+      int position,
+      DataFormat format,
+      SessionState sessionState)
+      throws IOException {
+    Preconditions.checkArgument(!result.isNull(position), "Column may not contain a null value");
+    int lengthPosition;
+    switch (result.getColumnType(position).getCode()) {
+      case BOOL:
+        lengthPosition = buffer.beginValue();
+        BooleanParser.writeToPG(buffer, result, position, format);
+        break;
+      case DATE:
+        lengthPosition = buffer.beginValue();
+        DateParser.writeToPG(buffer, result, position, format);
+        break;
+      case FLOAT32:
+        lengthPosition = buffer.beginValue();
+        FloatParser.writeToPG(buffer, result, position, format);
+        break;
+      case FLOAT64:
+        lengthPosition = buffer.beginValue();
+        DoubleParser.writeToPG(buffer, result, position, format);
+        break;
+      case INT64:
+      case PG_OID:
+        lengthPosition = buffer.beginValue();
+        LongParser.writeToPG(buffer, result, position, format);
+        break;
+      case PG_NUMERIC:
+        lengthPosition = buffer.beginValue();
+        NumericParser.writeToPG(buffer, result, position, format);
+        break;
+      case TIMESTAMP:
+        lengthPosition = buffer.beginValue();
+        TimestampParser.writeToPG(buffer, result, position, format, sessionState.getTimezone());
+        break;
+      case STRING:
+        // This also writes the length of the value.
+        StringParser.writeToPG(sessionState, buffer, result, position);
+        return;
+      case BYTES:
+        // This also writes the length of the value.
+        BinaryParser.writeToPG(sessionState, buffer, result, position, format);
+        return;
+      case PG_JSONB:
+        // This also writes the length of the value.
+        JsonbParser.writeToPG(sessionState, buffer, result, position, format);
+        return;
+      default:
+        // Other types either write directly to the stream and return null, or return a byte array
+        // that must be copied into the buffer.
+        byte[] column = convertToPG(buffer.getOutput(), result, position, format, sessionState);
         if (column != null) {
-          outputStream.writeInt(column.length);
-          outputStream.write(column);
+          buffer.writeInt(column.length);
+          buffer.writeBytes(column);
         }
-      }
+        return;
     }
-    return buffer.size();
+    buffer.endValue(lengthPosition);
   }
 
+  /**
+   * Writes the encoded row to the given stream. Large values that were not copied into the buffer
+   * are written directly to the stream. If the stream writes into another {@link DataRowBuffer},
+   * such as a buffer for a batch of rows, then the large values are also not copied into that
+   * buffer, but are written when that buffer is written.
+   */
   public void writeBuffer(DataOutputStream outputStream) throws IOException {
-    buffer.writeTo(outputStream);
+    if (outputStream instanceof DataRowBuffer.BufferOutput) {
+      buffer.appendTo(((DataRowBuffer.BufferOutput) outputStream).getBuffer());
+    } else {
+      buffer.writeTo(outputStream);
+    }
   }
 
   /**
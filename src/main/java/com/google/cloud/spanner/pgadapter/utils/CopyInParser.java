@@ -20,7 +20,7 @@ import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
 import java.io.IOException;
-import java.io.PipedInputStream;
+import java.io.InputStream;
 import java.util.Iterator;
 import javax.annotation.Nullable;
 import org.apache.commons.csv.CSVFormat;
@@ -36,11 +36,15 @@ public interface CopyInParser {
       SessionState sessionState,
       Format format,
       @Nullable CSVFormat csvFormat,
-      PipedInputStream inputStream,
+      InputStream inputStream,
       boolean hasHeader)
       throws IOException {
     switch (format) {
       case TEXT:
+        if (TextCopyParser.isSupported(csvFormat)) {
+          return new TextCopyParser(sessionState, csvFormat, inputStream, hasHeader);
+        }
+        // fallthrough
       case CSV:
         return new CsvCopyParser(sessionState, csvFormat, inputStream, hasHeader);
       case BINARY:
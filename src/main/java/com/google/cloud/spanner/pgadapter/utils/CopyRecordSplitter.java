@@ -0,0 +1,164 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Splits a stream of COPY data in the TEXT or CSV format into segments that each contain one or
+ * more complete records. The segments can be parsed independently of each other, which allows COPY
+ * data to be parsed on multiple threads.
+ *
+ * <p>Record boundaries are determined in the same way as PostgreSQL does: A record ends at a
+ * newline character that is not escaped (TEXT) or that is not inside a quoted value (CSV). The
+ * stream is scanned byte by byte. This is safe for UTF-8 encoded data, as long as the quote and
+ * escape characters are ASCII characters, as the bytes of a multibyte UTF-8 character never contain
+ * an ASCII value.
+ */
+class CopyRecordSplitter {
+  static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+  private final InputStream inputStream;
+  private final int segmentSize;
+  /** The quote character for CSV, or -1 for TEXT. */
+  private final int quote;
+  /** The escape character, or -1 if there is no (separate) escape character. */
+  private final int escape;
+
+  private byte[] buffer;
+  private int length;
+  private int scanned;
+  private int lastBoundary;
+  private boolean endOfStream;
+
+  private boolean inQuotes;
+  private boolean escaped;
+
+  /** Returns true if COPY data in the given format can be split by a {@link CopyRecordSplitter}. */
+  static boolean isSupported(CSVFormat format) {
+    return isAscii(format.getQuoteCharacter()) && isAscii(format.getEscapeCharacter());
+  }
+
+  private static boolean isAscii(@Nullable Character c) {
+    return c == null || c < 0x80;
+  }
+
+  CopyRecordSplitter(InputStream inputStream, CSVFormat format, int segmentSize) {
+    Preconditions.checkArgument(isSupported(format), "Unsupported format: %s", format);
+    Preconditions.checkArgument(segmentSize > 0, "segmentSize must be positive");
+    this.inputStream = Preconditions.checkNotNull(inputStream);
+    this.segmentSize = segmentSize;
+    this.quote = format.getQuoteCharacter() == null ? -1 : format.getQuoteCharacter();
+    // PostgreSQL uses the quote character as the escape character by default for CSV. A doubled
+    // quote inside a quoted value toggles the quote state twice, so it does not need any special
+    // handling.
+    this.escape =
+        format.getEscapeCharacter() == null
+                || format.getEscapeCharacter().equals(format.getQuoteCharacter())
+            ? -1
+            : format.getEscapeCharacter();
+    this.buffer = new byte[Math.min(segmentSize, 1 << 16)];
+  }
+
+  /**
+   * Returns the next record of the stream, or null if the end of the stream has been reached. This
+   * is used to read the header line of the COPY data.
+   */
+  @Nullable
+  byte[] nextRecord() throws IOException {
+    return next(true);
+  }
+
+  /**
+   * Returns the next segment of the stream, or null if the end of the stream has been reached. The
+   * segment contains at least one complete record, unless it is the last segment of the stream. The
+   * last record in the stream does not need to be terminated by a newline.
+   */
+  @Nullable
+  byte[] nextSegment() throws IOException {
+    return next(false);
+  }
+
+  private byte[] next(boolean singleRecord) throws IOException {
+    while (true) {
+      scan(singleRecord);
+      if (lastBoundary > 0 && (singleRecord || length >= segmentSize)) {
+        return take(lastBoundary);
+      }
+      if (endOfStream) {
+        // The last record in the stream does not need to be terminated by a newline.
+        return length == 0 ? null : take(length);
+      }
+      if (length == buffer.length) {
+        // The buffer does not contain a single complete record, or is smaller than the segment
+        // size.
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      int read = inputStream.read(buffer, length, buffer.length - length);
+      if (read == -1) {
+        endOfStream = true;
+      } else {
+        length += read;
+      }
+    }
+  }
+
+  /** Scans the bytes that have not yet been scanned for record boundaries. */
+  private void scan(boolean stopAtFirstBoundary) {
+    for (; scanned < length; scanned++) {
+      int c = buffer[scanned] & 0xff;
+      if (escaped) {
+        escaped = false;
+      } else if (quote == -1) {
+        // TEXT: A backslash escapes the next character, including a newline.
+        if (c == '\\') {
+          escaped = true;
+        } else if (c == '\n') {
+          lastBoundary = scanned + 1;
+          if (stopAtFirstBoundary) {
+            scanned++;
+            return;
+          }
+        }
+      } else if (inQuotes && c == escape) {
+        // CSV: An escape character inside a quoted value escapes the next character.
+        escaped = true;
+      } else if (c == quote) {
+        inQuotes = !inQuotes;
+      } else if (c == '\n' && !inQuotes) {
+        lastBoundary = scanned + 1;
+        if (stopAtFirstBoundary) {
+          scanned++;
+          return;
+        }
+      }
+    }
+  }
+
+  /** Removes the first n bytes from the buffer and returns these. */
+  private byte[] take(int n) {
+    byte[] result = Arrays.copyOf(buffer, n);
+    System.arraycopy(buffer, n, buffer, 0, length - n);
+    length -= n;
+    scanned -= n;
+    lastBoundary = 0;
+    return result;
+  }
+}
@@ -15,7 +15,6 @@
 package com.google.cloud.spanner.pgadapter.utils;
 
 import com.google.cloud.ByteArray;
-import com.google.cloud.Date;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.SpannerException;
@@ -24,12 +23,13 @@ import com.google.cloud.spanner.Type;
 import com.google.cloud.spanner.Value;
 import com.google.cloud.spanner.pgadapter.parsers.ArrayParser;
 import com.google.cloud.spanner.pgadapter.parsers.BooleanParser;
+import com.google.cloud.spanner.pgadapter.parsers.DateParser;
 import com.google.cloud.spanner.pgadapter.parsers.TimestampParser;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.common.collect.Iterators;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PipedInputStream;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.time.format.DateTimeParseException;
@@ -54,10 +54,7 @@ class CsvCopyParser implements CopyInParser {
   private final CSVParser parser;
 
   CsvCopyParser(
-      SessionState sessionState,
-      CSVFormat csvFormat,
-      PipedInputStream inputStream,
-      boolean hasHeader)
+      SessionState sessionState, CSVFormat csvFormat, InputStream inputStream, boolean hasHeader)
       throws IOException {
     this.sessionState = sessionState;
     this.format = csvFormat;
@@ -76,7 +73,7 @@ class CsvCopyParser implements CopyInParser {
     parser.close();
   }
 
-  CSVParser createParser(PipedInputStream inputStream) throws IOException {
+  CSVParser createParser(InputStream inputStream) throws IOException {
     // Construct the CSVParser directly on the stream of incoming CopyData messages, so we don't
     // store more data in memory than necessary. Loading all data into memory first before starting
     // to parse and write the CSVRecords could otherwise cause an out-of-memory exception for large
@@ -161,7 +158,7 @@ class CsvCopyParser implements CopyInParser {
                   "COPY only supports the Hex format for bytea columns");
             }
           case DATE:
-            return Value.date(recordValue == null ? null : Date.parseDate(recordValue));
+            return Value.date(recordValue == null ? null : DateParser.toDate(recordValue));
           case TIMESTAMP:
             Timestamp timestamp =
                 recordValue == null
@@ -0,0 +1,394 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable buffer for encoding rows in the PostgreSQL wire-format. Column values are written
+ * directly into the buffer without creating an intermediate byte array for each value. The length
+ * prefix of a value is written as a placeholder by {@link #beginValue()} and filled in by {@link
+ * #endValue(int)} once the value has been written.
+ *
+ * <p>Values that are too large to copy into the buffer can be added as a {@link LargeValue}. Only
+ * the length prefix of a large value is written to the buffer. The value itself is written directly
+ * to the output stream by {@link #writeTo(OutputStream)}. The length of a row message is therefore
+ * given by {@link #messageSize()} and not by {@link #size()}.
+ *
+ * <p>Rows can also be encoded into a buffer that contains a batch of rows, for example when rows
+ * are encoded by one thread and written to the client by another. Large values are then not copied
+ * into the batch either, but are written directly to the output stream when the batch is written.
+ *
+ * <p>The buffer manages its own growable array instead of extending {@link
+ * java.io.ByteArrayOutputStream}, as the methods of that class are synchronized. A buffer is only
+ * used by one thread at a time, and a buffer that is handed to another thread must be handed over
+ * through a synchronized structure, such as a queue or a future.
+ */
+@InternalApi
+public class DataRowBuffer extends OutputStream {
+  private static final byte[] PLACEHOLDER = new byte[4];
+  private static final int SCRATCH_SIZE = 64;
+  /** Some VMs reserve header words in an array, so arrays of the maximum int size may fail. */
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  /**
+   * A value that is written directly to the output stream instead of being copied into the buffer.
+   */
+  public interface LargeValue {
+    /**
+     * Writes the encoded value to the given stream. This must write exactly the announced length.
+     */
+    void writeTo(OutputStream output) throws IOException;
+  }
+
+  /** A {@link DataOutputStream} that writes into a {@link DataRowBuffer}. */
+  public static final class BufferOutput extends DataOutputStream {
+    private final DataRowBuffer buffer;
+
+    private BufferOutput(DataRowBuffer buffer) {
+      super(buffer);
+      this.buffer = buffer;
+    }
+
+    /** Returns the buffer that this stream writes into. */
+    public DataRowBuffer getBuffer() {
+      return buffer;
+    }
+  }
+
+  private final BufferOutput output = new BufferOutput(this);
+  private byte[] buf;
+  private int count;
+  private final byte[] scratch = new byte[SCRATCH_SIZE];
+  private final List<Integer> largeValuePositions = new ArrayList<>();
+  private final List<LargeValue> largeValues = new ArrayList<>();
+  private long largeValuesLength;
+
+  public DataRowBuffer() {
+    this(256);
+  }
+
+  public DataRowBuffer(int initialSize) {
+    Preconditions.checkArgument(initialSize >= 0, "initialSize must be non-negative");
+    this.buf = new byte[initialSize];
+  }
+
+  /** Grows the underlying array if needed, so it can hold at least the given number of bytes. */
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity - buf.length > 0) {
+      grow(minCapacity);
+    }
+  }
+
+  private void grow(int minCapacity) {
+    if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+      throw new OutOfMemoryError("Required buffer size exceeds the maximum array size");
+    }
+    int newCapacity = (int) Math.min(MAX_ARRAY_SIZE, Math.max(2L * buf.length, minCapacity));
+    buf = Arrays.copyOf(buf, newCapacity);
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(count + 1);
+    buf[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    Preconditions.checkPositionIndexes(offset, offset + length, bytes.length);
+    ensureCapacity(count + length);
+    System.arraycopy(bytes, offset, buf, count, length);
+    count += length;
+  }
+
+  /**
+   * Makes sure that the buffer has room for at least the given number of bytes, and returns the
+   * underlying array. The caller may write a value directly into the returned array starting at
+   * {@link #size()}, and must then call {@link #advance(int)} with the number of bytes that were
+   * written. The array is only valid until the next call to any other method of this buffer.
+   */
+  public byte[] reserve(int length) {
+    Preconditions.checkArgument(length >= 0, "length must be non-negative");
+    ensureCapacity(count + length);
+    return buf;
+  }
+
+  /** Adds the given number of bytes that were written into the array from {@link #reserve(int)}. */
+  public void advance(int length) {
+    Preconditions.checkArgument(
+        length >= 0 && count + length <= buf.length, "length exceeds the reserved space");
+    count += length;
+  }
+
+  /** Returns the number of bytes in the buffer, excluding any large values. */
+  public int size() {
+    return count;
+  }
+
+  /** Returns a copy of the bytes in the buffer, excluding any large values. */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(buf, count);
+  }
+
+  /** Returns a {@link DataOutputStream} that writes into this buffer. */
+  public BufferOutput getOutput() {
+    return output;
+  }
+
+  /**
+   * Writes the length prefix of a value with the given length, and registers the value to be
+   * written directly to the output stream when this buffer is written.
+   */
+  public void writeLargeValue(int length, LargeValue value) {
+    Preconditions.checkArgument(length >= 0, "length must be non-negative");
+    writeInt(length);
+    largeValuePositions.add(count);
+    largeValues.add(Preconditions.checkNotNull(value));
+    largeValuesLength += length;
+  }
+
+  /** Returns the number of bytes that {@link #writeTo(OutputStream)} writes. */
+  public int messageSize() {
+    long size = count + largeValuesLength;
+    Preconditions.checkState(size <= Integer.MAX_VALUE, "Message size exceeds the maximum size");
+    return (int) size;
+  }
+
+  /** Clears the buffer so it can be reused. The underlying array is retained. */
+  public void reset() {
+    count = 0;
+    largeValuePositions.clear();
+    largeValues.clear();
+    largeValuesLength = 0L;
+  }
+
+  /** Writes the contents of this buffer and all large values in order to the given stream. */
+  public void writeTo(OutputStream out) throws IOException {
+    int offset = 0;
+    for (int index = 0; index < largeValues.size(); index++) {
+      int position = largeValuePositions.get(index);
+      out.write(buf, offset, position - offset);
+      largeValues.get(index).writeTo(out);
+      offset = position;
+    }
+    out.write(buf, offset, count - offset);
+  }
+
+  /**
+   * Appends the contents of this buffer to the given buffer. Large values are not copied into the
+   * given buffer, but are written directly to the output stream when the given buffer is written.
+   */
+  public void appendTo(DataRowBuffer target) {
+    int offset = 0;
+    for (int index = 0; index < largeValues.size(); index++) {
+      int position = largeValuePositions.get(index);
+      target.write(buf, offset, position - offset);
+      target.largeValuePositions.add(target.count);
+      target.largeValues.add(largeValues.get(index));
+      offset = position;
+    }
+    target.write(buf, offset, count - offset);
+    target.largeValuesLength += largeValuesLength;
+  }
+
+  /** Returns the current capacity of the underlying array of this buffer. */
+  public int capacity() {
+    return buf.length;
+  }
+
+  /**
+   * Writes a placeholder for the length of a value and returns the position of the placeholder. The
+   * position must be passed in to {@link #endValue(int)} after the value has been written.
+   */
+  public int beginValue() {
+    int position = count;
+    write(PLACEHOLDER, 0, PLACEHOLDER.length);
+    return position;
+  }
+
+  /** Fills in the length of the value that was started at the given position. */
+  public void endValue(int position) {
+    Preconditions.checkArgument(position >= 0 && position + 4 <= count, "Invalid position");
+    int length = count - position - 4;
+    buf[position] = (byte) (length >>> 24);
+    buf[position + 1] = (byte) (length >>> 16);
+    buf[position + 2] = (byte) (length >>> 8);
+    buf[position + 3] = (byte) length;
+  }
+
+  /** Writes all the given bytes to this buffer. */
+  public void writeBytes(byte[] bytes) {
+    write(bytes, 0, bytes.length);
+  }
+
+  /** Writes the given value as a 4-byte big-endian integer. */
+  public void writeInt(int value) {
+    scratch[0] = (byte) (value >>> 24);
+    scratch[1] = (byte) (value >>> 16);
+    scratch[2] = (byte) (value >>> 8);
+    scratch[3] = (byte) value;
+    write(scratch, 0, 4);
+  }
+
+  /** Writes the given value as an 8-byte big-endian integer. */
+  public void writeLong(long value) {
+    for (int index = 7; index >= 0; index--) {
+      scratch[index] = (byte) value;
+      value >>>= 8;
+    }
+    write(scratch, 0, 8);
+  }
+
+  /** Writes the given value in the 4-byte IEEE 754 floating-point format. */
+  public void writeFloat(float value) {
+    writeInt(Float.floatToIntBits(value));
+  }
+
+  /** Writes the given value in the 8-byte IEEE 754 floating-point format. */
+  public void writeDouble(double value) {
+    writeLong(Double.doubleToLongBits(value));
+  }
+
+  /** Writes the decimal text representation of the given value. */
+  public void writeDecimal(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii("-9223372036854775808");
+      return;
+    }
+    int position = scratch.length;
+    boolean negative = value < 0;
+    long remaining = negative ? -value : value;
+    do {
+      scratch[--position] = (byte) ('0' + (remaining % 10));
+      remaining /= 10;
+    } while (remaining > 0);
+    if (negative) {
+      scratch[--position] = '-';
+    }
+    write(scratch, position, scratch.length - position);
+  }
+
+  /**
+   * Writes the given value as a decimal number with exactly the given number of digits, padded with
+   * leading zeros. The value must be non-negative.
+   */
+  public void writeDecimal(int value, int digits) {
+    Preconditions.checkArgument(value >= 0, "value must be non-negative");
+    Preconditions.checkArgument(digits > 0 && digits <= 10, "digits must be in the range [1, 10]");
+    for (int index = digits - 1; index >= 0; index--) {
+      scratch[index] = (byte) ('0' + (value % 10));
+      value /= 10;
+    }
+    write(scratch, 0, digits);
+  }
+
+  /**
+   * Writes the given string that only consists of ASCII characters. The lower 8 bits of each
+   * character is written without any further encoding.
+   */
+  public void writeAscii(CharSequence value) {
+    int length = value.length();
+    for (int offset = 0; offset < length; offset += SCRATCH_SIZE) {
+      int end = Math.min(length, offset + SCRATCH_SIZE);
+      for (int index = offset; index < end; index++) {
+        scratch[index - offset] = (byte) value.charAt(index);
+      }
+      write(scratch, 0, end - offset);
+    }
+  }
+
+  /**
+   * Returns the number of bytes that {@link #writeUtf8(CharSequence)} writes for the given string.
+   * Unpaired surrogates count as one byte, as these are replaced with '?'.
+   */
+  public static int utf8Length(CharSequence value) {
+    int length = value.length();
+    int result = length;
+    for (int index = 0; index < length; index++) {
+      char c = value.charAt(index);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        result++;
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c)
+            && index + 1 < length
+            && Character.isLowSurrogate(value.charAt(index + 1))) {
+          // Two chars are encoded as 4 bytes.
+          result += 2;
+          index++;
+        }
+      } else {
+        result += 2;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes the given string encoded as UTF-8. This gives the same result as {@link
+   * String#getBytes(java.nio.charset.Charset)} with UTF-8, including replacing unpaired surrogates
+   * with '?', but does not create an intermediate byte array.
+   */
+  public void writeUtf8(CharSequence value) {
+    int length = value.length();
+    int position = 0;
+    for (int index = 0; index < length; index++) {
+      // Flush the scratch buffer if it could overflow while writing the next character.
+      if (position > SCRATCH_SIZE - 4) {
+        write(scratch, 0, position);
+        position = 0;
+      }
+      char c = value.charAt(index);
+      if (c < 0x80) {
+        scratch[position++] = (byte) c;
+      } else if (c < 0x800) {
+        scratch[position++] = (byte) (0xc0 | (c >> 6));
+        scratch[position++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        int codePoint = -1;
+        if (Character.isHighSurrogate(c) && index + 1 < length) {
+          char low = value.charAt(index + 1);
+          if (Character.isLowSurrogate(low)) {
+            codePoint = Character.toCodePoint(c, low);
+          }
+        }
+        if (codePoint == -1) {
+          scratch[position++] = '?';
+        } else {
+          index++;
+          scratch[position++] = (byte) (0xf0 | (codePoint >> 18));
+          scratch[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          scratch[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          scratch[position++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+      } else {
+        scratch[position++] = (byte) (0xe0 | (c >> 12));
+        scratch[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        scratch[position++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    write(scratch, 0, position);
+  }
+}
@@ -0,0 +1,235 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process copy of the metrics of PGAdapter. The metrics that are recorded by {@link Metrics} are
+ * also aggregated here, so they can be read from the local metrics endpoint, also when
+ * OpenTelemetry metrics have not been enabled. Attributes are not recorded, except for a single
+ * label that can be added to a metric name when the instrument is created, such as the phase of a
+ * latency histogram.
+ *
+ * <p>All instruments only use {@link LongAdder}s and atomic arrays, so recording a value does not
+ * take any locks.
+ */
+@InternalApi
+public class LocalMetrics {
+
+  /** A counter, or a gauge that is increased and decreased by the same amount. */
+  @InternalApi
+  public static final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void add(long delta) {
+      value.add(delta);
+    }
+
+    public long get() {
+      return value.sum();
+    }
+  }
+
+  /** A histogram with fixed bucket boundaries. */
+  @InternalApi
+  public static final class Histogram {
+    private final long[] boundaries;
+    private final AtomicLongArray buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    Histogram(List<Long> boundaries) {
+      this.boundaries = boundaries.stream().mapToLong(Long::longValue).toArray();
+      this.buckets = new AtomicLongArray(this.boundaries.length + 1);
+    }
+
+    public void record(long value) {
+      int index = Arrays.binarySearch(boundaries, value);
+      // Bucket i contains all values in the range (boundaries[i-1], boundaries[i]].
+      buckets.incrementAndGet(index >= 0 ? index : -index - 1);
+      count.increment();
+      sum.add(value);
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getSum() {
+      return sum.sum();
+    }
+
+    /** Returns the number of recorded values that are less than or equal to the given boundary. */
+    @VisibleForTesting
+    long getCumulativeCount(int boundaryIndex) {
+      long result = 0L;
+      for (int i = 0; i <= boundaryIndex; i++) {
+        result += buckets.get(i);
+      }
+      return result;
+    }
+  }
+
+  private static final class Instrument {
+    private final String name;
+    private final String description;
+    private final String unit;
+    private final String label;
+    private final String type;
+    private final Object value;
+
+    private Instrument(
+        String name, String description, String unit, String label, String type, Object value) {
+      this.name = name;
+      this.description = description;
+      this.unit = unit;
+      this.label = label;
+      this.type = type;
+      this.value = value;
+    }
+  }
+
+  private final Map<String, Instrument> instruments = new ConcurrentSkipListMap<>();
+
+  /** Creates a counter with the given name and registers it for export. */
+  public Counter counter(String name, String description, String unit) {
+    return counter(name, description, unit, null);
+  }
+
+  /**
+   * Creates a counter with the given name and label and registers it for export. The label must be
+   * a string of the form key="value", or null.
+   */
+  public Counter counter(String name, String description, String unit, String label) {
+    Counter counter = new Counter();
+    register(new Instrument(name, description, unit, label, "counter", counter));
+    return counter;
+  }
+
+  /**
+   * Creates a gauge with the given name and registers it for export. The value of the gauge is
+   * changed by adding positive and negative values to the returned {@link Counter}.
+   */
+  public Counter gauge(String name, String description, String unit) {
+    Counter counter = new Counter();
+    register(new Instrument(name, description, unit, null, "gauge", counter));
+    return counter;
+  }
+
+  /** Creates a histogram with the given name and registers it for export. */
+  public Histogram histogram(String name, String description, String unit, List<Long> boundaries) {
+    return histogram(name, description, unit, null, boundaries);
+  }
+
+  /**
+   * Creates a histogram with the given name and label and registers it for export. The label must
+   * be a string of the form key="value", or null.
+   */
+  public Histogram histogram(
+      String name, String description, String unit, String label, List<Long> boundaries) {
+    Histogram histogram = new Histogram(boundaries);
+    register(new Instrument(name, description, unit, label, "histogram", histogram));
+    return histogram;
+  }
+
+  private void register(Instrument instrument) {
+    // The separator sorts before all other characters, which keeps all instruments with the same
+    // name together, so they are exported as one metric family.
+    String key = instrument.name + '\u0000' + (instrument.label == null ? "" : instrument.label);
+    Preconditions.checkArgument(
+        instruments.putIfAbsent(key, instrument) == null, "Duplicate instrument: %s", key);
+  }
+
+  /**
+   * Writes the current value of all instruments to the given writer in the Prometheus text format.
+   * Names are converted to valid Prometheus metric names by replacing all characters other than
+   * letters, digits and underscores with an underscore.
+   */
+  public void writeTo(Writer writer) throws IOException {
+    String previousName = null;
+    for (Instrument instrument : instruments.values()) {
+      String name = toPrometheusName(instrument.name);
+      if (!name.equals(previousName)) {
+        writer
+            .append("# HELP ")
+            .append(name)
+            .append(' ')
+            .append(instrument.description)
+            .append(" (")
+            .append(instrument.unit)
+            .append(")\n");
+        writer.append("# TYPE ").append(name).append(' ').append(instrument.type).append('\n');
+        previousName = name;
+      }
+      if (instrument.value instanceof Histogram) {
+        Histogram histogram = (Histogram) instrument.value;
+        for (int i = 0; i < histogram.boundaries.length; i++) {
+          writeSample(
+              writer,
+              name + "_bucket",
+              instrument.label,
+              "le=\"" + histogram.boundaries[i] + "\"",
+              histogram.getCumulativeCount(i));
+        }
+        writeSample(
+            writer,
+            name + "_bucket",
+            instrument.label,
+            "le=\"+Inf\"",
+            histogram.getCumulativeCount(histogram.boundaries.length));
+        writeSample(writer, name + "_sum", instrument.label, null, histogram.getSum());
+        writeSample(writer, name + "_count", instrument.label, null, histogram.getCount());
+      } else {
+        writeSample(writer, name, instrument.label, null, ((Counter) instrument.value).get());
+      }
+    }
+    writer.flush();
+  }
+
+  private static void writeSample(
+      Writer writer, String name, String label, String extraLabel, long value) throws IOException {
+    writer.append(name);
+    if (label != null || extraLabel != null) {
+      writer.append('{');
+      if (label != null) {
+        writer.append(label);
+        if (extraLabel != null) {
+          writer.append(',');
+        }
+      }
+      if (extraLabel != null) {
+        writer.append(extraLabel);
+      }
+      writer.append('}');
+    }
+    writer.append(' ').append(String.valueOf(value)).append('\n');
+  }
+
+  @VisibleForTesting
+  static String toPrometheusName(String name) {
+    return name.replaceAll("[^a-zA-Z0-9_]", "_");
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.wireprotocol.GSSENCRequestMessage;
+import com.google.cloud.spanner.pgadapter.wireprotocol.SSLMessage;
+import com.google.cloud.spanner.pgadapter.wireprotocol.StartupMessage;
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental framer for the PostgreSQL wire-protocol. The framer is fed with the raw bytes that
+ * are received from a client, and keeps track of the offset of the last byte of the last complete
+ * batch of messages. A batch is a sequence of messages that ends with a message that requires the
+ * server to respond, such as Sync, Flush or Query. The non-blocking front-end uses this to
+ * determine when a connection should be handed to a worker thread.
+ *
+ * <p>The framer does not copy or retain any of the data that it is fed. Only the header of a
+ * message that is split across two chunks is kept in a small fixed-size array.
+ */
+@InternalApi
+public class MessageBatchFramer {
+  private static final int HEADER_LENGTH = 8;
+
+  /** True while the framer is reading startup messages. These do not have a type byte. */
+  private boolean startup = true;
+
+  private final byte[] header = new byte[HEADER_LENGTH];
+  private int headerPosition;
+  private char currentType;
+  private long remainingInMessage;
+
+  private long position;
+  private long completeBatchEnd;
+  private int completeBatches;
+
+  /**
+   * Feeds the given bytes into the framer. The bytes must be given in the same order as they were
+   * received from the client.
+   */
+  public void feed(byte[] data, int offset, int length) {
+    feed(ByteBuffer.wrap(data, offset, length));
+  }
+
+  /**
+   * Feeds the remaining bytes of the given buffer into the framer. The position of the buffer is
+   * not changed.
+   */
+  public void feed(ByteBuffer data) {
+    int end = data.limit();
+    int index = data.position();
+    while (index < end) {
+      if (remainingInMessage > 0L) {
+        int skip = (int) Math.min(remainingInMessage, end - index);
+        index += skip;
+        position += skip;
+        remainingInMessage -= skip;
+        if (remainingInMessage == 0L) {
+          messageComplete();
+        }
+        continue;
+      }
+      header[headerPosition++] = data.get(index++);
+      position++;
+      if (headerPosition == HEADER_LENGTH && startup) {
+        startHeaderComplete();
+      } else if (headerPosition == 5 && !startup) {
+        typedHeaderComplete();
+      }
+    }
+  }
+
+  private void startHeaderComplete() {
+    int length = readInt(0);
+    int protocol = readInt(4);
+    headerPosition = 0;
+    if (protocol != SSLMessage.IDENTIFIER && protocol != GSSENCRequestMessage.IDENTIFIER) {
+      // Cancel requests are followed by the client closing the connection, so we do not need to
+      // leave startup mode for those.
+      startup = protocol != StartupMessage.IDENTIFIER;
+    }
+    currentType = 0;
+    remainingInMessage = Math.max(0, length - HEADER_LENGTH);
+    if (remainingInMessage == 0L) {
+      messageComplete();
+    }
+  }
+
+  private void typedHeaderComplete() {
+    currentType = (char) header[0];
+    int length = readInt(1);
+    headerPosition = 0;
+    // The length includes the length field itself, but not the type byte.
+    remainingInMessage = Math.max(0, length - 4);
+    if (remainingInMessage == 0L) {
+      messageComplete();
+    }
+  }
+
+  private void messageComplete() {
+    if (currentType == 0 || isBatchTerminator(currentType)) {
+      completeBatchEnd = position;
+      completeBatches++;
+    }
+  }
+
+  private int readInt(int offset) {
+    return ((header[offset] & 0xff) << 24)
+        | ((header[offset + 1] & 0xff) << 16)
+        | ((header[offset + 2] & 0xff) << 8)
+        | (header[offset + 3] & 0xff);
+  }
+
+  /**
+   * Returns true if the given message type requires the server to process all messages that have
+   * been received so far. Copy messages are also considered batch terminators, as the COPY
+   * sub-protocol does not contain any Sync or Flush messages.
+   */
+  static boolean isBatchTerminator(char type) {
+    switch (type) {
+      case 'S': // Sync
+      case 'H': // Flush
+      case 'Q': // Query
+      case 'X': // Terminate
+      case 'F': // FunctionCall
+      case 'p': // Password and other authentication messages
+      case 'd': // CopyData
+      case 'c': // CopyDone
+      case 'f': // CopyFail
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /** Returns the total number of bytes that have been fed into this framer. */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the offset directly after the last complete batch of messages. All bytes before this
+   * offset can be processed by a worker thread without blocking on more input from the client.
+   */
+  public long getCompleteBatchEnd() {
+    return completeBatchEnd;
+  }
+
+  /** Returns the number of complete batches that have been seen by this framer. */
+  public int getCompleteBatches() {
+    return completeBatches;
+  }
+
+  /** Returns true if this framer is still reading startup messages. */
+  public boolean isStartup() {
+    return startup;
+  }
+}
@@ -14,15 +14,48 @@
 package com.google.cloud.spanner.pgadapter.utils;
 
 import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.pgadapter.utils.LocalMetrics.Counter;
+import com.google.cloud.spanner.pgadapter.utils.LocalMetrics.Histogram;
 import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.LongUpDownCounter;
 import io.opentelemetry.api.metrics.Meter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 @InternalApi
 public class Metrics {
+  /**
+   * The phases of the handling of a statement that are measured separately. The latency of each
+   * phase is recorded in microseconds for each statement or message.
+   */
+  @InternalApi
+  public enum Phase {
+    /** Reading and decoding a wire-protocol message. */
+    DECODE,
+    /** Parsing the SQL string of a Parse or Query message. */
+    PARSE,
+    /** Binding parameter values to a prepared statement. */
+    BIND,
+    /** Rewriting the SQL string before it is sent to Spanner, for example for pg_catalog tables. */
+    REWRITE,
+    /** Waiting for Spanner to return the first result of a statement. */
+    SPANNER,
+    /** Encoding the rows of a result as DataRow or CopyData messages. */
+    ENCODE,
+    /** Flushing the buffered responses to the client socket. */
+    FLUSH;
+
+    private final String label = name().toLowerCase(Locale.ENGLISH);
+    private final Attributes attributes = Attributes.of(PHASE_KEY, label);
+  }
+
+  private static final AttributeKey<String> PHASE_KEY = AttributeKey.stringKey("phase");
+
   static final String INSTRUMENTATION_SCOPE = "cloud.google.com/java";
   static final String SPANNER_CLIENT_LIB_LATENCY = "spanner/pgadapter/client_lib_latencies";
   static final String SPANNER_CLIENT_LIB_LATENCY_DESCRIPTION =
@@ -30,9 +63,102 @@ public class Metrics {
   static final String PGADAPTER_LATENCY = "spanner/pgadapter/roundtrip_latencies";
   static final String PGADAPTER_LATENCY_DESCRIPTION =
       "Latency between PGAdapter receiving a statement from the client and PGAdapter returning the last row of the response to the client";
+  static final String DESCRIBE_CACHE_HITS = "spanner/pgadapter/describe_cache_hits";
+  static final String DESCRIBE_CACHE_HITS_DESCRIPTION =
+      "Number of times that the parameter types of a statement were found in the shared describe cache";
+  static final String DESCRIBE_CACHE_MISSES = "spanner/pgadapter/describe_cache_misses";
+  static final String DESCRIBE_CACHE_MISSES_DESCRIPTION =
+      "Number of times that a statement had to be described by Spanner, because it was not in the shared describe cache";
+  static final String DESCRIBE_CACHE_EVICTIONS = "spanner/pgadapter/describe_cache_evictions";
+  static final String DESCRIBE_CACHE_EVICTIONS_DESCRIPTION =
+      "Number of entries that were evicted from the shared describe cache because of size or age";
+  static final String SQL_REWRITE_CACHE_HITS = "spanner/pgadapter/sql_rewrite_cache_hits";
+  static final String SQL_REWRITE_CACHE_HITS_DESCRIPTION =
+      "Number of times that the rewritten SQL string of a statement was found in the shared SQL rewrite cache";
+  static final String SQL_REWRITE_CACHE_MISSES = "spanner/pgadapter/sql_rewrite_cache_misses";
+  static final String SQL_REWRITE_CACHE_MISSES_DESCRIPTION =
+      "Number of times that the SQL string of a statement had to be rewritten, because it was not in the shared SQL rewrite cache";
+  static final String CATALOG_CACHE_HITS = "spanner/pgadapter/catalog_cache_hits";
+  static final String CATALOG_CACHE_HITS_DESCRIPTION =
+      "Number of times that the result of a catalog query was found in the shared catalog result cache";
+  static final String CATALOG_CACHE_MISSES = "spanner/pgadapter/catalog_cache_misses";
+  static final String CATALOG_CACHE_MISSES_DESCRIPTION =
+      "Number of times that a catalog query had to be executed on Spanner, because the result was not in the shared catalog result cache";
+
+  static final String AUTO_READ_ONLY_TRANSACTIONS = "spanner/pgadapter/auto_read_only_transactions";
+  static final String AUTO_READ_ONLY_TRANSACTIONS_DESCRIPTION =
+      "Number of explicit transaction blocks that only contained queries and that were automatically executed as a read-only transaction";
+
+  static final String PHASE_LATENCY = "spanner/pgadapter/phase_latencies";
+  static final String PHASE_LATENCY_DESCRIPTION =
+      "Latency of one phase of the handling of a statement or message in PGAdapter";
+  static final String ROWS_SENT = "spanner/pgadapter/rows_sent";
+  static final String ROWS_SENT_DESCRIPTION = "Number of rows that were sent to clients";
+  static final String BYTES_SENT = "spanner/pgadapter/bytes_sent";
+  static final String BYTES_SENT_DESCRIPTION = "Number of bytes that were sent to clients";
+  static final String BYTES_RECEIVED = "spanner/pgadapter/bytes_received";
+  static final String BYTES_RECEIVED_DESCRIPTION =
+      "Number of bytes that were received from clients";
+  static final String ACTIVE_CONNECTIONS = "spanner/pgadapter/active_connections";
+  static final String ACTIVE_CONNECTIONS_DESCRIPTION = "Number of client connections that are open";
+  static final String BUFFERED_STATEMENTS = "spanner/pgadapter/buffered_statements";
+  static final String BUFFERED_STATEMENTS_DESCRIPTION =
+      "Number of statements that were buffered and executed together by a flush or sync";
+  static final String COPY_BATCH_SIZE = "spanner/pgadapter/copy_batch_size";
+  static final String COPY_BATCH_SIZE_DESCRIPTION =
+      "Number of rows in a commit of a non-atomic COPY operation";
+  static final String COPY_PARALLELISM = "spanner/pgadapter/copy_parallelism";
+  static final String COPY_PARALLELISM_DESCRIPTION =
+      "Maximum number of concurrent commits of a non-atomic COPY operation when a commit was started";
+  static final String COPY_COMMIT_LATENCY = "spanner/pgadapter/copy_commit_latencies";
+  static final String COPY_COMMIT_LATENCY_DESCRIPTION =
+      "Latency of a commit of a non-atomic COPY operation";
+  static final String COPY_ROWS_COMMITTED = "spanner/pgadapter/copy_rows_committed";
+  static final String COPY_ROWS_COMMITTED_DESCRIPTION =
+      "Number of rows that were committed by non-atomic COPY operations";
 
+  private final LocalMetrics localMetrics = new LocalMetrics();
   private final LongHistogram spannerClientLibLatencies;
   private final LongHistogram pgadapterLatencies;
+  private final LongCounter describeCacheHits;
+  private final LongCounter describeCacheMisses;
+  private final LongCounter describeCacheEvictions;
+  private final LongCounter sqlRewriteCacheHits;
+  private final LongCounter sqlRewriteCacheMisses;
+  private final LongCounter catalogCacheHits;
+  private final LongCounter catalogCacheMisses;
+  private final LongCounter autoReadOnlyTransactions;
+  private final LongHistogram phaseLatencies;
+  private final LongCounter rowsSent;
+  private final LongCounter bytesSent;
+  private final LongCounter bytesReceived;
+  private final LongUpDownCounter activeConnections;
+  private final LongHistogram bufferedStatements;
+  private final LongHistogram copyBatchSize;
+  private final LongHistogram copyParallelism;
+  private final LongHistogram copyCommitLatencies;
+  private final LongCounter copyRowsCommitted;
+
+  private final Histogram localSpannerClientLibLatencies;
+  private final Histogram localPgadapterLatencies;
+  private final Counter localDescribeCacheHits;
+  private final Counter localDescribeCacheMisses;
+  private final Counter localDescribeCacheEvictions;
+  private final Counter localSqlRewriteCacheHits;
+  private final Counter localSqlRewriteCacheMisses;
+  private final Counter localCatalogCacheHits;
+  private final Counter localCatalogCacheMisses;
+  private final Counter localAutoReadOnlyTransactions;
+  private final Histogram[] localPhaseLatencies = new Histogram[Phase.values().length];
+  private final Counter localRowsSent;
+  private final Counter localBytesSent;
+  private final Counter localBytesReceived;
+  private final Counter localActiveConnections;
+  private final Histogram localBufferedStatements;
+  private final Histogram localCopyBatchSize;
+  private final Histogram localCopyParallelism;
+  private final Histogram localCopyCommitLatencies;
+  private final Counter localCopyRowsCommitted;
 
   public Metrics(OpenTelemetry openTelemetry) {
     Meter meter = openTelemetry.getMeter(INSTRUMENTATION_SCOPE);
@@ -41,6 +167,17 @@ public class Metrics {
             1L, 2L, 3L, 4L, 5L, 6L, 8L, 10L, 13L, 16L, 20L, 25L, 30L, 40L, 50L, 65L, 80L, 100L,
             130L, 160L, 200L, 250L, 300L, 400L, 500L, 650L, 800L, 1000L, 2000L, 5000L, 10000L,
             20000L, 50000L, 100000L);
+    List<Long> MICROS_BUCKET_BOUNDARIES =
+        Arrays.asList(
+            1L, 2L, 5L, 10L, 20L, 50L, 100L, 200L, 500L, 1000L, 2000L, 5000L, 10000L, 20000L,
+            50000L, 100000L, 200000L, 500000L, 1000000L, 2000000L, 5000000L, 10000000L);
+    List<Long> STATEMENT_COUNT_BUCKET_BOUNDARIES =
+        Arrays.asList(1L, 2L, 3L, 4L, 5L, 10L, 20L, 50L, 100L, 200L, 500L, 1000L);
+    List<Long> COPY_BATCH_SIZE_BUCKET_BOUNDARIES =
+        Arrays.asList(
+            1L, 10L, 50L, 100L, 250L, 500L, 1000L, 2000L, 5000L, 10000L, 20000L, 50000L, 80000L);
+    List<Long> COPY_PARALLELISM_BUCKET_BOUNDARIES =
+        Arrays.asList(1L, 2L, 4L, 8L, 16L, 32L, 64L, 128L, 256L);
     spannerClientLibLatencies =
         meter
             .histogramBuilder(SPANNER_CLIENT_LIB_LATENCY)
@@ -57,15 +194,315 @@ public class Metrics {
             .setUnit("ms")
             .setExplicitBucketBoundariesAdvice(RPC_MILLIS_BUCKET_BOUNDARIES)
             .build();
+    describeCacheHits =
+        meter
+            .counterBuilder(DESCRIBE_CACHE_HITS)
+            .setDescription(DESCRIBE_CACHE_HITS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    describeCacheMisses =
+        meter
+            .counterBuilder(DESCRIBE_CACHE_MISSES)
+            .setDescription(DESCRIBE_CACHE_MISSES_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    describeCacheEvictions =
+        meter
+            .counterBuilder(DESCRIBE_CACHE_EVICTIONS)
+            .setDescription(DESCRIBE_CACHE_EVICTIONS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    sqlRewriteCacheHits =
+        meter
+            .counterBuilder(SQL_REWRITE_CACHE_HITS)
+            .setDescription(SQL_REWRITE_CACHE_HITS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    sqlRewriteCacheMisses =
+        meter
+            .counterBuilder(SQL_REWRITE_CACHE_MISSES)
+            .setDescription(SQL_REWRITE_CACHE_MISSES_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    catalogCacheHits =
+        meter
+            .counterBuilder(CATALOG_CACHE_HITS)
+            .setDescription(CATALOG_CACHE_HITS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    catalogCacheMisses =
+        meter
+            .counterBuilder(CATALOG_CACHE_MISSES)
+            .setDescription(CATALOG_CACHE_MISSES_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    autoReadOnlyTransactions =
+        meter
+            .counterBuilder(AUTO_READ_ONLY_TRANSACTIONS)
+            .setDescription(AUTO_READ_ONLY_TRANSACTIONS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    phaseLatencies =
+        meter
+            .histogramBuilder(PHASE_LATENCY)
+            .ofLongs()
+            .setDescription(PHASE_LATENCY_DESCRIPTION)
+            .setUnit("us")
+            .setExplicitBucketBoundariesAdvice(MICROS_BUCKET_BOUNDARIES)
+            .build();
+    rowsSent =
+        meter.counterBuilder(ROWS_SENT).setDescription(ROWS_SENT_DESCRIPTION).setUnit("1").build();
+    bytesSent =
+        meter
+            .counterBuilder(BYTES_SENT)
+            .setDescription(BYTES_SENT_DESCRIPTION)
+            .setUnit("By")
+            .build();
+    bytesReceived =
+        meter
+            .counterBuilder(BYTES_RECEIVED)
+            .setDescription(BYTES_RECEIVED_DESCRIPTION)
+            .setUnit("By")
+            .build();
+    activeConnections =
+        meter
+            .upDownCounterBuilder(ACTIVE_CONNECTIONS)
+            .setDescription(ACTIVE_CONNECTIONS_DESCRIPTION)
+            .setUnit("1")
+            .build();
+    bufferedStatements =
+        meter
+            .histogramBuilder(BUFFERED_STATEMENTS)
+            .ofLongs()
+            .setDescription(BUFFERED_STATEMENTS_DESCRIPTION)
+            .setUnit("1")
+            .setExplicitBucketBoundariesAdvice(STATEMENT_COUNT_BUCKET_BOUNDARIES)
+            .build();
+    copyBatchSize =
+        meter
+            .histogramBuilder(COPY_BATCH_SIZE)
+            .ofLongs()
+            .setDescription(COPY_BATCH_SIZE_DESCRIPTION)
+            .setUnit("1")
+            .setExplicitBucketBoundariesAdvice(COPY_BATCH_SIZE_BUCKET_BOUNDARIES)
+            .build();
+    copyParallelism =
+        meter
+            .histogramBuilder(COPY_PARALLELISM)
+            .ofLongs()
+            .setDescription(COPY_PARALLELISM_DESCRIPTION)
+            .setUnit("1")
+            .setExplicitBucketBoundariesAdvice(COPY_PARALLELISM_BUCKET_BOUNDARIES)
+            .build();
+    copyCommitLatencies =
+        meter
+            .histogramBuilder(COPY_COMMIT_LATENCY)
+            .ofLongs()
+            .setDescription(COPY_COMMIT_LATENCY_DESCRIPTION)
+            .setUnit("ms")
+            .setExplicitBucketBoundariesAdvice(RPC_MILLIS_BUCKET_BOUNDARIES)
+            .build();
+    copyRowsCommitted =
+        meter
+            .counterBuilder(COPY_ROWS_COMMITTED)
+            .setDescription(COPY_ROWS_COMMITTED_DESCRIPTION)
+            .setUnit("1")
+            .build();
+
+    localSpannerClientLibLatencies =
+        localMetrics.histogram(
+            SPANNER_CLIENT_LIB_LATENCY,
+            SPANNER_CLIENT_LIB_LATENCY_DESCRIPTION,
+            "ms",
+            RPC_MILLIS_BUCKET_BOUNDARIES);
+    localPgadapterLatencies =
+        localMetrics.histogram(
+            PGADAPTER_LATENCY, PGADAPTER_LATENCY_DESCRIPTION, "ms", RPC_MILLIS_BUCKET_BOUNDARIES);
+    localDescribeCacheHits =
+        localMetrics.counter(DESCRIBE_CACHE_HITS, DESCRIBE_CACHE_HITS_DESCRIPTION, "1");
+    localDescribeCacheMisses =
+        localMetrics.counter(DESCRIBE_CACHE_MISSES, DESCRIBE_CACHE_MISSES_DESCRIPTION, "1");
+    localDescribeCacheEvictions =
+        localMetrics.counter(DESCRIBE_CACHE_EVICTIONS, DESCRIBE_CACHE_EVICTIONS_DESCRIPTION, "1");
+    localSqlRewriteCacheHits =
+        localMetrics.counter(SQL_REWRITE_CACHE_HITS, SQL_REWRITE_CACHE_HITS_DESCRIPTION, "1");
+    localSqlRewriteCacheMisses =
+        localMetrics.counter(SQL_REWRITE_CACHE_MISSES, SQL_REWRITE_CACHE_MISSES_DESCRIPTION, "1");
+    localCatalogCacheHits =
+        localMetrics.counter(CATALOG_CACHE_HITS, CATALOG_CACHE_HITS_DESCRIPTION, "1");
+    localCatalogCacheMisses =
+        localMetrics.counter(CATALOG_CACHE_MISSES, CATALOG_CACHE_MISSES_DESCRIPTION, "1");
+    localAutoReadOnlyTransactions =
+        localMetrics.counter(
+            AUTO_READ_ONLY_TRANSACTIONS, AUTO_READ_ONLY_TRANSACTIONS_DESCRIPTION, "1");
+    for (Phase phase : Phase.values()) {
+      localPhaseLatencies[phase.ordinal()] =
+          localMetrics.histogram(
+              PHASE_LATENCY,
+              PHASE_LATENCY_DESCRIPTION,
+              "us",
+              "phase=\"" + phase.label + "\"",
+              MICROS_BUCKET_BOUNDARIES);
+    }
+    localRowsSent = localMetrics.counter(ROWS_SENT, ROWS_SENT_DESCRIPTION, "1");
+    localBytesSent = localMetrics.counter(BYTES_SENT, BYTES_SENT_DESCRIPTION, "By");
+    localBytesReceived = localMetrics.counter(BYTES_RECEIVED, BYTES_RECEIVED_DESCRIPTION, "By");
+    localActiveConnections =
+        localMetrics.gauge(ACTIVE_CONNECTIONS, ACTIVE_CONNECTIONS_DESCRIPTION, "1");
+    localBufferedStatements =
+        localMetrics.histogram(
+            BUFFERED_STATEMENTS,
+            BUFFERED_STATEMENTS_DESCRIPTION,
+            "1",
+            STATEMENT_COUNT_BUCKET_BOUNDARIES);
+    localCopyBatchSize =
+        localMetrics.histogram(
+            COPY_BATCH_SIZE, COPY_BATCH_SIZE_DESCRIPTION, "1", COPY_BATCH_SIZE_BUCKET_BOUNDARIES);
+    localCopyParallelism =
+        localMetrics.histogram(
+            COPY_PARALLELISM,
+            COPY_PARALLELISM_DESCRIPTION,
+            "1",
+            COPY_PARALLELISM_BUCKET_BOUNDARIES);
+    localCopyCommitLatencies =
+        localMetrics.histogram(
+            COPY_COMMIT_LATENCY,
+            COPY_COMMIT_LATENCY_DESCRIPTION,
+            "ms",
+            RPC_MILLIS_BUCKET_BOUNDARIES);
+    localCopyRowsCommitted =
+        localMetrics.counter(COPY_ROWS_COMMITTED, COPY_ROWS_COMMITTED_DESCRIPTION, "1");
+  }
+
+  /**
+   * Returns the in-process copy of all metrics. This copy is always recorded, also when
+   * OpenTelemetry metrics are disabled, and is exported by the local metrics endpoint.
+   */
+  @InternalApi
+  public LocalMetrics getLocalMetrics() {
+    return localMetrics;
   }
 
   @InternalApi
   public void recordClientLibLatency(long value, Attributes attributes) {
     spannerClientLibLatencies.record(value, attributes);
+    localSpannerClientLibLatencies.record(value);
   }
 
   @InternalApi
   public void recordPGAdapterLatency(long value, Attributes attributes) {
     pgadapterLatencies.record(value, attributes);
+    localPgadapterLatencies.record(value);
+  }
+
+  @InternalApi
+  public void recordDescribeCacheHit() {
+    describeCacheHits.add(1L);
+    localDescribeCacheHits.add(1L);
+  }
+
+  @InternalApi
+  public void recordDescribeCacheMiss() {
+    describeCacheMisses.add(1L);
+    localDescribeCacheMisses.add(1L);
+  }
+
+  @InternalApi
+  public void recordDescribeCacheEviction() {
+    describeCacheEvictions.add(1L);
+    localDescribeCacheEvictions.add(1L);
+  }
+
+  @InternalApi
+  public void recordSqlRewriteCacheHit() {
+    sqlRewriteCacheHits.add(1L);
+    localSqlRewriteCacheHits.add(1L);
+  }
+
+  @InternalApi
+  public void recordSqlRewriteCacheMiss() {
+    sqlRewriteCacheMisses.add(1L);
+    localSqlRewriteCacheMisses.add(1L);
+  }
+
+  @InternalApi
+  public void recordCatalogCacheHit() {
+    catalogCacheHits.add(1L);
+    localCatalogCacheHits.add(1L);
+  }
+
+  @InternalApi
+  public void recordCatalogCacheMiss() {
+    catalogCacheMisses.add(1L);
+    localCatalogCacheMisses.add(1L);
+  }
+
+  @InternalApi
+  public void recordAutoReadOnlyTransaction(Attributes attributes) {
+    autoReadOnlyTransactions.add(1L, attributes);
+    localAutoReadOnlyTransactions.add(1L);
+  }
+
+  /**
+   * Records the latency of one phase of the handling of a statement or message. The latency is
+   * given in nanoseconds, and recorded in microseconds.
+   */
+  @InternalApi
+  public void recordPhaseLatency(Phase phase, long nanos) {
+    long micros = nanos / 1000L;
+    phaseLatencies.record(micros, phase.attributes);
+    localPhaseLatencies[phase.ordinal()].record(micros);
+  }
+
+  @InternalApi
+  public void recordRowsSent(long rows) {
+    rowsSent.add(rows);
+    localRowsSent.add(rows);
+  }
+
+  @InternalApi
+  public void recordBytesSent(long bytes) {
+    bytesSent.add(bytes);
+    localBytesSent.add(bytes);
+  }
+
+  @InternalApi
+  public void recordBytesReceived(long bytes) {
+    bytesReceived.add(bytes);
+    localBytesReceived.add(bytes);
+  }
+
+  @InternalApi
+  public void recordConnectionOpened() {
+    activeConnections.add(1L);
+    localActiveConnections.add(1L);
+  }
+
+  @InternalApi
+  public void recordConnectionClosed() {
+    activeConnections.add(-1L);
+    localActiveConnections.add(-1L);
+  }
+
+  @InternalApi
+  public void recordBufferedStatements(long count) {
+    bufferedStatements.record(count);
+    localBufferedStatements.record(count);
+  }
+
+  /**
+   * Records a successful commit of a non-atomic COPY operation. The throughput of COPY operations
+   * can be calculated from the rate of the number of committed rows.
+   */
+  @InternalApi
+  public void recordCopyCommit(long rows, long parallelism, long latencyMillis) {
+    copyBatchSize.record(rows);
+    localCopyBatchSize.record(rows);
+    copyParallelism.record(parallelism);
+    localCopyParallelism.record(parallelism);
+    copyCommitLatencies.record(latencyMillis);
+    localCopyCommitLatencies.record(latencyMillis);
+    copyRowsCommitted.add(rows);
+    localCopyRowsCommitted.add(rows);
   }
 }
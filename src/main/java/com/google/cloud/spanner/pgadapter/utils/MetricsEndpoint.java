@@ -0,0 +1,88 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local HTTP endpoint that returns the current value of all {@link LocalMetrics} of a server in the
+ * Prometheus text format. The endpoint only listens on the loopback address, and serves the metrics
+ * at the path {@value #PATH}.
+ */
+@InternalApi
+public class MetricsEndpoint {
+  private static final Logger logger = Logger.getLogger(MetricsEndpoint.class.getName());
+
+  /** The path that the metrics are served on. */
+  public static final String PATH = "/metrics";
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final HttpServer httpServer;
+
+  /**
+   * Creates and starts an endpoint for the given metrics on the given port. Port 0 starts the
+   * endpoint on a random free port.
+   */
+  public static MetricsEndpoint start(LocalMetrics localMetrics, int port) throws IOException {
+    return new MetricsEndpoint(localMetrics, port);
+  }
+
+  private MetricsEndpoint(LocalMetrics localMetrics, int port) throws IOException {
+    this.httpServer =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.httpServer.createContext(PATH, exchange -> handle(localMetrics, exchange));
+    this.httpServer.setExecutor(null);
+    this.httpServer.start();
+    logger.log(
+        Level.INFO, () -> String.format("Metrics endpoint started on port %d", getLocalPort()));
+  }
+
+  private static void handle(LocalMetrics localMetrics, HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1L);
+        return;
+      }
+      StringWriter metrics = new StringWriter();
+      localMetrics.writeTo(metrics);
+      byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /** Returns the port that this endpoint is listening on. */
+  public int getLocalPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  /** Stops this endpoint. */
+  public void stop() {
+    httpServer.stop(0);
+  }
+}
@@ -45,6 +45,7 @@ import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.UpdateCount;
 import com.google.cloud.spanner.pgadapter.statements.CopyStatement.Format;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -53,12 +54,15 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.Context;
 import io.grpc.MethodDescriptor;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.InterruptedIOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -67,15 +71,19 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Phaser;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
 import org.threeten.bp.Duration;
 
 @InternalApi
@@ -104,6 +112,14 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
   private static final ThreadFactory THREAD_FACTORY =
       createVirtualOrPlatformDaemonThreadFactory("copy-worker", true);
 
+  /**
+   * The maximum number of attempts for a commit that fails because Spanner is overloaded. Commits
+   * are only retried if adaptive batching is enabled.
+   */
+  private static final int MAX_OVERLOADED_COMMIT_ATTEMPTS = 5;
+  /** The delay before the first retry of a commit that failed because Spanner is overloaded. */
+  private static final long OVERLOADED_COMMIT_RETRY_DELAY_MILLIS = 100L;
+
   private final CopyTransactionMode transactionMode;
   private long rowCount;
   private final Connection connection;
@@ -117,15 +133,34 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
   private final Format copyFormat;
   private final CSVFormat csvFormat;
   private final boolean hasHeader;
-  private final CountDownLatch pipeCreatedLatch = new CountDownLatch(1);
   private final CountDownLatch dataReceivedLatch = new CountDownLatch(1);
   private final AtomicLong bytesReceived = new AtomicLong();
-  private final PipedOutputStream payload = new PipedOutputStream();
+  /**
+   * The queue of CopyData payloads that have been received from the client and that have not yet
+   * been parsed. The payloads are handed over to the parser without being copied. The queue blocks
+   * the connection thread if the parser falls behind, which applies back-pressure to the client.
+   */
+  private final QueuedInputStream payload;
+
   private final AtomicBoolean commit = new AtomicBoolean(false);
   private final AtomicBoolean rollback = new AtomicBoolean(false);
   private final CountDownLatch closedLatch = new CountDownLatch(1);
-  private final ListeningExecutorService executorService =
-      MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(THREAD_FACTORY));
+  private final ListeningExecutorService executorService;
+  /** Whether the executor was created by this writer and should be shut down when it finishes. */
+  private final boolean ownsExecutorService;
+  /**
+   * Tracks the tasks that this writer has submitted to the executor. The executor can be shared
+   * with other COPY statements, so the writer waits for its own tasks instead of for the shutdown
+   * of the executor.
+   */
+  private final Phaser pendingTasks = new Phaser(1);
+  /** The metrics of the server, or null if this writer does not record any metrics. */
+  @Nullable private final Metrics metrics;
+  /**
+   * Chooses the batch size and the number of parallel commits for a non-atomic COPY operation with
+   * adaptive batching. This is null for all other COPY operations.
+   */
+  @Nullable private final AdaptiveCommitController commitController;
 
   private final Object lock = new Object();
 
@@ -143,6 +178,72 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       CSVFormat format,
       boolean hasHeader)
       throws IOException {
+    this(
+        sessionState,
+        transactionMode,
+        connection,
+        qualifiedTableName,
+        tableColumns,
+        indexedColumnsCount,
+        copyFormat,
+        format,
+        hasHeader,
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool(THREAD_FACTORY)),
+        true,
+        null);
+  }
+
+  /**
+   * Creates a writer that uses the given executor to parse the data and to commit the mutations.
+   * The executor is not shut down by this writer, and must support at least as many concurrent
+   * tasks as the maximum number of parallel commits. The commits of non-atomic COPY operations are
+   * recorded in the given metrics.
+   */
+  public MutationWriter(
+      SessionState sessionState,
+      CopyTransactionMode transactionMode,
+      Connection connection,
+      String qualifiedTableName,
+      Map<String, Type> tableColumns,
+      int indexedColumnsCount,
+      Format copyFormat,
+      CSVFormat format,
+      boolean hasHeader,
+      ListeningExecutorService executorService,
+      @Nullable Metrics metrics)
+      throws IOException {
+    this(
+        sessionState,
+        transactionMode,
+        connection,
+        qualifiedTableName,
+        tableColumns,
+        indexedColumnsCount,
+        copyFormat,
+        format,
+        hasHeader,
+        executorService,
+        false,
+        metrics);
+  }
+
+  private MutationWriter(
+      SessionState sessionState,
+      CopyTransactionMode transactionMode,
+      Connection connection,
+      String qualifiedTableName,
+      Map<String, Type> tableColumns,
+      int indexedColumnsCount,
+      Format copyFormat,
+      CSVFormat format,
+      boolean hasHeader,
+      ListeningExecutorService executorService,
+      boolean ownsExecutorService,
+      @Nullable Metrics metrics)
+      throws IOException {
+    this.executorService = executorService;
+    this.ownsExecutorService = ownsExecutorService;
+    this.metrics = metrics;
     this.transactionMode = transactionMode;
     this.connection = connection;
     this.qualifiedTableName = qualifiedTableName;
@@ -158,9 +259,32 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     this.commitSizeLimitForBatching =
         Math.round(
             (float) copySettings.getMaxAtomicCommitSize() / copySettings.getCommitSizeMultiplier());
+    this.commitController =
+        transactionMode == CopyTransactionMode.ImplicitNonAtomic
+                && copySettings.isAdaptiveBatching()
+            ? new AdaptiveCommitController(
+                nonAtomicBatchSize,
+                copySettings.getMaxParallelism(),
+                copySettings.getTargetCommitLatencyMillis())
+            : null;
     this.copyFormat = copyFormat;
     this.csvFormat = format;
     this.hasHeader = hasHeader;
+    this.payload = new QueuedInputStream(copySettings.getPipeBufferSize());
+  }
+
+  /** Submits a task to the executor and registers it as a pending task of this writer. */
+  private <T> ListenableFuture<T> submit(Callable<T> task) {
+    pendingTasks.register();
+    ListenableFuture<T> future;
+    try {
+      future = executorService.submit(task);
+    } catch (Throwable t) {
+      pendingTasks.arriveAndDeregister();
+      throw t;
+    }
+    future.addListener(pendingTasks::arriveAndDeregister, MoreExecutors.directExecutor());
+    return future;
   }
 
   static TransactionOption[] createCommitOptions(Connection connection, CopySettings copySettings) {
@@ -185,28 +309,18 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       }
     }
     try {
-      pipeCreatedLatch.await();
       bytesReceived.addAndGet(payload.length);
       dataReceivedLatch.countDown();
-      this.payload.write(payload);
-    } catch (InterruptedException | InterruptedIOException interruptedIOException) {
+      // This blocks if the parser has not yet consumed the data that was previously received. The
+      // data is silently dropped if the COPY operation has already ended because of an error. The
+      // error is returned to the client the next time this method is called.
+      this.payload.put(payload);
+    } catch (InterruptedIOException interruptedIOException) {
       // The IO operation was interrupted. This indicates that the user wants to cancel the COPY
       // operation. Re-instate the interrupted flag on the current thread and throw an exception to
       // indicate that the operation should be cancelled.
       Thread.currentThread().interrupt();
       throw PGExceptionFactory.newQueryCancelledException();
-    } catch (IOException e) {
-      // Ignore the exception if the executor has already been shutdown. That means that an error
-      // occurred that ended the COPY operation while we were writing data to the buffer.
-      if (!executorService.isShutdown()) {
-        PGException pgException =
-            PGException.newBuilder("Could not write copy data to buffer")
-                .setSQLState(SQLState.InternalError)
-                .setCause(e)
-                .build();
-        logger.log(Level.SEVERE, pgException.getMessage(), pgException);
-        throw pgException;
-      }
     }
   }
 
@@ -226,18 +340,20 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
 
   @Override
   public void close() throws IOException {
-    this.payload.close();
+    this.payload.endOfStream();
     this.closedLatch.countDown();
     this.dataReceivedLatch.countDown();
   }
 
   @Override
   public StatementResult call() throws Exception {
-    PipedInputStream inputStream = new PipedInputStream(payload, copySettings.getPipeBufferSize());
-    pipeCreatedLatch.countDown();
+    // The sequential parser is created directly on the stream of incoming data. Parallel parsing
+    // creates a separate parser for each segment of the data.
     final CopyInParser parser =
-        CopyInParser.create(
-            copySettings.getSessionState(), copyFormat, csvFormat, inputStream, hasHeader);
+        isParallelParsing()
+            ? null
+            : CopyInParser.create(
+                copySettings.getSessionState(), copyFormat, csvFormat, payload, hasHeader);
     // This LinkedBlockingDeque holds a reference to all transactions that are currently active. The
     // max capacity of this deque is what ensures that we never have more than maxParallelism
     // transactions running at the same time. We could also achieve that by using a thread pool with
@@ -256,70 +372,14 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       // Wait until we know whether we actually will receive any data. It could be that it is an
       // empty copy operation, and we should then end early.
       dataReceivedLatch.await();
+      Stopwatch stopwatch = Stopwatch.createStarted();
 
-      Iterator<CopyRecord> iterator = parser.iterator();
       List<Mutation> mutations = new ArrayList<>();
-      long currentBufferByteSize = 0L;
-      // Note: iterator.hasNext() blocks if there is not enough data in the pipeline to construct a
-      // complete record. It returns false if the stream has been closed and all records have been
-      // returned.
-      while (bytesReceived.get() > 0L && !rollback.get() && iterator.hasNext()) {
-        CopyRecord record = iterator.next();
-        if (record.isEndRecord()) {
-          break;
-        }
-        if (record.numColumns() != this.tableColumns.keySet().size()) {
-          throw PGExceptionFactory.newPGException(
-              String.format(
-                  "Invalid COPY data: Row length mismatch. Expected %d values, but got %d.",
-                  this.tableColumns.keySet().size(), record.numColumns()),
-              SQLState.DataException);
-        }
-
-        Mutation mutation = buildMutation(record);
-        int mutationSize = calculateSize(mutation);
-        this.rowCount++;
-
-        if (transactionMode == CopyTransactionMode.ImplicitNonAtomic) {
-          currentBufferByteSize =
-              addMutationAndMaybeFlushTransaction(
-                  activeCommitFutures,
-                  allCommitFutures,
-                  mutations,
-                  mutation,
-                  currentBufferByteSize,
-                  mutationSize);
-        } else {
-          mutations.add(mutation);
-          currentBufferByteSize += mutationSize;
-          if (mutations.size() > maxAtomicBatchSize) {
-            throw SpannerExceptionFactory.newSpannerException(
-                ErrorCode.FAILED_PRECONDITION,
-                "Record count: "
-                    + mutations.size()
-                    + " has exceeded the limit: "
-                    + maxAtomicBatchSize
-                    + ".\n\nThe number of mutations per record is equal to the number of columns in the record "
-                    + "plus the number of indexed columns in the record. The maximum number of mutations "
-                    + "in one transaction is "
-                    + copySettings.getMaxAtomicMutationsLimit()
-                    + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
-                    + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
-                    + "This will make the COPY operation non-atomic.\n\n");
-          }
-          if (currentBufferByteSize > copySettings.getMaxAtomicCommitSize()) {
-            throw SpannerExceptionFactory.newSpannerException(
-                ErrorCode.FAILED_PRECONDITION,
-                "Commit size: "
-                    + currentBufferByteSize
-                    + " has exceeded the limit: "
-                    + copySettings.getMaxAtomicCommitSize()
-                    + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
-                    + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
-                    + "This will make the COPY operation non-atomic.\n\n");
-          }
-        }
-      } // end of iterator.hasNext()
+      if (parser == null) {
+        parseInParallel(activeCommitFutures, allCommitFutures, mutations);
+      } else {
+        parse(parser, activeCommitFutures, allCommitFutures, mutations);
+      }
 
       // There are no more CSVRecords in the pipeline.
       // Write any remaining mutations in the buffer.
@@ -343,6 +403,7 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       //    database after we have returned an error, which could cause confusion.
       // 2. This will throw the underlying exception, so we can catch and register it.
       ApiFutures.allAsList(allCommitFutures).get();
+      logThroughput(stopwatch);
     } catch (SpannerException e) {
       synchronized (lock) {
         this.exception = PGExceptionFactory.toPGException(e);
@@ -359,16 +420,291 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
         throw this.exception;
       }
     } finally {
-      this.executorService.shutdown();
-      if (!this.executorService.awaitTermination(60L, TimeUnit.SECONDS)) {
-        logger.log(Level.WARNING, "Timeout while waiting for MutationWriter executor to shutdown.");
+      if (this.ownsExecutorService) {
+        this.executorService.shutdown();
+      }
+      try {
+        this.pendingTasks.awaitAdvanceInterruptibly(
+            this.pendingTasks.arrive(), 60L, TimeUnit.SECONDS);
+      } catch (TimeoutException timeoutException) {
+        logger.log(Level.WARNING, "Timeout while waiting for MutationWriter tasks to finish.");
       }
       this.payload.close();
-      parser.close();
+      if (parser != null) {
+        parser.close();
+      }
     }
     return new UpdateCount(rowCount);
   }
 
+  /**
+   * Returns true if the COPY data should be split into segments that are parsed in parallel. This
+   * is only supported for the TEXT and CSV formats.
+   */
+  @VisibleForTesting
+  boolean isParallelParsing() {
+    return copySettings.getParseParallelism() > 1
+        && copyFormat != Format.BINARY
+        && CopyRecordSplitter.isSupported(csvFormat);
+  }
+
+  /** Parses the incoming data on this thread and adds the mutations to the current batch. */
+  private void parse(
+      CopyInParser parser,
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations)
+      throws Exception {
+    Iterator<CopyRecord> iterator = parser.iterator();
+    long currentBufferByteSize = 0L;
+    // Note: iterator.hasNext() blocks if there is not enough data in the pipeline to construct a
+    // complete record. It returns false if the stream has been closed and all records have been
+    // returned.
+    while (bytesReceived.get() > 0L && !rollback.get() && iterator.hasNext()) {
+      CopyRecord record = iterator.next();
+      if (record.isEndRecord()) {
+        break;
+      }
+      Mutation mutation = buildMutation(checkNumColumns(record));
+      currentBufferByteSize =
+          addMutation(
+              activeCommitFutures,
+              allCommitFutures,
+              mutations,
+              mutation,
+              currentBufferByteSize,
+              calculateSize(mutation));
+    } // end of iterator.hasNext()
+  }
+
+  /**
+   * Splits the incoming data into segments at record boundaries, and parses these segments and
+   * builds the mutations for these in parallel. The mutations are added to the current batch in the
+   * same order as the records in the incoming data. The number of segments that are parsed at the
+   * same time is limited to the parse parallelism. This ensures that this method stops reading data
+   * from the client if the parser threads cannot keep up.
+   */
+  private void parseInParallel(
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations)
+      throws Exception {
+    if (bytesReceived.get() == 0L) {
+      return;
+    }
+    CopyRecordSplitter splitter =
+        new CopyRecordSplitter(payload, csvFormat, CopyRecordSplitter.DEFAULT_SEGMENT_SIZE);
+    CSVFormat segmentFormat = csvFormat;
+    if (hasHeader) {
+      byte[] header = splitter.nextRecord();
+      if (header == null) {
+        return;
+      }
+      segmentFormat = createSegmentFormat(header);
+    }
+    int parallelism = copySettings.getParseParallelism();
+    ArrayDeque<ListenableFuture<ConvertedSegment>> segments = new ArrayDeque<>(parallelism);
+    long currentBufferByteSize = 0L;
+    try {
+      final CSVFormat format = segmentFormat;
+      byte[] data;
+      while (!rollback.get() && (data = splitter.nextSegment()) != null) {
+        if (segments.size() == parallelism) {
+          ConvertedSegment segment = segments.poll().get();
+          currentBufferByteSize =
+              addMutations(
+                  activeCommitFutures, allCommitFutures, mutations, segment, currentBufferByteSize);
+          if (segment.endOfData) {
+            return;
+          }
+        }
+        final byte[] segmentData = data;
+        segments.add(submit(() -> convertSegment(format, segmentData)));
+      }
+      while (!rollback.get() && !segments.isEmpty()) {
+        ConvertedSegment segment = segments.poll().get();
+        currentBufferByteSize =
+            addMutations(
+                activeCommitFutures, allCommitFutures, mutations, segment, currentBufferByteSize);
+        if (segment.endOfData) {
+          return;
+        }
+      }
+    } finally {
+      // This is a no-op if all segments have been added to the batch.
+      for (ListenableFuture<ConvertedSegment> segment : segments) {
+        segment.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Creates the {@link CSVFormat} that is used to parse the segments of COPY data with a header.
+   * The header has already been removed from the data, so the column names are set explicitly.
+   */
+  private CSVFormat createSegmentFormat(byte[] header) throws IOException {
+    try (CSVParser headerParser =
+        CSVParser.parse(
+            new InputStreamReader(new ByteArrayInputStream(header), StandardCharsets.UTF_8),
+            csvFormat)) {
+      return csvFormat
+          .builder()
+          .setHeader(headerParser.getHeaderNames().toArray(new String[0]))
+          .setSkipHeaderRecord(false)
+          .build();
+    }
+  }
+
+  /** The mutations that were built for one segment of COPY data. */
+  private static final class ConvertedSegment {
+    private final List<Mutation> mutations = new ArrayList<>();
+    private int[] sizes = new int[16];
+    /** Indicates whether the segment contained an end-of-data marker. */
+    private boolean endOfData;
+
+    private void add(Mutation mutation, int size) {
+      if (mutations.size() == sizes.length) {
+        sizes = Arrays.copyOf(sizes, sizes.length * 2);
+      }
+      sizes[mutations.size()] = size;
+      mutations.add(mutation);
+    }
+  }
+
+  /** Parses a segment of COPY data and builds the mutations for it. */
+  private ConvertedSegment convertSegment(CSVFormat format, byte[] data) throws IOException {
+    ConvertedSegment segment = new ConvertedSegment();
+    CopyInParser parser =
+        CopyInParser.create(
+            copySettings.getSessionState(),
+            copyFormat,
+            format,
+            new ByteArrayInputStream(data),
+            hasHeader);
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (iterator.hasNext()) {
+        CopyRecord record = iterator.next();
+        if (record.isEndRecord()) {
+          segment.endOfData = true;
+          break;
+        }
+        Mutation mutation = buildMutation(checkNumColumns(record));
+        segment.add(mutation, calculateSize(mutation));
+      }
+    } finally {
+      parser.close();
+    }
+    return segment;
+  }
+
+  private long addMutations(
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations,
+      ConvertedSegment segment,
+      long currentBufferByteSize)
+      throws Exception {
+    for (int index = 0; index < segment.mutations.size() && !rollback.get(); index++) {
+      currentBufferByteSize =
+          addMutation(
+              activeCommitFutures,
+              allCommitFutures,
+              mutations,
+              segment.mutations.get(index),
+              currentBufferByteSize,
+              segment.sizes[index]);
+    }
+    return currentBufferByteSize;
+  }
+
+  private CopyRecord checkNumColumns(CopyRecord record) {
+    if (record.numColumns() != this.tableColumns.keySet().size()) {
+      throw PGExceptionFactory.newPGException(
+          String.format(
+              "Invalid COPY data: Row length mismatch. Expected %d values, but got %d.",
+              this.tableColumns.keySet().size(), record.numColumns()),
+          SQLState.DataException);
+    }
+    return record;
+  }
+
+  /**
+   * Adds a mutation to the current batch of mutations. The batch is written to Spanner if it
+   * exceeds any of the limits in non-atomic mode. An exception is thrown if it exceeds any of the
+   * limits of Spanner in atomic mode.
+   *
+   * @return the new size of the current batch in bytes
+   */
+  private long addMutation(
+      LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
+      List<ApiFuture<Void>> allCommitFutures,
+      List<Mutation> mutations,
+      Mutation mutation,
+      long currentBufferByteSize,
+      int mutationSize)
+      throws Exception {
+    this.rowCount++;
+
+    if (transactionMode == CopyTransactionMode.ImplicitNonAtomic) {
+      return addMutationAndMaybeFlushTransaction(
+          activeCommitFutures,
+          allCommitFutures,
+          mutations,
+          mutation,
+          currentBufferByteSize,
+          mutationSize);
+    }
+    mutations.add(mutation);
+    currentBufferByteSize += mutationSize;
+    if (mutations.size() > maxAtomicBatchSize) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION,
+          "Record count: "
+              + mutations.size()
+              + " has exceeded the limit: "
+              + maxAtomicBatchSize
+              + ".\n\nThe number of mutations per record is equal to the number of columns in the record "
+              + "plus the number of indexed columns in the record. The maximum number of mutations "
+              + "in one transaction is "
+              + copySettings.getMaxAtomicMutationsLimit()
+              + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
+              + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
+              + "This will make the COPY operation non-atomic.\n\n");
+    }
+    if (currentBufferByteSize > copySettings.getMaxAtomicCommitSize()) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION,
+          "Commit size: "
+              + currentBufferByteSize
+              + " has exceeded the limit: "
+              + copySettings.getMaxAtomicCommitSize()
+              + ".\n\nExecute `SET SPANNER.AUTOCOMMIT_DML_MODE='PARTITIONED_NON_ATOMIC'` before executing a large COPY operation "
+              + "to instruct PGAdapter to automatically break large transactions into multiple smaller. "
+              + "This will make the COPY operation non-atomic.\n\n");
+    }
+    return currentBufferByteSize;
+  }
+
+  private void logThroughput(Stopwatch stopwatch) {
+    logger.log(
+        Level.FINE,
+        () -> {
+          long bytes = bytesReceived.get();
+          long micros = Math.max(1L, stopwatch.elapsed(TimeUnit.MICROSECONDS));
+          String throughput =
+              String.format(
+                  "COPY received %d bytes and %d rows in %dms (%.2f MB/s)",
+                  bytes, rowCount, micros / 1000L, bytes / (double) micros);
+          if (commitController == null) {
+            return throughput;
+          }
+          return String.format(
+              "%s, final batch size %d rows, final parallelism %d",
+              throughput, commitController.getBatchSize(), commitController.getParallelism());
+        });
+  }
+
   private long addMutationAndMaybeFlushTransaction(
       LinkedBlockingDeque<ApiFuture<Void>> activeCommitFutures,
       List<ApiFuture<Void>> allCommitFutures,
@@ -389,7 +725,8 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     }
 
     mutations.add(mutation);
-    if (mutations.size() == nonAtomicBatchSize) {
+    if (mutations.size()
+        >= (commitController == null ? nonAtomicBatchSize : commitController.getBatchSize())) {
       allCommitFutures.add(writeToSpannerAsync(activeCommitFutures, mutations));
       mutations.clear();
       return 0L; // Buffer is empty, so the batch size in bytes is now back to zero.
@@ -402,6 +739,11 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
       throws Exception {
 
     SettableApiFuture<Void> settableApiFuture = SettableApiFuture.create();
+    // Wait until the adaptive commit controller allows another commit to start. The controller
+    // never allows more parallel commits than the capacity of the deque.
+    AdaptiveCommitController.Permit permit =
+        commitController == null ? null : commitController.acquire();
+    int parallelism = permit == null ? copySettings.getMaxParallelism() : permit.getParallelism();
     // Add this future to the list of active commit futures. This will block if the deque is full,
     // and this will effectively apply back-pressure to the entire stream as the worker thread is
     // blocked until there is room in the deque.
@@ -410,7 +752,7 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     DatabaseClient dbClient = connection.getDatabaseClient();
     ImmutableList<Mutation> immutableMutations = ImmutableList.copyOf(mutations);
     ListenableFuture<Void> listenableFuture =
-        executorService.submit(
+        submit(
             () -> {
               Context context =
                   Context.current()
@@ -429,7 +771,7 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
                                       Duration.ofSeconds(copySettings.getCommitTimeoutSeconds()));
                             }
                           });
-              context.run(() -> dbClient.writeWithOptions(immutableMutations, commitOptions));
+              commit(context, dbClient, immutableMutations, permit, parallelism);
               return null;
             });
     Futures.addCallback(
@@ -437,6 +779,9 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
         new FutureCallback<Void>() {
           @Override
           public void onFailure(@Nonnull Throwable t) {
+            if (permit != null) {
+              commitController.release(permit);
+            }
             rollback.set(true);
             //noinspection ResultOfMethodCallIgnored
             activeCommitFutures.remove(settableApiFuture);
@@ -445,6 +790,9 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
 
           @Override
           public void onSuccess(Void result) {
+            if (permit != null) {
+              commitController.release(permit);
+            }
             //noinspection ResultOfMethodCallIgnored
             activeCommitFutures.remove(settableApiFuture);
             settableApiFuture.set(result);
@@ -454,6 +802,51 @@ public class MutationWriter implements Callable<StatementResult>, Closeable {
     return settableApiFuture;
   }
 
+  /**
+   * Writes the given mutations to Spanner and registers the latency of the commit. Commits that
+   * fail because Spanner is overloaded are retried with a back-off if adaptive batching is enabled.
+   * These commits have not been applied, so retrying them cannot insert any rows twice.
+   */
+  private void commit(
+      Context context,
+      DatabaseClient dbClient,
+      ImmutableList<Mutation> mutations,
+      @Nullable AdaptiveCommitController.Permit permit,
+      int parallelism)
+      throws InterruptedException {
+    for (int attempt = 1; ; attempt++) {
+      long startNanos = System.nanoTime();
+      try {
+        context.run(() -> dbClient.writeWithOptions(mutations, commitOptions));
+      } catch (SpannerException exception) {
+        if (permit == null) {
+          throw exception;
+        }
+        commitController.recordCommit(permit, System.nanoTime() - startNanos, exception);
+        if (attempt >= MAX_OVERLOADED_COMMIT_ATTEMPTS
+            || rollback.get()
+            || !AdaptiveCommitController.isOverloaded(exception)) {
+          throw exception;
+        }
+        logger.log(
+            Level.FINE,
+            () ->
+                String.format("Retrying COPY commit that failed with %s", exception.getMessage()));
+        Thread.sleep(OVERLOADED_COMMIT_RETRY_DELAY_MILLIS << (attempt - 1));
+        continue;
+      }
+      long latencyNanos = System.nanoTime() - startNanos;
+      if (permit != null) {
+        commitController.recordCommit(permit, latencyNanos, null);
+      }
+      if (metrics != null && transactionMode == CopyTransactionMode.ImplicitNonAtomic) {
+        metrics.recordCopyCommit(
+            mutations.size(), parallelism, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+      }
+      return;
+    }
+  }
+
   static int calculateSize(Mutation mutation) {
     int size = 0;
     for (Value value : mutation.getValues()) {
@@ -0,0 +1,354 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.AbstractStatementParser;
+import com.google.cloud.spanner.connection.AbstractStatementParser.ParsedStatement;
+import com.google.cloud.spanner.connection.AbstractStatementParser.StatementType;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import com.google.cloud.spanner.connection.SavepointSupport;
+import com.google.cloud.spanner.connection.StatementResult.ClientSideStatementType;
+import com.google.cloud.spanner.connection.TransactionRetryListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The {@link Connection} of a client connection in transaction pooling mode. All calls are
+ * forwarded to a Spanner connection that is leased from a {@link SpannerConnectionPool} when it is
+ * first needed. The lease is given back by {@link #releaseIfIdle()}, which is called by the backend
+ * connection each time the client connection becomes idle.
+ *
+ * <p>Connection settings that are changed with a client-side SET statement, for example {@code SET
+ * SPANNER.READ_ONLY_STALENESS='...'}, or with a setter such as {@link
+ * Connection#setReadOnlyStaleness}, are recorded and re-applied in the order in which they were
+ * changed each time a new Spanner connection is leased. A Spanner connection is reset to its
+ * default settings when it is returned to the pool.
+ *
+ * <p>Getters that only return the state of the connection, such as {@link
+ * Connection#isInTransaction()} and {@link Connection#getReadOnlyStaleness()}, do not lease a
+ * Spanner connection. These are answered from a connection that has the default settings and the
+ * recorded settings of this connection when no Spanner connection is leased.
+ */
+@InternalApi
+public final class PooledConnection implements InvocationHandler {
+  /** Client-side SET statements that only apply to the current transaction or statement. */
+  private static final ImmutableSet<ClientSideStatementType> TRANSACTION_SETTINGS =
+      ImmutableSet.of(
+          ClientSideStatementType.SET_TRANSACTION_MODE,
+          ClientSideStatementType.SET_TRANSACTION_TAG,
+          ClientSideStatementType.SET_STATEMENT_TAG);
+
+  /** Setters that only apply to the current transaction or statement. */
+  private static final ImmutableSet<String> TRANSACTION_SETTERS =
+      ImmutableSet.of("setTransactionMode", "setTransactionTag", "setStatementTag");
+
+  /** Getters that return the result of the last transaction, and that therefore need a lease. */
+  private static final ImmutableSet<String> RESULT_GETTERS =
+      ImmutableSet.of("getCommitTimestamp", "getCommitResponse", "getReadTimestamp");
+
+  private final SpannerConnectionPool pool;
+  private final ConnectionOptions connectionOptions;
+  /** A recorded connection setting that is applied to each Spanner connection that is leased. */
+  private interface Setting {
+    void apply(Connection connection);
+  }
+
+  /**
+   * The recorded settings in the order in which they were last changed. The key is the type of a
+   * SET statement, or the name of the property that a setter changes.
+   */
+  private final Map<Object, Setting> settings = new LinkedHashMap<>();
+
+  private final List<TransactionRetryListener> transactionRetryListeners = new ArrayList<>();
+  /** The values of getters that have been read while no connection was leased. */
+  private final Map<String, Object> idleState = new HashMap<>();
+
+  private volatile Connection leased;
+  private volatile boolean closed;
+
+  PooledConnection(SpannerConnectionPool pool, ConnectionOptions connectionOptions) {
+    this.pool = Preconditions.checkNotNull(pool);
+    this.connectionOptions = Preconditions.checkNotNull(connectionOptions);
+  }
+
+  /**
+   * Returns the {@link PooledConnection} of the given connection, or null if the connection is not
+   * a pooled connection.
+   */
+  @Nullable
+  public static PooledConnection of(Connection connection) {
+    if (Proxy.isProxyClass(connection.getClass())
+        && Proxy.getInvocationHandler(connection) instanceof PooledConnection) {
+      return (PooledConnection) Proxy.getInvocationHandler(connection);
+    }
+    return null;
+  }
+
+  /** Returns true if this connection currently holds a Spanner connection from the pool. */
+  public boolean isLeased() {
+    return leased != null;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Connection getLeasedConnection() {
+    return leased;
+  }
+
+  /**
+   * Returns the leased Spanner connection to the pool if it has no active transaction, batch or
+   * statement tag. Returns true if the connection was returned or if no connection was leased.
+   */
+  public boolean releaseIfIdle() {
+    Connection connection = leased;
+    if (connection == null) {
+      return true;
+    }
+    boolean idle;
+    try {
+      idle =
+          !connection.isInTransaction()
+              && !connection.isDdlBatchActive()
+              && !connection.isDmlBatchActive()
+              && connection.getStatementTag() == null;
+    } catch (Throwable throwable) {
+      this.leased = null;
+      pool.discard(connection);
+      return true;
+    }
+    if (!idle) {
+      return false;
+    }
+    this.leased = null;
+    for (TransactionRetryListener listener : transactionRetryListeners) {
+      connection.removeTransactionRetryListener(listener);
+    }
+    pool.release(connectionOptions, connection);
+    return true;
+  }
+
+  private Connection lease() {
+    Connection connection = leased;
+    if (connection != null) {
+      return connection;
+    }
+    connection = pool.acquire(connectionOptions);
+    try {
+      for (TransactionRetryListener listener : transactionRetryListeners) {
+        connection.addTransactionRetryListener(listener);
+      }
+      applySettings(connection);
+    } catch (Throwable throwable) {
+      pool.discard(connection);
+      throw throwable;
+    }
+    this.leased = connection;
+    return connection;
+  }
+
+  private void applySettings(Connection connection) {
+    for (Setting setting : settings.values()) {
+      setting.apply(connection);
+    }
+  }
+
+  private void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (!releaseIfIdle()) {
+      // Closing the Spanner connection rolls back any active transaction. The connection is not
+      // returned to the pool, as it is not known what state it is in.
+      Connection connection = leased;
+      this.leased = null;
+      pool.discard(connection);
+    }
+  }
+
+  private void recordSetting(Statement statement) {
+    ParsedStatement parsedStatement =
+        AbstractStatementParser.getInstance(Dialect.POSTGRESQL).parse(statement);
+    if (parsedStatement.getType() != StatementType.CLIENT_SIDE) {
+      return;
+    }
+    ClientSideStatementType type = parsedStatement.getClientSideStatementType();
+    if (type == ClientSideStatementType.RESET_ALL) {
+      settings.clear();
+      idleState.clear();
+    } else if (type.name().startsWith("SET_") && !TRANSACTION_SETTINGS.contains(type)) {
+      putSetting(type, connection -> connection.execute(statement));
+    }
+  }
+
+  /**
+   * Returns true if the given method changes a setting of the connection that should be re-applied
+   * when a new Spanner connection is leased.
+   */
+  private static boolean isSetter(Method method) {
+    String name = method.getName();
+    if ("clearStatementTimeout".equals(name)) {
+      return true;
+    }
+    return method.getParameterCount() > 0
+        && name.startsWith("set")
+        && !TRANSACTION_SETTERS.contains(name);
+  }
+
+  private void recordSetter(Method method, Object[] args) {
+    String name = method.getName();
+    // A setter and the corresponding clear method change the same property.
+    String property = name.startsWith("set") ? name.substring(3) : name.substring(5);
+    Object[] arguments = args == null ? null : args.clone();
+    putSetting(
+        property,
+        connection -> {
+          try {
+            method.invoke(connection, arguments);
+          } catch (InvocationTargetException invocationTargetException) {
+            Throwables.throwIfUnchecked(invocationTargetException.getCause());
+            throw SpannerExceptionFactory.asSpannerException(invocationTargetException.getCause());
+          } catch (IllegalAccessException illegalAccessException) {
+            throw SpannerExceptionFactory.asSpannerException(illegalAccessException);
+          }
+        });
+  }
+
+  private void putSetting(Object key, Setting setting) {
+    // Remove any previous value first, so the settings are re-applied in the order in which they
+    // were last set.
+    settings.remove(key);
+    settings.put(key, setting);
+    idleState.clear();
+  }
+
+  private static boolean isStateGetter(Method method) {
+    String name = method.getName();
+    return method.getParameterCount() == 0
+        && (name.startsWith("get") || name.startsWith("is"))
+        && !RESULT_GETTERS.contains(name);
+  }
+
+  /**
+   * Returns the value of the given getter for a Spanner connection that has the default settings
+   * and the recorded settings of this connection, without leasing a connection from the pool.
+   */
+  private Object getIdleState(Method method) throws Throwable {
+    String name = method.getName();
+    if (idleState.containsKey(name)) {
+      return idleState.get(name);
+    }
+    Connection connection = pool.getSettingsConnection(connectionOptions);
+    Object result;
+    synchronized (connection) {
+      connection.reset();
+      connection.setSavepointSupport(SavepointSupport.ENABLED);
+      applySettings(connection);
+      try {
+        result = method.invoke(connection);
+      } catch (InvocationTargetException invocationTargetException) {
+        throw invocationTargetException.getCause();
+      }
+    }
+    idleState.put(name, result);
+    return result;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "PooledConnection{leased=" + leased + "}";
+      case "close":
+        close();
+        return null;
+      case "closeAsync":
+        close();
+        return ApiFutures.immediateFuture(null);
+      case "isClosed":
+        return closed;
+      case "addTransactionRetryListener":
+        transactionRetryListeners.add((TransactionRetryListener) args[0]);
+        if (leased != null) {
+          leased.addTransactionRetryListener((TransactionRetryListener) args[0]);
+        }
+        return null;
+      case "removeTransactionRetryListener":
+        if (leased != null) {
+          leased.removeTransactionRetryListener((TransactionRetryListener) args[0]);
+        }
+        return transactionRetryListeners.remove((TransactionRetryListener) args[0]);
+      case "cancel":
+        // Cancel is called from a different thread, and should never lease a connection.
+        Connection connection = leased;
+        if (connection != null) {
+          connection.cancel();
+        }
+        return null;
+      case "reset":
+        settings.clear();
+        idleState.clear();
+        if (leased != null) {
+          leased.reset();
+        }
+        return null;
+      default:
+        if (closed) {
+          throw SpannerExceptionFactory.newSpannerException(
+              ErrorCode.FAILED_PRECONDITION, "This connection has been closed");
+        }
+        if (leased == null && isStateGetter(method)) {
+          return getIdleState(method);
+        }
+        try {
+          Object result = method.invoke(lease(), args);
+          if ("execute".equals(method.getName())
+              && args != null
+              && args.length == 1
+              && args[0] instanceof Statement) {
+            recordSetting((Statement) args[0]);
+          } else if (isSetter(method)) {
+            recordSetter(method, args);
+          }
+          return result;
+        } catch (InvocationTargetException invocationTargetException) {
+          throw invocationTargetException.getCause();
+        }
+    }
+  }
+}
@@ -0,0 +1,435 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.common.base.Preconditions;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nullable;
+
+/**
+ * {@link InputStream} that is fed with chunks of data by a producer thread (e.g. the selector
+ * thread of the non-blocking front-end, or a connection thread that receives COPY data) and read by
+ * a consumer thread. Reads block until data is available or the end of the stream has been reached.
+ * The stream does not allocate a fixed buffer and does not copy the chunks that are added to it,
+ * which means that an idle stream does not occupy any memory for buffering.
+ *
+ * <p>Producers can either use {@link #append(byte[])}, which never blocks and returns false when
+ * the producer should pause, or {@link #put(byte[])}, which blocks until the consumer has made room
+ * in the stream. A producer that reads into a reusable buffer, such as the selector thread, can use
+ * {@link #append(ByteBuffer)} instead. This copies the data into chunks that are borrowed from a
+ * {@link ChunkPool}, and that are returned to the pool as soon as the consumer has read them. Small
+ * amounts of data are appended to the last chunk that has not yet been taken by the consumer, so a
+ * backlog of small reads does not occupy one chunk per read.
+ *
+ * <p>The stream supports mark/reset so it can be used directly by a {@link java.io.DataInputStream}
+ * that needs to peek at the next byte. The stream supports one consumer thread. The consumer takes
+ * all chunks that have been added by the producer at once, and copies the data from these chunks
+ * without holding the lock of the stream, so the producer is not blocked while the consumer reads.
+ */
+@InternalApi
+public class QueuedInputStream extends InputStream {
+
+  /** Pool of fixed-size chunks that can be shared by multiple streams. */
+  @InternalApi
+  public static class ChunkPool {
+    private final ConcurrentLinkedQueue<Chunk> chunks = new ConcurrentLinkedQueue<>();
+    private final int chunkSize;
+
+    public ChunkPool(int chunkSize) {
+      Preconditions.checkArgument(chunkSize > 0, "chunkSize must be positive");
+      this.chunkSize = chunkSize;
+    }
+
+    Chunk acquire() {
+      Chunk chunk = chunks.poll();
+      if (chunk == null) {
+        return new Chunk(new byte[chunkSize], 0, this);
+      }
+      return chunk;
+    }
+
+    void release(Chunk chunk) {
+      chunk.length = 0;
+      chunks.offer(chunk);
+    }
+
+    /** Returns the number of idle chunks in this pool. */
+    public int getIdleChunkCount() {
+      return chunks.size();
+    }
+  }
+
+  /** The data of a chunk. Only the first {@link #length} bytes of the array contain data. */
+  static final class Chunk {
+    private final byte[] data;
+    private final ChunkPool pool;
+    private int length;
+
+    private Chunk(byte[] data, int length, ChunkPool pool) {
+      this.data = data;
+      this.length = length;
+      this.pool = pool;
+    }
+
+    private boolean hasRoom() {
+      return pool != null && length < data.length;
+    }
+
+    private void release() {
+      if (pool != null) {
+        pool.release(this);
+      }
+    }
+  }
+
+  private final int maxBufferedBytes;
+  private final ChunkPool pool;
+  private final Runnable resumeCallback;
+
+  /** The chunks that have been added by the producer. Guarded by the lock of this stream. */
+  private ArrayDeque<Chunk> chunks = new ArrayDeque<>();
+
+  // The following fields are only accessed by the consumer.
+  private ArrayDeque<Chunk> readQueue = new ArrayDeque<>();
+  private Chunk current;
+  private int currentPosition;
+  private ByteArrayOutputStream markBuffer;
+  private int markLimit;
+
+  private long buffered;
+  private long position;
+  private boolean endOfStream;
+  private boolean closed;
+  private boolean suspended;
+  private int waitingProducers;
+  private boolean consumerWaiting;
+
+  /**
+   * Creates a new stream.
+   *
+   * @param maxBufferedBytes the number of bytes that may be buffered before the producer should
+   *     stop reading data from the client. {@link #append(byte[])} returns false when this limit
+   *     has been exceeded.
+   * @param resumeCallback the callback that is invoked when the producer may resume reading data
+   *     after the limit had been exceeded.
+   */
+  public QueuedInputStream(int maxBufferedBytes, Runnable resumeCallback) {
+    this(maxBufferedBytes, null, resumeCallback);
+  }
+
+  /**
+   * Creates a new stream that copies the data that is added with {@link #append(ByteBuffer)} into
+   * chunks from the given pool.
+   *
+   * @param maxBufferedBytes the number of bytes that may be buffered before the producer should
+   *     stop reading data from the client
+   * @param pool the pool that chunks are borrowed from, or null if this stream only accepts chunks
+   *     that are added as arrays
+   * @param resumeCallback the callback that is invoked when the producer may resume reading data
+   *     after the limit had been exceeded.
+   */
+  public QueuedInputStream(
+      int maxBufferedBytes, @Nullable ChunkPool pool, Runnable resumeCallback) {
+    Preconditions.checkArgument(maxBufferedBytes > 0, "maxBufferedBytes must be positive");
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.pool = pool;
+    this.resumeCallback = Preconditions.checkNotNull(resumeCallback);
+  }
+
+  /**
+   * Creates a new stream for a producer that uses {@link #put(byte[])} to add data to the stream.
+   *
+   * @param maxBufferedBytes the number of bytes that may be buffered before {@link #put(byte[])}
+   *     blocks
+   */
+  public QueuedInputStream(int maxBufferedBytes) {
+    this(maxBufferedBytes, () -> {});
+  }
+
+  /**
+   * Appends a chunk of data to this stream. Returns false if the producer should stop adding more
+   * data until the resume callback is invoked.
+   */
+  public synchronized boolean append(byte[] chunk) {
+    if (closed || endOfStream) {
+      return true;
+    }
+    if (chunk.length > 0) {
+      chunks.addLast(new Chunk(chunk, chunk.length, null));
+    }
+    return added(chunk.length);
+  }
+
+  /**
+   * Copies the remaining bytes of the given buffer to this stream, and moves the position of the
+   * buffer to its limit. The data is copied into chunks from the pool of this stream, so the caller
+   * may reuse the buffer. Returns false if the producer should stop adding more data until the
+   * resume callback is invoked.
+   */
+  public synchronized boolean append(ByteBuffer data) {
+    Preconditions.checkState(pool != null, "This stream does not have a chunk pool");
+    if (closed || endOfStream) {
+      return true;
+    }
+    int length = data.remaining();
+    while (data.hasRemaining()) {
+      Chunk tail = chunks.peekLast();
+      if (tail == null || !tail.hasRoom()) {
+        tail = pool.acquire();
+        chunks.addLast(tail);
+      }
+      int n = Math.min(data.remaining(), tail.data.length - tail.length);
+      data.get(tail.data, tail.length, n);
+      tail.length += n;
+    }
+    return added(length);
+  }
+
+  private boolean added(int length) {
+    if (length > 0) {
+      buffered += length;
+      if (consumerWaiting) {
+        notifyAll();
+      }
+    }
+    if (buffered > maxBufferedBytes) {
+      suspended = true;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Appends a chunk of data to this stream. This method blocks until the number of buffered bytes
+   * is below the limit of this stream. The chunk is not copied, and the caller may not modify it
+   * after calling this method. The chunk is silently ignored if the stream has been closed.
+   *
+   * @throws InterruptedIOException if the thread is interrupted while waiting for room in the
+   *     stream
+   */
+  public synchronized void put(byte[] chunk) throws InterruptedIOException {
+    while (!closed && !endOfStream && buffered >= maxBufferedBytes) {
+      waitingProducers++;
+      try {
+        wait();
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for room in the stream");
+      } finally {
+        waitingProducers--;
+      }
+    }
+    append(chunk);
+  }
+
+  /** Marks this stream as finished. Readers receive -1 once all buffered data has been read. */
+  public synchronized void endOfStream() {
+    endOfStream = true;
+    notifyAll();
+  }
+
+  /** Returns true if the end of the stream has been reached by the producer. */
+  public synchronized boolean isEndOfStream() {
+    return endOfStream || closed;
+  }
+
+  /** Returns the total number of bytes that have been consumed from this stream. */
+  public synchronized long getPosition() {
+    return position;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!awaitData()) {
+      return -1;
+    }
+    int result = current.data[currentPosition] & 0xff;
+    addToMark(current.data, currentPosition, 1);
+    currentPosition++;
+    consumed(1);
+    return result;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    Preconditions.checkPositionIndexes(offset, offset + length, buffer.length);
+    if (length == 0) {
+      return 0;
+    }
+    if (!awaitData()) {
+      return -1;
+    }
+    int read = 0;
+    // The data is copied without holding the lock of this stream, so a producer can add data to
+    // the stream at the same time.
+    while (read < length && (hasLocalData() || takeQueuedChunks())) {
+      int n = Math.min(length - read, current.length - currentPosition);
+      System.arraycopy(current.data, currentPosition, buffer, offset + read, n);
+      addToMark(current.data, currentPosition, n);
+      currentPosition += n;
+      read += n;
+    }
+    consumed(read);
+    return read;
+  }
+
+  @Override
+  public synchronized int available() {
+    return (int) Math.min(Integer.MAX_VALUE, buffered);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int readLimit) {
+    this.markBuffer = new ByteArrayOutputStream(Math.min(readLimit, 64));
+    this.markLimit = readLimit;
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (markBuffer == null) {
+      throw new IOException("Resetting to invalid mark");
+    }
+    byte[] replay = markBuffer.toByteArray();
+    markBuffer = null;
+    if (replay.length > 0) {
+      if (current != null) {
+        if (currentPosition < current.length) {
+          byte[] remaining = new byte[current.length - currentPosition];
+          System.arraycopy(current.data, currentPosition, remaining, 0, remaining.length);
+          readQueue.addFirst(new Chunk(remaining, remaining.length, null));
+        }
+        current.release();
+      }
+      current = new Chunk(replay, replay.length, null);
+      currentPosition = 0;
+      synchronized (this) {
+        buffered += replay.length;
+        position -= replay.length;
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    chunks.clear();
+    buffered = 0L;
+    notifyAll();
+  }
+
+  /**
+   * Returns true if the consumer has data that it can read without taking the lock. Chunks that
+   * have been read completely are returned to their pool.
+   */
+  private boolean hasLocalData() {
+    while (current == null || currentPosition == current.length) {
+      if (current != null) {
+        current.release();
+      }
+      current = readQueue.pollFirst();
+      currentPosition = 0;
+      if (current == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves all chunks that have been added by the producer to the queue of the consumer. This is
+   * only called when the queue of the consumer is empty, which means that the two queues can just
+   * be swapped.
+   */
+  private synchronized boolean takeQueuedChunks() {
+    if (closed || chunks.isEmpty()) {
+      return false;
+    }
+    ArrayDeque<Chunk> empty = readQueue;
+    readQueue = chunks;
+    chunks = empty;
+    return hasLocalData();
+  }
+
+  private synchronized boolean awaitData() throws IOException {
+    while (true) {
+      if (closed) {
+        readQueue.clear();
+        current = null;
+        return false;
+      }
+      if (hasLocalData() || takeQueuedChunks()) {
+        return true;
+      }
+      if (endOfStream) {
+        return false;
+      }
+      consumerWaiting = true;
+      try {
+        wait();
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for data");
+      } finally {
+        consumerWaiting = false;
+      }
+    }
+  }
+
+  private void addToMark(byte[] source, int offset, int length) {
+    if (markBuffer != null) {
+      if (markBuffer.size() + length > markLimit) {
+        markBuffer = null;
+      } else {
+        markBuffer.write(source, offset, length);
+      }
+    }
+  }
+
+  private synchronized void consumed(int length) {
+    if (closed) {
+      return;
+    }
+    buffered -= length;
+    position += length;
+    maybeResumeProducer();
+  }
+
+  private void maybeResumeProducer() {
+    // A producer that is blocked in put(..) is woken up as soon as there is room in the stream, so
+    // the consumer does not run out of data while the producer is waking up.
+    if (waitingProducers > 0 && buffered < maxBufferedBytes) {
+      notifyAll();
+    }
+    // A suspended producer is only resumed when at least half of the buffered data has been
+    // consumed. This prevents the selector from registering and unregistering interest in reading
+    // for every chunk of data.
+    if (suspended && buffered <= maxBufferedBytes / 2) {
+      suspended = false;
+      resumeCallback.run();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import com.google.cloud.spanner.connection.SavepointSupport;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-wide pool of Spanner {@link Connection}s that is used in transaction pooling mode. Each
+ * client connection is given a {@link PooledConnection} instead of its own Spanner connection. The
+ * pooled connection leases a real Spanner connection from this pool when it is first used, and
+ * returns it when the client connection becomes idle. The number of leased connections is limited
+ * to the size of the pool.
+ *
+ * <p>Idle connections are kept per set of {@link ConnectionOptions}, as a Spanner connection can
+ * only be used for the database that it was created for.
+ */
+@InternalApi
+public class SpannerConnectionPool implements AutoCloseable {
+  private static final Logger logger = Logger.getLogger(SpannerConnectionPool.class.getName());
+
+  /** The default maximum time to wait for a connection to become available. */
+  public static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(60L);
+
+  private final int maxSize;
+  private final Duration acquireTimeout;
+  private final Semaphore permits;
+  private final Map<String, Deque<Connection>> idleConnections = new ConcurrentHashMap<>();
+  private final Map<String, Connection> settingsConnections = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  public SpannerConnectionPool(int maxSize) {
+    this(maxSize, DEFAULT_ACQUIRE_TIMEOUT);
+  }
+
+  @VisibleForTesting
+  SpannerConnectionPool(int maxSize, Duration acquireTimeout) {
+    Preconditions.checkArgument(maxSize > 0, "The pool size must be positive");
+    this.maxSize = maxSize;
+    this.acquireTimeout = Preconditions.checkNotNull(acquireTimeout);
+    this.permits = new Semaphore(maxSize, true);
+  }
+
+  /**
+   * Creates a {@link Connection} for a client connection. The returned connection leases a Spanner
+   * connection from this pool when it is used, and only returns it when {@link
+   * PooledConnection#releaseIfIdle()} is called while the connection has no active transaction or
+   * batch.
+   */
+  public Connection createConnection(ConnectionOptions connectionOptions) {
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            new PooledConnection(this, connectionOptions));
+  }
+
+  /**
+   * Leases a Spanner connection for the given options. This method blocks until a connection is
+   * available, and throws a RESOURCE_EXHAUSTED error if no connection became available within the
+   * acquire timeout of the pool.
+   */
+  public Connection acquire(ConnectionOptions connectionOptions) {
+    if (closed) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION, "The connection pool has been closed");
+    }
+    try {
+      if (!permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.RESOURCE_EXHAUSTED,
+            String.format(
+                "Timed out after %dms while waiting for one of the %d pooled Spanner connections to become available",
+                acquireTimeout.toMillis(), maxSize));
+      }
+    } catch (InterruptedException interruptedException) {
+      throw SpannerExceptionFactory.propagateInterrupt(interruptedException);
+    }
+    try {
+      Connection connection = getIdleConnections(connectionOptions).pollFirst();
+      if (connection == null) {
+        connection = connectionOptions.getConnection();
+        connection.setSavepointSupport(SavepointSupport.ENABLED);
+      }
+      return connection;
+    } catch (Throwable throwable) {
+      permits.release();
+      throw throwable;
+    }
+  }
+
+  /**
+   * Returns a connection that was leased with {@link #acquire(ConnectionOptions)} to the pool. The
+   * connection is reset to the default settings of the given options before it is made available to
+   * other clients. The connection is closed instead if it cannot be reset, or if the pool has been
+   * closed.
+   */
+  public void release(ConnectionOptions connectionOptions, Connection connection) {
+    try {
+      if (closed || connection.isClosed()) {
+        closeQuietly(connection);
+        return;
+      }
+      try {
+        connection.reset();
+        connection.setSavepointSupport(SavepointSupport.ENABLED);
+      } catch (Throwable throwable) {
+        logger.log(Level.FINE, "Failed to reset pooled connection", throwable);
+        closeQuietly(connection);
+        return;
+      }
+      getIdleConnections(connectionOptions).offerFirst(connection);
+      if (closed) {
+        // The pool was closed while this connection was being returned.
+        closeIdleConnections();
+      }
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Gives back the lease of a connection without returning the connection to the pool. This is used
+   * for connections that are in an unknown state, and that therefore should not be reused.
+   */
+  public void discard(Connection connection) {
+    try {
+      closeQuietly(connection);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Returns a connection for the given options that is used to read the settings of client
+   * connections that do not hold a lease. This connection is not counted as a leased connection,
+   * and is never used to execute statements on Spanner. Callers must synchronize on the returned
+   * connection while they use it.
+   */
+  Connection getSettingsConnection(ConnectionOptions connectionOptions) {
+    if (closed) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.FAILED_PRECONDITION, "The connection pool has been closed");
+    }
+    return settingsConnections.computeIfAbsent(
+        connectionOptions.getUri(), ignore -> connectionOptions.getConnection());
+  }
+
+  private Deque<Connection> getIdleConnections(ConnectionOptions connectionOptions) {
+    return idleConnections.computeIfAbsent(
+        connectionOptions.getUri(), ignore -> new ConcurrentLinkedDeque<>());
+  }
+
+  /** Returns the maximum number of connections that can be leased at the same time. */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /** Returns the number of connections that are currently leased. */
+  public int getLeasedCount() {
+    return maxSize - permits.availablePermits();
+  }
+
+  /** Returns the number of connections that are currently idle in the pool. */
+  public int getIdleCount() {
+    int count = 0;
+    for (Deque<Connection> connections : idleConnections.values()) {
+      count += connections.size();
+    }
+    return count;
+  }
+
+  /**
+   * Closes all idle connections in this pool. Connections that are leased are closed when they are
+   * returned to the pool.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    closeIdleConnections();
+    for (Connection connection : settingsConnections.values()) {
+      closeQuietly(connection);
+    }
+    settingsConnections.clear();
+  }
+
+  private void closeIdleConnections() {
+    for (Deque<Connection> connections : idleConnections.values()) {
+      Connection connection;
+      while ((connection = connections.pollFirst()) != null) {
+        closeQuietly(connection);
+      }
+    }
+  }
+
+  private static void closeQuietly(Connection connection) {
+    try {
+      if (!connection.isClosed()) {
+        connection.close();
+      }
+    } catch (Throwable throwable) {
+      logger.log(Level.FINE, "Failed to close pooled connection", throwable);
+    }
+  }
+}
@@ -0,0 +1,707 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.parsers.DateTimeCodec;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.CsvCopyParser.CsvCopyRecord;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Implementation of {@link CopyInParser} for the PostgreSQL TEXT format. This parser works directly
+ * on the bytes of the incoming COPY data, instead of first decoding these into strings. Values for
+ * INT64, FLOAT64, BOOL, DATE and TIMESTAMP columns that are in the standard PostgreSQL text format
+ * are decoded directly from the bytes without creating intermediate string objects. All other
+ * values, and values that are not in the standard format, are decoded to a string first and then
+ * converted in the same way as by {@link CsvCopyParser}.
+ *
+ * <p>The escape sequences that are supported are the same as in PostgreSQL: backslash followed by
+ * b, f, n, r, t or v, octal escapes (backslash followed by one to three octal digits), and hex
+ * escapes (backslash followed by x and one or two hex digits). Any other character that follows a
+ * backslash is taken literally. A value is null if its raw (unescaped) content is equal to the null
+ * string.
+ *
+ * <p>The {@link CopyRecord} that is returned by the iterator of this parser is reused for all
+ * records, and is only valid until the next call to {@link Iterator#hasNext()}.
+ */
+class TextCopyParser implements CopyInParser {
+  private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+  private static final byte[] END_OF_DATA_MARKER = new byte[] {'\\', '.'};
+  /** Powers of ten that can be represented exactly as a double. */
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    POWERS_OF_TEN[0] = 1d;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10d;
+    }
+  }
+
+  private final SessionState sessionState;
+  private final InputStream inputStream;
+  private final byte delimiter;
+  private final byte[] nullString;
+  private final TextCopyRecord record = new TextCopyRecord();
+  /** The index of each column name, or null if the data does not have column names. */
+  @Nullable private final Map<String, Integer> columnIndexes;
+
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  /** The end of the valid data in the buffer. */
+  private int limit;
+  /** The start of the next record in the buffer. */
+  private int nextRecordStart;
+
+  private boolean endOfStream;
+  /** Indicates whether the current record has been read, but not yet returned by the iterator. */
+  private boolean hasPendingRecord;
+
+  /** The start of the current record in the buffer. */
+  private int recordStart;
+  /** The start and end offsets of each field of the current record in the buffer. */
+  private int[] fieldStarts = new int[16];
+
+  private int[] fieldEnds = new int[16];
+  private boolean[] fieldEscaped = new boolean[16];
+  private int numFields;
+  /** Buffer for the unescaped bytes of a field. */
+  private byte[] unescaped = new byte[64];
+
+  /**
+   * Returns true if data in the given format can be parsed by a {@link TextCopyParser}. This is the
+   * case for the PostgreSQL TEXT format with a single-byte delimiter.
+   */
+  static boolean isSupported(@Nullable CSVFormat format) {
+    if (format == null
+        || format.getQuoteCharacter() != null
+        || format.getNullString() == null
+        || !Character.valueOf('\\').equals(format.getEscapeCharacter())) {
+      return false;
+    }
+    String delimiter = format.getDelimiterString();
+    if (delimiter.length() != 1) {
+      return false;
+    }
+    char c = delimiter.charAt(0);
+    return c < 0x80 && c != '\\' && c != '\n' && c != '\r';
+  }
+
+  TextCopyParser(
+      SessionState sessionState, CSVFormat format, InputStream inputStream, boolean hasHeader)
+      throws IOException {
+    Preconditions.checkArgument(isSupported(format), "Unsupported format: %s", format);
+    this.sessionState = sessionState;
+    this.inputStream = Preconditions.checkNotNull(inputStream);
+    this.delimiter = (byte) format.getDelimiterString().charAt(0);
+    this.nullString = format.getNullString().getBytes(StandardCharsets.UTF_8);
+    this.columnIndexes = hasHeader ? readHeader(format) : null;
+  }
+
+  /**
+   * Returns the column names of the data. These are taken from the format if it contains explicit
+   * column names, and otherwise from the first record in the data. This follows the same rules as
+   * {@link org.apache.commons.csv.CSVParser}.
+   */
+  private Map<String, Integer> readHeader(CSVFormat format) throws IOException {
+    String[] names = format.getHeader();
+    if (names == null || names.length == 0 || format.getSkipHeaderRecord()) {
+      if (readRecord()) {
+        hasPendingRecord = false;
+        if (names == null || names.length == 0) {
+          names = new String[numFields];
+          for (int i = 0; i < numFields; i++) {
+            names[i] = record.getString(i);
+          }
+        }
+      }
+    }
+    Map<String, Integer> columnIndexes = new HashMap<>();
+    if (names != null) {
+      for (int i = 0; i < names.length; i++) {
+        columnIndexes.put(names[i], i);
+      }
+    }
+    return columnIndexes;
+  }
+
+  @Override
+  public Iterator<CopyRecord> iterator() {
+    return new Iterator<CopyRecord>() {
+      @Override
+      public boolean hasNext() {
+        if (!hasPendingRecord) {
+          try {
+            hasPendingRecord = readRecord();
+          } catch (IOException ioException) {
+            throw new IllegalStateException(ioException);
+          }
+        }
+        return hasPendingRecord;
+      }
+
+      @Override
+      public CopyRecord next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        hasPendingRecord = false;
+        return record;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    inputStream.close();
+  }
+
+  /**
+   * Reads the next record into the buffer and determines the boundaries of the fields in the
+   * record. Returns false if the end of the stream has been reached.
+   */
+  private boolean readRecord() throws IOException {
+    recordStart = nextRecordStart;
+    numFields = 0;
+    int fieldStart = recordStart;
+    boolean escaped = false;
+    int position = recordStart;
+    while (true) {
+      while (position < limit) {
+        byte b = buffer[position];
+        if (b == '\\') {
+          if (position + 1 == limit && !endOfStream) {
+            // We need the next byte to know what is being escaped.
+            break;
+          }
+          escaped = true;
+          position += 2;
+        } else if (b == delimiter) {
+          addField(fieldStart, position, escaped);
+          escaped = false;
+          fieldStart = ++position;
+        } else if (b == '\n' || b == '\r') {
+          int end = position;
+          if (b == '\r') {
+            if (position + 1 == limit && !endOfStream) {
+              // We need the next byte to know whether this is a \r\n line ending.
+              break;
+            }
+            if (position + 1 < limit && buffer[position + 1] == '\n') {
+              position++;
+            }
+          }
+          addField(fieldStart, end, escaped);
+          nextRecordStart = position + 1;
+          return true;
+        } else {
+          position++;
+        }
+      }
+      if (endOfStream) {
+        if (position == recordStart) {
+          nextRecordStart = recordStart;
+          return false;
+        }
+        // The last record does not need to be terminated by a newline.
+        addField(fieldStart, Math.min(position, limit), escaped);
+        nextRecordStart = limit;
+        return true;
+      }
+      // Move the current record to the start of the buffer and read more data.
+      int shift = recordStart;
+      if (shift > 0) {
+        System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+        limit -= shift;
+        position -= shift;
+        fieldStart -= shift;
+        recordStart = 0;
+        for (int i = 0; i < numFields; i++) {
+          fieldStarts[i] -= shift;
+          fieldEnds[i] -= shift;
+        }
+      } else if (limit == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      int read = inputStream.read(buffer, limit, buffer.length - limit);
+      if (read == -1) {
+        endOfStream = true;
+      } else {
+        limit += read;
+      }
+    }
+  }
+
+  private void addField(int start, int end, boolean escaped) {
+    if (numFields == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, numFields * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, numFields * 2);
+      fieldEscaped = Arrays.copyOf(fieldEscaped, numFields * 2);
+    }
+    fieldStarts[numFields] = start;
+    fieldEnds[numFields] = end;
+    fieldEscaped[numFields] = escaped;
+    numFields++;
+  }
+
+  /** {@link CopyRecord} that reads its values directly from the buffer of the parser. */
+  private final class TextCopyRecord implements CopyRecord {
+    @Override
+    public int numColumns() {
+      return numFields;
+    }
+
+    @Override
+    public boolean isEndRecord() {
+      return numFields == 1 && rawEquals(0, END_OF_DATA_MARKER);
+    }
+
+    @Override
+    public boolean hasColumnNames() {
+      return columnIndexes != null;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+      return rawEquals(columnIndex, nullString);
+    }
+
+    @Override
+    public Value getValue(Type type, String columnName) {
+      Preconditions.checkState(hasColumnNames(), "This record does not have column names");
+      Integer index = columnIndexes.get(columnName);
+      if (index == null) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Mapping for %s not found, expected one of %s",
+                columnName, columnIndexes.keySet()));
+      }
+      return getValue(type, index);
+    }
+
+    @Override
+    public Value getValue(Type type, int columnIndex) {
+      checkIndex(columnIndex);
+      if (isNull(columnIndex)) {
+        return CsvCopyRecord.getSpannerValue(sessionState, type, null);
+      }
+      Value value = null;
+      if (!fieldEscaped[columnIndex]) {
+        int start = fieldStarts[columnIndex];
+        int end = fieldEnds[columnIndex];
+        switch (type.getCode()) {
+          case BOOL:
+            value = parseBool(buffer, start, end);
+            break;
+          case INT64:
+            value = parseInt64(buffer, start, end);
+            break;
+          case FLOAT64:
+            value = parseFloat64(buffer, start, end);
+            break;
+          case DATE:
+            value = parseDate(buffer, start, end);
+            break;
+          case TIMESTAMP:
+            value = parseTimestamp(buffer, start, end);
+            break;
+          default:
+            break;
+        }
+      }
+      if (value != null) {
+        return value;
+      }
+      // Fall back to the generic conversion. This also ensures that invalid values generate the
+      // same errors as for the CSV format.
+      return CsvCopyRecord.getSpannerValue(sessionState, type, getString(columnIndex));
+    }
+
+    private String getString(int columnIndex) {
+      checkIndex(columnIndex);
+      int start = fieldStarts[columnIndex];
+      int end = fieldEnds[columnIndex];
+      if (!fieldEscaped[columnIndex]) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+      }
+      int length = unescape(start, end);
+      return new String(unescaped, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int columnIndex) {
+      if (columnIndex < 0 || columnIndex >= numFields) {
+        throw new ArrayIndexOutOfBoundsException(
+            String.format(
+                "Index for header '%s' is %d but CSVRecord only has %d values!",
+                columnIndex, columnIndex, numFields));
+      }
+    }
+
+    private boolean rawEquals(int columnIndex, byte[] value) {
+      checkIndex(columnIndex);
+      int start = fieldStarts[columnIndex];
+      int length = fieldEnds[columnIndex] - fieldStarts[columnIndex];
+      if (length != value.length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (buffer[start + i] != value[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Decodes the escape sequences in the given range of the buffer into the unescaped buffer and
+   * returns the number of bytes that were written.
+   */
+  private int unescape(int start, int end) {
+    if (unescaped.length < end - start) {
+      unescaped = new byte[Math.max(end - start, unescaped.length * 2)];
+    }
+    int length = 0;
+    int position = start;
+    while (position < end) {
+      byte b = buffer[position++];
+      if (b != '\\' || position == end) {
+        unescaped[length++] = b;
+        continue;
+      }
+      b = buffer[position++];
+      switch (b) {
+        case '0':
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7':
+          int octal = b - '0';
+          for (int i = 0; i < 2 && position < end && isOctalDigit(buffer[position]); i++) {
+            octal = (octal << 3) + (buffer[position++] - '0');
+          }
+          unescaped[length++] = (byte) octal;
+          break;
+        case 'x':
+          if (position < end && hexValue(buffer[position]) >= 0) {
+            int hex = hexValue(buffer[position++]);
+            if (position < end && hexValue(buffer[position]) >= 0) {
+              hex = (hex << 4) + hexValue(buffer[position++]);
+            }
+            unescaped[length++] = (byte) hex;
+          } else {
+            unescaped[length++] = b;
+          }
+          break;
+        case 'b':
+          unescaped[length++] = '\b';
+          break;
+        case 'f':
+          unescaped[length++] = '\f';
+          break;
+        case 'n':
+          unescaped[length++] = '\n';
+          break;
+        case 'r':
+          unescaped[length++] = '\r';
+          break;
+        case 't':
+          unescaped[length++] = '\t';
+          break;
+        case 'v':
+          unescaped[length++] = 0x0b;
+          break;
+        default:
+          unescaped[length++] = b;
+      }
+    }
+    return length;
+  }
+
+  private static boolean isOctalDigit(byte b) {
+    return b >= '0' && b <= '7';
+  }
+
+  private static int hexValue(byte b) {
+    if (b >= '0' && b <= '9') {
+      return b - '0';
+    } else if (b >= 'a' && b <= 'f') {
+      return b - 'a' + 10;
+    } else if (b >= 'A' && b <= 'F') {
+      return b - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /** Parses the most common boolean literals, or returns null for any other value. */
+  @VisibleForTesting
+  @Nullable
+  static Value parseBool(byte[] data, int start, int end) {
+    if (end - start == 1) {
+      switch (data[start]) {
+        case 't':
+        case 'T':
+        case '1':
+          return Value.bool(true);
+        case 'f':
+        case 'F':
+        case '0':
+          return Value.bool(false);
+        default:
+          return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parses an optionally signed decimal integer, or returns null if the value is not a valid
+   * integer or does not fit in a long.
+   */
+  @VisibleForTesting
+  @Nullable
+  static Value parseInt64(byte[] data, int start, int end) {
+    int position = start;
+    boolean negative = false;
+    if (position < end && (data[position] == '-' || data[position] == '+')) {
+      negative = data[position] == '-';
+      position++;
+    }
+    if (position == end || end - position > 19) {
+      return null;
+    }
+    // Accumulate the value as a negative number, as the range of negative longs is larger.
+    long result = 0L;
+    for (; position < end; position++) {
+      int digit = data[position] - '0';
+      if (digit < 0 || digit > 9) {
+        return null;
+      }
+      if (result < (Long.MIN_VALUE + digit) / 10) {
+        return null;
+      }
+      result = result * 10 - digit;
+    }
+    if (!negative) {
+      if (result == Long.MIN_VALUE) {
+        return null;
+      }
+      result = -result;
+    }
+    return Value.int64(result);
+  }
+
+  /**
+   * Parses a decimal floating point number with at most 15 significant digits and a small exponent,
+   * or returns null for any other value. Numbers in this range can be converted exactly by a single
+   * multiplication or division with an exact power of ten, which gives the same result as {@link
+   * Double#parseDouble(String)}.
+   */
+  @VisibleForTesting
+  @Nullable
+  static Value parseFloat64(byte[] data, int start, int end) {
+    int position = start;
+    boolean negative = false;
+    if (position < end && (data[position] == '-' || data[position] == '+')) {
+      negative = data[position] == '-';
+      position++;
+    }
+    long mantissa = 0L;
+    int digits = 0;
+    int significantDigits = 0;
+    int exponent = 0;
+    boolean seenDot = false;
+    for (; position < end; position++) {
+      byte b = data[position];
+      if (b >= '0' && b <= '9') {
+        digits++;
+        if (mantissa != 0L || b != '0') {
+          if (++significantDigits > 15) {
+            return null;
+          }
+        }
+        mantissa = mantissa * 10 + (b - '0');
+        if (seenDot) {
+          exponent--;
+        }
+      } else if (b == '.' && !seenDot) {
+        seenDot = true;
+      } else {
+        break;
+      }
+    }
+    if (digits == 0) {
+      return null;
+    }
+    if (position < end) {
+      if (data[position] != 'e' && data[position] != 'E') {
+        return null;
+      }
+      position++;
+      boolean negativeExponent = false;
+      if (position < end && (data[position] == '-' || data[position] == '+')) {
+        negativeExponent = data[position] == '-';
+        position++;
+      }
+      if (position == end || end - position > 3) {
+        return null;
+      }
+      int explicitExponent = 0;
+      for (; position < end; position++) {
+        int digit = data[position] - '0';
+        if (digit < 0 || digit > 9) {
+          return null;
+        }
+        explicitExponent = explicitExponent * 10 + digit;
+      }
+      exponent += negativeExponent ? -explicitExponent : explicitExponent;
+    }
+    if (exponent < -22 || exponent > 22) {
+      return null;
+    }
+    double value = mantissa;
+    if (exponent < 0) {
+      value /= POWERS_OF_TEN[-exponent];
+    } else {
+      value *= POWERS_OF_TEN[exponent];
+    }
+    return Value.float64(negative ? -value : value);
+  }
+
+  /** Parses a date in the format yyyy-MM-dd, or returns null for any other value. */
+  @VisibleForTesting
+  @Nullable
+  static Value parseDate(byte[] data, int start, int end) {
+    if (end - start != 10 || data[start + 4] != '-' || data[start + 7] != '-') {
+      return null;
+    }
+    int year = parseDigits(data, start, 4);
+    int month = parseDigits(data, start + 5, 2);
+    int day = parseDigits(data, start + 8, 2);
+    if (!DateTimeCodec.isValidDate(year, month, day)) {
+      return null;
+    }
+    return Value.date(Date.fromYearMonthDay(year, month, day));
+  }
+
+  /**
+   * Parses a timestamp in the format yyyy-MM-dd HH:mm:ss[.fffffffff](+|-)HH[:mm] or with a 'Z' as
+   * the offset, or returns null for any other value. Timestamps without an explicit offset are not
+   * parsed by this method, as these must be interpreted in the timezone of the session.
+   */
+  @VisibleForTesting
+  @Nullable
+  static Value parseTimestamp(byte[] data, int start, int end) {
+    int length = end - start;
+    if (length < 20
+        || data[start + 4] != '-'
+        || data[start + 7] != '-'
+        || (data[start + 10] != ' ' && data[start + 10] != 'T')
+        || data[start + 13] != ':'
+        || data[start + 16] != ':') {
+      return null;
+    }
+    int year = parseDigits(data, start, 4);
+    int month = parseDigits(data, start + 5, 2);
+    int day = parseDigits(data, start + 8, 2);
+    int hour = parseDigits(data, start + 11, 2);
+    int minute = parseDigits(data, start + 14, 2);
+    int second = parseDigits(data, start + 17, 2);
+    if (!DateTimeCodec.isValidDate(year, month, day) || hour > 23 || minute > 59 || second > 59) {
+      return null;
+    }
+    int position = start + 19;
+    int nanos = 0;
+    if (data[position] == '.') {
+      position++;
+      int fractionDigits = 0;
+      while (position < end && data[position] >= '0' && data[position] <= '9') {
+        if (++fractionDigits > 9) {
+          return null;
+        }
+        nanos = nanos * 10 + (data[position++] - '0');
+      }
+      if (fractionDigits == 0) {
+        return null;
+      }
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+    int offsetSeconds;
+    if (position == end) {
+      return null;
+    } else if (data[position] == 'Z' && position + 1 == end) {
+      offsetSeconds = 0;
+    } else if (data[position] == '+' || data[position] == '-') {
+      int sign = data[position] == '-' ? -1 : 1;
+      int remaining = end - position - 1;
+      int offsetHours;
+      int offsetMinutes = 0;
+      if (remaining == 2) {
+        offsetHours = parseDigits(data, position + 1, 2);
+      } else if (remaining == 5 && data[position + 3] == ':') {
+        offsetHours = parseDigits(data, position + 1, 2);
+        offsetMinutes = parseDigits(data, position + 4, 2);
+      } else {
+        return null;
+      }
+      if (offsetHours < 0 || offsetHours > 15 || offsetMinutes < 0 || offsetMinutes > 59) {
+        return null;
+      }
+      offsetSeconds = sign * (offsetHours * 3600 + offsetMinutes * 60);
+    } else {
+      return null;
+    }
+    long seconds =
+        DateTimeCodec.daysSinceEpoch(year, month, day) * 86400L
+            + hour * 3600L
+            + minute * 60L
+            + second
+            - offsetSeconds;
+    return Value.timestamp(Timestamp.ofTimeSecondsAndNanos(seconds, nanos));
+  }
+
+  /**
+   * Parses the given number of decimal digits, or returns -1 if any of the bytes is not a digit.
+   */
+  private static int parseDigits(byte[] data, int start, int count) {
+    int result = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = data[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      result = result * 10 + digit;
+    }
+    return result;
+  }
+}
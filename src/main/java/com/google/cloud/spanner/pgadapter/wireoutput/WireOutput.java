@@ -76,6 +76,16 @@ public abstract class WireOutput {
     }
   }
 
+  /**
+   * Writes this message to the given stream instead of the stream that it was created with, without
+   * flushing the stream. This is used to encode messages into a buffer that is written to the
+   * client at a later moment.
+   */
+  public void writeTo(DataOutputStream output) throws Exception {
+    this.outputStream = output;
+    send(false);
+  }
+
   /**
    * Override this method to include post-processing and metadata in the sending process. Template
    * method for send.
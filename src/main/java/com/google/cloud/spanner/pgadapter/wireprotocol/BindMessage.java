@@ -19,6 +19,7 @@ import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePreparedStatement;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.cloud.spanner.pgadapter.wireoutput.BindCompleteResponse;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -50,11 +51,13 @@ public class BindMessage extends AbstractQueryProtocolMessage {
     this.formatCodes = getFormatCodes(this.inputStream);
     this.parameters = getParameters(this.inputStream);
     this.resultFormatCodes = getFormatCodes(this.inputStream);
+    long bindStartNanos = System.nanoTime();
     IntermediatePreparedStatement statement = connection.getStatement(statementName);
     this.statement =
         statement.createPortal(
             this.portalName, this.parameters, this.formatCodes, this.resultFormatCodes);
     this.connection.registerPortal(this.portalName, this.statement);
+    connection.recordPhaseLatency(Phase.BIND, System.nanoTime() - bindStartNanos);
   }
 
   /** Constructor for Bind messages that are constructed to execute a Query message. */
@@ -42,17 +42,21 @@ import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.utils.Converter;
 import com.google.cloud.spanner.pgadapter.utils.Logging;
 import com.google.cloud.spanner.pgadapter.utils.Logging.Action;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.cloud.spanner.pgadapter.wireoutput.CommandCompleteResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.EmptyQueryResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.ErrorResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.PortalSuspendedResponse;
 import com.google.cloud.spanner.pgadapter.wireoutput.WireOutput;
+import com.google.cloud.spanner.pgadapter.wireprotocol.PartitionedResultWriter.PartitionBuffer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.Context;
 import io.grpc.MethodDescriptor;
 import io.opentelemetry.api.trace.Span;
@@ -66,9 +70,11 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.threeten.bp.Duration;
 
 /**
@@ -117,6 +123,9 @@ public abstract class ControlMessage extends WireMessage {
   public static ControlMessage create(ConnectionHandler connection) throws Exception {
     boolean validMessage = true;
     char nextMsg = (char) connection.getConnectionMetadata().getInputStream().readUnsignedByte();
+    // The time that is spent waiting for the first byte of a message is not included in the decode
+    // phase, as that is the time that the client needs to send the next message.
+    long decodeStartNanos = System.nanoTime();
     try {
       if (connection.getStatus() == ConnectionStatus.COPY_IN) {
         switch (nextMsg) {
@@ -178,6 +187,7 @@ public abstract class ControlMessage extends WireMessage {
         }
       }
     } finally {
+      connection.recordPhaseLatency(Phase.DECODE, System.nanoTime() - decodeStartNanos);
       if (validMessage) {
         connection.clearInvalidMessageCount();
       } else {
@@ -355,6 +365,7 @@ public abstract class ControlMessage extends WireMessage {
       }
 
       sendSuffix(describedResult);
+      connection.recordRowsSent(describedResult.getSql(), rows);
       return new SendResultSetState(describedResult.getCommandTag(), rows, hasData);
     } finally {
       logger.log(Level.FINER, Logging.format("Send result", Action.Finished));
@@ -381,10 +392,8 @@ public abstract class ControlMessage extends WireMessage {
       BatchTransactionId batchTransactionId,
       List<Partition> partitions) {
     ListeningExecutorService executorService =
-        MoreExecutors.listeningDecorator(
-            Executors.newFixedThreadPool(
-                Math.min(8 * Runtime.getRuntime().availableProcessors(), partitions.size())));
-    List<ListenableFuture<Long>> futures = new ArrayList<>(partitions.size());
+        MoreExecutors.listeningDecorator(connection.getServer().getPartitionExecutor());
+    List<Callable<Long>> tasks = new ArrayList<>(partitions.size());
     Connection spannerConnection = connection.getSpannerConnection();
     Spanner spanner = spannerConnection.getSpanner();
     BatchClient batchClient = spanner.getBatchClient(connection.getDatabaseId());
@@ -405,38 +414,112 @@ public abstract class ControlMessage extends WireMessage {
         describedResult instanceof CopyToStatement && ((CopyToStatement) describedResult).isBinary()
             ? new CountDownLatch(1)
             : new CountDownLatch(0);
+    int bufferSize =
+        connection
+            .getExtendedQueryProtocolHandler()
+            .getBackendConnection()
+            .getSessionState()
+            .getPartitionedQueryBufferSize();
+    PartitionedResultWriter writer =
+        bufferSize > 0
+            ? new PartitionedResultWriter(
+                connection.getConnectionMetadata().getOutputStream(),
+                bufferSize,
+                Math.max(2, partitions.size()))
+            : null;
     for (Partition partition : partitions) {
-      futures.add(
-          executorService.submit(
-              context.wrap(
-                  SendResultSetRunnable.forPartition(
-                      describedResult,
-                      batchReadOnlyTransaction,
-                      partition,
-                      mode,
-                      binaryCopyHeaderSentLatch))));
+      tasks.add(
+          context.wrap(
+              SendResultSetRunnable.forPartition(
+                  describedResult,
+                  batchReadOnlyTransaction,
+                  partition,
+                  mode,
+                  binaryCopyHeaderSentLatch,
+                  writer)));
     }
-    executorService.shutdown();
+    List<ListenableFuture<Long>> futures =
+        submitWithMaxParallelism(
+            executorService,
+            tasks,
+            Math.min(8 * Runtime.getRuntime().availableProcessors(), partitions.size()));
+    ListenableFuture<List<Long>> allPartitions = Futures.allAsList(futures);
     try {
-      List<Long> rowCounts = Futures.allAsList(futures).get();
+      if (writer != null) {
+        writer.writeUntilDone(allPartitions);
+      }
+      List<Long> rowCounts = allPartitions.get();
       long rowCount = rowCounts.stream().reduce(Long::sum).orElse(0L);
       logger.log(Level.INFO, String.format("Sent %d rows from partitioned query", rowCount));
       return rowCount;
     } catch (ExecutionException executionException) {
       logger.log(
           Level.WARNING, "Sending partitioned query result failed", executionException.getCause());
-      executorService.shutdownNow();
+      // Cancelling the combined future also cancels all partitions that are still running.
+      allPartitions.cancel(true);
       throw SpannerExceptionFactory.asSpannerException(executionException.getCause());
+    } catch (IOException ioException) {
+      logger.log(Level.WARNING, "Sending partitioned query result failed", ioException);
+      allPartitions.cancel(true);
+      throw SpannerExceptionFactory.asSpannerException(ioException);
     } catch (InterruptedException interruptedException) {
       logger.log(
           Level.WARNING, "Sending partitioned query result interrupted", interruptedException);
-      executorService.shutdownNow();
+      allPartitions.cancel(true);
       throw SpannerExceptionFactory.propagateInterrupt(interruptedException);
     } finally {
       batchReadOnlyTransaction.cleanup();
     }
   }
 
+  /**
+   * Submits the given tasks to the given executor, and ensures that at most maxParallelism of the
+   * tasks are executed at the same time. The next task is submitted when a task has finished.
+   * Cancelling one of the returned futures cancels the task if it has already been submitted, and
+   * cancels all tasks that have not yet been submitted.
+   */
+  @VisibleForTesting
+  static <T> List<ListenableFuture<T>> submitWithMaxParallelism(
+      ListeningExecutorService executor, List<Callable<T>> tasks, int maxParallelism) {
+    List<SettableFuture<T>> results = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      results.add(SettableFuture.create());
+    }
+    AtomicInteger nextTask = new AtomicInteger();
+    AtomicBoolean cancelled = new AtomicBoolean();
+    Runnable submitNext =
+        new Runnable() {
+          @Override
+          public void run() {
+            int index;
+            while ((index = nextTask.getAndIncrement()) < tasks.size()) {
+              SettableFuture<T> result = results.get(index);
+              if (cancelled.get() || result.isCancelled()) {
+                // Do not start any new tasks after a task has been cancelled.
+                cancelled.set(true);
+                result.cancel(false);
+                continue;
+              }
+              ListenableFuture<T> future = executor.submit(tasks.get(index));
+              result.setFuture(future);
+              future.addListener(
+                  () -> {
+                    if (result.isCancelled()) {
+                      cancelled.set(true);
+                    }
+                    run();
+                  },
+                  MoreExecutors.directExecutor());
+              return;
+            }
+          }
+        };
+    for (int i = 0; i < Math.max(1, maxParallelism); i++) {
+      submitNext.run();
+    }
+    return new ArrayList<>(results);
+  }
+
   static final class SendResultSetRunnable implements Callable<Long> {
     private final IntermediateStatement describedResult;
     private ResultSet resultSet;
@@ -446,7 +529,9 @@ public abstract class ControlMessage extends WireMessage {
     private final long maxRows;
     private final QueryMode mode;
     private final CountDownLatch binaryCopyHeaderSentLatch;
+    private final PartitionedResultWriter writer;
     private boolean hasData;
+    private long encodeNanos;
 
     static SendResultSetRunnable forResultSet(
         IntermediateStatement describedResult,
@@ -462,9 +547,15 @@ public abstract class ControlMessage extends WireMessage {
         BatchReadOnlyTransaction batchReadOnlyTransaction,
         Partition partition,
         QueryMode mode,
-        CountDownLatch binaryCopyHeaderSentLatch) {
+        CountDownLatch binaryCopyHeaderSentLatch,
+        @Nullable PartitionedResultWriter writer) {
       return new SendResultSetRunnable(
-          describedResult, batchReadOnlyTransaction, partition, mode, binaryCopyHeaderSentLatch);
+          describedResult,
+          batchReadOnlyTransaction,
+          partition,
+          mode,
+          binaryCopyHeaderSentLatch,
+          writer);
     }
 
     private SendResultSetRunnable(
@@ -484,12 +575,14 @@ public abstract class ControlMessage extends WireMessage {
               resultSet,
               includePrefix
                   && describedResult instanceof CopyToStatement
-                  && ((CopyToStatement) describedResult).isBinary());
+                  && ((CopyToStatement) describedResult).isBinary(),
+              describedResult.getConnectionHandler().getDataRowBuffer());
       this.batchReadOnlyTransaction = null;
       this.partition = null;
       this.maxRows = maxRows;
       this.mode = mode;
       this.binaryCopyHeaderSentLatch = new CountDownLatch(0);
+      this.writer = null;
       this.hasData = hasData;
     }
 
@@ -498,7 +591,8 @@ public abstract class ControlMessage extends WireMessage {
         BatchReadOnlyTransaction batchReadOnlyTransaction,
         Partition partition,
         QueryMode mode,
-        CountDownLatch binaryCopyHeaderSentLatch) {
+        CountDownLatch binaryCopyHeaderSentLatch,
+        @Nullable PartitionedResultWriter writer) {
       this.describedResult = describedResult;
       this.resultSet = null;
       this.batchReadOnlyTransaction = batchReadOnlyTransaction;
@@ -506,6 +600,7 @@ public abstract class ControlMessage extends WireMessage {
       this.maxRows = 0L;
       this.mode = mode;
       this.binaryCopyHeaderSentLatch = binaryCopyHeaderSentLatch;
+      this.writer = writer;
       this.hasData = false;
     }
 
@@ -525,9 +620,25 @@ public abstract class ControlMessage extends WireMessage {
                   resultSet,
                   false);
         }
+        if (isPipelined()) {
+          PipelinedResultSetSender sender =
+              new PipelinedResultSetSender(
+                  describedResult,
+                  mode,
+                  describedResult.getConnectionHandler().getServer().getOptions(),
+                  describedResult.getConnectionHandler().getServer().getRowEncodingExecutor(),
+                  describedResult.getConnectionHandler().getConnectionMetadata().getOutputStream());
+          long rows = sender.send(resultSet, hasData, maxRows);
+          hasData = sender.hasData();
+          encodeNanos += sender.getEncodeNanos();
+          return rows;
+        }
+        if (writer != null) {
+          return sendBuffered();
+        }
         long rows = 0L;
         while (hasData) {
-          WireOutput wireOutput = describedResult.createDataRowResponse(converter);
+          WireOutput wireOutput = createDataRowResponse();
           if (wireOutput != null) {
             if (!converter.isIncludeBinaryCopyHeaderInFirstRow()) {
               binaryCopyHeaderSentLatch.await();
@@ -554,9 +665,79 @@ public abstract class ControlMessage extends WireMessage {
         return rows;
       } finally {
         if (converter != null) {
+          describedResult
+              .getConnectionHandler()
+              .recordPhaseLatency(Phase.ENCODE, encodeNanos + converter.getEncodeNanos());
           converter.close();
         }
       }
     }
+
+    /**
+     * Creates the response message for the current row. The time that is needed to create the
+     * message is added to the encode time of this result, as some statements, such as COPY in text
+     * format, encode the row when the message is created.
+     */
+    private WireOutput createDataRowResponse() {
+      long startNanos = System.nanoTime();
+      try {
+        return describedResult.createDataRowResponse(converter);
+      } finally {
+        encodeNanos += System.nanoTime() - startNanos;
+      }
+    }
+
+    /**
+     * Encodes the rows of a partition into buffers, and hands each full buffer to the {@link
+     * PartitionedResultWriter} that writes all buffers of all partitions to the client. The buffer
+     * with the first row of a binary COPY operation is handed off directly, as that row includes
+     * the header that must be sent before any other data.
+     */
+    private long sendBuffered() throws Exception {
+      long rows = 0L;
+      PartitionBuffer buffer = writer.newBuffer();
+      while (hasData) {
+        WireOutput wireOutput = createDataRowResponse();
+        if (wireOutput != null) {
+          wireOutput.writeTo(buffer.getOutput());
+          if (converter.isIncludeBinaryCopyHeaderInFirstRow()
+              && binaryCopyHeaderSentLatch.getCount() > 0L) {
+            writer.submit(buffer);
+            buffer = writer.newBuffer();
+            binaryCopyHeaderSentLatch.countDown();
+          } else if (writer.isFull(buffer)) {
+            binaryCopyHeaderSentLatch.await();
+            writer.submit(buffer);
+            buffer = writer.newBuffer();
+          }
+        }
+        if (Thread.interrupted()) {
+          throw PGExceptionFactory.newQueryCancelledException();
+        }
+        rows++;
+        hasData = resultSet.next();
+      }
+      if (buffer.size() > 0) {
+        binaryCopyHeaderSentLatch.await();
+      }
+      writer.submit(buffer);
+      return rows;
+    }
+
+    /**
+     * Returns true if the rows should be sent using a {@link PipelinedResultSetSender}. Pipelining
+     * is only used for normal query results, and not for partitioned COPY operations.
+     */
+    private boolean isPipelined() {
+      return hasData
+          && partition == null
+          && describedResult.isPipelinedRowEncodingSupported()
+          && describedResult
+              .getConnectionHandler()
+              .getExtendedQueryProtocolHandler()
+              .getBackendConnection()
+              .getSessionState()
+              .isPipelinedResultEncoding();
+    }
   }
 }
@@ -62,6 +62,7 @@ import com.google.cloud.spanner.pgadapter.statements.ShowDatabaseDdlStatement;
 import com.google.cloud.spanner.pgadapter.statements.ShutdownStatement;
 import com.google.cloud.spanner.pgadapter.statements.TruncateStatement;
 import com.google.cloud.spanner.pgadapter.statements.VacuumStatement;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.cloud.spanner.pgadapter.wireoutput.ParseCompleteResponse;
 import com.google.common.base.Strings;
 import java.text.MessageFormat;
@@ -81,14 +82,16 @@ public class ParseMessage extends AbstractQueryProtocolMessage {
     super(connection);
     this.name = this.readString();
     Statement originalStatement = Statement.of(this.readString());
-    ParsedStatement parsedStatement = PARSER.parse(originalStatement);
     short numberOfParameters = this.inputStream.readShort();
     this.parameterDataTypes = new int[numberOfParameters];
     for (int i = 0; i < numberOfParameters; i++) {
       parameterDataTypes[i] = this.inputStream.readInt();
     }
+    long parseStartNanos = System.nanoTime();
+    ParsedStatement parsedStatement = PARSER.parse(originalStatement);
     this.statement =
         createStatement(connection, name, parsedStatement, originalStatement, parameterDataTypes);
+    connection.recordPhaseLatency(Phase.PARSE, System.nanoTime() - parseStartNanos);
     connection.maybeDetermineWellKnownClient(this);
   }
 
@@ -0,0 +1,122 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the results of the partitions of a partitioned query to the client from a single thread.
+ * Each partition encodes its rows into its own {@link PartitionBuffer}, and hands the buffer to
+ * this writer once it is full. The writer writes each buffer to the client as one block, so the
+ * partitions do not need to synchronize on the output stream for each row.
+ *
+ * <p>The number of buffers that can be waiting to be written is bounded. A partition blocks when it
+ * tries to hand off a buffer and the limit has been reached, which ensures that a slow client
+ * applies back-pressure to the partitions.
+ */
+class PartitionedResultWriter {
+  /** The time that the writer waits for a new buffer before checking whether it is done. */
+  private static final long POLL_INTERVAL_MILLIS = 10L;
+
+  /**
+   * A buffer that contains the encoded messages of one or more rows of one partition. Large values
+   * in the rows are not copied into this buffer, but are written directly to the client when the
+   * buffer is written.
+   */
+  @VisibleForTesting
+  static final class PartitionBuffer extends DataRowBuffer {
+    PartitionBuffer(int size) {
+      super(size);
+    }
+  }
+
+  private final DataOutputStream output;
+  private final int bufferSize;
+  private final BlockingQueue<PartitionBuffer> pendingBuffers;
+  private final ConcurrentLinkedQueue<PartitionBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+  PartitionedResultWriter(DataOutputStream output, int bufferSize, int maxPendingBuffers) {
+    Preconditions.checkArgument(bufferSize > 0, "bufferSize must be positive");
+    Preconditions.checkArgument(maxPendingBuffers > 0, "maxPendingBuffers must be positive");
+    this.output = output;
+    this.bufferSize = bufferSize;
+    this.pendingBuffers = new ArrayBlockingQueue<>(maxPendingBuffers);
+  }
+
+  /** Returns an empty buffer that a partition can encode rows into. */
+  PartitionBuffer newBuffer() {
+    PartitionBuffer buffer = freeBuffers.poll();
+    return buffer == null ? new PartitionBuffer(bufferSize) : buffer;
+  }
+
+  /** Returns true if the given buffer is full and should be handed to the writer. */
+  boolean isFull(PartitionBuffer buffer) {
+    return buffer.size() >= bufferSize;
+  }
+
+  /**
+   * Hands the given buffer to the writer. This method blocks if the maximum number of buffers are
+   * already waiting to be written.
+   */
+  void submit(PartitionBuffer buffer) throws Exception {
+    if (buffer.size() == 0) {
+      freeBuffers.offer(buffer);
+      return;
+    }
+    try {
+      pendingBuffers.put(buffer);
+    } catch (InterruptedException interruptedException) {
+      throw PGExceptionFactory.newQueryCancelledException();
+    }
+  }
+
+  /**
+   * Writes the buffers that are handed to this writer to the client until the given future is done.
+   * The future must complete when all partitions have either handed off their last buffer or
+   * failed. Buffers that were handed off by a failed partition are written to the client.
+   */
+  void writeUntilDone(Future<?> partitions) throws IOException, InterruptedException {
+    while (true) {
+      PartitionBuffer buffer = pendingBuffers.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      if (buffer != null) {
+        write(buffer);
+      } else if (partitions.isDone()) {
+        while ((buffer = pendingBuffers.poll()) != null) {
+          write(buffer);
+        }
+        return;
+      }
+    }
+  }
+
+  private void write(PartitionBuffer buffer) throws IOException {
+    buffer.writeTo(output);
+    // Only reuse buffers that have not grown much beyond the configured size because of large rows.
+    if (buffer.size() <= 2 * bufferSize) {
+      buffer.reset();
+      freeBuffers.offer(buffer);
+    }
+  }
+}
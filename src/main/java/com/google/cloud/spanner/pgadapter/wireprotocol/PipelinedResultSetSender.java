@@ -0,0 +1,227 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
+import com.google.cloud.spanner.pgadapter.utils.Converter;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
+import com.google.cloud.spanner.pgadapter.wireoutput.DataRowResponse;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the rows of a {@link ResultSet} to the client using a pipeline with three stages:
+ *
+ * <ol>
+ *   <li>The connection thread fetches rows from Spanner and groups them into batches.
+ *   <li>Each batch is encoded into {@link DataRowResponse} messages by a shared pool of encoder
+ *       threads. Batches are encoded into buffers that are reused for the lifetime of the query.
+ *   <li>The connection thread writes the encoded batches to the client in the order that the rows
+ *       were fetched.
+ * </ol>
+ *
+ * The number of batches that can be in flight at any time is bounded. The connection thread writes
+ * the oldest batch before fetching more rows if the limit has been reached, which ensures that a
+ * slow client applies back-pressure to the fetch stage.
+ */
+class PipelinedResultSetSender {
+  private static final Logger logger = Logger.getLogger(PipelinedResultSetSender.class.getName());
+
+  /** The number of rows that are encoded together by one encoder task. */
+  static final int DEFAULT_BATCH_SIZE = 128;
+
+  /** Buffers that have grown beyond this size are not reused. */
+  private static final int MAX_REUSABLE_BUFFER_SIZE = 1 << 20;
+
+  /**
+   * A reusable buffer that contains the encoded messages of one batch of rows. Large values in the
+   * rows are not copied into this buffer, but are written directly to the client when the batch is
+   * written.
+   */
+  @VisibleForTesting
+  static final class EncodeBuffer extends DataRowBuffer {
+    EncodeBuffer() {
+      super(8192);
+    }
+  }
+
+  private final IntermediateStatement describedResult;
+  private final QueryMode mode;
+  private final OptionsMetadata options;
+  private final ExecutorService executor;
+  private final DataOutputStream output;
+  private final int batchSize;
+  private final int maxInFlightBatches;
+  private final ConcurrentLinkedQueue<EncodeBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+  private final ArrayDeque<Future<EncodeBuffer>> inFlight;
+  private final AtomicLong encodeNanos = new AtomicLong();
+  private boolean hasData;
+
+  PipelinedResultSetSender(
+      IntermediateStatement describedResult,
+      QueryMode mode,
+      OptionsMetadata options,
+      ExecutorService executor,
+      DataOutputStream output) {
+    this(
+        describedResult,
+        mode,
+        options,
+        executor,
+        output,
+        DEFAULT_BATCH_SIZE,
+        Math.max(2, 2 * Runtime.getRuntime().availableProcessors()));
+  }
+
+  @VisibleForTesting
+  PipelinedResultSetSender(
+      IntermediateStatement describedResult,
+      QueryMode mode,
+      OptionsMetadata options,
+      ExecutorService executor,
+      DataOutputStream output,
+      int batchSize,
+      int maxInFlightBatches) {
+    this.describedResult = describedResult;
+    this.mode = mode;
+    this.options = options;
+    this.executor = executor;
+    this.output = output;
+    this.batchSize = batchSize;
+    this.maxInFlightBatches = maxInFlightBatches;
+    this.inFlight = new ArrayDeque<>(maxInFlightBatches);
+  }
+
+  /** Returns the total time in nanoseconds that the encoder threads have spent encoding rows. */
+  long getEncodeNanos() {
+    return encodeNanos.get();
+  }
+
+  /** Returns true if the result set had more rows after the last row that was sent. */
+  boolean hasData() {
+    return hasData;
+  }
+
+  /**
+   * Sends the rows of the given {@link ResultSet}, starting at the current row, until either all
+   * rows have been sent or maxRows rows have been sent. A maxRows value of zero means no limit.
+   *
+   * @return the number of rows that were sent
+   */
+  long send(ResultSet resultSet, boolean hasData, long maxRows) throws Exception {
+    this.hasData = hasData;
+    long rows = 0L;
+    Type type = null;
+    try {
+      while (this.hasData) {
+        if (type == null) {
+          type = resultSet.getType();
+        }
+        List<Struct> batch = new ArrayList<>(batchSize);
+        while (this.hasData && batch.size() < batchSize) {
+          batch.add(resultSet.getCurrentRowAsStruct());
+          rows++;
+          this.hasData = resultSet.next();
+          if (rows == maxRows) {
+            break;
+          }
+        }
+        if (inFlight.size() == maxInFlightBatches) {
+          writeNextBatch();
+        }
+        Type rowType = type;
+        inFlight.add(executor.submit(() -> encode(rowType, batch)));
+        if (Thread.interrupted()) {
+          throw PGExceptionFactory.newQueryCancelledException();
+        }
+        long fetchedRows = rows;
+        logger.log(Level.FINER, () -> String.format("Fetched %d rows", fetchedRows));
+        if (rows == maxRows) {
+          break;
+        }
+      }
+      while (!inFlight.isEmpty()) {
+        writeNextBatch();
+      }
+      return rows;
+    } finally {
+      // This is a no-op if all batches were written successfully.
+      Future<EncodeBuffer> pending;
+      while ((pending = inFlight.poll()) != null) {
+        pending.cancel(true);
+      }
+    }
+  }
+
+  private EncodeBuffer encode(Type type, List<Struct> rows) throws Exception {
+    EncodeBuffer buffer = freeBuffers.poll();
+    if (buffer == null) {
+      buffer = new EncodeBuffer();
+    }
+    try (ResultSet batch = ResultSets.forRows(type, rows);
+        Converter converter = new Converter(describedResult, mode, options, batch, false)) {
+      while (batch.next()) {
+        new DataRowResponse(buffer.getOutput(), converter).send(false);
+      }
+      encodeNanos.addAndGet(converter.getEncodeNanos());
+    }
+    return buffer;
+  }
+
+  private void writeNextBatch() throws Exception {
+    Future<EncodeBuffer> future = inFlight.poll();
+    EncodeBuffer buffer;
+    try {
+      buffer = future.get();
+    } catch (InterruptedException interruptedException) {
+      throw PGExceptionFactory.newQueryCancelledException();
+    } catch (ExecutionException executionException) {
+      if (executionException.getCause() instanceof Exception) {
+        throw (Exception) executionException.getCause();
+      }
+      throw SpannerExceptionFactory.asSpannerException(executionException.getCause());
+    }
+    write(buffer);
+  }
+
+  private void write(EncodeBuffer buffer) throws IOException {
+    synchronized (describedResult) {
+      buffer.writeTo(output);
+    }
+    if (buffer.size() <= MAX_REUSABLE_BUFFER_SIZE) {
+      buffer.reset();
+      freeBuffers.offer(buffer);
+    }
+  }
+}
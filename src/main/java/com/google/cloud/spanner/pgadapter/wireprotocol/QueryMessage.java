@@ -18,6 +18,7 @@ import com.google.api.core.InternalApi;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.ConnectionHandler;
 import com.google.cloud.spanner.pgadapter.statements.SimpleQueryStatement;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
 import com.google.common.collect.ImmutableList;
 import java.text.MessageFormat;
 
@@ -56,9 +57,11 @@ public class QueryMessage extends ControlMessage {
     connection.getExtendedQueryProtocolHandler().maybeStartSpan(true);
     this.originalStatement = Statement.of(this.readAll());
     connection.maybeDetermineWellKnownClient(this.originalStatement);
+    long parseStartNanos = System.nanoTime();
     this.simpleQueryStatement =
         new SimpleQueryStatement(
             connection.getServer().getOptions(), this.originalStatement, this.connection);
+    connection.recordPhaseLatency(Phase.PARSE, System.nanoTime() - parseStartNanos);
   }
 
   @Override
@@ -105,6 +105,12 @@ public class StartupMessage extends BootstrapMessage {
           .setConnectionStartupValue(
               "spanner", "well_known_client", connection.getWellKnownClient().name());
     }
+    // Return the Spanner connection that was used during startup to the pool if transaction pooling
+    // is enabled.
+    connection
+        .getExtendedQueryProtocolHandler()
+        .getBackendConnection()
+        .releaseSpannerConnectionIfIdle();
     sendStartupMessage(
         connection.getConnectionMetadata().getOutputStream(),
         connection.getConnectionId(),
@@ -1373,6 +1373,17 @@ public abstract class AbstractMockServerTest {
     mockInstanceAdmin.reset();
     if (pgServer != null) {
       pgServer.clearDebugMessages();
+      // The describe cache is shared by all connections, and would otherwise carry over results
+      // from one test to the next.
+      pgServer.getDescribeResultCache().invalidateAll();
+      // Connection validation results are also shared, and would hide connection errors that are
+      // simulated by a test.
+      pgServer.getConnectionOptionsCache().invalidateAll();
+      pgServer.getSqlRewriteCache().invalidateAll();
+      pgServer.getCopySchemaCache().invalidateAll();
+      if (pgServer.getCatalogResultCache() != null) {
+        pgServer.getCatalogResultCache().invalidateAll();
+      }
     }
   }
 
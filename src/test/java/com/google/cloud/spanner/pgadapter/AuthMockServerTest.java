@@ -135,6 +135,8 @@ public class AuthMockServerTest extends AbstractMockServerTest {
     assertNotNull(passwordMessage);
     assertEquals(username, passwordMessage.getUsername());
     assertEquals(password, passwordMessage.getPassword());
+    // Credentials that are given by the client are never shared with other connections.
+    assertEquals(0L, pgServer.getConnectionOptionsCache().size());
   }
 
   @Test
@@ -0,0 +1,104 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CatalogResultCacheMockServerTest extends AbstractMockServerTest {
+  private static final String CATALOG_QUERY =
+      "select table_name from information_schema.tables where table_schema='public'";
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        "d", configurator -> configurator.setCatalogCacheTtlSeconds(60));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  private static long countCatalogQueryRequests() {
+    return mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+        .filter(request -> request.getSql().equals(CATALOG_QUERY))
+        .count();
+  }
+
+  private void executeCatalogQuery() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      try (ResultSet resultSet = connection.createStatement().executeQuery(CATALOG_QUERY)) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testCatalogQueryResultIsCached() throws SQLException {
+    assertNotNull(pgServer.getCatalogResultCache());
+    mockSpanner.putStatementResult(
+        StatementResult.query(Statement.of(CATALOG_QUERY), SELECT1_RESULTSET));
+    addDdlResponseToSpannerAdmin();
+
+    // The first connection executes the query on Spanner. The second connection gets the result
+    // from the cache.
+    executeCatalogQuery();
+    long requests = countCatalogQueryRequests();
+    assertTrue(requests > 0L);
+    executeCatalogQuery();
+    assertEquals(requests, countCatalogQueryRequests());
+
+    // Executing a DDL statement invalidates the cached results for the database.
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection.createStatement().execute("create table foo (id bigint primary key)");
+    }
+    executeCatalogQuery();
+    assertEquals(2 * requests, countCatalogQueryRequests());
+  }
+
+  @Test
+  public void testNonCatalogQueryIsNotCached() throws SQLException {
+    for (int i = 0; i < 2; i++) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        try (ResultSet resultSet = connection.createStatement().executeQuery(SELECT1.getSql())) {
+          assertTrue(resultSet.next());
+          assertFalse(resultSet.next());
+        }
+      }
+    }
+    assertEquals(
+        2L,
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(request -> request.getSql().equals(SELECT1.getSql()))
+            .count());
+  }
+}
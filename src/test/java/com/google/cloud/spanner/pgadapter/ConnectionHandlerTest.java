@@ -51,6 +51,8 @@ import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.error.Severity;
 import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResult;
+import com.google.cloud.spanner.pgadapter.metadata.DescribeResultCache;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.SslMode;
 import com.google.cloud.spanner.pgadapter.statements.IntermediatePortalStatement;
@@ -60,6 +62,7 @@ import com.google.cloud.spanner.pgadapter.wireprotocol.ParseMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.WireMessage;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.spanner.v1.DatabaseName;
 import io.grpc.StatusRuntimeException;
 import java.io.ByteArrayInputStream;
@@ -129,6 +132,70 @@ public class ConnectionHandlerTest {
     assertFalse(connection.hasStatement("my-statement2"));
   }
 
+  @Test
+  public void testRegisterAutoDescribedStatement() {
+    ProxyServer server = mock(ProxyServer.class);
+    when(server.getDescribeResultCache()).thenReturn(mock(DescribeResultCache.class));
+    Socket socket = mock(Socket.class);
+    when(socket.getInetAddress()).thenReturn(InetAddress.getLoopbackAddress());
+    ConnectionHandler connection = new ConnectionHandler(server, socket);
+    int[] parameterTypes = new int[] {0};
+
+    SettableFuture<DescribeResult> success = SettableFuture.create();
+    connection.registerAutoDescribedStatement("select $1", parameterTypes, success, true);
+    assertSame(success, connection.getAutoDescribedStatement("select $1", parameterTypes));
+    // The pending request is removed once it has finished, as the result is then in the
+    // server-wide cache.
+    success.set(mock(DescribeResult.class));
+    assertNull(connection.getAutoDescribedStatement("select $1", parameterTypes));
+
+    SettableFuture<DescribeResult> failure = SettableFuture.create();
+    connection.registerAutoDescribedStatement("select $1", parameterTypes, failure, true);
+    assertSame(failure, connection.getAutoDescribedStatement("select $1", parameterTypes));
+    failure.setException(new RuntimeException("test"));
+    assertNull(connection.getAutoDescribedStatement("select $1", parameterTypes));
+  }
+
+  @Test
+  public void testRegisterAutoDescribedStatement_withoutServerCache() {
+    ProxyServer server = mock(ProxyServer.class);
+    Socket socket = mock(Socket.class);
+    when(socket.getInetAddress()).thenReturn(InetAddress.getLoopbackAddress());
+    ConnectionHandler connection = new ConnectionHandler(server, socket);
+    int[] parameterTypes = new int[] {0};
+
+    // Successful results are kept by the connection if there is no server-wide cache.
+    SettableFuture<DescribeResult> success = SettableFuture.create();
+    connection.registerAutoDescribedStatement("select $1", parameterTypes, success, true);
+    success.set(mock(DescribeResult.class));
+    assertSame(success, connection.getAutoDescribedStatement("select $1", parameterTypes));
+
+    SettableFuture<DescribeResult> failure = SettableFuture.create();
+    connection.registerAutoDescribedStatement("select $2", parameterTypes, failure, true);
+    failure.setException(new RuntimeException("test"));
+    assertNull(connection.getAutoDescribedStatement("select $2", parameterTypes));
+  }
+
+  @Test
+  public void testRegisterAutoDescribedStatement_notShared() {
+    ProxyServer server = mock(ProxyServer.class);
+    when(server.getDescribeResultCache()).thenReturn(mock(DescribeResultCache.class));
+    Socket socket = mock(Socket.class);
+    when(socket.getInetAddress()).thenReturn(InetAddress.getLoopbackAddress());
+    ConnectionHandler connection = new ConnectionHandler(server, socket);
+    int[] parameterTypes = new int[] {0};
+
+    // Results that are not added to the server-wide cache are kept by the connection.
+    SettableFuture<DescribeResult> success = SettableFuture.create();
+    connection.registerAutoDescribedStatement(
+        "select * from pg_class where oid=$1", parameterTypes, success, false);
+    success.set(mock(DescribeResult.class));
+    assertSame(
+        success,
+        connection.getAutoDescribedStatement(
+            "select * from pg_class where oid=$1", parameterTypes));
+  }
+
   @Test
   public void testTerminateClosesSocket() throws IOException {
     ProxyServer server = mock(ProxyServer.class);
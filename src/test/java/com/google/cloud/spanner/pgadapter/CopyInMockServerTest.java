@@ -157,6 +157,37 @@ public class CopyInMockServerTest extends AbstractMockServerTest {
     assertEquals(3, mutation.getInsert().getColumnsCount());
   }
 
+  @Test
+  public void testCopyInUsesCachedTableSchema() throws SQLException, IOException {
+    setupCopyInformationSchemaResults();
+
+    for (int i = 0; i < 2; i++) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+        copyManager.copyIn("COPY users FROM STDIN;", new StringReader("5\t5\t5\n"));
+      }
+    }
+    // Only the first COPY statement queries information_schema.
+    assertEquals(2, countInformationSchemaQueries());
+    assertEquals(2, mockSpanner.countRequestsOfType(CommitRequest.class));
+
+    // Executing a DDL statement invalidates the cached table schema.
+    addDdlResponseToSpannerAdmin();
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection.createStatement().execute("create table foo (id bigint primary key)");
+      CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+      copyManager.copyIn("COPY users FROM STDIN;", new StringReader("5\t5\t5\n"));
+    }
+    assertEquals(4, countInformationSchemaQueries());
+    assertEquals(3, mockSpanner.countRequestsOfType(CommitRequest.class));
+  }
+
+  private static long countInformationSchemaQueries() {
+    return mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+        .filter(request -> request.getSql().contains("information_schema."))
+        .count();
+  }
+
   @Test
   public void testEndRecord() throws SQLException, IOException {
     setupCopyInformationSchemaResults();
@@ -625,6 +656,163 @@ public class CopyInMockServerTest extends AbstractMockServerTest {
     }
   }
 
+  @Test
+  public void testCopyIn_Large_AdaptiveBatching() throws SQLException, IOException {
+    setupCopyInformationSchemaResults();
+
+    int staticCommitCount;
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+      assertEquals(
+          10_000L,
+          copyManager.copyIn(
+              "copy all_types from stdin;",
+              new FileInputStream("./src/test/resources/all_types_data.txt")));
+      staticCommitCount = mockSpanner.countRequestsOfType(CommitRequest.class);
+      mockSpanner.clearRequests();
+
+      // The first commit fails because Spanner is overloaded. The commit is retried, and the
+      // adaptive controller starts with smaller batches than the static batch size.
+      mockSpanner.setCommitExecutionTime(
+          SimulatedExecutionTime.ofException(Status.RESOURCE_EXHAUSTED.asRuntimeException()));
+      connection.createStatement().execute("set spanner.copy_adaptive_batching=on");
+      assertEquals(
+          10_000L,
+          copyManager.copyIn(
+              "copy all_types from stdin;",
+              new FileInputStream("./src/test/resources/all_types_data.txt")));
+    }
+
+    List<CommitRequest> commitRequests = mockSpanner.getRequestsOfType(CommitRequest.class);
+    assertTrue(commitRequests.size() > staticCommitCount + 1);
+    int rows = commitRequests.stream().mapToInt(CopyInMockServerTest::countRows).sum();
+    assertEquals(10_000, rows - countRows(commitRequests.get(0)));
+  }
+
+  private static int countRows(CommitRequest commitRequest) {
+    return commitRequest.getMutationsList().stream()
+        .mapToInt(mutation -> mutation.getInsert().getValuesCount())
+        .sum();
+  }
+
+  /**
+   * Copies a large number of rows, both with small CopyData messages (one row per message, like
+   * psql) and with large CopyData messages.
+   */
+  @Test
+  public void testCopyInSmallAndLargeMessages() throws SQLException, IOException {
+    setupCopyInformationSchemaResults();
+    StringBuilder builder = new StringBuilder();
+    int numRows = 20_000;
+    for (int i = 0; i < numRows; i++) {
+      builder.append(i).append('\t').append(i).append('\t').append("value-").append(i).append('\n');
+    }
+    String data = builder.toString();
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+      for (int bufferSize : new int[] {32, 1 << 16}) {
+        long copyCount =
+            copyManager.copyIn("COPY users FROM STDIN;", new StringReader(data), bufferSize);
+        assertEquals(numRows, copyCount);
+      }
+    }
+  }
+
+  @Test
+  public void testCopyIn_Large_ParallelParsing() throws SQLException, IOException {
+    setupCopyInformationSchemaResults();
+
+    List<String> expectedRows = null;
+    for (int parallelism : new int[] {1, 4}) {
+      mockSpanner.clearRequests();
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        connection
+            .createStatement()
+            .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+        connection.createStatement().execute("set spanner.copy_parse_parallelism=" + parallelism);
+
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        long copyCount =
+            copyManager.copyIn(
+                "copy all_types from stdin;",
+                new FileInputStream("./src/test/resources/all_types_data.txt"));
+        assertEquals(10_000L, copyCount);
+      }
+      // The rows are committed in multiple parallel transactions, so the order of the commits is
+      // not deterministic.
+      List<String> rows =
+          mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+              .flatMap(request -> request.getMutationsList().stream())
+              .flatMap(mutation -> mutation.getInsert().getValuesList().stream())
+              .map(ListValue::toString)
+              .sorted()
+              .collect(Collectors.toList());
+      assertEquals(10_000, rows.size());
+      if (expectedRows == null) {
+        expectedRows = rows;
+      } else {
+        assertEquals(expectedRows, rows);
+      }
+    }
+  }
+
+  @Test
+  public void testCopyInWithHeaderOutOfOrder_ParallelParsing() throws SQLException, IOException {
+    setupCopyInformationSchemaResults();
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection.createStatement().execute("set spanner.copy_parse_parallelism=4");
+      CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+      copyManager.copyIn(
+          "COPY users (id, name) FROM STDIN (format csv, header on, escape '~', quote '$');",
+          new StringReader("name,id\n$~$fi\nve$,5\n$~$six$,6\n$~$seven$,7\n"));
+    }
+
+    List<CommitRequest> commitRequests = mockSpanner.getRequestsOfType(CommitRequest.class);
+    assertEquals(1, commitRequests.size());
+    Mutation mutation = commitRequests.get(0).getMutations(0);
+    assertEquals(3, mutation.getInsert().getValuesCount());
+    assertEquals("id", mutation.getInsert().getColumns(0));
+    assertEquals("name", mutation.getInsert().getColumns(1));
+    assertEquals("5", mutation.getInsert().getValues(0).getValues(0).getStringValue());
+    assertEquals("$fi\nve", mutation.getInsert().getValues(0).getValues(1).getStringValue());
+    assertEquals("6", mutation.getInsert().getValues(1).getValues(0).getStringValue());
+    assertEquals("$six", mutation.getInsert().getValues(1).getValues(1).getStringValue());
+    assertEquals("7", mutation.getInsert().getValues(2).getValues(0).getStringValue());
+    assertEquals("$seven", mutation.getInsert().getValues(2).getValues(1).getStringValue());
+  }
+
+  @Test
+  public void testCopyInWithInvalidRow_ParallelParsing() throws SQLException {
+    setupCopyInformationSchemaResults();
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection.createStatement().execute("set spanner.copy_parse_parallelism=4");
+      CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+      SQLException exception =
+          assertThrows(
+              SQLException.class,
+              () ->
+                  copyManager.copyIn(
+                      "COPY users FROM STDIN;", new StringReader("5\t5\t5\n6\n7\t7\t7\n")));
+      assertTrue(
+          exception.getMessage(),
+          exception
+              .getMessage()
+              .contains("Invalid COPY data: Row length mismatch. Expected 3 values, but got 1."));
+    }
+
+    List<CommitRequest> commitRequests = mockSpanner.getRequestsOfType(CommitRequest.class);
+    assertTrue(commitRequests.isEmpty());
+  }
+
   @Test
   public void testCopyInError() throws SQLException {
     setupCopyInformationSchemaResults();
@@ -746,6 +746,101 @@ public class CopyOutMockServerTest extends AbstractMockServerTest {
     }
   }
 
+  @Test
+  public void testCopyOutPartitionedBuffered() throws SQLException, IOException {
+    for (int bufferSize : new int[] {64, 1 << 20}) {
+      for (int expectedRowCount : new int[] {0, 1, BackendConnection.MAX_PARTITIONS, 100}) {
+        RandomResultSetGenerator randomResultSetGenerator =
+            new RandomResultSetGenerator(expectedRowCount, Dialect.POSTGRESQL);
+        com.google.spanner.v1.ResultSet resultSet = randomResultSetGenerator.generate();
+        mockSpanner.putStatementResult(
+            StatementResult.query(Statement.of("select * from random"), resultSet));
+
+        try (Connection connection = DriverManager.getConnection(createUrl())) {
+          connection.createStatement().execute("set spanner.copy_partition_query=true");
+          connection
+              .createStatement()
+              .execute("set spanner.partitioned_query_buffer_size=" + bufferSize);
+          CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+          StringWriter writer = new StringWriter();
+          long rows = copyManager.copyOut("COPY random TO STDOUT", writer);
+
+          assertEquals(expectedRowCount, rows);
+
+          try (Scanner scanner = new Scanner(writer.toString())) {
+            int lineCount = 0;
+            while (scanner.hasNextLine()) {
+              lineCount++;
+              String line = scanner.nextLine();
+              String[] columns = line.split("\t");
+              int index = findIndex(resultSet, columns);
+              assertNotEquals(String.format("Row %d not found: %s", lineCount, line), -1, index);
+            }
+            assertEquals(expectedRowCount, lineCount);
+          }
+          assertEquals(1, PARTITION_QUERY_REQUESTS.size());
+          mockSpanner.clearRequests();
+          PARTITION_QUERY_REQUESTS.clear();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCopyOutPartitionedBinaryBuffered() throws SQLException, IOException {
+    for (int bufferSize : new int[] {64, 1 << 20}) {
+      for (int expectedRowCount : new int[] {0, 1, BackendConnection.MAX_PARTITIONS, 100}) {
+        RandomResultSetGenerator randomResultSetGenerator =
+            new RandomResultSetGenerator(expectedRowCount, Dialect.POSTGRESQL);
+        com.google.spanner.v1.ResultSet resultSet = randomResultSetGenerator.generate();
+        mockSpanner.putStatementResult(
+            StatementResult.query(Statement.of("select * from random"), resultSet));
+
+        try (Connection connection = DriverManager.getConnection(createUrl())) {
+          connection.createStatement().execute("set spanner.copy_partition_query=true");
+          connection
+              .createStatement()
+              .execute("set spanner.partitioned_query_buffer_size=" + bufferSize);
+          CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+          PipedOutputStream pipedOutputStream = new PipedOutputStream();
+          PipedInputStream inputStream = new PipedInputStream(pipedOutputStream, 1 << 20);
+          SessionState sessionState = mock(SessionState.class);
+          CopyInParser copyParser =
+              CopyInParser.create(sessionState, Format.BINARY, null, inputStream, false);
+          long rows =
+              copyManager.copyOut("COPY random TO STDOUT (format binary)", pipedOutputStream);
+
+          assertEquals(expectedRowCount, rows);
+
+          Iterator<CopyRecord> iterator = copyParser.iterator();
+          int recordCount = 0;
+          while (iterator.hasNext()) {
+            recordCount++;
+            CopyRecord record = iterator.next();
+            int index = findIndex(resultSet, record);
+            assertNotEquals(String.format("Row %d not found: %s", recordCount, record), -1, index);
+          }
+          assertEquals(expectedRowCount, recordCount);
+          assertEquals(1, PARTITION_QUERY_REQUESTS.size());
+          mockSpanner.clearRequests();
+          PARTITION_QUERY_REQUESTS.clear();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testShowPartitionedQueryBufferSize() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.partitioned_query_buffer_size")) {
+        assertTrue(resultSet.next());
+        assertEquals("0", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
   @Test
   public void testCopyOutPartitioned_NonExistingTable() throws SQLException {
     StatusRuntimeException exception =
@@ -42,6 +42,8 @@ import com.google.cloud.spanner.SpannerOptions;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.connection.RandomResultSetGenerator;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics.Snapshot;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.EmptyPgEnum;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgAttrdef;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgAttribute;
@@ -49,12 +51,14 @@ import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgCollation;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgConstraint;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgExtension;
 import com.google.cloud.spanner.pgadapter.statements.PgCatalog.PgIndex;
+import com.google.cloud.spanner.pgadapter.statements.SimpleParser;
 import com.google.cloud.spanner.pgadapter.wireprotocol.ControlMessage.PreparedType;
 import com.google.cloud.spanner.pgadapter.wireprotocol.DescribeMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.ExecuteMessage;
 import com.google.cloud.spanner.pgadapter.wireprotocol.ParseMessage;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.protobuf.ListValue;
 import com.google.protobuf.Value;
 import com.google.spanner.admin.database.v1.GetDatabaseDdlResponse;
@@ -86,6 +90,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLWarning;
 import java.sql.Savepoint;
 import java.sql.Types;
 import java.time.LocalDate;
@@ -95,7 +100,11 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.junit.BeforeClass;
@@ -987,6 +996,57 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     }
   }
 
+  @Test
+  public void testCatalogQueriesAreNotAddedToSharedDescribeCache() throws SQLException {
+    String sql = "select table_name from information_schema.tables where table_schema=?";
+    String pgSql = "select table_name from information_schema.tables where table_schema=$1";
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(pgSql),
+            com.google.spanner.v1.ResultSet.newBuilder()
+                .setMetadata(
+                    ResultSetMetadata.newBuilder()
+                        .setRowType(
+                            StructType.newBuilder()
+                                .addFields(
+                                    Field.newBuilder()
+                                        .setName("table_name")
+                                        .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                                        .build())
+                                .build())
+                        .setUndeclaredParameters(
+                            StructType.newBuilder()
+                                .addFields(
+                                    Field.newBuilder()
+                                        .setName("p1")
+                                        .setType(Type.newBuilder().setCode(TypeCode.STRING).build())
+                                        .build())
+                                .build())
+                        .build())
+                .build()));
+
+    // The rewrite of queries that use catalog tables depends on session settings, so the describe
+    // result of such a query may not be shared with other connections.
+    pgServer.getDescribeResultCache().invalidateAll();
+    for (int attempt = 0; attempt < 2; attempt++) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+          ParameterMetaData parameters = preparedStatement.getParameterMetaData();
+          assertEquals(1, parameters.getParameterCount());
+          assertEquals(Types.VARCHAR, parameters.getParameterType(1));
+        }
+      }
+      assertEquals(0L, pgServer.getDescribeResultCache().size());
+    }
+    // Both connections must have described the statement.
+    assertEquals(
+        2,
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(request -> request.getSql().equals(pgSql))
+            .filter(request -> request.getQueryMode() == QueryMode.PLAN)
+            .count());
+  }
+
   @Test
   public void testInvalidQuery() throws SQLException {
     String sql = "/ not a valid comment / SELECT 1";
@@ -1389,6 +1449,8 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     // Threshold -1 means use binary transfer of values and use DESCRIBE statement.
     // (10 points to you if you guessed the last one up front!).
     for (int preparedThreshold : new int[] {5, 1, 0, -1}) {
+      // Clear the server-wide describe cache, so each connection has to describe the statement.
+      pgServer.getDescribeResultCache().invalidateAll();
       try (Connection connection = DriverManager.getConnection(createUrl())) {
         try (PreparedStatement preparedStatement = connection.prepareStatement(jdbcSql)) {
           preparedStatement.unwrap(PgStatement.class).setPrepareThreshold(preparedThreshold);
@@ -1540,6 +1602,101 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     }
   }
 
+  @Test
+  public void testAutoDescribedStatementsAreSharedAcrossConnections() throws SQLException {
+    String jdbcSql = "select col_date from all_types where col_date=?";
+    String pgSql = "select col_date from all_types where col_date=$1";
+    ResultSetMetadata metadata =
+        ALL_TYPES_METADATA
+            .toBuilder()
+            .setUndeclaredParameters(
+                StructType.newBuilder()
+                    .addFields(
+                        Field.newBuilder()
+                            .setName("p1")
+                            .setType(Type.newBuilder().setCode(TypeCode.DATE).build())
+                            .build())
+                    .build())
+            .build();
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(pgSql), ALL_TYPES_RESULTSET.toBuilder().setMetadata(metadata).build()));
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.newBuilder(pgSql).bind("p1").to(Date.parseDate("2022-03-29")).build(),
+            ALL_TYPES_RESULTSET));
+    addDdlResponseToSpannerAdmin();
+
+    // The first connection auto-describes the statement. The following connections should reuse
+    // the result from the server-wide cache, until a DDL statement is executed.
+    for (int expectedDescribeRequests : new int[] {1, 0, 1}) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(jdbcSql)) {
+          // Threshold 0 means never use a named prepared statement.
+          preparedStatement.unwrap(PgStatement.class).setPrepareThreshold(0);
+          preparedStatement.setDate(1, new java.sql.Date(2022 - 1900, Calendar.MARCH, 29));
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            assertTrue(resultSet.next());
+            assertFalse(resultSet.next());
+          }
+        }
+        assertEquals(
+            expectedDescribeRequests,
+            mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+                .filter(request -> request.getQueryMode() == QueryMode.PLAN)
+                .count());
+        if (expectedDescribeRequests == 0) {
+          try (java.sql.Statement statement = connection.createStatement()) {
+            assertFalse(statement.execute("create table foo (id bigint primary key)"));
+          }
+        }
+      }
+      mockSpanner.clearRequests();
+    }
+  }
+
+  @Test
+  public void testDescribedStatementsAreSharedAcrossConnections() throws SQLException {
+    String jdbcSql = "select col_date from all_types where col_date=?";
+    String pgSql = "select col_date from all_types where col_date=$1";
+    ResultSetMetadata metadata =
+        ALL_TYPES_METADATA
+            .toBuilder()
+            .setUndeclaredParameters(
+                StructType.newBuilder()
+                    .addFields(
+                        Field.newBuilder()
+                            .setName("p1")
+                            .setType(Type.newBuilder().setCode(TypeCode.DATE).build())
+                            .build())
+                    .build())
+            .build();
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(pgSql), ALL_TYPES_RESULTSET.toBuilder().setMetadata(metadata).build()));
+
+    // Only the first connection sends the statement to Spanner to describe it. The following
+    // connections get the parameter types and the row description from the server-wide cache.
+    for (int expectedDescribeRequests : new int[] {2, 0, 0}) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(jdbcSql)) {
+          ParameterMetaData parameterMetaData = preparedStatement.getParameterMetaData();
+          assertEquals(1, parameterMetaData.getParameterCount());
+          assertEquals(Types.DATE, parameterMetaData.getParameterType(1));
+          ResultSetMetaData resultSetMetaData = preparedStatement.getMetaData();
+          assertEquals(
+              ALL_TYPES_METADATA.getRowType().getFieldsCount(), resultSetMetaData.getColumnCount());
+        }
+      }
+      assertEquals(
+          expectedDescribeRequests,
+          mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+              .filter(request -> request.getQueryMode() == QueryMode.PLAN)
+              .count());
+      mockSpanner.clearRequests();
+    }
+  }
+
   @Test
   public void testDescribeDdlStatement() throws SQLException {
     try (Connection connection = DriverManager.getConnection(createUrl())) {
@@ -1638,6 +1795,9 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
       }
       assertEquals(1, connection.createStatement().executeUpdate(INSERT_STATEMENT.getSql()));
       mockSpanner.abortAllTransactions();
+      // Clear the server-wide describe cache, so the next query is described again and receives
+      // the Aborted error.
+      pgServer.getDescribeResultCache().invalidateAll();
       try (ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
         assertTrue(resultSet.next());
         assertEquals(1L, resultSet.getLong(1));
@@ -3271,6 +3431,8 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
                     .map(String::valueOf)
                     .collect(Collectors.joining(","));
 
+        // Clear the server-wide describe cache, so each run has to describe the statement.
+        pgServer.getDescribeResultCache().invalidateAll();
         final int fetchSize = 3;
         try (Connection connection =
             DriverManager.getConnection(createUrl() + binaryTransferEnable)) {
@@ -4136,7 +4298,7 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
           }
           count++;
         }
-        assertEquals(361, count);
+        assertEquals(370, count);
       }
     }
   }
@@ -4935,6 +5097,214 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     assertEquals(0, mockSpanner.countRequestsOfType(CommitRequest.class));
   }
 
+  @Test
+  public void testTruncateAutocommitNonAtomic_multipleTables() throws SQLException {
+    mockSpanner.putStatementResult(StatementResult.update(Statement.of("delete from foo"), 10L));
+    mockSpanner.putStatementResult(StatementResult.update(Statement.of("delete from bar"), 5L));
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.truncate_parallelism")) {
+        assertTrue(resultSet.next());
+        assertEquals("1", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+      java.sql.Statement statement = connection.createStatement();
+      assertEquals(0, statement.executeUpdate("truncate foo, bar"));
+
+      // The tables are truncated one after another, and a notice is sent for each table.
+      SQLWarning warning = statement.getWarnings();
+      assertNotNull(warning);
+      assertEquals("truncated table foo (1 of 2)", warning.getMessage());
+      assertNotNull(warning.getNextWarning());
+      assertEquals("truncated table bar (2 of 2)", warning.getNextWarning().getMessage());
+      assertNull(warning.getNextWarning().getNextWarning());
+    }
+
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    assertEquals(2, requests.size());
+    assertEquals("delete from foo", requests.get(0).getSql());
+    assertEquals("delete from bar", requests.get(1).getSql());
+    assertEquals(0, mockSpanner.countRequestsOfType(CommitRequest.class));
+  }
+
+  @Test
+  public void testTruncateAutocommitNonAtomic_parallel() throws Exception {
+    ImmutableList<String> tables = ImmutableList.of("foo", "bar", "baz");
+    for (String table : tables) {
+      mockSpanner.putStatementResult(
+          StatementResult.update(Statement.of("delete from " + table), 10L));
+    }
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      connection.createStatement().execute("set spanner.truncate_parallelism=3");
+      java.sql.Statement statement = connection.createStatement();
+
+      mockSpanner.freeze();
+      Future<Integer> truncate =
+          executor.submit(() -> statement.executeUpdate("truncate foo, bar, baz"));
+      // All partitioned DML transactions are started before the first one has finished.
+      Stopwatch watch = Stopwatch.createStarted();
+      while (countPartitionedDmlTransactions() < tables.size()
+          && watch.elapsed(TimeUnit.SECONDS) < 10L) {
+        Thread.sleep(1L);
+      }
+      assertEquals(tables.size(), countPartitionedDmlTransactions());
+      mockSpanner.unfreeze();
+      assertEquals(0, truncate.get().intValue());
+
+      int notices = 0;
+      for (SQLWarning warning = statement.getWarnings();
+          warning != null;
+          warning = warning.getNextWarning()) {
+        notices++;
+        assertTrue(
+            warning.getMessage(),
+            warning.getMessage().startsWith("truncated table ")
+                && warning.getMessage().endsWith(String.format(" (%d of 3)", notices)));
+      }
+      assertEquals(tables.size(), notices);
+    } finally {
+      mockSpanner.unfreeze();
+      executor.shutdown();
+    }
+
+    assertEquals(
+        ImmutableSet.of("delete from foo", "delete from bar", "delete from baz"),
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .collect(Collectors.toSet()));
+    assertEquals(0, mockSpanner.countRequestsOfType(CommitRequest.class));
+  }
+
+  @Test
+  public void testTruncateAutocommitNonAtomic_parallelFailure() throws SQLException {
+    mockSpanner.putStatementResult(StatementResult.update(Statement.of("delete from foo"), 10L));
+    mockSpanner.putStatementResult(
+        StatementResult.exception(
+            Statement.of("delete from bar"),
+            Status.FAILED_PRECONDITION
+                .withDescription("foreign key constraint violation")
+                .asRuntimeException()));
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      connection.createStatement().execute("set spanner.truncate_parallelism=2");
+      SQLException exception =
+          assertThrows(
+              SQLException.class,
+              () -> connection.createStatement().executeUpdate("truncate foo, bar"));
+      assertTrue(exception.getMessage().contains("foreign key constraint violation"));
+
+      // The connection can still be used after the failure.
+      try (ResultSet resultSet = connection.createStatement().executeQuery(SELECT1.getSql())) {
+        assertTrue(resultSet.next());
+      }
+    }
+
+    assertEquals(
+        ImmutableSet.of("delete from foo", "delete from bar", SELECT1.getSql()),
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .collect(Collectors.toSet()));
+  }
+
+  @Test
+  public void testTruncateAutocommitNonAtomic_statementTag() throws SQLException {
+    for (String table : ImmutableList.of("foo", "bar")) {
+      mockSpanner.putStatementResult(
+          StatementResult.update(Statement.of("delete from " + table), 10L));
+    }
+
+    // The statement tag is applied in the same way for sequential and parallel execution.
+    for (int parallelism : new int[] {1, 2}) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        connection
+            .createStatement()
+            .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+        connection
+            .createStatement()
+            .execute(String.format("set spanner.truncate_parallelism=%d", parallelism));
+        connection.createStatement().execute("set spanner.statement_tag='truncate-tag'");
+        assertEquals(0, connection.createStatement().executeUpdate("truncate foo, bar"));
+        // The statement tag is only used for the TRUNCATE statement.
+        try (ResultSet resultSet = connection.createStatement().executeQuery(SELECT1.getSql())) {
+          assertTrue(resultSet.next());
+        }
+      }
+
+      List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+      assertEquals(
+          String.valueOf(parallelism),
+          "truncate-tag",
+          requests.stream()
+              .filter(request -> request.getSql().equals("delete from foo"))
+              .findFirst()
+              .orElseThrow(IllegalStateException::new)
+              .getRequestOptions()
+              .getRequestTag());
+      assertEquals(
+          "",
+          requests.stream()
+              .filter(request -> request.getSql().equals(SELECT1.getSql()))
+              .findFirst()
+              .orElseThrow(IllegalStateException::new)
+              .getRequestOptions()
+              .getRequestTag());
+      mockSpanner.clearRequests();
+    }
+  }
+
+  @Test
+  public void testTruncateAutocommitNonAtomic_statementTimeout() throws SQLException {
+    for (String table : ImmutableList.of("foo", "bar")) {
+      mockSpanner.putStatementResult(
+          StatementResult.update(Statement.of("delete from " + table), 10L));
+    }
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(2000, 0));
+
+    try {
+      // The statement timeout is applied in the same way for sequential and parallel execution.
+      for (int parallelism : new int[] {1, 2}) {
+        try (Connection connection = DriverManager.getConnection(createUrl())) {
+          connection
+              .createStatement()
+              .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+          connection
+              .createStatement()
+              .execute(String.format("set spanner.truncate_parallelism=%d", parallelism));
+          connection.createStatement().execute("set statement_timeout=100");
+          Stopwatch watch = Stopwatch.createStarted();
+          SQLException exception =
+              assertThrows(
+                  SQLException.class,
+                  () -> connection.createStatement().executeUpdate("truncate foo, bar"));
+          assertTrue(watch.elapsed(TimeUnit.MILLISECONDS) < 2000L);
+          assertTrue(exception.getMessage(), exception.getMessage().contains("deadline exceeded"));
+        }
+      }
+    } finally {
+      mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+    }
+  }
+
+  private int countPartitionedDmlTransactions() {
+    return (int)
+        mockSpanner.getRequestsOfType(BeginTransactionRequest.class).stream()
+            .filter(request -> request.getOptions().hasPartitionedDml())
+            .count();
+  }
+
   @Test
   public void testForceAutocommit() throws SQLException {
     try (Connection connection = DriverManager.getConnection(createUrl())) {
@@ -5187,6 +5557,42 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     }
   }
 
+  @Test
+  public void testRewrittenStatementIsReusedWithDifferentParameters() throws SQLException {
+    String sql = "/*@ LOCK_SCANNED_RANGES=exclusive */select 1 from my_table where id=$1";
+    for (long id = 1L; id <= 3L; id++) {
+      mockSpanner.putStatementResult(
+          StatementResult.query(
+              Statement.newBuilder(sql).bind("p1").to(id).build(), SELECT1_RESULTSET));
+    }
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      long sizeBefore = pgServer.getSqlRewriteCache().size();
+      try (PreparedStatement preparedStatement =
+          connection.prepareStatement("select 1 from my_table where id=? for update")) {
+        for (long id = 1L; id <= 3L; id++) {
+          preparedStatement.setLong(1, id);
+          try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            assertTrue(resultSet.next());
+            assertEquals(1, resultSet.getInt(1));
+            assertFalse(resultSet.next());
+          }
+        }
+      }
+      // The statement is only rewritten once.
+      assertEquals(sizeBefore + 1, pgServer.getSqlRewriteCache().size());
+    }
+
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    assertEquals(3, requests.size());
+    for (int index = 0; index < requests.size(); index++) {
+      assertEquals(sql, requests.get(index).getSql());
+      assertEquals(
+          String.valueOf(index + 1),
+          requests.get(index).getParams().getFieldsOrThrow("p1").getStringValue());
+    }
+  }
+
   @Test
   public void testEmulatePgClass() throws SQLException {
     String withEmulation = "with " + EMULATED_PG_CLASS_PREFIX + "\nselect 1 from pg_class";
@@ -5446,6 +5852,78 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
     assertTrue(session.getMultiplexed());
   }
 
+  @Test
+  public void testTransactionBlockWithOnlyQueriesUsesReadOnlyTransaction() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      connection.createStatement().execute("set spanner.auto_detect_read_only_transactions=true");
+      // The converted transaction uses strong reads, also if the connection uses a read-only
+      // staleness that is only allowed for single-use transactions.
+      connection.createStatement().execute("set spanner.read_only_staleness='max_staleness 10s'");
+      for (String end : new String[] {"commit", "rollback"}) {
+        connection.createStatement().execute("begin;SELECT 1;SELECT 2;" + end);
+      }
+      // The read-only staleness of the connection is restored after the transaction.
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.read_only_staleness")) {
+        assertTrue(resultSet.next());
+        assertEquals("MAX_STALENESS 10s", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+
+    List<BeginTransactionRequest> beginRequests =
+        mockSpanner.getRequestsOfType(BeginTransactionRequest.class);
+    assertEquals(2, beginRequests.size());
+    for (BeginTransactionRequest request : beginRequests) {
+      assertTrue(request.getOptions().hasReadOnly());
+      assertTrue(request.getOptions().getReadOnly().getStrong());
+    }
+    List<ExecuteSqlRequest> requests = mockSpanner.getRequestsOfType(ExecuteSqlRequest.class);
+    assertEquals(4, requests.size());
+    for (ExecuteSqlRequest request : requests) {
+      assertTrue(request.getTransaction().hasId());
+    }
+    assertEquals(0, mockSpanner.countRequestsOfType(CommitRequest.class));
+    assertEquals(0, mockSpanner.countRequestsOfType(RollbackRequest.class));
+  }
+
+  @Test
+  public void testTransactionBlockThatIsNotReadOnlyUsesReadWriteTransaction() throws SQLException {
+    String nextval = "SELECT nextval('my_sequence')";
+    mockSpanner.putStatementResult(StatementResult.query(Statement.of(nextval), SELECT1_RESULTSET));
+
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      // The automatic detection of read-only transactions is disabled by default.
+      connection.createStatement().execute("begin;SELECT 1;commit");
+
+      connection.createStatement().execute("set spanner.auto_detect_read_only_transactions=true");
+      // The block contains an update statement.
+      connection
+          .createStatement()
+          .execute("begin;SELECT 1;" + UPDATE_STATEMENT.getSql() + ";commit");
+      // The block contains a query that modifies the database.
+      connection.createStatement().execute("begin;SELECT 1;" + nextval + ";commit");
+      // The block is not ended in the same batch of statements.
+      connection.createStatement().execute("begin;SELECT 1");
+      connection.createStatement().execute("commit");
+      // The BEGIN statement explicitly specifies the transaction mode.
+      connection.createStatement().execute("begin read write;SELECT 1;commit");
+      // The automatic detection of read-only transactions has been turned off.
+      connection.createStatement().execute("set spanner.auto_detect_read_only_transactions=false");
+      connection.createStatement().execute("begin;SELECT 1;commit");
+    }
+
+    List<ExecuteSqlRequest> requests =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(request -> request.getSql().equals("SELECT 1"))
+            .collect(Collectors.toList());
+    assertEquals(6, requests.size());
+    for (ExecuteSqlRequest request : requests) {
+      assertTrue(request.getTransaction().getBegin().hasReadWrite());
+    }
+    assertEquals(6, mockSpanner.countRequestsOfType(CommitRequest.class));
+  }
+
   @Test
   public void testUsesMultiplexedSessionForQueryInReadOnlyTransaction() throws SQLException {
     int numQueries = 2;
@@ -5666,4 +6144,79 @@ public class JdbcMockServerTest extends AbstractMockServerTest {
         String.format("ERROR: unrecognized configuration parameter \"%s\"", setting),
         exception.getMessage());
   }
+
+  @Test
+  public void testConnectionOptionsAreSharedByConnections() throws SQLException {
+    pgServer.getConnectionOptionsCache().invalidateAll();
+    for (int i = 0; i < 3; i++) {
+      try (Connection connection = DriverManager.getConnection(createUrl())) {
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+          assertTrue(resultSet.next());
+          assertEquals(1L, resultSet.getLong(1));
+          assertFalse(resultSet.next());
+        }
+      }
+    }
+    // All connections used the same database and credentials, and the database was only validated
+    // by the first connection.
+    assertEquals(1L, pgServer.getConnectionOptionsCache().size());
+  }
+
+  @Test
+  public void testStatementStatistics() throws SQLException {
+    StatementStatistics statistics = pgServer.getStatementStatistics();
+    statistics.reset();
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      for (int i = 0; i < 2; i++) {
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+          assertTrue(resultSet.next());
+          assertFalse(resultSet.next());
+        }
+      }
+      assertEquals(
+          UPDATE_COUNT, connection.createStatement().executeUpdate(UPDATE_STATEMENT.getSql()));
+
+      Map<String, Snapshot> snapshots =
+          statistics.getSnapshots().stream()
+              .collect(Collectors.toMap(Snapshot::getQuery, Function.identity()));
+      Snapshot query = snapshots.get("select $1");
+      assertNotNull(snapshots.keySet().toString(), query);
+      assertEquals(2L, query.getCalls());
+      assertEquals(2L, query.getRows());
+      assertTrue(query.getTotalNanos() >= query.getSpannerNanos());
+      Snapshot update = snapshots.get(SimpleParser.normalizeLiterals(UPDATE_STATEMENT.getSql()));
+      assertNotNull(snapshots.keySet().toString(), update);
+      assertEquals(1L, update.getCalls());
+      assertEquals(UPDATE_COUNT, update.getRows());
+
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("select pg_stat_statements_reset()")) {
+        assertTrue(resultSet.next());
+        assertNotNull(resultSet.getTimestamp(1));
+        assertFalse(resultSet.next());
+      }
+      assertTrue(
+          statistics.getSnapshots().stream()
+              .noneMatch(snapshot -> snapshot.getQuery().equals("select $1")));
+    }
+  }
+
+  @Test
+  public void testShowPgStatStatementsLimit() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.pg_stat_statements_limit")) {
+        assertTrue(resultSet.next());
+        assertEquals("1000", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+      connection.createStatement().execute("set spanner.pg_stat_statements_limit=10");
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.pg_stat_statements_limit")) {
+        assertTrue(resultSet.next());
+        assertEquals("10", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
 }
@@ -0,0 +1,123 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.MetricsEndpoint;
+import com.google.common.io.ByteStreams;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetricsMockServerTest extends AbstractMockServerTest {
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    int metricsPort;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      metricsPort = socket.getLocalPort();
+    }
+    doStartMockSpannerAndPgAdapterServers(
+        "d", configurator -> configurator.setMetricsPort(metricsPort));
+  }
+
+  private String createUrl() {
+    return String.format("jdbc:postgresql://localhost:%d/", pgServer.getLocalPort());
+  }
+
+  private static HttpURLConnection openMetricsEndpoint() throws Exception {
+    MetricsEndpoint endpoint = pgServer.getMetricsEndpoint();
+    assertNotNull(endpoint);
+    URL url =
+        new URL(
+            String.format("http://localhost:%d%s", endpoint.getLocalPort(), MetricsEndpoint.PATH));
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  private static String getMetrics() throws Exception {
+    HttpURLConnection connection = openMetricsEndpoint();
+    try {
+      assertEquals(200, connection.getResponseCode());
+      assertTrue(connection.getContentType().startsWith("text/plain"));
+      try (InputStream inputStream = connection.getInputStream()) {
+        return new String(ByteStreams.toByteArray(inputStream), StandardCharsets.UTF_8);
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static long getValue(String metrics, String sample) {
+    Matcher matcher =
+        Pattern.compile("^" + Pattern.quote(sample) + " (\\d+)$", Pattern.MULTILINE)
+            .matcher(metrics);
+    assertTrue(metrics, matcher.find());
+    return Long.parseLong(matcher.group(1));
+  }
+
+  @Test
+  public void testPhaseLatencies() throws Exception {
+    try (Connection connection = DriverManager.getConnection(createUrl())) {
+      try (PreparedStatement statement = connection.prepareStatement(SELECT1.getSql())) {
+        try (ResultSet resultSet = statement.executeQuery()) {
+          assertTrue(resultSet.next());
+          assertFalse(resultSet.next());
+        }
+      }
+      String metrics = getMetrics();
+
+      for (String phase : new String[] {"decode", "parse", "bind", "spanner", "encode", "flush"}) {
+        assertTrue(
+            phase,
+            getValue(
+                    metrics,
+                    String.format("spanner_pgadapter_phase_latencies_count{phase=\"%s\"}", phase))
+                > 0L);
+      }
+      assertTrue(getValue(metrics, "spanner_pgadapter_rows_sent") > 0L);
+      assertTrue(getValue(metrics, "spanner_pgadapter_bytes_sent") > 0L);
+      assertTrue(getValue(metrics, "spanner_pgadapter_bytes_received") > 0L);
+      assertTrue(getValue(metrics, "spanner_pgadapter_active_connections") > 0L);
+    }
+  }
+
+  @Test
+  public void testMetricsEndpointOnlyAcceptsGet() throws Exception {
+    HttpURLConnection connection = openMetricsEndpoint();
+    try {
+      connection.setRequestMethod("POST");
+      assertEquals(405, connection.getResponseCode());
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
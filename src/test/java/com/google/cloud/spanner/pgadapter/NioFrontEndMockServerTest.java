@@ -0,0 +1,222 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.connection.RandomResultSetGenerator;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.common.collect.ImmutableList;
+import com.google.spanner.v1.CommitRequest;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+@RunWith(JUnit4.class)
+public class NioFrontEndMockServerTest extends AbstractMockServerTest {
+  private static final int NUM_WORKER_THREADS = 2;
+
+  @Rule public Timeout globalTimeout = Timeout.seconds(60);
+
+  @BeforeClass
+  public static void loadPgJdbcDriver() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        "d", builder -> builder.setUseNioFrontEnd(true).setNioWorkerThreads(NUM_WORKER_THREADS));
+  }
+
+  private String createUrl(String queryMode) {
+    return String.format(
+        "jdbc:postgresql://localhost:%d/d?preferQueryMode=%s", pgServer.getLocalPort(), queryMode);
+  }
+
+  @Test
+  public void testQuery() throws SQLException {
+    for (String queryMode : new String[] {"extended", "simple"}) {
+      try (Connection connection = DriverManager.getConnection(createUrl(queryMode))) {
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+          assertTrue(resultSet.next());
+          assertEquals(1L, resultSet.getLong(1));
+          assertFalse(resultSet.next());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPreparedStatementReusedManyTimes() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl("extended"))) {
+      try (PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+        for (int i = 0; i < 20; i++) {
+          try (ResultSet resultSet = statement.executeQuery()) {
+            assertTrue(resultSet.next());
+            assertEquals(1L, resultSet.getLong(1));
+            assertFalse(resultSet.next());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidQuery() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl("extended"))) {
+      assertThrows(
+          SQLException.class,
+          () -> connection.createStatement().executeQuery(INVALID_SELECT.getSql()));
+      // The connection should still be usable.
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testManyIdleAndActiveConnections() throws Exception {
+    int numConnections = 50;
+    List<Connection> idleConnections = new ArrayList<>(numConnections);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      for (int i = 0; i < numConnections; i++) {
+        idleConnections.add(DriverManager.getConnection(createUrl("extended")));
+      }
+      List<Future<Long>> futures = new ArrayList<>();
+      for (int i = 0; i < 40; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  try (Connection connection = DriverManager.getConnection(createUrl("extended"));
+                      ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+                    assertTrue(resultSet.next());
+                    return resultSet.getLong(1);
+                  }
+                }));
+      }
+      for (Future<Long> future : futures) {
+        assertEquals(1L, future.get().longValue());
+      }
+      // All idle connections should still work.
+      for (Connection connection : idleConnections) {
+        try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 2")) {
+          assertTrue(resultSet.next());
+          assertEquals(2L, resultSet.getLong(1));
+        }
+      }
+      // The connections were served by a bounded number of worker threads.
+      for (NioServer nioServer : pgServer.getNioServers()) {
+        assertTrue(nioServer.getLargestWorkerPoolSize() <= NUM_WORKER_THREADS);
+      }
+    } finally {
+      executor.shutdown();
+      for (Connection connection : idleConnections) {
+        connection.close();
+      }
+    }
+  }
+
+  @Test
+  public void testCopyIn() throws Exception {
+    CopyInMockServerTest.setupCopyInformationSchemaResults(
+        mockSpanner, "public", "all_types", true);
+
+    try (Connection connection = DriverManager.getConnection(createUrl("extended"))) {
+      CopyManager copyManager = new CopyManager(connection.unwrap(BaseConnection.class));
+      StringBuilder data = new StringBuilder();
+      for (int i = 0; i < 1000; i++) {
+        data.append(i).append('\t').append(i).append('\t').append("name").append(i).append('\n');
+      }
+      assertEquals(
+          1000L, copyManager.copyIn("COPY users FROM STDIN;", new StringReader(data.toString())));
+
+      // Verify that we can use the connection for normal queries.
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+    // The chunks that the COPY data was received in have been returned to the pool.
+    for (NioServer nioServer : pgServer.getNioServers()) {
+      assertTrue(nioServer.getChunkPool().getIdleChunkCount() > 0);
+    }
+    assertEquals(
+        1000,
+        mockSpanner.getRequestsOfType(CommitRequest.class).stream()
+            .flatMap(request -> request.getMutationsList().stream())
+            .mapToInt(mutation -> mutation.getInsert().getValuesCount())
+            .sum());
+  }
+
+  @Test
+  public void testLargeResult() throws SQLException {
+    String sql = "select * from random_large";
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            com.google.cloud.spanner.Statement.of(sql),
+            new RandomResultSetGenerator(5000, Dialect.POSTGRESQL).generate()));
+    try (Connection connection = DriverManager.getConnection(createUrl("extended"));
+        ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+      int count = 0;
+      while (resultSet.next()) {
+        count++;
+      }
+      assertEquals(5000, count);
+    }
+  }
+
+  @Test
+  public void testSslIsNotSupported() {
+    OptionsMetadata options =
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setUseNioFrontEnd(true)
+            .setSslMode(OptionsMetadata.SslMode.Enable)
+            .build();
+    ProxyServer server = new ProxyServer(options);
+    IllegalStateException exception =
+        assertThrows(IllegalStateException.class, server::startServer);
+    assertTrue(
+        exception.getCause().getMessage(),
+        exception.getCause().getMessage().contains("cannot be used in combination with SSL"));
+    assertEquals(ImmutableList.of(), server.getConnectionHandlers());
+  }
+}
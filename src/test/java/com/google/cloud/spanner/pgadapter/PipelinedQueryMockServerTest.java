@@ -0,0 +1,136 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.MockSpannerServiceImpl.SimulatedExecutionTime;
+import com.google.common.base.Stopwatch;
+import com.google.protobuf.ByteString;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PipelinedQueryMockServerTest extends AbstractMockServerTest {
+  @BeforeClass
+  public static void loadPgJdbcDriver() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  private String createUrl(int maxPipelinedQueries) {
+    return String.format(
+        "jdbc:postgresql://localhost:%d/db?options=-c%%20spanner.max_pipelined_queries=%d",
+        pgServer.getLocalPort(), maxPipelinedQueries);
+  }
+
+  private static void assertNextResult(Statement statement, long expected) throws SQLException {
+    try (ResultSet resultSet = statement.getResultSet()) {
+      assertTrue(resultSet.next());
+      assertEquals(expected, resultSet.getLong(1));
+      assertFalse(resultSet.next());
+    }
+  }
+
+  @Test
+  public void testQueriesAreExecutedConcurrently() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl(4))) {
+      mockSpanner.setExecuteStreamingSqlExecutionTime(
+          SimulatedExecutionTime.ofMinimumAndRandomTime(500, 0));
+      try (Statement statement = connection.createStatement()) {
+        // The JDBC driver sends all these queries in one batch with a single Sync message.
+        Stopwatch watch = Stopwatch.createStarted();
+        assertTrue(statement.execute("SELECT 1;SELECT 2;SELECT 1;SELECT 2"));
+        // The queries would take at least 2 seconds if they were executed sequentially.
+        assertTrue(watch.elapsed(TimeUnit.MILLISECONDS) < 1500L);
+
+        // The results are returned in the order of the queries.
+        for (long expected : new long[] {1L, 2L, 1L, 2L}) {
+          assertNextResult(statement, expected);
+          statement.getMoreResults();
+        }
+      }
+    } finally {
+      mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+    }
+
+    // All queries use the same read-only transaction.
+    List<ExecuteSqlRequest> requests =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(
+                request ->
+                    request.getSql().equals(SELECT1.getSql())
+                        || request.getSql().equals(SELECT2.getSql()))
+            .collect(Collectors.toList());
+    assertEquals(4, requests.size());
+    List<BeginTransactionRequest> beginRequests =
+        mockSpanner.getRequestsOfType(BeginTransactionRequest.class);
+    assertEquals(1, beginRequests.size());
+    assertTrue(beginRequests.get(0).getOptions().hasReadOnly());
+    ByteString transactionId = requests.get(0).getTransaction().getId();
+    assertFalse(transactionId.isEmpty());
+    for (ExecuteSqlRequest request : requests) {
+      assertEquals(transactionId, request.getTransaction().getId());
+    }
+  }
+
+  @Test
+  public void testFailedQueryStopsPipeline() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl(2))) {
+      try (Statement statement = connection.createStatement()) {
+        SQLException exception =
+            assertThrows(
+                SQLException.class,
+                () -> statement.execute("SELECT 1;" + INVALID_SELECT.getSql() + ";SELECT 2"));
+        assertTrue(exception.getMessage(), exception.getMessage().contains("Statement is invalid"));
+      }
+      // The connection can be used after a failed pipeline.
+      try (ResultSet resultSet = connection.createStatement().executeQuery(SELECT2.getSql())) {
+        assertTrue(resultSet.next());
+        assertEquals(2L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testShowMaxPipelinedQueries() throws SQLException {
+    try (Connection connection =
+        DriverManager.getConnection(
+            String.format("jdbc:postgresql://localhost:%d/db", pgServer.getLocalPort()))) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.max_pipelined_queries")) {
+        assertTrue(resultSet.next());
+        assertEquals("1", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.Dialect;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.connection.RandomResultSetGenerator;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PipelinedResultEncodingMockServerTest extends AbstractMockServerTest {
+  @BeforeClass
+  public static void loadPgJdbcDriver() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  private String createUrl(boolean pipelined, String queryMode) {
+    return String.format(
+        "jdbc:postgresql://localhost:%d/db?preferQueryMode=%s"
+            + "&options=-c%%20spanner.pipelined_result_encoding=%s",
+        pgServer.getLocalPort(), queryMode, pipelined);
+  }
+
+  private static List<List<String>> readAll(ResultSet resultSet) throws SQLException {
+    List<List<String>> rows = new ArrayList<>();
+    while (resultSet.next()) {
+      List<String> row = new ArrayList<>(resultSet.getMetaData().getColumnCount());
+      for (int col = 1; col <= resultSet.getMetaData().getColumnCount(); col++) {
+        row.add(resultSet.getString(col));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  public void testPipelinedResultIsEqualToNormalResult() throws SQLException {
+    String sql = "select * from random_wide_table";
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(sql), new RandomResultSetGenerator(1000, Dialect.POSTGRESQL).generate()));
+
+    for (String queryMode : new String[] {"extended", "simple"}) {
+      List<List<String>> expected;
+      try (Connection connection = DriverManager.getConnection(createUrl(false, queryMode));
+          ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+        expected = readAll(resultSet);
+      }
+      try (Connection connection = DriverManager.getConnection(createUrl(true, queryMode));
+          ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+        assertEquals(queryMode, expected, readAll(resultSet));
+      }
+      assertEquals(1000, expected.size());
+    }
+  }
+
+  @Test
+  public void testPipelinedResultWithFetchSize() throws SQLException {
+    String sql = "select * from random_wide_table";
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(sql), new RandomResultSetGenerator(500, Dialect.POSTGRESQL).generate()));
+
+    List<List<String>> expected;
+    try (Connection connection = DriverManager.getConnection(createUrl(false, "extended"));
+        ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+      expected = readAll(resultSet);
+    }
+    try (Connection connection = DriverManager.getConnection(createUrl(true, "extended"))) {
+      // The JDBC driver only uses a fetch size when the connection is not in autocommit mode. This
+      // makes PGAdapter suspend the portal after each batch of rows.
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        statement.setFetchSize(33);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          assertEquals(expected, readAll(resultSet));
+        }
+      }
+      connection.commit();
+    }
+  }
+
+  @Test
+  public void testEmptyResult() throws SQLException {
+    String sql = "select * from random_empty_table";
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(sql), new RandomResultSetGenerator(0, Dialect.POSTGRESQL).generate()));
+
+    try (Connection connection = DriverManager.getConnection(createUrl(true, "extended"))) {
+      try (ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+        assertFalse(resultSet.next());
+      }
+      try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+
+  @Test
+  public void testLargeWideResult() throws SQLException {
+    String sql = "select * from random_large_wide_table";
+    int numRows = 2_000;
+    mockSpanner.putStatementResult(
+        StatementResult.query(
+            Statement.of(sql),
+            new RandomResultSetGenerator(numRows, Dialect.POSTGRESQL).generate()));
+
+    for (boolean pipelined : new boolean[] {false, true}) {
+      try (Connection connection = DriverManager.getConnection(createUrl(pipelined, "extended"))) {
+        int count = 0;
+        try (ResultSet resultSet = connection.createStatement().executeQuery(sql)) {
+          while (resultSet.next()) {
+            count++;
+          }
+        }
+        assertEquals(numRows, count);
+      }
+    }
+  }
+
+  @Test
+  public void testShowPipelinedResultEncoding() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl(false, "extended"))) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.pipelined_result_encoding")) {
+        assertTrue(resultSet.next());
+        assertEquals("false", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+    try (Connection connection = DriverManager.getConnection(createUrl(true, "extended"))) {
+      try (ResultSet resultSet =
+          connection.createStatement().executeQuery("show spanner.pipelined_result_encoding")) {
+        assertTrue(resultSet.next());
+        assertEquals("true", resultSet.getString(1));
+        assertFalse(resultSet.next());
+      }
+    }
+  }
+}
@@ -14,9 +14,12 @@
 
 package com.google.cloud.spanner.pgadapter;
 
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
+import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.TestOptionsMetadataBuilder;
 import java.time.Duration;
@@ -51,4 +54,16 @@ public class ProxyServerTest {
 
     server.stopServer();
   }
+
+  @Test
+  public void testDescribeResultCache() {
+    ProxyServer server = new ProxyServer(OptionsMetadata.newBuilder().setPort(0).build());
+    assertNotNull(server.getDescribeResultCache());
+
+    ProxyServer serverWithoutCache =
+        new ProxyServer(OptionsMetadata.newBuilder().setPort(0).setDescribeCacheSizeMb(0).build());
+    assertNull(serverWithoutCache.getDescribeResultCache());
+    // Invalidating the caches should also work when the describe cache is disabled.
+    serverWithoutCache.invalidateCachesForDatabase(DatabaseId.of("p", "i", "d"));
+  }
 }
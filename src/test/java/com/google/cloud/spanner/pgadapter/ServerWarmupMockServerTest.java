@@ -0,0 +1,106 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ServerWarmupMockServerTest extends AbstractMockServerTest {
+  private static File readinessFile;
+  private static boolean readinessFileExistedAtStartup;
+  private static long catalogCacheSizeAtStartup;
+  private static Set<String> sqlAtStartup;
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    readinessFile = File.createTempFile("pgadapter-ready", ".txt");
+    assertTrue(readinessFile.delete());
+    doStartMockSpannerAndPgAdapterServers(
+        "d",
+        configurator -> {
+          for (String sql : ServerWarmup.CATALOG_QUERIES) {
+            mockSpanner.putStatementResult(
+                StatementResult.query(
+                    ServerWarmup.createCatalogQuery(mock(OptionsMetadata.class), sql),
+                    SELECT1_RESULTSET));
+          }
+          configurator
+              .setWarmupDatabases("d")
+              .setReadinessFile(readinessFile.getAbsolutePath())
+              .setCatalogCacheTtlSeconds(60);
+        });
+    // Record the state directly after startup, as the requests and caches are cleared before each
+    // test.
+    readinessFileExistedAtStartup = readinessFile.exists();
+    catalogCacheSizeAtStartup = pgServer.getCatalogResultCache().size();
+    sqlAtStartup =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .map(ExecuteSqlRequest::getSql)
+            .collect(Collectors.toSet());
+  }
+
+  @AfterClass
+  public static void deleteReadinessFile() {
+    if (readinessFile != null) {
+      //noinspection ResultOfMethodCallIgnored
+      readinessFile.delete();
+    }
+  }
+
+  @Test
+  public void testDatabaseIsWarmedUpAtStartup() {
+    assertTrue(readinessFileExistedAtStartup);
+    assertEquals(ServerWarmup.CATALOG_QUERIES.size(), catalogCacheSizeAtStartup);
+    for (String sql : ServerWarmup.CATALOG_QUERIES) {
+      assertTrue(
+          sql,
+          sqlAtStartup.contains(
+              ServerWarmup.createCatalogQuery(mock(OptionsMetadata.class), sql).getSql()));
+    }
+  }
+
+  @Test
+  public void testConnectAfterWarmup() throws SQLException {
+    try (Connection connection =
+        DriverManager.getConnection(
+            String.format("jdbc:postgresql://localhost:%d/d", pgServer.getLocalPort()))) {
+      try (ResultSet resultSet = connection.createStatement().executeQuery(SELECT1.getSql())) {
+        assertTrue(resultSet.next());
+        assertEquals(1L, resultSet.getLong(1));
+        assertFalse(resultSet.next());
+      }
+    }
+    assertTrue(readinessFile.exists());
+  }
+}
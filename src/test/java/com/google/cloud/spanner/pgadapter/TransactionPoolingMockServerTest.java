@@ -0,0 +1,163 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.SpannerConnectionPool;
+import com.google.spanner.v1.CommitRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TransactionPoolingMockServerTest extends AbstractMockServerTest {
+  private static final int POOL_SIZE = 2;
+
+  @Rule public Timeout globalTimeout = Timeout.seconds(60);
+
+  @BeforeClass
+  public static void loadPgJdbcDriver() throws Exception {
+    // Make sure the PG JDBC driver is loaded.
+    Class.forName("org.postgresql.Driver");
+  }
+
+  @BeforeClass
+  public static void startMockSpannerAndPgAdapterServers() throws Exception {
+    doStartMockSpannerAndPgAdapterServers(
+        "d", builder -> builder.setTransactionPoolSize(POOL_SIZE));
+  }
+
+  private String createUrl(String queryMode) {
+    return String.format(
+        "jdbc:postgresql://localhost:%d/d?preferQueryMode=%s", pgServer.getLocalPort(), queryMode);
+  }
+
+  private static SpannerConnectionPool getPool() {
+    SpannerConnectionPool pool = pgServer.getSpannerConnectionPool();
+    assertNotNull(pool);
+    return pool;
+  }
+
+  private static void assertSelect1(Connection connection) throws SQLException {
+    try (ResultSet resultSet = connection.createStatement().executeQuery("SELECT 1")) {
+      assertTrue(resultSet.next());
+      assertEquals(1L, resultSet.getLong(1));
+      assertFalse(resultSet.next());
+    }
+  }
+
+  private static String show(Connection connection, String setting) throws SQLException {
+    try (ResultSet resultSet = connection.createStatement().executeQuery("show " + setting)) {
+      assertTrue(resultSet.next());
+      String value = resultSet.getString(1);
+      assertFalse(resultSet.next());
+      return value;
+    }
+  }
+
+  @Test
+  public void testManyClientConnectionsShareFewSpannerConnections() throws SQLException {
+    for (String queryMode : new String[] {"extended", "simple"}) {
+      List<Connection> connections = new ArrayList<>();
+      try {
+        for (int i = 0; i < 5 * POOL_SIZE; i++) {
+          connections.add(DriverManager.getConnection(createUrl(queryMode)));
+        }
+        // The connections are idle after the startup sequence, and do not hold a Spanner
+        // connection.
+        assertEquals(0, getPool().getLeasedCount());
+        for (int round = 0; round < 2; round++) {
+          for (Connection connection : connections) {
+            assertSelect1(connection);
+            assertEquals(0, getPool().getLeasedCount());
+          }
+        }
+        assertTrue(getPool().getIdleCount() <= POOL_SIZE);
+      } finally {
+        for (Connection connection : connections) {
+          connection.close();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTransactionHoldsSpannerConnection() throws SQLException {
+    try (Connection connection1 = DriverManager.getConnection(createUrl("extended"));
+        Connection connection2 = DriverManager.getConnection(createUrl("extended"))) {
+      connection1.setAutoCommit(false);
+      assertEquals(1, connection1.createStatement().executeUpdate(INSERT_STATEMENT.getSql()));
+      assertEquals(1, getPool().getLeasedCount());
+
+      // Other clients can use the remaining connections in the pool while the transaction is
+      // active.
+      assertSelect1(connection2);
+      assertEquals(1, getPool().getLeasedCount());
+
+      connection1.commit();
+      assertEquals(0, getPool().getLeasedCount());
+    }
+    assertEquals(1, mockSpanner.countRequestsOfType(CommitRequest.class));
+  }
+
+  @Test
+  public void testConnectionSettingsAreReappliedAfterLease() throws SQLException {
+    try (Connection connection1 = DriverManager.getConnection(createUrl("extended"));
+        Connection connection2 = DriverManager.getConnection(createUrl("extended"))) {
+      connection1.createStatement().execute("set spanner.read_only_staleness='max_staleness 10s'");
+      assertEquals(0, getPool().getLeasedCount());
+
+      // The second client gets the same Spanner connection from the pool, but not the setting of
+      // the first client.
+      assertEquals("STRONG", show(connection2, "spanner.read_only_staleness"));
+      assertEquals("MAX_STALENESS 10s", show(connection1, "spanner.read_only_staleness"));
+      assertSelect1(connection1);
+    }
+    ExecuteSqlRequest request =
+        mockSpanner.getRequestsOfType(ExecuteSqlRequest.class).stream()
+            .filter(r -> r.getSql().equals("SELECT 1"))
+            .reduce((first, second) -> second)
+            .orElseThrow(AssertionError::new);
+    assertTrue(request.getTransaction().getSingleUse().getReadOnly().hasMaxStaleness());
+    assertEquals(
+        10L, request.getTransaction().getSingleUse().getReadOnly().getMaxStaleness().getSeconds());
+  }
+
+  @Test
+  public void testResetAllClearsConnectionSettings() throws SQLException {
+    try (Connection connection = DriverManager.getConnection(createUrl("extended"))) {
+      connection
+          .createStatement()
+          .execute("set spanner.autocommit_dml_mode='partitioned_non_atomic'");
+      assertEquals("PARTITIONED_NON_ATOMIC", show(connection, "spanner.autocommit_dml_mode"));
+      connection.createStatement().execute("reset all");
+      assertEquals("TRANSACTIONAL", show(connection, "spanner.autocommit_dml_mode"));
+    }
+  }
+}
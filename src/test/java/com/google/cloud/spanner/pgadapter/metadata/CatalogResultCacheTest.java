@@ -0,0 +1,140 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.common.collect.ImmutableList;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CatalogResultCacheTest {
+  private static final DatabaseId DATABASE1 = DatabaseId.of("p", "i", "d1");
+  private static final DatabaseId DATABASE2 = DatabaseId.of("p", "i", "d2");
+  private static final Statement STATEMENT =
+      Statement.of("select table_name from information_schema.tables");
+  private static final Type TYPE = Type.struct(StructField.of("table_name", Type.string()));
+
+  private static ResultSet createResultSet(String... tableNames) {
+    ImmutableList.Builder<Struct> rows = ImmutableList.builder();
+    for (String tableName : tableNames) {
+      rows.add(Struct.newBuilder().set("table_name").to(tableName).build());
+    }
+    return ResultSets.forRows(TYPE, rows.build());
+  }
+
+  private static void assertRows(ResultSet resultSet, String... tableNames) {
+    for (String tableName : tableNames) {
+      assertTrue(resultSet.next());
+      assertEquals(tableName, resultSet.getString("table_name"));
+    }
+    assertFalse(resultSet.next());
+    assertEquals(TYPE, resultSet.getType());
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    Metrics metrics = mock(Metrics.class);
+    CatalogResultCache cache = new CatalogResultCache(metrics, Duration.ofMinutes(1L));
+
+    assertNull(cache.get(DATABASE1, STATEMENT));
+    verify(metrics).recordCatalogCacheMiss();
+
+    assertRows(cache.put(DATABASE1, STATEMENT, createResultSet("foo", "bar")), "foo", "bar");
+    assertEquals(1L, cache.size());
+
+    // Each lookup returns a new result set for the same rows.
+    for (int i = 0; i < 2; i++) {
+      ResultSet resultSet = cache.get(DATABASE1, STATEMENT);
+      assertNotNull(resultSet);
+      assertRows(resultSet, "foo", "bar");
+    }
+
+    // The same query on a different database is a different entry.
+    assertNull(cache.get(DATABASE2, STATEMENT));
+  }
+
+  @Test
+  public void testKeyIncludesParameters() {
+    CatalogResultCache cache = new CatalogResultCache(mock(Metrics.class), Duration.ofMinutes(1L));
+    Statement statement =
+        Statement.newBuilder("select table_name from information_schema.tables where table_name=$1")
+            .bind("p1")
+            .to("foo")
+            .build();
+    cache.put(DATABASE1, statement, createResultSet("foo"));
+
+    assertNotNull(cache.get(DATABASE1, statement));
+    assertNull(cache.get(DATABASE1, statement.toBuilder().bind("p1").to("bar").build()));
+  }
+
+  @Test
+  public void testInvalidateDatabase() {
+    CatalogResultCache cache = new CatalogResultCache(mock(Metrics.class), Duration.ofMinutes(1L));
+    cache.put(DATABASE1, STATEMENT, createResultSet("foo"));
+    cache.put(DATABASE2, STATEMENT, createResultSet("bar"));
+
+    cache.invalidate(DATABASE1);
+
+    assertNull(cache.get(DATABASE1, STATEMENT));
+    assertRows(cache.get(DATABASE2, STATEMENT), "bar");
+  }
+
+  @Test
+  public void testLargeResultsAreNotCached() {
+    CatalogResultCache cache =
+        new CatalogResultCache(mock(Metrics.class), Duration.ofMinutes(1L), 100L, 2);
+
+    // The rows are returned, but not cached.
+    assertRows(cache.put(DATABASE1, STATEMENT, createResultSet("a", "b", "c")), "a", "b", "c");
+    assertEquals(0L, cache.size());
+
+    cache.put(DATABASE1, STATEMENT, createResultSet("a", "b"));
+    assertEquals(1L, cache.size());
+  }
+
+  @Test
+  public void testExpiredResultsAreNotReturned() {
+    CatalogResultCache cache = new CatalogResultCache(mock(Metrics.class), Duration.ZERO);
+    cache.put(DATABASE1, STATEMENT, createResultSet("foo"));
+
+    assertNull(cache.get(DATABASE1, STATEMENT));
+  }
+
+  @Test
+  public void testInvalidMaxRows() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CatalogResultCache(mock(Metrics.class), Duration.ofMinutes(1L), 100L, 0));
+  }
+}
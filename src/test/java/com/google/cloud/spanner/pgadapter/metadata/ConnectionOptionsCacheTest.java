@@ -0,0 +1,158 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConnectionOptionsCacheTest {
+
+  private static Supplier<ConnectionOptions> supplier(String database, AtomicInteger counter) {
+    return () -> {
+      counter.incrementAndGet();
+      return ConnectionOptions.newBuilder()
+          .setUri(
+              "cloudspanner://localhost:9010/projects/p/instances/i/databases/"
+                  + database
+                  + ";usePlainText=true")
+          .build();
+    };
+  }
+
+  @Test
+  public void testGetReturnsSameEntry() {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache();
+    AtomicInteger counter = new AtomicInteger();
+
+    ConnectionOptionsCache.Entry entry = cache.get("d1", null, supplier("d1", counter));
+    assertFalse(entry.isValidated());
+    assertSame(entry, cache.get("d1", null, supplier("d1", counter)));
+    assertEquals(1, counter.get());
+
+    entry.markValidated();
+    assertTrue(cache.get("d1", null, supplier("d1", counter)).isValidated());
+
+    // A different database is a different entry.
+    ConnectionOptionsCache.Entry other = cache.get("d2", null, supplier("d2", counter));
+    assertNotSame(entry, other);
+    assertFalse(other.isValidated());
+    assertEquals(2, counter.get());
+    assertEquals(2L, cache.size());
+  }
+
+  @Test
+  public void testNullDatabase() {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache();
+    AtomicInteger counter = new AtomicInteger();
+
+    ConnectionOptionsCache.Entry entry = cache.get(null, null, supplier("d1", counter));
+    assertSame(entry, cache.get(null, null, supplier("d1", counter)));
+    assertNotSame(entry, cache.get("d1", null, supplier("d1", counter)));
+    assertEquals(2, counter.get());
+  }
+
+  @Test
+  public void testKeyIncludesCredentials() {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache();
+    AtomicInteger counter = new AtomicInteger();
+    GoogleCredentials credentials1 = GoogleCredentials.create(new AccessToken("token1", null));
+    GoogleCredentials credentials2 = GoogleCredentials.create(new AccessToken("token2", null));
+
+    ConnectionOptionsCache.Entry entry = cache.get("d1", credentials1, supplier("d1", counter));
+    entry.markValidated();
+    assertSame(entry, cache.get("d1", credentials1, supplier("d1", counter)));
+    ConnectionOptionsCache.Entry other = cache.get("d1", credentials2, supplier("d1", counter));
+    assertNotSame(entry, other);
+    assertFalse(other.isValidated());
+    assertFalse(cache.get("d1", null, supplier("d1", counter)).isValidated());
+    // Credentials are compared by identity, so credentials that are created for each connection
+    // are never shared.
+    assertNotSame(
+        entry,
+        cache.get(
+            "d1",
+            GoogleCredentials.create(new AccessToken("token1", null)),
+            supplier("d1", counter)));
+    assertEquals(4, counter.get());
+  }
+
+  @Test
+  public void testSupplierExceptionIsNotCached() {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache();
+    AtomicInteger counter = new AtomicInteger();
+
+    SpannerException exception =
+        assertThrows(
+            SpannerException.class,
+            () ->
+                cache.get(
+                    "d1",
+                    null,
+                    () -> {
+                      throw SpannerExceptionFactory.newSpannerException(
+                          ErrorCode.INVALID_ARGUMENT, "invalid url");
+                    }));
+    assertEquals(ErrorCode.INVALID_ARGUMENT, exception.getErrorCode());
+    assertEquals(0L, cache.size());
+
+    cache.get("d1", null, supplier("d1", counter));
+    assertEquals(1, counter.get());
+  }
+
+  @Test
+  public void testInvalidate() {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache();
+    AtomicInteger counter = new AtomicInteger();
+
+    cache.get("d1", null, supplier("d1", counter)).markValidated();
+    cache.get("d2", null, supplier("d2", counter)).markValidated();
+
+    cache.invalidate("d1", null);
+    assertFalse(cache.get("d1", null, supplier("d1", counter)).isValidated());
+    assertTrue(cache.get("d2", null, supplier("d2", counter)).isValidated());
+
+    cache.invalidateAll();
+    assertEquals(0L, cache.size());
+  }
+
+  @Test
+  public void testExpiry() throws InterruptedException {
+    ConnectionOptionsCache cache = new ConnectionOptionsCache(10L, Duration.ofMillis(1L));
+    AtomicInteger counter = new AtomicInteger();
+
+    cache.get("d1", null, supplier("d1", counter)).markValidated();
+    Thread.sleep(5L);
+    assertFalse(cache.get("d1", null, supplier("d1", counter)).isValidated());
+    assertEquals(2, counter.get());
+  }
+}
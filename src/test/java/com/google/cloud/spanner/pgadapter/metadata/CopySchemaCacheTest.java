@@ -0,0 +1,88 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.pgadapter.metadata.CopySchemaCache.TableSchema;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopySchemaCacheTest {
+  private static final DatabaseId DATABASE_ID = DatabaseId.of("p", "i", "d");
+  private static final DatabaseId OTHER_DATABASE_ID = DatabaseId.of("p", "i", "d2");
+  private static final TableSchema SCHEMA =
+      new TableSchema(ImmutableMap.of("id", Type.int64(), "name", Type.string()), 1);
+
+  @Test
+  public void testGetAndPut() {
+    CopySchemaCache cache = new CopySchemaCache();
+    assertNull(cache.get(DATABASE_ID, "public", "users", null));
+
+    cache.put(DATABASE_ID, "public", "users", null, SCHEMA);
+    assertSame(SCHEMA, cache.get(DATABASE_ID, "public", "users", null));
+    // A null and an empty column list both mean all columns.
+    assertSame(SCHEMA, cache.get(DATABASE_ID, "public", "users", ImmutableList.of()));
+    assertEquals(1, SCHEMA.getIndexedColumnsCount());
+    assertEquals(ImmutableList.of("id", "name"), SCHEMA.getColumns().keySet().asList());
+  }
+
+  @Test
+  public void testKeyIncludesDatabaseSchemaTableAndColumns() {
+    CopySchemaCache cache = new CopySchemaCache();
+    cache.put(DATABASE_ID, "public", "users", ImmutableList.of("id", "name"), SCHEMA);
+
+    assertNull(cache.get(OTHER_DATABASE_ID, "public", "users", ImmutableList.of("id", "name")));
+    assertNull(cache.get(DATABASE_ID, "other", "users", ImmutableList.of("id", "name")));
+    assertNull(cache.get(DATABASE_ID, "public", "Users", ImmutableList.of("id", "name")));
+    assertNull(cache.get(DATABASE_ID, "public", "users", ImmutableList.of("name", "id")));
+    assertNull(cache.get(DATABASE_ID, "public", "users", null));
+    assertSame(SCHEMA, cache.get(DATABASE_ID, "public", "users", ImmutableList.of("id", "name")));
+  }
+
+  @Test
+  public void testInvalidate() {
+    CopySchemaCache cache = new CopySchemaCache();
+    cache.put(DATABASE_ID, "public", "users", null, SCHEMA);
+    cache.put(OTHER_DATABASE_ID, "public", "users", null, SCHEMA);
+
+    cache.invalidate(DATABASE_ID);
+    assertNull(cache.get(DATABASE_ID, "public", "users", null));
+    assertSame(SCHEMA, cache.get(OTHER_DATABASE_ID, "public", "users", null));
+    assertEquals(1L, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0L, cache.size());
+  }
+
+  @Test
+  public void testMaximumSize() {
+    CopySchemaCache cache = new CopySchemaCache(2L, Duration.ofMinutes(1L));
+    cache.put(DATABASE_ID, "public", "t1", null, SCHEMA);
+    cache.put(DATABASE_ID, "public", "t2", null, SCHEMA);
+    cache.put(DATABASE_ID, "public", "t3", null, SCHEMA);
+
+    assertEquals(2L, cache.size());
+  }
+}
@@ -0,0 +1,175 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.spanner.DatabaseId;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import com.google.common.base.Strings;
+import java.time.Duration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.postgresql.core.Oid;
+
+@RunWith(JUnit4.class)
+public class DescribeResultCacheTest {
+  private static final DatabaseId DATABASE1 = DatabaseId.of("p", "i", "d1");
+  private static final DatabaseId DATABASE2 = DatabaseId.of("p", "i", "d2");
+
+  @Test
+  public void testHitAndMiss() {
+    Metrics metrics = mock(Metrics.class);
+    DescribeResultCache cache = new DescribeResultCache(metrics);
+    DescribeResult result = new DescribeResult(new int[] {Oid.INT8}, null);
+
+    assertNull(cache.get(DATABASE1, "select $1", new int[0]));
+    verify(metrics).recordDescribeCacheMiss();
+
+    cache.put(DATABASE1, "select $1", new int[0], result);
+    assertSame(result, cache.get(DATABASE1, "select $1", new int[0]));
+    verify(metrics).recordDescribeCacheHit();
+
+    // The same SQL string on a different database is a different entry.
+    assertNull(cache.get(DATABASE2, "select $1", new int[0]));
+    verify(metrics, times(2)).recordDescribeCacheMiss();
+  }
+
+  @Test
+  public void testKeyIncludesGivenParameterTypes() {
+    DescribeResultCache cache = new DescribeResultCache(mock(Metrics.class));
+    DescribeResult result = new DescribeResult(new int[] {Oid.INT8}, null);
+    int[] givenTypes = new int[] {Oid.INT8};
+    cache.put(DATABASE1, "select $1", givenTypes, result);
+
+    assertNull(cache.get(DATABASE1, "select $1", new int[0]));
+    assertNull(cache.get(DATABASE1, "select $1", new int[] {Oid.VARCHAR}));
+    assertSame(result, cache.get(DATABASE1, "select $1", new int[] {Oid.INT8}));
+
+    // Modifying the array after it has been added to the cache should not affect the cache.
+    givenTypes[0] = Oid.VARCHAR;
+    assertSame(result, cache.get(DATABASE1, "select $1", new int[] {Oid.INT8}));
+  }
+
+  @Test
+  public void testInvalidateDatabase() {
+    DescribeResultCache cache = new DescribeResultCache(mock(Metrics.class));
+    DescribeResult result = new DescribeResult(new int[0], null);
+    cache.put(DATABASE1, "select 1", new int[0], result);
+    cache.put(DATABASE1, "select 2", new int[0], result);
+    cache.put(DATABASE2, "select 1", new int[0], result);
+    assertEquals(3L, cache.size());
+
+    cache.invalidate(DATABASE1);
+    assertEquals(1L, cache.size());
+    assertNull(cache.get(DATABASE1, "select 1", new int[0]));
+    assertSame(result, cache.get(DATABASE2, "select 1", new int[0]));
+
+    cache.invalidateAll();
+    assertEquals(0L, cache.size());
+  }
+
+  @Test
+  public void testEviction() {
+    Metrics metrics = mock(Metrics.class);
+    DescribeResultCache cache = new DescribeResultCache(metrics, 2L, Duration.ofMinutes(1L));
+    DescribeResult result = new DescribeResult(new int[0], null);
+    for (int i = 0; i < 5; i++) {
+      cache.put(DATABASE1, "select " + i, new int[0], result);
+    }
+    cache.cleanUp();
+
+    assertEquals(2L, cache.size());
+    verify(metrics, times(3)).recordDescribeCacheEviction();
+  }
+
+  @Test
+  public void testMemoryBudget() {
+    Metrics metrics = mock(Metrics.class);
+    DescribeResultCache cache = new DescribeResultCache(metrics, 1);
+    DescribeResult result = new DescribeResult(new int[] {Oid.INT8}, null);
+    String padding = Strings.repeat(" ", 1000);
+    for (int i = 0; i < 1000; i++) {
+      cache.put(DATABASE1, "select " + i + padding, new int[0], result);
+    }
+    cache.cleanUp();
+
+    // Each entry uses more than 2KB, so less than 512 entries fit in 1MB.
+    assertTrue(cache.size() < 512L);
+    assertTrue(cache.size() > 0L);
+    verify(metrics, times((int) (1000L - cache.size()))).recordDescribeCacheEviction();
+
+    DescribeResultCache disabled = new DescribeResultCache(metrics, 0);
+    disabled.put(DATABASE1, "select 1", new int[0], result);
+    disabled.cleanUp();
+    assertEquals(0L, disabled.size());
+  }
+
+  @Test
+  public void testEstimateSize() {
+    DescribeResult withoutColumns = new DescribeResult(new int[] {Oid.INT8}, null);
+    DescribeResultCache.Key key = new DescribeResultCache.Key(DATABASE1, "select $1", new int[0]);
+    int sizeWithoutColumns = DescribeResultCache.estimateSize(key, withoutColumns);
+
+    assertTrue(
+        DescribeResultCache.estimateSize(
+                new DescribeResultCache.Key(DATABASE1, "select $1 /* comment */", new int[0]),
+                withoutColumns)
+            > sizeWithoutColumns);
+    assertTrue(
+        DescribeResultCache.estimateSize(
+                new DescribeResultCache.Key(DATABASE1, "select $1", new int[] {Oid.INT8}),
+                withoutColumns)
+            > sizeWithoutColumns);
+  }
+
+  @Test
+  public void testInvalidateIsNotCountedAsEviction() {
+    Metrics metrics = mock(Metrics.class);
+    DescribeResultCache cache = new DescribeResultCache(metrics);
+    cache.put(DATABASE1, "select 1", new int[0], new DescribeResult(new int[0], null));
+    cache.invalidate(DATABASE1);
+    cache.cleanUp();
+
+    verify(metrics, times(0)).recordDescribeCacheEviction();
+  }
+
+  @Test
+  public void testKeyEquality() {
+    assertEquals(
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}),
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}));
+    assertEquals(
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}).hashCode(),
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}).hashCode());
+    assertEquals(
+        new DescribeResultCache.Key(null, "select 1", new int[0]),
+        new DescribeResultCache.Key(null, "select 1", new int[0]));
+    assertNotEquals(
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}),
+        new DescribeResultCache.Key(DATABASE1, "select 2", new int[] {1}));
+    assertNotEquals(
+        new DescribeResultCache.Key(DATABASE1, "select 1", new int[] {1}),
+        new DescribeResultCache.Key(DATABASE2, "select 1", new int[] {1}));
+  }
+}
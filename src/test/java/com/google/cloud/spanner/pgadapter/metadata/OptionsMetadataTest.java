@@ -35,6 +35,7 @@ import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.DdlTransactionMode;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.SslMode;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata.TextFormat;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -97,6 +98,196 @@ public class OptionsMetadataTest {
     assertEquals(100, options.getMaxBacklog());
   }
 
+  @Test
+  public void testTransactionPoolSize() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertFalse(options.isTransactionPooling());
+    assertEquals(0, options.getTransactionPoolSize());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p", "p", "-i", "i", "-transaction_pool_size", "10", "-c", "credentials.json"
+            });
+    assertTrue(options.isTransactionPooling());
+    assertEquals(10, options.getTransactionPoolSize());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-transaction_pool_size", "-1", "-c", "credentials.json"
+                }));
+  }
+
+  @Test
+  public void testNioWorkerThreads() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(OptionsMetadata.DEFAULT_NIO_WORKER_THREADS, options.getNioWorkerThreads());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p", "p", "-i", "i", "-nio_worker_threads", "8", "-c", "credentials.json"
+            });
+    assertEquals(8, options.getNioWorkerThreads());
+    assertEquals(
+        4,
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setNioWorkerThreads(4)
+            .build()
+            .getNioWorkerThreads());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-nio_worker_threads", "0", "-c", "credentials.json"
+                }));
+    assertThrows(
+        IllegalArgumentException.class, () -> OptionsMetadata.newBuilder().setNioWorkerThreads(0));
+  }
+
+  @Test
+  public void testDescribeCacheSizeMb() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(OptionsMetadata.DEFAULT_DESCRIBE_CACHE_SIZE_MB, options.getDescribeCacheSizeMb());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p", "p", "-i", "i", "-describe_cache_size_mb", "0", "-c", "credentials.json"
+            });
+    assertEquals(0, options.getDescribeCacheSizeMb());
+    assertEquals(
+        100,
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setDescribeCacheSizeMb(100)
+            .build()
+            .getDescribeCacheSizeMb());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-describe_cache_size_mb", "-1", "-c", "credentials.json"
+                }));
+  }
+
+  @Test
+  public void testMetricsPort() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(0, options.getMetricsPort());
+
+    options =
+        new OptionsMetadata(
+            new String[] {"-p", "p", "-i", "i", "-metrics_port", "9464", "-c", "credentials.json"});
+    assertEquals(9464, options.getMetricsPort());
+    assertEquals(
+        9090,
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setMetricsPort(9090)
+            .build()
+            .getMetricsPort());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-metrics_port", "-1", "-c", "credentials.json"
+                }));
+    assertThrows(
+        IllegalArgumentException.class, () -> OptionsMetadata.newBuilder().setMetricsPort(65536));
+  }
+
+  @Test
+  public void testCatalogCacheTtlSeconds() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertEquals(0, options.getCatalogCacheTtlSeconds());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p", "p", "-i", "i", "-catalog_cache_ttl_seconds", "60", "-c", "credentials.json"
+            });
+    assertEquals(60, options.getCatalogCacheTtlSeconds());
+    assertEquals(
+        30,
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setCatalogCacheTtlSeconds(30)
+            .build()
+            .getCatalogCacheTtlSeconds());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            new OptionsMetadata(
+                new String[] {
+                  "-p", "p", "-i", "i", "-catalog_cache_ttl_seconds", "-1", "-c", "credentials.json"
+                }));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> OptionsMetadata.newBuilder().setCatalogCacheTtlSeconds(-1));
+  }
+
+  @Test
+  public void testWarmupDatabasesAndReadinessFile() {
+    OptionsMetadata options =
+        new OptionsMetadata(new String[] {"-p", "p", "-i", "i", "-c", "credentials.json"});
+    assertTrue(options.getWarmupDatabases().isEmpty());
+    assertNull(options.getReadinessFile());
+
+    options =
+        new OptionsMetadata(
+            new String[] {
+              "-p",
+              "p",
+              "-i",
+              "i",
+              "-warmup_databases",
+              "db1, db2,",
+              "-readiness_file",
+              "/tmp/ready",
+              "-c",
+              "credentials.json"
+            });
+    assertEquals(ImmutableList.of("db1", "db2"), options.getWarmupDatabases());
+    assertEquals("/tmp/ready", options.getReadinessFile());
+
+    options =
+        OptionsMetadata.newBuilder()
+            .setProject("p")
+            .setInstance("i")
+            .setWarmupDatabases("db1", "db2")
+            .setReadinessFile("/tmp/ready")
+            .build();
+    assertEquals(ImmutableList.of("db1", "db2"), options.getWarmupDatabases());
+    assertEquals("/tmp/ready", options.getReadinessFile());
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> OptionsMetadata.newBuilder().setWarmupDatabases("db1,db2"));
+    assertThrows(
+        IllegalArgumentException.class, () -> OptionsMetadata.newBuilder().setWarmupDatabases(""));
+  }
+
   @Test
   public void testDatabaseName() {
     assertFalse(
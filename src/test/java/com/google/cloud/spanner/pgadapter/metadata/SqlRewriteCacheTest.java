@@ -0,0 +1,86 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
+import com.google.cloud.spanner.pgadapter.utils.Metrics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SqlRewriteCacheTest {
+  private static final String SQL = "select * from foo where id=$1 for update";
+  private static final Statement REWRITTEN =
+      Statement.of("/*@ LOCK_SCANNED_RANGES=exclusive */select * from foo where id=$1");
+
+  @Test
+  public void testHitAndMiss() {
+    Metrics metrics = mock(Metrics.class);
+    SqlRewriteCache cache = new SqlRewriteCache(metrics);
+
+    assertNull(cache.get(SQL, WellKnownClient.JDBC, SqlRewriteCache.REPLACE_FOR_UPDATE));
+    verify(metrics).recordSqlRewriteCacheMiss();
+
+    cache.put(SQL, WellKnownClient.JDBC, SqlRewriteCache.REPLACE_FOR_UPDATE, REWRITTEN);
+    assertSame(REWRITTEN, cache.get(SQL, WellKnownClient.JDBC, SqlRewriteCache.REPLACE_FOR_UPDATE));
+    verify(metrics).recordSqlRewriteCacheHit();
+    assertEquals(0.5d, cache.hitRatio(), 0.0d);
+  }
+
+  @Test
+  public void testKeyIncludesClientAndFlags() {
+    SqlRewriteCache cache = new SqlRewriteCache(mock(Metrics.class));
+    int flags = SqlRewriteCache.REPLACE_PG_CATALOG_TABLES | SqlRewriteCache.REPLACE_FOR_UPDATE;
+    cache.put(SQL, WellKnownClient.JDBC, flags, REWRITTEN);
+
+    assertNull(cache.get(SQL, WellKnownClient.NPGSQL, flags));
+    assertNull(cache.get(SQL, WellKnownClient.JDBC, SqlRewriteCache.REPLACE_FOR_UPDATE));
+    assertNull(
+        cache.get(SQL, WellKnownClient.JDBC, flags | SqlRewriteCache.EMULATE_PG_CLASS_TABLES));
+    assertNull(cache.get(SQL.toUpperCase(), WellKnownClient.JDBC, flags));
+    assertSame(REWRITTEN, cache.get(SQL, WellKnownClient.JDBC, flags));
+  }
+
+  @Test
+  public void testPutStatementWithParameters() {
+    SqlRewriteCache cache = new SqlRewriteCache(mock(Metrics.class));
+    Statement statement = Statement.newBuilder(SQL).bind("p1").to(1L).build();
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> cache.put(SQL, WellKnownClient.JDBC, SqlRewriteCache.REPLACE_FOR_UPDATE, statement));
+  }
+
+  @Test
+  public void testMaximumSizeAndInvalidateAll() {
+    SqlRewriteCache cache = new SqlRewriteCache(mock(Metrics.class), 2L);
+    cache.put("select 1", WellKnownClient.UNSPECIFIED, 1, Statement.of("select 1"));
+    cache.put("select 2", WellKnownClient.UNSPECIFIED, 1, Statement.of("select 2"));
+    cache.put("select 3", WellKnownClient.UNSPECIFIED, 1, Statement.of("select 3"));
+    assertEquals(2L, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0L, cache.size());
+  }
+}
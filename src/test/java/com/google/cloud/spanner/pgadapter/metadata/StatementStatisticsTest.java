@@ -0,0 +1,131 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics.Snapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class StatementStatisticsTest {
+
+  @Test
+  public void testRecord() {
+    StatementStatistics statistics = new StatementStatistics();
+    statistics.record("select * from foo where id=1", 300L, 200L, 0L);
+    statistics.record("SELECT * FROM foo WHERE id=2", 100L, 50L, 0L);
+    statistics.addRows("select * from foo where id=1", 1L);
+    statistics.addRows("select * from foo where id=2", 1L);
+    statistics.record("update foo set bar=1 where id=1", 1000L, 900L, 5L);
+
+    List<Snapshot> snapshots = statistics.getSnapshots();
+    assertEquals(2, snapshots.size());
+
+    Snapshot update = snapshots.get(0);
+    assertEquals("update foo set bar=$1 where id=$2", update.getQuery());
+    assertEquals(1L, update.getCalls());
+    assertEquals(5L, update.getRows());
+
+    Snapshot query = snapshots.get(1);
+    assertEquals("select * from foo where id=$1", query.getQuery());
+    assertEquals(2L, query.getCalls());
+    assertEquals(400L, query.getTotalNanos());
+    assertEquals(100L, query.getMinNanos());
+    assertEquals(300L, query.getMaxNanos());
+    assertEquals(200L, query.getMeanNanos());
+    assertEquals(250L, query.getSpannerNanos());
+    assertEquals(150L, query.getAdapterNanos());
+    assertEquals(2L, query.getRows());
+    assertNotEquals(update.getQueryId(), query.getQueryId());
+  }
+
+  @Test
+  public void testAddRowsForUnknownStatement() {
+    StatementStatistics statistics = new StatementStatistics();
+    statistics.addRows("select 1", 1L);
+
+    assertTrue(statistics.getSnapshots().isEmpty());
+  }
+
+  @Test
+  public void testReset() {
+    StatementStatistics statistics = new StatementStatistics();
+    statistics.record("select 1", 1L, 1L, 0L);
+    statistics.reset();
+
+    assertTrue(statistics.getSnapshots().isEmpty());
+  }
+
+  @Test
+  public void testEvictsLeastCalledStatement() {
+    // This gives each stripe room for two statements.
+    StatementStatistics statistics = new StatementStatistics(32);
+    for (int i = 0; i < 100; i++) {
+      statistics.record("select * from foo", 1L, 1L, 0L);
+    }
+    for (int i = 0; i < 1000; i++) {
+      statistics.record("select * from bar_" + i, 1L, 1L, 0L);
+    }
+
+    List<Snapshot> snapshots = statistics.getSnapshots();
+    assertTrue(snapshots.size() <= 32);
+    assertEquals("select * from foo", snapshots.get(0).getQuery());
+    assertEquals(100L, snapshots.get(0).getCalls());
+  }
+
+  @Test
+  public void testInvalidMaxStatements() {
+    assertThrows(IllegalArgumentException.class, () -> new StatementStatistics(0));
+  }
+
+  @Test
+  public void testConcurrentRecord() throws Exception {
+    StatementStatistics statistics = new StatementStatistics();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 8; thread++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < 1000; i++) {
+                    statistics.record("select * from foo where id=" + (i % 10), 1L, 0L, 1L);
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    List<Snapshot> snapshots = statistics.getSnapshots();
+    assertEquals(1, snapshots.size());
+    assertEquals(8000L, snapshots.get(0).getCalls());
+    assertEquals(8000L, snapshots.get(0).getRows());
+  }
+}
@@ -15,12 +15,27 @@
 package com.google.cloud.spanner.pgadapter.parsers;
 
 import static junit.framework.TestCase.assertNull;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Random;
 import org.junit.Test;
@@ -56,4 +71,39 @@ public class BinaryParserTest {
     random.nextBytes(value);
     assertEquals("\\x" + Utils.toHexString(value), new String(BinaryParser.bytesToHex(value)));
   }
+
+  @Test
+  public void testWriteLargeValue() throws IOException {
+    Random random = new Random();
+    byte[] value = new byte[random.nextInt(1024) + 100];
+    random.nextBytes(value);
+    ResultSet resultSet =
+        ResultSets.forRows(
+            Type.struct(StructField.of("col", Type.bytes())),
+            ImmutableList.of(Struct.newBuilder().set("col").to(ByteArray.copyFrom(value)).build()));
+    resultSet.next();
+
+    for (int bufferSize : new int[] {0, 16}) {
+      SessionState sessionState = mock(SessionState.class);
+      when(sessionState.getBinaryConversionBufferSize()).thenReturn(bufferSize);
+      for (DataFormat format :
+          new DataFormat[] {DataFormat.POSTGRESQL_BINARY, DataFormat.POSTGRESQL_TEXT}) {
+        byte[] encoded =
+            format == DataFormat.POSTGRESQL_BINARY ? value : BinaryParser.bytesToHex(value);
+        DataRowBuffer buffer = new DataRowBuffer();
+        BinaryParser.writeToPG(sessionState, buffer, resultSet, 0, format);
+        // Large values are not copied into the buffer.
+        assertEquals(bufferSize == 0 ? 4 + encoded.length : 4, buffer.size());
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(expected);
+        output.writeInt(encoded.length);
+        output.write(encoded);
+        assertEquals(expected.size(), buffer.messageSize());
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        buffer.writeTo(actual);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+      }
+    }
+  }
 }
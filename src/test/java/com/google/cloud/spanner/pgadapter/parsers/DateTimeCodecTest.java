@@ -0,0 +1,196 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.parsers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DateTimeCodecTest {
+  private static final ZoneId[] ZONES =
+      new ZoneId[] {
+        ZoneOffset.UTC,
+        ZoneId.of("UTC"),
+        ZoneId.of("Europe/Amsterdam"),
+        ZoneId.of("America/Los_Angeles"),
+        ZoneId.of("Asia/Kolkata"),
+        ZoneId.of("Australia/Lord_Howe"),
+        ZoneOffset.ofHoursMinutes(-3, -30)
+      };
+
+  @Test
+  public void testParseDate() {
+    assertEquals(Date.fromYearMonthDay(2024, 2, 29), DateTimeCodec.parseDate("2024-02-29", 0, 10));
+    assertEquals(Date.fromYearMonthDay(1, 1, 1), DateTimeCodec.parseDate("x0001-01-01 +01", 1, 11));
+    assertNull(DateTimeCodec.parseDate("2023-02-29", 0, 10));
+    assertNull(DateTimeCodec.parseDate("2023-13-01", 0, 10));
+    assertNull(DateTimeCodec.parseDate("0000-01-01", 0, 10));
+    assertNull(DateTimeCodec.parseDate("2023/01/01", 0, 10));
+    assertNull(DateTimeCodec.parseDate("2023-1-1", 0, 8));
+  }
+
+  @Test
+  public void testParseTimestamp() {
+    ZoneId utc = ZoneOffset.UTC;
+    Timestamp expected = Timestamp.parseTimestamp("2024-03-01T10:15:30.123456Z");
+    for (String value :
+        new String[] {
+          "2024-03-01 10:15:30.123456",
+          "2024-03-01T10:15:30.123456",
+          "2024-03-01 10:15:30.123456Z",
+          "2024-03-01 10:15:30.123456+00",
+          "2024-03-01 12:15:30.123456+02",
+          "2024-03-01 12:15:30.123456 +02:00",
+          "2024-03-01 12:45:30.123456+0230",
+          "2024-03-01 07:45:30.123456-02:30",
+        }) {
+      assertEquals(value, expected, DateTimeCodec.parseTimestamp(value, utc));
+    }
+    assertEquals(
+        Timestamp.parseTimestamp("2024-03-01T10:15:00Z"),
+        DateTimeCodec.parseTimestamp("2024-03-01 10:15", utc));
+    assertEquals(
+        Timestamp.parseTimestamp("2024-02-29T23:00:00Z"),
+        DateTimeCodec.parseTimestamp("2024-03-01", ZoneId.of("Europe/Amsterdam")));
+    assertEquals(
+        Timestamp.parseTimestamp("2024-03-01T10:15:30.000000001Z"),
+        DateTimeCodec.parseTimestamp("2024-03-01 10:15:30.000000001", utc));
+
+    // Exotic or invalid values are not parsed by the codec.
+    for (String value :
+        new String[] {
+          "",
+          "2024-3-1",
+          "2024-02-30",
+          "2024-03-01 24:00:00",
+          "2024-03-01 10:15:60",
+          "2024-03-01 10:15:30.",
+          "2024-03-01 10:15:30.1234567890",
+          "2024-03-01 10:15:30+1",
+          "2024-03-01 10:15:30+19",
+          "2024-03-01 10:15:30 Europe/Amsterdam",
+          "2024-03-01 10:15:30Zulu",
+          "2024-03-01 10",
+          "0001-01-01 00:00:00+01",
+          "Mar 1, 2024",
+        }) {
+      assertNull(value, DateTimeCodec.parseTimestamp(value, utc));
+    }
+  }
+
+  @Test
+  public void testParseTimestampMatchesFormatter() {
+    Random random = new Random();
+    for (int i = 0; i < 2000; i++) {
+      ZoneId zone = ZONES[random.nextInt(ZONES.length)];
+      Timestamp timestamp = randomTimestamp(random);
+      // Format the timestamp in a random zone, and parse it with and without the offset.
+      ZoneId formatZone = ZONES[random.nextInt(ZONES.length)];
+      String value = TimestampParser.toPGStringWithFormatter(timestamp, formatZone);
+      String withoutOffset = value.substring(0, value.lastIndexOf(value.contains("+") ? '+' : '-'));
+      for (String input : new String[] {value, withoutOffset, withoutOffset.replace(' ', 'T')}) {
+        Timestamp actual = DateTimeCodec.parseTimestamp(input, zone);
+        assertEquals(input, TimestampParser.toTimestampWithFormatter(input, zone), actual);
+      }
+    }
+  }
+
+  @Test
+  public void testFormatTimestampMatchesFormatter() {
+    Random random = new Random();
+    for (int i = 0; i < 2000; i++) {
+      ZoneId zone = ZONES[random.nextInt(ZONES.length)];
+      Timestamp timestamp = randomTimestamp(random);
+      assertEquals(
+          TimestampParser.toPGStringWithFormatter(timestamp, zone),
+          DateTimeCodec.formatTimestamp(timestamp, zone));
+    }
+    for (Timestamp timestamp :
+        new Timestamp[] {
+          Timestamp.MIN_VALUE,
+          Timestamp.MAX_VALUE,
+          Timestamp.ofTimeSecondsAndNanos(0L, 0),
+          Timestamp.ofTimeSecondsAndNanos(-1L, 999_999_999),
+          Timestamp.ofTimeSecondsAndNanos(1L, 100_000),
+          Timestamp.ofTimeSecondsAndNanos(1L, 999),
+        }) {
+      assertEquals(
+          TimestampParser.toPGStringWithFormatter(timestamp, ZoneOffset.UTC),
+          DateTimeCodec.formatTimestamp(timestamp, ZoneOffset.UTC));
+    }
+  }
+
+  @Test
+  public void testFormatMinAndMaxTimestampInAllOffsets() {
+    for (String zoneId :
+        new String[] {"Europe/Amsterdam", "America/New_York", "Asia/Tokyo", "Pacific/Honolulu"}) {
+      ZoneId zone = ZoneId.of(zoneId);
+      for (Timestamp timestamp : new Timestamp[] {Timestamp.MIN_VALUE, Timestamp.MAX_VALUE}) {
+        assertEquals(
+            TimestampParser.toPGStringWithFormatter(timestamp, zone),
+            DateTimeCodec.formatTimestamp(timestamp, zone));
+      }
+    }
+    // The local year of these values is outside the range that the codec formats itself.
+    assertEquals(
+        -1,
+        DateTimeCodec.formatTimestamp(
+            Timestamp.MAX_VALUE,
+            ZoneId.of("Europe/Amsterdam"),
+            new byte[DateTimeCodec.MAX_TIMESTAMP_LENGTH]));
+    assertEquals(
+        -1,
+        DateTimeCodec.formatTimestamp(
+            Timestamp.MIN_VALUE,
+            ZoneId.of("America/New_York"),
+            new byte[DateTimeCodec.MAX_TIMESTAMP_LENGTH]));
+    assertTrue(
+        DateTimeCodec.formatTimestamp(Timestamp.MAX_VALUE, ZoneId.of("Europe/Amsterdam"))
+            .startsWith("+10000-01-01 00:59:59.999999"));
+  }
+
+  private static Timestamp randomTimestamp(Random random) {
+    // Stay one day away from the minimum and maximum, so the value is valid in all timezones.
+    long minSeconds = Timestamp.MIN_VALUE.getSeconds() + 86400L;
+    long maxSeconds = Timestamp.MAX_VALUE.getSeconds() - 86400L;
+    long seconds = minSeconds + (long) (random.nextDouble() * (maxSeconds - minSeconds));
+    int nanos;
+    switch (random.nextInt(4)) {
+      case 0:
+        nanos = 0;
+        break;
+      case 1:
+        nanos = random.nextInt(1000) * 1_000_000;
+        break;
+      case 2:
+        nanos = random.nextInt(1_000_000) * 1000;
+        break;
+      default:
+        nanos = random.nextInt(1_000_000_000);
+        break;
+    }
+    return Timestamp.ofTimeSecondsAndNanos(seconds, nanos);
+  }
+}
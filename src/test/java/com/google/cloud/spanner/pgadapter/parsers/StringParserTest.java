@@ -14,9 +14,23 @@
 
 package com.google.cloud.spanner.pgadapter.parsers;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -36,4 +50,37 @@ public class StringParserTest {
     assertEquals("test", new StringParser("test").stringParse());
     assertNull(new StringParser(null).stringParse());
   }
+
+  @Test
+  public void testWriteLargeValue() throws IOException {
+    // The value contains surrogate pairs that could be split across two chunks.
+    String value = "a😀bc😀😀d\ud83d中文";
+    SessionState sessionState = mock(SessionState.class);
+    when(sessionState.getStringConversionBufferSize()).thenReturn(3);
+    ResultSet resultSet =
+        ResultSets.forRows(
+            Type.struct(StructField.of("col", Type.string())),
+            ImmutableList.of(Struct.newBuilder().set("col").to(value).build()));
+    resultSet.next();
+
+    DataRowBuffer buffer = new DataRowBuffer();
+    StringParser.writeToPG(sessionState, buffer, resultSet, 0);
+    // Only the length is copied into the buffer.
+    assertEquals(4, buffer.size());
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(expected);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+    assertEquals(expected.size(), buffer.messageSize());
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    buffer.writeTo(actual);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+    // Writing to a stream gives the same result, and does not close the stream.
+    actual.reset();
+    StringParser.writeToPG(sessionState, new DataOutputStream(actual), value);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
 }
@@ -34,6 +34,7 @@ import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
 import com.google.cloud.spanner.pgadapter.error.PGException;
 import com.google.cloud.spanner.pgadapter.parsers.Parser.FormatCode;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.DataRowBuffer;
 import com.google.common.collect.ImmutableList;
 import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
@@ -186,4 +187,29 @@ public class TimestampParserTest {
         TimestampParser.toTimestamp(
             "\t\n( \"  2011-11-04 00:05:23.123456 +00:00  \n\t\" )", ZoneId.of("UTC")));
   }
+
+  @Test
+  public void testWriteTimestampAsText() {
+    for (String zoneId : new String[] {"Europe/Amsterdam", "America/New_York"}) {
+      ZoneId zone = ZoneId.of(zoneId);
+      for (Timestamp timestamp :
+          new Timestamp[] {
+            Timestamp.MIN_VALUE, Timestamp.MAX_VALUE, Timestamp.ofTimeSecondsAndNanos(1L, 1000)
+          }) {
+        ResultSet resultSet =
+            ResultSets.forRows(
+                Type.struct(StructField.of("ts", Type.timestamp())),
+                ImmutableList.of(Struct.newBuilder().set("ts").to(timestamp).build()));
+        resultSet.next();
+        // Start with a small buffer that already contains data, so the value is not written at the
+        // start of the buffer and the buffer must grow.
+        DataRowBuffer buffer = new DataRowBuffer(4);
+        buffer.writeAscii("abc");
+        TimestampParser.writeToPG(buffer, resultSet, 0, DataFormat.POSTGRESQL_TEXT, zone);
+        assertEquals(
+            "abc" + TimestampParser.toPGStringWithFormatter(timestamp, zone),
+            new String(buffer.toByteArray(), StandardCharsets.US_ASCII));
+      }
+    }
+  }
 }
@@ -162,7 +162,7 @@ public class SessionStateTest {
   public void testGetAll() {
     SessionState state = new SessionState(mock(OptionsMetadata.class));
     List<PGSetting> allSettings = state.getAll();
-    assertEquals(360, allSettings.size());
+    assertEquals(369, allSettings.size());
   }
 
   @Test
@@ -200,7 +200,7 @@ public class SessionStateTest {
     state.setLocal("spanner", "custom_local_setting", "value2");
 
     List<PGSetting> allSettings = state.getAll();
-    assertEquals(362, allSettings.size());
+    assertEquals(371, allSettings.size());
 
     PGSetting applicationName =
         allSettings.stream()
@@ -787,10 +787,15 @@ public class SessionStateTest {
 
   @Test
   public void testIsEmulatePgClassTables_NoValue() {
-    OptionsMetadata optionsMetadata = mock(OptionsMetadata.class);
-    SessionState state = new SessionState(ImmutableMap.of(), optionsMetadata);
-    state.getSettings().clear();
-    assertFalse(state.isEmulatePgClassTables());
+    Map<String, PGSetting> originalSettings = ImmutableMap.copyOf(SessionState.SERVER_SETTINGS);
+    SessionState.SERVER_SETTINGS.remove("spanner.emulate_pg_class_tables");
+    try {
+      OptionsMetadata optionsMetadata = mock(OptionsMetadata.class);
+      SessionState state = new SessionState(ImmutableMap.of(), optionsMetadata);
+      assertFalse(state.isEmulatePgClassTables());
+    } finally {
+      SessionState.SERVER_SETTINGS.putAll(originalSettings);
+    }
   }
 
   @Test
@@ -917,6 +922,66 @@ public class SessionStateTest {
     }
   }
 
+  @Test
+  public void testSessionsShareBaseSettings() {
+    OptionsMetadata optionsMetadata = mock(OptionsMetadata.class);
+    SessionState state1 = new SessionState(optionsMetadata);
+    SessionState state2 = new SessionState(optionsMetadata);
+
+    // New sessions do not copy any settings.
+    assertTrue(state1.getSettings().isEmpty());
+    assertSame(state1.get(null, "DateStyle"), state2.get(null, "DateStyle"));
+
+    state1.setConnectionStartupValue(null, "DateStyle", "ISO, DMY");
+    state1.set(null, "application_name", "my-app");
+    state1.commit();
+
+    assertEquals(2, state1.getSettings().size());
+    assertEquals("ISO, DMY", state1.get(null, "DateStyle").getSetting());
+    assertEquals("my-app", state1.get(null, "application_name").getSetting());
+    assertEquals("ISO, MDY", state2.get(null, "DateStyle").getSetting());
+    assertNull(state2.get(null, "application_name").getSetting());
+    assertTrue(state2.getSettings().isEmpty());
+
+    state1.resetAll();
+    state1.commit();
+    assertEquals("ISO, DMY", state1.get(null, "DateStyle").getSetting());
+    assertNull(state1.get(null, "application_name").getSetting());
+    assertNull(state2.get(null, "application_name").getSetting());
+  }
+
+  @Test
+  public void testCachedValuesFollowTransactions() {
+    OptionsMetadata optionsMetadata = mock(OptionsMetadata.class);
+    when(optionsMetadata.replacePgCatalogTables()).thenReturn(true);
+    SessionState state = new SessionState(optionsMetadata);
+    assertTrue(state.isReplacePgCatalogTables());
+    assertEquals(0, state.getDmlBatchUpdateCount());
+    assertFalse(state.isForceAutocommit());
+
+    state.set("spanner", "replace_pg_catalog_tables", "false");
+    state.setLocal("spanner", "dml_batch_update_count", "1");
+    state.set("spanner", "force_autocommit", "true");
+    state.set(null, "TimeZone", "Europe/Oslo");
+    assertFalse(state.isReplacePgCatalogTables());
+    assertEquals(1, state.getDmlBatchUpdateCount());
+    assertTrue(state.isForceAutocommit());
+    assertEquals("Europe/Oslo", state.getTimezone().getId());
+
+    state.rollback();
+    assertTrue(state.isReplacePgCatalogTables());
+    assertEquals(0, state.getDmlBatchUpdateCount());
+    assertFalse(state.isForceAutocommit());
+    assertEquals(new SessionState(mock(OptionsMetadata.class)).getTimezone(), state.getTimezone());
+
+    state.set("spanner", "replace_pg_catalog_tables", "false");
+    state.setLocal("spanner", "dml_batch_update_count", "1");
+    assertFalse(state.isReplacePgCatalogTables());
+    state.commit();
+    assertFalse(state.isReplacePgCatalogTables());
+    assertEquals(0, state.getDmlBatchUpdateCount());
+  }
+
   @Test
   public void testTimeZoneResetVal() {
     Map<String, PGSetting> originalSettings = ImmutableMap.copyOf(SessionState.SERVER_SETTINGS);
@@ -30,10 +30,12 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.spanner.DatabaseClient;
 import com.google.cloud.spanner.DatabaseId;
 import com.google.cloud.spanner.Dialect;
 import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.ReadContext.QueryAnalyzeMode;
+import com.google.cloud.spanner.ReadOnlyTransaction;
 import com.google.cloud.spanner.ResultSet;
 import com.google.cloud.spanner.SpannerBatchUpdateException;
 import com.google.cloud.spanner.SpannerException;
@@ -54,6 +56,8 @@ import com.google.cloud.spanner.pgadapter.error.PGExceptionFactory;
 import com.google.cloud.spanner.pgadapter.error.SQLState;
 import com.google.cloud.spanner.pgadapter.metadata.ConnectionMetadata;
 import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.metadata.SqlRewriteCache;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.ConnectionState;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.NoResult;
 import com.google.cloud.spanner.pgadapter.statements.BackendConnection.QueryResult;
@@ -64,6 +68,7 @@ import com.google.cloud.spanner.pgadapter.utils.CopyDataReceiver;
 import com.google.cloud.spanner.pgadapter.utils.Metrics;
 import com.google.cloud.spanner.pgadapter.utils.MutationWriter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Tracer;
@@ -999,4 +1004,100 @@ public class BackendConnectionTest {
     verify(connection).setTransactionMode(TransactionMode.READ_ONLY_TRANSACTION);
     verify(connection).beginTransaction();
   }
+
+  private static BackendConnection createPipelineBackendConnection(Connection spannerConnection) {
+    return new BackendConnection(
+        NOOP_OTEL,
+        NOOP_OTEL_METER,
+        METRIC_ATTRIBUTES,
+        UUID.randomUUID().toString(),
+        DO_NOTHING,
+        DATABASE_ID,
+        spannerConnection,
+        () -> WellKnownClient.UNSPECIFIED,
+        mock(OptionsMetadata.class),
+        ImmutableList::of,
+        DO_NOTHING,
+        new SqlRewriteCache(NOOP_OTEL_METER),
+        new StatementStatistics(),
+        null,
+        MoreExecutors::newDirectExecutorService);
+  }
+
+  @Test
+  public void testCanExecuteInPipeline() {
+    Connection spannerConnection = mock(Connection.class);
+    Statement query = Statement.of("select * from foo");
+    Statement update = Statement.of("update foo set bar=1 where true");
+    BackendConnection backendConnection = createPipelineBackendConnection(spannerConnection);
+    backendConnection.execute("SELECT", PARSER.parse(query), query, Function.identity());
+    backendConnection.execute("SELECT", PARSER.parse(query), query, Function.identity());
+
+    // Query pipelines are disabled by default.
+    assertFalse(backendConnection.canExecuteInPipeline(0));
+    backendConnection.getSessionState().set("spanner", "max_pipelined_queries", "4");
+    assertTrue(backendConnection.canExecuteInPipeline(0));
+    // A single query is not executed in a pipeline.
+    assertFalse(backendConnection.canExecuteInPipeline(1));
+
+    // Queries in a transaction are not executed in a pipeline.
+    when(spannerConnection.isInTransaction()).thenReturn(true);
+    assertFalse(backendConnection.canExecuteInPipeline(0));
+    when(spannerConnection.isInTransaction()).thenReturn(false);
+    when(spannerConnection.getStatementTag()).thenReturn("tag");
+    assertFalse(backendConnection.canExecuteInPipeline(0));
+    when(spannerConnection.getStatementTag()).thenReturn(null);
+
+    // All remaining statements must be queries.
+    backendConnection.execute("UPDATE", PARSER.parse(update), update, Function.identity());
+    assertFalse(backendConnection.canExecuteInPipeline(0));
+  }
+
+  @Test
+  public void testExecuteStatementsInPipeline_stopsAfterFailedQuery() throws Exception {
+    Connection spannerConnection = mock(Connection.class);
+    DatabaseClient databaseClient = mock(DatabaseClient.class);
+    ReadOnlyTransaction transaction = mock(ReadOnlyTransaction.class);
+    when(spannerConnection.getDatabaseClient()).thenReturn(databaseClient);
+    when(databaseClient.readOnlyTransaction(any())).thenReturn(transaction);
+    Statement query1 = Statement.of("select 1");
+    Statement query2 = Statement.of("select 2");
+    Statement query3 = Statement.of("select 3");
+    ResultSet resultSet1 = mock(ResultSet.class);
+    ResultSet resultSet3 = mock(ResultSet.class);
+    SpannerException exception =
+        SpannerExceptionFactory.newSpannerException(ErrorCode.INVALID_ARGUMENT, "invalid query");
+    when(transaction.executeQuery(query1)).thenReturn(resultSet1);
+    when(transaction.executeQuery(query2)).thenThrow(exception);
+    when(transaction.executeQuery(query3)).thenReturn(resultSet3);
+
+    BackendConnection backendConnection = createPipelineBackendConnection(spannerConnection);
+    backendConnection.getSessionState().set("spanner", "max_pipelined_queries", "4");
+    Future<StatementResult> result1 =
+        backendConnection.execute("SELECT", PARSER.parse(query1), query1, Function.identity());
+    Future<StatementResult> result2 =
+        backendConnection.execute("SELECT", PARSER.parse(query2), query2, Function.identity());
+    Future<StatementResult> result3 =
+        backendConnection.execute("SELECT", PARSER.parse(query3), query3, Function.identity());
+    backendConnection.sync();
+
+    assertTrue(result1.isDone());
+    assertEquals(ResultType.RESULT_SET, result1.get().getResultType());
+    ExecutionException executionException = assertThrows(ExecutionException.class, result2::get);
+    assertTrue(executionException.getCause().getMessage().contains("invalid query"));
+    // The result of the query after the failed query is not returned and is closed.
+    assertFalse(result3.isDone());
+    verify(resultSet3).close();
+    verify(spannerConnection, never()).beginTransaction();
+    assertEquals(ConnectionState.IDLE, backendConnection.getConnectionState());
+
+    // The transaction is kept open until the result that is sent to the client has been closed.
+    verify(transaction, never()).close();
+    result1.get().getResultSet().close();
+    verify(resultSet1).close();
+    verify(transaction).close();
+    // Closing the result again does not close the transaction again.
+    result1.get().getResultSet().close();
+    verify(transaction).close();
+  }
 }
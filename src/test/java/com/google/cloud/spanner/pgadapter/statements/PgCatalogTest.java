@@ -15,12 +15,15 @@
 package com.google.cloud.spanner.pgadapter.statements;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.Tuple;
 import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.pgadapter.metadata.StatementStatistics;
 import com.google.cloud.spanner.pgadapter.session.SessionState;
 import com.google.cloud.spanner.pgadapter.utils.ClientAutoDetector.WellKnownClient;
 import com.google.cloud.spanner.pgadapter.utils.QueryPartReplacer;
@@ -106,4 +109,70 @@ public class PgCatalogTest {
         catalog.addCommonTableExpressions(
             Statement.of("select * from replace_and_stop"), ImmutableList.of("replace_and_stop")));
   }
+
+  @Test
+  public void testIsCatalogQuery() {
+    PgCatalog catalog = new PgCatalog(mock(SessionState.class), WellKnownClient.UNSPECIFIED);
+
+    for (String sql :
+        new String[] {
+          "select * from pg_class",
+          "select * from pg_catalog.pg_class c join pg_catalog.pg_namespace n on c.relnamespace=n.oid",
+          "select table_name from information_schema.tables where table_schema=$1",
+          "select * from pg_type where oid in (select atttypid from pg_attribute)",
+          "SELECT * FROM PG_CATALOG.PG_AM",
+        }) {
+      assertTrue(sql, catalog.isCatalogQuery(Statement.of(sql), sql.toLowerCase()));
+    }
+    for (String sql :
+        new String[] {
+          "select 1",
+          "select * from foo",
+          "select * from pg_class, foo",
+          "select * from pg_class where relname in (select name from foo)",
+          "select * from pg_settings",
+          "select * from pg_catalog.pg_stat_statements",
+          "select now() from pg_class",
+          "select current_setting('search_path') from pg_namespace",
+          "select * from public.pg_foo",
+          "insert into foo select * from pg_class",
+        }) {
+      assertFalse(sql, catalog.isCatalogQuery(Statement.of(sql), sql.toLowerCase()));
+    }
+  }
+
+  @Test
+  public void testPgStatStatements() {
+    Statement statement = Statement.of("select * from pg_stat_statements");
+    SessionState sessionState = mock(SessionState.class);
+    when(sessionState.getPgStatStatementsLimit()).thenReturn(1000);
+    StatementStatistics statistics = new StatementStatistics();
+    PgCatalog catalog = new PgCatalog(sessionState, WellKnownClient.UNSPECIFIED, statistics);
+
+    String sql =
+        catalog.replacePgCatalogTables(statement, statement.getSql().toLowerCase()).getSql();
+    assertTrue(sql, sql.startsWith("with pg_stat_statements as (\n"));
+    assertTrue(sql, sql.contains(") t where false\n"));
+    assertTrue(sql, sql.endsWith("select * from pg_stat_statements"));
+
+    statistics.record("select * from foo where name='bar'", 2_000_000L, 1_500_000L, 0L);
+    statistics.record("select 'it''s'", 1_000_000L, 0L, 0L);
+    sql = catalog.replacePgCatalogTables(statement, statement.getSql().toLowerCase()).getSql();
+    assertTrue(sql, sql.contains("'select * from foo where name=$1'::text as query, 1::bigint"));
+    assertTrue(sql, sql.contains("'2.0'::float8 as total_exec_time"));
+    assertTrue(sql, sql.contains("'1.5'::float8 as spanner_exec_time"));
+    assertTrue(sql, sql.contains("'0.5'::float8 as adapter_exec_time"));
+    assertTrue(sql, sql.contains("\nunion all\n"));
+    assertTrue(sql, sql.indexOf("name=$1") < sql.indexOf("'select $1'::text"));
+
+    // Only the statements with the highest total execution time are included.
+    when(sessionState.getPgStatStatementsLimit()).thenReturn(1);
+    sql = catalog.replacePgCatalogTables(statement, statement.getSql().toLowerCase()).getSql();
+    assertTrue(sql, sql.contains("name=$1"));
+    assertTrue(sql, !sql.contains("'select $1'::text"));
+
+    statement = Statement.of("select * from pg_catalog.pg_stat_statements");
+    sql = catalog.replacePgCatalogTables(statement, statement.getSql().toLowerCase()).getSql();
+    assertTrue(sql, sql.endsWith("select * from pg_stat_statements"));
+  }
 }
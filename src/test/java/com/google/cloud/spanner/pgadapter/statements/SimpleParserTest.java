@@ -16,6 +16,7 @@ package com.google.cloud.spanner.pgadapter.statements;
 
 import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.QuotedString.unescapeQuotedStringValue;
 import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.addLimitIfParameterizedOffset;
+import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.normalizeLiterals;
 import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.parseCommand;
 import static com.google.cloud.spanner.pgadapter.statements.SimpleParser.unquoteOrFoldIdentifier;
 import static org.junit.Assert.assertEquals;
@@ -757,4 +758,35 @@ public class SimpleParserTest {
     assertNull(new SimpleParser("+-1").readIntegerLiteral());
     assertNull(new SimpleParser("-+1").readIntegerLiteral());
   }
+
+  @Test
+  public void testNormalizeLiterals() {
+    assertEquals("select * from foo", normalizeLiterals("select * from foo"));
+    assertEquals("select * from foo", normalizeLiterals("SELECT *\n  FROM Foo"));
+    assertEquals(
+        "select * from foo where id=$1 and name=$2",
+        normalizeLiterals("select * from foo where id=1 and name='test'"));
+    assertEquals(
+        "select * from foo where id=$1 and name=$2",
+        normalizeLiterals("select * from foo where id=100 and name='other'"));
+    assertEquals(
+        "select * from foo where id=$1 and value=$2",
+        normalizeLiterals("select * from foo where id=$1 and value=3.14"));
+    assertEquals(
+        "select * from foo where id=$4 and value=$3 and name=$2",
+        normalizeLiterals("select * from foo where id=1 and value=$3 and name=$2"));
+    assertEquals(
+        "select \"Id\", $1, $2 from foo",
+        normalizeLiterals(
+            "/* comment */ select \"Id\", e'it\\'s', $$dollar$$ -- comment\nfrom foo"));
+    assertEquals(
+        "select * from foo where id in ($1,$2,$3)",
+        normalizeLiterals("select * from foo where id in (1,2,3)"));
+    assertEquals("select $1::text", normalizeLiterals("select 'it''s'::text"));
+    assertEquals(
+        "select col1 from foo limit $1", normalizeLiterals("select col1 from foo limit 10"));
+    assertEquals("select 1e10", normalizeLiterals("select 1e10"));
+    assertEquals("", normalizeLiterals(""));
+    assertEquals("", normalizeLiterals(" -- only a comment"));
+  }
 }
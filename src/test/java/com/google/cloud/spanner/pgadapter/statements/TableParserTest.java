@@ -21,6 +21,7 @@ import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.pgadapter.statements.SimpleParser.TableOrIndexName;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -858,6 +859,28 @@ public class TableParserTest {
             "replaced"));
   }
 
+  @Test
+  public void testDetectReferencedTables() {
+    assertEquals(
+        ImmutableSet.of(new TableOrIndexName(null, "foo")),
+        TableParser.detectReferencedTables(Statement.of("select * from foo")));
+    assertEquals(
+        ImmutableSet.of(
+            new TableOrIndexName("pg_catalog", "pg_class"),
+            new TableOrIndexName("pg_catalog", "pg_namespace"),
+            new TableOrIndexName("information_schema", "tables")),
+        TableParser.detectReferencedTables(
+            Statement.of(
+                "select c.relname from pg_catalog.pg_class c "
+                    + "join pg_catalog.pg_namespace n on c.relnamespace=n.oid "
+                    + "where c.relname in (select table_name from information_schema.tables)")));
+    assertEquals(
+        ImmutableSet.of(new TableOrIndexName(null, "foo"), new TableOrIndexName(null, "bar")),
+        TableParser.detectReferencedTables(
+            Statement.of("select * from (select * from foo) f, bar")));
+    assertEquals(ImmutableSet.of(), TableParser.detectReferencedTables(Statement.of("select 1")));
+  }
+
   static Statement removePgCatalog(Statement original, String... tables) {
     Builder<TableOrIndexName, TableOrIndexName> builder = ImmutableMap.builder();
     for (String table : tables) {
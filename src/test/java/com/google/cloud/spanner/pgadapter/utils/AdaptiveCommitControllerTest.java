@@ -0,0 +1,150 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.pgadapter.utils.AdaptiveCommitController.Permit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AdaptiveCommitControllerTest {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100L);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(2000L);
+  private static final SpannerException RESOURCE_EXHAUSTED =
+      SpannerExceptionFactory.newSpannerException(ErrorCode.RESOURCE_EXHAUSTED, "overloaded");
+
+  private static void commit(AdaptiveCommitController controller, long latencyNanos)
+      throws InterruptedException {
+    Permit permit = controller.acquire();
+    controller.recordCommit(permit, latencyNanos, null);
+    controller.release(permit);
+  }
+
+  @Test
+  public void testInitialValues() {
+    AdaptiveCommitController controller = new AdaptiveCommitController(1600, 128, 1000L);
+    assertEquals(200, controller.getBatchSize());
+    assertEquals(AdaptiveCommitController.INITIAL_PARALLELISM, controller.getParallelism());
+
+    controller = new AdaptiveCommitController(4, 2, 1000L);
+    assertEquals(1, controller.getBatchSize());
+    assertEquals(2, controller.getParallelism());
+  }
+
+  @Test
+  public void testAdditiveIncrease() throws InterruptedException {
+    AdaptiveCommitController controller = new AdaptiveCommitController(1600, 10, 1000L);
+    commit(controller, FAST);
+    assertEquals(300, controller.getBatchSize());
+    assertEquals(8, controller.getParallelism());
+
+    // The parallelism is increased after as many fast commits as the current parallelism.
+    for (int i = 1; i < 8; i++) {
+      commit(controller, FAST);
+    }
+    assertEquals(9, controller.getParallelism());
+    assertEquals(1000, controller.getBatchSize());
+
+    // The batch size and the parallelism never exceed the maximum.
+    for (int i = 0; i < 100; i++) {
+      commit(controller, FAST);
+    }
+    assertEquals(10, controller.getParallelism());
+    assertEquals(1600, controller.getBatchSize());
+  }
+
+  @Test
+  public void testMultiplicativeDecrease() throws InterruptedException {
+    AdaptiveCommitController controller = new AdaptiveCommitController(1600, 128, 1000L);
+    commit(controller, SLOW);
+    assertEquals(100, controller.getBatchSize());
+    assertEquals(8, controller.getParallelism());
+
+    Permit permit = controller.acquire();
+    controller.recordCommit(permit, FAST, RESOURCE_EXHAUSTED);
+    controller.release(permit);
+    assertEquals(50, controller.getBatchSize());
+    assertEquals(4, controller.getParallelism());
+
+    // Other errors do not change the settings.
+    permit = controller.acquire();
+    controller.recordCommit(
+        permit, SLOW, SpannerExceptionFactory.newSpannerException(ErrorCode.ALREADY_EXISTS, "x"));
+    controller.release(permit);
+    assertEquals(50, controller.getBatchSize());
+    assertEquals(4, controller.getParallelism());
+  }
+
+  @Test
+  public void testDecreaseOncePerGeneration() throws InterruptedException {
+    AdaptiveCommitController controller = new AdaptiveCommitController(1600, 128, 1000L);
+    Permit first = controller.acquire();
+    Permit second = controller.acquire();
+    controller.recordCommit(first, FAST, RESOURCE_EXHAUSTED);
+    controller.recordCommit(second, FAST, RESOURCE_EXHAUSTED);
+    controller.release(first);
+    controller.release(second);
+    assertEquals(100, controller.getBatchSize());
+    assertEquals(4, controller.getParallelism());
+
+    // A commit that was started after the decrease can decrease the settings again.
+    Permit third = controller.acquire();
+    controller.recordCommit(third, SLOW, null);
+    controller.release(third);
+    assertEquals(50, controller.getBatchSize());
+    assertEquals(4, controller.getParallelism());
+  }
+
+  @Test
+  public void testAcquireBlocksAtParallelism() throws Exception {
+    AdaptiveCommitController controller = new AdaptiveCommitController(100, 1, 1000L);
+    Permit permit = controller.acquire();
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                controller.release(controller.acquire());
+                acquired.countDown();
+              } catch (InterruptedException ignore) {
+                // Ignore, the test fails.
+              }
+            });
+    thread.start();
+    assertFalse(acquired.await(100L, TimeUnit.MILLISECONDS));
+    controller.release(permit);
+    assertTrue(acquired.await(10L, TimeUnit.SECONDS));
+    thread.join();
+  }
+
+  @Test
+  public void testIsOverloaded() {
+    assertTrue(AdaptiveCommitController.isOverloaded(RESOURCE_EXHAUSTED));
+    assertFalse(
+        AdaptiveCommitController.isOverloaded(
+            SpannerExceptionFactory.newSpannerException(ErrorCode.DEADLINE_EXCEEDED, "timeout")));
+    assertFalse(AdaptiveCommitController.isOverloaded(new RuntimeException()));
+  }
+}
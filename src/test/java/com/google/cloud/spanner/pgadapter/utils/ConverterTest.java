@@ -0,0 +1,169 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.ProxyServer.DataFormat;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConverterTest {
+  private static final Type ROW_TYPE =
+      Type.struct(
+          StructField.of("bool", Type.bool()),
+          StructField.of("bytes", Type.bytes()),
+          StructField.of("date", Type.date()),
+          StructField.of("float32", Type.float32()),
+          StructField.of("float64", Type.float64()),
+          StructField.of("int64", Type.int64()),
+          StructField.of("numeric", Type.pgNumeric()),
+          StructField.of("timestamp", Type.timestamp()),
+          StructField.of("string", Type.string()),
+          StructField.of("jsonb", Type.pgJsonb()),
+          StructField.of("int64_array", Type.array(Type.int64())));
+
+  private static Struct createRow(
+      boolean bool,
+      String date,
+      float float32,
+      double float64,
+      long int64,
+      String numeric,
+      Timestamp timestamp,
+      String string) {
+    return Struct.newBuilder()
+        .set("bool")
+        .to(bool)
+        .set("bytes")
+        .to(ByteArray.copyFrom(string))
+        .set("date")
+        .to(Date.parseDate(date))
+        .set("float32")
+        .to(float32)
+        .set("float64")
+        .to(float64)
+        .set("int64")
+        .to(int64)
+        .set("numeric")
+        .to(Value.pgNumeric(numeric))
+        .set("timestamp")
+        .to(timestamp)
+        .set("string")
+        .to(string)
+        .set("jsonb")
+        .to(Value.pgJsonb("{\"key\": \"" + string + "\"}"))
+        .set("int64_array")
+        .toInt64Array(Arrays.asList(int64, null, -int64))
+        .build();
+  }
+
+  private static final List<Struct> ROWS =
+      Arrays.asList(
+          createRow(
+              true,
+              "2024-02-29",
+              3.14f,
+              -2.5d,
+              Long.MIN_VALUE,
+              "3.14",
+              Timestamp.parseTimestamp("2024-02-29T10:15:30.123456Z"),
+              "ascii"),
+          createRow(
+              false,
+              "0001-01-01",
+              Float.NaN,
+              Double.POSITIVE_INFINITY,
+              0L,
+              "NaN",
+              Timestamp.MIN_VALUE,
+              "éèà 中文 😀"),
+          createRow(
+              true,
+              "9999-12-31",
+              -0.0f,
+              Double.MIN_VALUE,
+              Long.MAX_VALUE,
+              "-123456789012345678901234567890.123456789",
+              Timestamp.MAX_VALUE,
+              ""));
+
+  @Test
+  public void testWriteToPGIsEqualToConvertToPG() throws Exception {
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    SessionState sessionState = new SessionState(options);
+    for (DataFormat format : DataFormat.values()) {
+      try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, ROWS)) {
+        while (resultSet.next()) {
+          for (int column = 0; column < resultSet.getColumnCount(); column++) {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(expected);
+            // convertToPG writes large values directly to the output stream and returns null.
+            byte[] value = Converter.convertToPG(output, resultSet, column, format, sessionState);
+            if (value != null) {
+              output.writeInt(value.length);
+              output.write(value);
+            }
+
+            DataRowBuffer buffer = new DataRowBuffer(1);
+            Converter.writeToPG(buffer, resultSet, column, format, sessionState);
+            assertArrayEquals(
+                format + ": " + ROW_TYPE.getStructFields().get(column).getName(),
+                expected.toByteArray(),
+                buffer.toByteArray());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testReusedBufferIsResetForEachRow() throws Exception {
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    SessionState sessionState = new SessionState(options);
+    DataRowBuffer buffer = new DataRowBuffer();
+    try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, ROWS)) {
+      assertTrue(resultSet.next());
+      Converter.writeToPG(buffer, resultSet, 8, DataFormat.POSTGRESQL_TEXT, sessionState);
+      buffer.reset();
+      Converter.writeToPG(buffer, resultSet, 5, DataFormat.POSTGRESQL_TEXT, sessionState);
+
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(expected);
+      byte[] value = Converter.convertToPG(resultSet, 5, DataFormat.POSTGRESQL_TEXT, sessionState);
+      output.writeInt(value.length);
+      output.write(value);
+      assertArrayEquals(expected.toByteArray(), buffer.toByteArray());
+    }
+  }
+}
@@ -39,6 +39,18 @@ public class CopyInParserTest {
             CSVFormat.POSTGRESQL_TEXT,
             new PipedInputStream(new PipedOutputStream(), 256),
             false);
+    assertTrue(parser instanceof TextCopyParser);
+  }
+
+  @Test
+  public void testCreateTextWithMultiCharacterDelimiter() throws IOException {
+    CopyInParser parser =
+        CopyInParser.create(
+            mock(SessionState.class),
+            Format.TEXT,
+            CSVFormat.POSTGRESQL_TEXT.builder().setDelimiter("||").build(),
+            new PipedInputStream(new PipedOutputStream(), 256),
+            false);
     assertTrue(parser instanceof CsvCopyParser);
   }
 
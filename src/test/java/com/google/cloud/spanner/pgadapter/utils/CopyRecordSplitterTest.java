@@ -0,0 +1,171 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CopyRecordSplitterTest {
+
+  /** Returns the data in chunks of random sizes, like a stream of CopyData messages. */
+  private static InputStream chunked(String data, Random random) {
+    QueuedInputStream stream = new QueuedInputStream(Integer.MAX_VALUE);
+    byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+    int offset = 0;
+    while (offset < bytes.length) {
+      int length = Math.min(bytes.length - offset, 1 + random.nextInt(7));
+      stream.append(Arrays.copyOfRange(bytes, offset, offset + length));
+      offset += length;
+    }
+    stream.endOfStream();
+    return stream;
+  }
+
+  /** Splits the data into single records. */
+  private static List<String> records(CSVFormat format, String data) throws IOException {
+    CopyRecordSplitter splitter =
+        new CopyRecordSplitter(chunked(data, new Random(data.length())), format, 1 << 10);
+    List<String> records = new ArrayList<>();
+    byte[] record;
+    while ((record = splitter.nextRecord()) != null) {
+      records.add(new String(record, StandardCharsets.UTF_8));
+    }
+    return records;
+  }
+
+  /**
+   * Splits the data into segments and verifies that each segment consists of complete records that
+   * together form the original data.
+   */
+  private static List<String> segments(CSVFormat format, String data, int segmentSize)
+      throws IOException {
+    CopyRecordSplitter splitter =
+        new CopyRecordSplitter(chunked(data, new Random(segmentSize)), format, segmentSize);
+    List<String> records = records(format, data);
+    List<String> segments = new ArrayList<>();
+    byte[] segment;
+    int recordIndex = 0;
+    while ((segment = splitter.nextSegment()) != null) {
+      String value = new String(segment, StandardCharsets.UTF_8);
+      StringBuilder expected = new StringBuilder();
+      while (expected.length() < value.length() && recordIndex < records.size()) {
+        expected.append(records.get(recordIndex++));
+      }
+      assertEquals(expected.toString(), value);
+      segments.add(value);
+    }
+    assertEquals(records.size(), recordIndex);
+    assertEquals(data, String.join("", segments));
+    return segments;
+  }
+
+  @Test
+  public void testSplitText() throws IOException {
+    String data = "1\tone\n2\ttwo\\\nwith newline\n3\tthree\\\\\n4\tfour";
+    assertEquals(
+        Arrays.asList("1\tone\n", "2\ttwo\\\nwith newline\n", "3\tthree\\\\\n", "4\tfour"),
+        records(CSVFormat.POSTGRESQL_TEXT, data));
+    for (int segmentSize : new int[] {1, 5, 20}) {
+      assertTrue(segments(CSVFormat.POSTGRESQL_TEXT, data, segmentSize).size() > 1);
+    }
+    assertEquals(Arrays.asList(data), segments(CSVFormat.POSTGRESQL_TEXT, data, 1000));
+  }
+
+  @Test
+  public void testSplitCsv() throws IOException {
+    String data = "1,\"one\ntwo\"\n2,\"\"\"quoted\"\"\n\"\n3,plain\n";
+    assertEquals(
+        Arrays.asList("1,\"one\ntwo\"\n", "2,\"\"\"quoted\"\"\n\"\n", "3,plain\n"),
+        records(CSVFormat.POSTGRESQL_CSV, data));
+    segments(CSVFormat.POSTGRESQL_CSV, data, 1);
+    segments(CSVFormat.POSTGRESQL_CSV, data, 12);
+  }
+
+  @Test
+  public void testSplitCsvWithEscape() throws IOException {
+    CSVFormat format = CSVFormat.POSTGRESQL_CSV.builder().setEscape('~').setQuote('$').build();
+    String data = "5,$~$fi\nve$\n6,$~~$\n7,~$seven\n";
+    assertEquals(Arrays.asList("5,$~$fi\nve$\n", "6,$~~$\n", "7,~$seven\n"), records(format, data));
+    segments(format, data, 1);
+  }
+
+  @Test
+  public void testMultibyteCharacters() throws IOException {
+    String data = "1\tæøå\n2\t中文\n3\t😀\n";
+    assertEquals(
+        Arrays.asList("1\tæøå\n", "2\t中文\n", "3\t😀\n"), records(CSVFormat.POSTGRESQL_TEXT, data));
+    segments(CSVFormat.POSTGRESQL_TEXT, data, 1);
+  }
+
+  @Test
+  public void testLargeRecord() throws IOException {
+    StringBuilder builder = new StringBuilder("1\t");
+    for (int i = 0; i < 200_000; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    builder.append('\n');
+    String large = builder.toString();
+    String data = "0\tsmall\n" + large + "2\tsmall\n";
+    assertEquals(
+        Arrays.asList("0\tsmall\n", large, "2\tsmall\n"), records(CSVFormat.POSTGRESQL_TEXT, data));
+    segments(CSVFormat.POSTGRESQL_TEXT, data, 1);
+    segments(CSVFormat.POSTGRESQL_TEXT, data, 1 << 16);
+  }
+
+  @Test
+  public void testHeader() throws IOException {
+    CopyRecordSplitter splitter =
+        new CopyRecordSplitter(
+            new ByteArrayInputStream("id,name\n1,one\n2,two\n".getBytes(StandardCharsets.UTF_8)),
+            CSVFormat.POSTGRESQL_CSV,
+            1 << 10);
+    assertEquals("id,name\n", new String(splitter.nextRecord(), StandardCharsets.UTF_8));
+    assertEquals("1,one\n2,two\n", new String(splitter.nextSegment(), StandardCharsets.UTF_8));
+    assertNull(splitter.nextSegment());
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    CopyRecordSplitter splitter =
+        new CopyRecordSplitter(
+            new ByteArrayInputStream(new byte[0]), CSVFormat.POSTGRESQL_TEXT, 1 << 10);
+    assertNull(splitter.nextRecord());
+    assertNull(splitter.nextSegment());
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(CopyRecordSplitter.isSupported(CSVFormat.POSTGRESQL_TEXT));
+    assertTrue(CopyRecordSplitter.isSupported(CSVFormat.POSTGRESQL_CSV));
+    assertFalse(
+        CopyRecordSplitter.isSupported(CSVFormat.POSTGRESQL_CSV.builder().setQuote('§').build()));
+  }
+}
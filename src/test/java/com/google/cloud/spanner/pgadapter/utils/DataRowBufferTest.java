@@ -0,0 +1,271 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class DataRowBufferTest {
+
+  @Test
+  public void testBeginAndEndValue() throws IOException {
+    DataRowBuffer buffer = new DataRowBuffer();
+    buffer.getOutput().writeShort(2);
+    int first = buffer.beginValue();
+    buffer.writeAscii("hello");
+    buffer.endValue(first);
+    int second = buffer.beginValue();
+    buffer.endValue(second);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(expected);
+    output.writeShort(2);
+    output.writeInt(5);
+    output.write("hello".getBytes(StandardCharsets.US_ASCII));
+    output.writeInt(0);
+    assertArrayEquals(expected.toByteArray(), buffer.toByteArray());
+
+    assertThrows(IllegalArgumentException.class, () -> buffer.endValue(buffer.size()));
+    assertThrows(IllegalArgumentException.class, () -> buffer.endValue(-1));
+  }
+
+  @Test
+  public void testWriteNumbers() throws IOException {
+    for (long value :
+        new long[] {
+          0L, 1L, -1L, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE
+        }) {
+      DataRowBuffer buffer = new DataRowBuffer();
+      buffer.writeInt((int) value);
+      buffer.writeLong(value);
+      buffer.writeFloat((float) value);
+      buffer.writeDouble((double) value);
+
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      DataOutputStream output = new DataOutputStream(expected);
+      output.writeInt((int) value);
+      output.writeLong(value);
+      output.writeFloat((float) value);
+      output.writeDouble((double) value);
+      assertArrayEquals(expected.toByteArray(), buffer.toByteArray());
+    }
+  }
+
+  @Test
+  public void testWriteDecimal() {
+    for (long value :
+        new long[] {
+          0L, 1L, -1L, 9L, 10L, -10L, 123456789L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1
+        }) {
+      DataRowBuffer buffer = new DataRowBuffer();
+      buffer.writeDecimal(value);
+      assertEquals(Long.toString(value), new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testWriteDecimalWithDigits() {
+    DataRowBuffer buffer = new DataRowBuffer();
+    buffer.writeDecimal(7, 2);
+    buffer.writeDecimal(2024, 4);
+    buffer.writeDecimal(12, 4);
+    buffer.writeDecimal(0, 1);
+    assertEquals("07202400120", new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+
+    assertThrows(IllegalArgumentException.class, () -> buffer.writeDecimal(-1, 2));
+    assertThrows(IllegalArgumentException.class, () -> buffer.writeDecimal(1, 0));
+    assertThrows(IllegalArgumentException.class, () -> buffer.writeDecimal(1, 11));
+  }
+
+  @Test
+  public void testWriteAscii() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 200; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    for (String value : new String[] {"", "a", "2024-01-01 10:00:00+00", builder.toString()}) {
+      DataRowBuffer buffer = new DataRowBuffer();
+      buffer.writeAscii(value);
+      assertArrayEquals(value.getBytes(StandardCharsets.US_ASCII), buffer.toByteArray());
+    }
+  }
+
+  @Test
+  public void testWriteUtf8() {
+    StringBuilder longValue = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      longValue.append("aé中😀");
+    }
+    for (String value :
+        new String[] {
+          "",
+          "ascii",
+          "café",
+          "中文",
+          "emoji 😀 and more",
+          // Unpaired surrogates are replaced with '?'.
+          "lone high \ud83d",
+          "lone low \ude00 surrogate",
+          "\ude00\ud83d",
+          "\u007f\u0080߿ࠀ￿",
+          longValue.toString()
+        }) {
+      DataRowBuffer buffer = new DataRowBuffer(1);
+      buffer.writeUtf8(value);
+      assertArrayEquals(value, value.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+    }
+  }
+
+  @Test
+  public void testReset() {
+    DataRowBuffer buffer = new DataRowBuffer(16);
+    buffer.writeAscii("some value that is longer than sixteen bytes");
+    int capacity = buffer.capacity();
+    buffer.reset();
+    assertEquals(0, buffer.size());
+    assertEquals(capacity, buffer.capacity());
+  }
+
+  @Test
+  public void testGrow() {
+    DataRowBuffer buffer = new DataRowBuffer(0);
+    assertEquals(0, buffer.capacity());
+    buffer.write(1);
+    assertEquals(1, buffer.capacity());
+
+    byte[] expected = new byte[1000];
+    expected[0] = 1;
+    for (int index = 1; index < expected.length; index++) {
+      expected[index] = (byte) index;
+      buffer.write(index);
+    }
+    assertEquals(expected.length, buffer.size());
+    assertArrayEquals(expected, buffer.toByteArray());
+
+    // Writing more than twice the current capacity grows the buffer to exactly the needed size.
+    int size = buffer.size();
+    int capacity = buffer.capacity();
+    buffer.write(new byte[3 * capacity], 0, 3 * capacity);
+    assertEquals(size + 3 * capacity, buffer.capacity());
+
+    assertThrows(IllegalArgumentException.class, () -> new DataRowBuffer(-1));
+    assertThrows(IndexOutOfBoundsException.class, () -> buffer.write(new byte[2], 1, 2));
+  }
+
+  @Test
+  public void testReserveAndAdvance() {
+    DataRowBuffer buffer = new DataRowBuffer(2);
+    buffer.write('a');
+    byte[] array = buffer.reserve(3);
+    assertTrue(array.length >= 4);
+    array[1] = 'b';
+    array[2] = 'c';
+    buffer.advance(2);
+    assertArrayEquals("abc".getBytes(StandardCharsets.US_ASCII), buffer.toByteArray());
+
+    assertThrows(IllegalArgumentException.class, () -> buffer.reserve(-1));
+    assertThrows(IllegalArgumentException.class, () -> buffer.advance(-1));
+    assertThrows(IllegalArgumentException.class, () -> buffer.advance(buffer.capacity() - 2));
+  }
+
+  @Test
+  public void testUtf8Length() {
+    for (String value :
+        new String[] {
+          "", "ascii", "café", "中文", "emoji 😀 and more", "lone high \ud83d", "\ude00\ud83d"
+        }) {
+      assertEquals(
+          value, value.getBytes(StandardCharsets.UTF_8).length, DataRowBuffer.utf8Length(value));
+    }
+  }
+
+  @Test
+  public void testWriteLargeValue() throws IOException {
+    DataRowBuffer buffer = new DataRowBuffer();
+    buffer.getOutput().writeShort(3);
+    int first = buffer.beginValue();
+    buffer.writeAscii("small");
+    buffer.endValue(first);
+    buffer.writeLargeValue(5, output -> output.write("large".getBytes(StandardCharsets.US_ASCII)));
+    buffer.writeInt(-1);
+
+    // Only the length prefix of the large value is copied into the buffer.
+    assertEquals(2 + 4 + 5 + 4 + 4, buffer.size());
+    assertEquals(2 + 4 + 5 + 4 + 5 + 4, buffer.messageSize());
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(expected);
+    output.writeShort(3);
+    output.writeInt(5);
+    output.write("small".getBytes(StandardCharsets.US_ASCII));
+    output.writeInt(5);
+    output.write("large".getBytes(StandardCharsets.US_ASCII));
+    output.writeInt(-1);
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    buffer.writeTo(actual);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+    buffer.reset();
+    assertEquals(0, buffer.messageSize());
+    actual.reset();
+    buffer.writeTo(actual);
+    assertEquals(0, actual.size());
+  }
+
+  @Test
+  public void testAppendTo() throws IOException {
+    DataRowBuffer row = new DataRowBuffer();
+    row.getOutput().writeShort(2);
+    row.writeLargeValue(5, output -> output.write("large".getBytes(StandardCharsets.US_ASCII)));
+    int position = row.beginValue();
+    row.writeAscii("small");
+    row.endValue(position);
+
+    DataRowBuffer batch = new DataRowBuffer();
+    batch.getOutput().writeByte('D');
+    row.appendTo(batch);
+    batch.getOutput().writeByte('D');
+    row.appendTo(batch);
+
+    // The large values are not copied into the batch.
+    assertEquals(2 * (1 + 2 + 4 + 4 + 5), batch.size());
+    assertEquals(2 * (1 + 2 + 4 + 5 + 4 + 5), batch.messageSize());
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(expected);
+    for (int i = 0; i < 2; i++) {
+      output.writeByte('D');
+      output.writeShort(2);
+      output.writeInt(5);
+      output.write("large".getBytes(StandardCharsets.US_ASCII));
+      output.writeInt(5);
+      output.write("small".getBytes(StandardCharsets.US_ASCII));
+    }
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    batch.writeTo(actual);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+}
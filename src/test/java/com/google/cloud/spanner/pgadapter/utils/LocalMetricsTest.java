@@ -0,0 +1,127 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.LocalMetrics.Counter;
+import com.google.cloud.spanner.pgadapter.utils.LocalMetrics.Histogram;
+import com.google.cloud.spanner.pgadapter.utils.Metrics.Phase;
+import com.google.common.collect.ImmutableList;
+import io.opentelemetry.api.OpenTelemetry;
+import java.io.StringWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LocalMetricsTest {
+
+  @Test
+  public void testHistogram() {
+    LocalMetrics localMetrics = new LocalMetrics();
+    Histogram histogram =
+        localMetrics.histogram("test/histogram", "Test", "ms", ImmutableList.of(1L, 10L, 100L));
+    for (long value : new long[] {0L, 1L, 2L, 10L, 11L, 1000L}) {
+      histogram.record(value);
+    }
+
+    assertEquals(6L, histogram.getCount());
+    assertEquals(1024L, histogram.getSum());
+    assertEquals(2L, histogram.getCumulativeCount(0));
+    assertEquals(4L, histogram.getCumulativeCount(1));
+    assertEquals(5L, histogram.getCumulativeCount(2));
+    assertEquals(6L, histogram.getCumulativeCount(3));
+  }
+
+  @Test
+  public void testWriteTo() throws Exception {
+    LocalMetrics localMetrics = new LocalMetrics();
+    Counter counter = localMetrics.counter("test/counter", "Test counter", "1");
+    Counter gauge = localMetrics.gauge("test/gauge", "Test gauge", "1");
+    Histogram first =
+        localMetrics.histogram(
+            "test/histogram", "Test histogram", "us", "phase=\"a\"", ImmutableList.of(10L));
+    Histogram second =
+        localMetrics.histogram(
+            "test/histogram", "Test histogram", "us", "phase=\"b\"", ImmutableList.of(10L));
+    counter.add(3L);
+    gauge.add(2L);
+    gauge.add(-1L);
+    first.record(5L);
+    second.record(20L);
+
+    StringWriter writer = new StringWriter();
+    localMetrics.writeTo(writer);
+
+    assertEquals(
+        "# HELP test_counter Test counter (1)\n"
+            + "# TYPE test_counter counter\n"
+            + "test_counter 3\n"
+            + "# HELP test_gauge Test gauge (1)\n"
+            + "# TYPE test_gauge gauge\n"
+            + "test_gauge 1\n"
+            + "# HELP test_histogram Test histogram (us)\n"
+            + "# TYPE test_histogram histogram\n"
+            + "test_histogram_bucket{phase=\"a\",le=\"10\"} 1\n"
+            + "test_histogram_bucket{phase=\"a\",le=\"+Inf\"} 1\n"
+            + "test_histogram_sum{phase=\"a\"} 5\n"
+            + "test_histogram_count{phase=\"a\"} 1\n"
+            + "test_histogram_bucket{phase=\"b\",le=\"10\"} 0\n"
+            + "test_histogram_bucket{phase=\"b\",le=\"+Inf\"} 1\n"
+            + "test_histogram_sum{phase=\"b\"} 20\n"
+            + "test_histogram_count{phase=\"b\"} 1\n",
+        writer.toString());
+  }
+
+  @Test
+  public void testDuplicateInstrument() {
+    LocalMetrics localMetrics = new LocalMetrics();
+    localMetrics.counter("test/counter", "Test counter", "1");
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> localMetrics.counter("test/counter", "Test counter", "1"));
+  }
+
+  @Test
+  public void testMetricsAreRecordedLocally() throws Exception {
+    Metrics metrics = new Metrics(OpenTelemetry.noop());
+    metrics.recordPhaseLatency(Phase.ENCODE, 2_500L);
+    metrics.recordRowsSent(10L);
+    metrics.recordConnectionOpened();
+    metrics.recordConnectionOpened();
+    metrics.recordConnectionClosed();
+    metrics.recordCopyCommit(500L, 8L, 120L);
+    metrics.recordCopyCommit(600L, 9L, 80L);
+
+    StringWriter writer = new StringWriter();
+    metrics.getLocalMetrics().writeTo(writer);
+    String output = writer.toString();
+
+    assertTrue(
+        output, output.contains("spanner_pgadapter_phase_latencies_sum{phase=\"encode\"} 2\n"));
+    assertTrue(
+        output, output.contains("spanner_pgadapter_phase_latencies_count{phase=\"flush\"} 0\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_rows_sent 10\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_active_connections 1\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_copy_rows_committed 1100\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_copy_batch_size_count 2\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_copy_parallelism_sum 17\n"));
+    assertTrue(output, output.contains("spanner_pgadapter_copy_commit_latencies_sum 200\n"));
+  }
+}
@@ -0,0 +1,186 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.wireprotocol.SSLMessage;
+import com.google.cloud.spanner.pgadapter.wireprotocol.StartupMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MessageBatchFramerTest {
+
+  private static byte[] startupMessage(int protocol, String payload) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(8 + data.length);
+    output.writeInt(protocol);
+    output.write(data);
+    return bytes.toByteArray();
+  }
+
+  private static byte[] message(char type, String payload) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+    output.writeByte(type);
+    output.writeInt(4 + data.length);
+    output.write(data);
+    return bytes.toByteArray();
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      bytes.write(part, 0, part.length);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testStartupMessage() throws IOException {
+    MessageBatchFramer framer = new MessageBatchFramer();
+    byte[] startup = startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0\0");
+    framer.feed(startup, 0, startup.length);
+
+    assertFalse(framer.isStartup());
+    assertEquals(startup.length, framer.getCompleteBatchEnd());
+    assertEquals(1, framer.getCompleteBatches());
+  }
+
+  @Test
+  public void testSslRequestStaysInStartupMode() throws IOException {
+    MessageBatchFramer framer = new MessageBatchFramer();
+    byte[] ssl = startupMessage(SSLMessage.IDENTIFIER, "");
+    framer.feed(ssl, 0, ssl.length);
+
+    assertTrue(framer.isStartup());
+    assertEquals(ssl.length, framer.getCompleteBatchEnd());
+
+    byte[] startup = startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0\0");
+    framer.feed(startup, 0, startup.length);
+    assertFalse(framer.isStartup());
+    assertEquals(ssl.length + startup.length, framer.getCompleteBatchEnd());
+    assertEquals(2, framer.getCompleteBatches());
+  }
+
+  @Test
+  public void testExtendedQueryBatch() throws IOException {
+    MessageBatchFramer framer = new MessageBatchFramer();
+    byte[] startup = startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0\0");
+    framer.feed(startup, 0, startup.length);
+
+    byte[] parse = message('P', "\0select 1\0\0\0");
+    byte[] bind = message('B', "\0\0\0\0\0\0\0\0");
+    byte[] execute = message('E', "\0\0\0\0\0");
+    byte[] sync = message('S', "");
+
+    framer.feed(parse, 0, parse.length);
+    framer.feed(bind, 0, bind.length);
+    framer.feed(execute, 0, execute.length);
+    // The batch is not complete until the Sync message has been received.
+    assertEquals(startup.length, framer.getCompleteBatchEnd());
+
+    framer.feed(sync, 0, sync.length);
+    assertEquals(
+        startup.length + parse.length + bind.length + execute.length + sync.length,
+        framer.getCompleteBatchEnd());
+    assertEquals(framer.getPosition(), framer.getCompleteBatchEnd());
+  }
+
+  @Test
+  public void testMessagesSplitAcrossChunks() throws IOException {
+    byte[] data =
+        concat(
+            startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0database\0bar\0\0"),
+            message('Q', "select 1\0"),
+            message('P', "\0select 2\0\0\0"),
+            message('B', "\0\0\0\0\0\0\0\0"),
+            message('E', "\0\0\0\0\0"),
+            message('S', ""),
+            message('X', ""));
+    MessageBatchFramer reference = new MessageBatchFramer();
+    reference.feed(data, 0, data.length);
+    assertEquals(4, reference.getCompleteBatches());
+    assertEquals(data.length, reference.getCompleteBatchEnd());
+
+    // Feeding the same data byte-by-byte or in odd-sized chunks should give the same result.
+    for (int chunkSize : new int[] {1, 2, 3, 5, 7, 13}) {
+      MessageBatchFramer framer = new MessageBatchFramer();
+      for (int offset = 0; offset < data.length; offset += chunkSize) {
+        framer.feed(data, offset, Math.min(chunkSize, data.length - offset));
+      }
+      assertEquals(reference.getCompleteBatches(), framer.getCompleteBatches());
+      assertEquals(data.length, framer.getCompleteBatchEnd());
+      assertEquals(data.length, framer.getPosition());
+    }
+  }
+
+  @Test
+  public void testFeedDirectBuffer() throws IOException {
+    byte[] data =
+        concat(
+            startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0\0"),
+            message('Q', "select 1\0"),
+            message('P', "\0select 2\0\0\0"));
+    ByteBuffer buffer = ByteBuffer.allocateDirect(data.length + 10);
+    buffer.position(10);
+    buffer.put(data);
+    buffer.position(10);
+
+    MessageBatchFramer framer = new MessageBatchFramer();
+    framer.feed(buffer);
+    // Feeding a buffer does not change its position.
+    assertEquals(10, buffer.position());
+    assertEquals(data.length, framer.getPosition());
+    assertEquals(2, framer.getCompleteBatches());
+    assertEquals(
+        data.length - message('P', "\0select 2\0\0\0").length, framer.getCompleteBatchEnd());
+  }
+
+  @Test
+  public void testIncompleteMessage() throws IOException {
+    MessageBatchFramer framer = new MessageBatchFramer();
+    byte[] startup = startupMessage(StartupMessage.IDENTIFIER, "user\0foo\0\0");
+    framer.feed(startup, 0, startup.length);
+    byte[] query = message('Q', "select 1\0");
+    framer.feed(query, 0, query.length - 1);
+
+    assertEquals(startup.length, framer.getCompleteBatchEnd());
+    framer.feed(query, query.length - 1, 1);
+    assertEquals(startup.length + query.length, framer.getCompleteBatchEnd());
+  }
+
+  @Test
+  public void testCopyDataIsBatchTerminator() {
+    for (char type : new char[] {'S', 'H', 'Q', 'X', 'F', 'p', 'd', 'c', 'f'}) {
+      assertTrue(MessageBatchFramer.isBatchTerminator(type));
+    }
+    for (char type : new char[] {'P', 'B', 'D', 'E', 'C'}) {
+      assertFalse(MessageBatchFramer.isBatchTerminator(type));
+    }
+  }
+}
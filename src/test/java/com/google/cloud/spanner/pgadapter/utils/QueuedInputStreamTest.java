@@ -0,0 +1,324 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.utils.QueuedInputStream.ChunkPool;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class QueuedInputStreamTest {
+
+  @Test
+  public void testReadChunks() throws IOException {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    stream.append(new byte[] {1, 2, 3});
+    stream.append(new byte[] {4, 5});
+    stream.endOfStream();
+
+    assertEquals(5, stream.available());
+    byte[] buffer = new byte[4];
+    assertEquals(4, stream.read(buffer, 0, 4));
+    assertArrayEquals(new byte[] {1, 2, 3, 4}, buffer);
+    assertEquals(5, stream.read());
+    assertEquals(-1, stream.read());
+    assertEquals(5L, stream.getPosition());
+  }
+
+  @Test
+  public void testDataInputStreamEof() throws IOException {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    stream.append(new byte[] {0, 0});
+    stream.endOfStream();
+
+    DataInputStream input = new DataInputStream(stream);
+    assertThrows(EOFException.class, input::readInt);
+  }
+
+  @Test
+  public void testMarkAndReset() throws IOException {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    stream.append(new byte[] {'S', 0, 0});
+    stream.append(new byte[] {0, 4});
+
+    assertTrue(stream.markSupported());
+    stream.mark(1);
+    assertEquals('S', stream.read());
+    assertEquals(1L, stream.getPosition());
+    stream.reset();
+    assertEquals(0L, stream.getPosition());
+    assertEquals(5, stream.available());
+
+    DataInputStream input = new DataInputStream(stream);
+    assertEquals('S', input.readUnsignedByte());
+    assertEquals(4, input.readInt());
+  }
+
+  @Test
+  public void testResetWithoutMark() {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    assertThrows(IOException.class, stream::reset);
+  }
+
+  @Test
+  public void testReadBlocksUntilDataIsAvailable() throws Exception {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Integer> future = executor.submit(() -> new DataInputStream(stream).readInt());
+      Thread.sleep(10L);
+      assertFalse(future.isDone());
+      stream.append(new byte[] {0, 0});
+      Thread.sleep(10L);
+      assertFalse(future.isDone());
+      stream.append(new byte[] {1, 1});
+      assertEquals(257, future.get(5L, TimeUnit.SECONDS).intValue());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testInterruptWhileWaiting() throws Exception {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Integer> future = executor.submit(() -> stream.read());
+      Thread.sleep(10L);
+      executor.shutdownNow();
+      ExecutionException exception =
+          assertThrows(ExecutionException.class, () -> future.get(5L, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof InterruptedIOException);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBackPressure() throws IOException {
+    AtomicInteger resumed = new AtomicInteger();
+    QueuedInputStream stream = new QueuedInputStream(10, resumed::incrementAndGet);
+    assertTrue(stream.append(new byte[8]));
+    assertFalse(stream.append(new byte[8]));
+
+    // Reading until we are above half of the limit should not resume reading.
+    byte[] buffer = new byte[10];
+    assertEquals(8, stream.read(buffer, 0, 8));
+    assertEquals(0, resumed.get());
+    assertEquals(4, stream.read(buffer, 0, 4));
+    assertEquals(1, resumed.get());
+    // The callback is only invoked once per suspension.
+    assertEquals(4, stream.read(buffer, 0, 4));
+    assertEquals(1, resumed.get());
+  }
+
+  @Test
+  public void testAppendBuffer() throws IOException {
+    ChunkPool pool = new ChunkPool(4);
+    QueuedInputStream stream = new QueuedInputStream(100, pool, () -> {});
+    ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+    buffer.put(new byte[] {1, 2, 3}).flip();
+    assertTrue(stream.append(buffer));
+    assertFalse(buffer.hasRemaining());
+
+    // Small amounts of data are added to the last chunk until it is full.
+    buffer.clear();
+    buffer.put(new byte[] {4, 5, 6, 7, 8, 9}).flip();
+    assertTrue(stream.append(buffer));
+    assertEquals(9, stream.available());
+    assertEquals(0, pool.getIdleChunkCount());
+
+    byte[] result = new byte[9];
+    new DataInputStream(stream).readFully(result);
+    assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9}, result);
+    // The data was added to three chunks. The chunks that have been read are returned to the
+    // pool, except for the last chunk, which is returned when the stream moves to the next chunk.
+    assertEquals(2, pool.getIdleChunkCount());
+
+    // Chunks from the pool are reused for new data.
+    buffer.clear();
+    buffer.put(new byte[] {10, 11}).flip();
+    stream.append(buffer);
+    assertEquals(1, pool.getIdleChunkCount());
+    stream.endOfStream();
+    assertEquals(10, stream.read());
+    assertEquals(11, stream.read());
+    assertEquals(-1, stream.read());
+    // All three chunks that were used by this stream are back in the pool.
+    assertEquals(3, pool.getIdleChunkCount());
+  }
+
+  @Test
+  public void testAppendBufferMarkAndReset() throws IOException {
+    ChunkPool pool = new ChunkPool(4);
+    QueuedInputStream stream = new QueuedInputStream(100, pool, () -> {});
+    stream.append(ByteBuffer.wrap(new byte[] {'S', 0, 0, 0, 4, 1}));
+
+    stream.mark(5);
+    DataInputStream input = new DataInputStream(stream);
+    assertEquals('S', input.readUnsignedByte());
+    stream.reset();
+    assertEquals('S', input.readUnsignedByte());
+    assertEquals(4, input.readInt());
+    assertEquals(1, input.readUnsignedByte());
+    assertEquals(6L, stream.getPosition());
+  }
+
+  @Test
+  public void testAppendBufferWithoutPool() {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    assertThrows(IllegalStateException.class, () -> stream.append(ByteBuffer.allocate(1)));
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    QueuedInputStream stream = new QueuedInputStream(100, () -> {});
+    stream.append(new byte[] {1, 2, 3});
+    stream.close();
+
+    assertTrue(stream.isEndOfStream());
+    assertEquals(0, stream.available());
+    assertEquals(-1, stream.read());
+  }
+
+  @Test
+  public void testPutBlocksUntilThereIsRoom() throws Exception {
+    QueuedInputStream stream = new QueuedInputStream(10);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      stream.put(new byte[6]);
+      // The buffer is not yet full, so this should not block, although it exceeds the limit.
+      stream.put(new byte[6]);
+      Future<?> future =
+          executor.submit(
+              () -> {
+                stream.put(new byte[] {1});
+                return null;
+              });
+      Thread.sleep(10L);
+      assertFalse(future.isDone());
+      byte[] buffer = new byte[12];
+      assertEquals(2, stream.read(buffer, 0, 2));
+      Thread.sleep(10L);
+      assertFalse(future.isDone());
+      // Reading one more byte brings the number of buffered bytes below the limit.
+      assertEquals(1, stream.read(buffer, 0, 1));
+      assertNull(future.get(5L, TimeUnit.SECONDS));
+      assertEquals(10, stream.available());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCloseReleasesBlockedProducer() throws Exception {
+    QueuedInputStream stream = new QueuedInputStream(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      stream.put(new byte[1]);
+      Future<?> future =
+          executor.submit(
+              () -> {
+                stream.put(new byte[1]);
+                return null;
+              });
+      Thread.sleep(10L);
+      assertFalse(future.isDone());
+      stream.close();
+      assertNull(future.get(5L, TimeUnit.SECONDS));
+      assertEquals(0, stream.available());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testInterruptWhilePutting() throws Exception {
+    QueuedInputStream stream = new QueuedInputStream(1);
+    stream.put(new byte[1]);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> future =
+          executor.submit(
+              () -> {
+                stream.put(new byte[1]);
+                return null;
+              });
+      Thread.sleep(10L);
+      executor.shutdownNow();
+      ExecutionException exception =
+          assertThrows(ExecutionException.class, () -> future.get(5L, TimeUnit.SECONDS));
+      assertTrue(exception.getCause() instanceof InterruptedIOException);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Hands over data between two threads using both small chunks, which are typical for clients that
+   * send one CopyData message per row, such as psql, and chunks that are larger than the buffer
+   * size of the stream.
+   */
+  @Test
+  public void testHandOffBetweenThreads() throws Exception {
+    long totalBytes = 4L << 20;
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int chunkSize : new int[] {128, 1 << 16, 1 << 17}) {
+        int numChunks = (int) (totalBytes / chunkSize);
+        QueuedInputStream queuedInput = new QueuedInputStream(1 << 16);
+        Future<Long> queuedReader = executor.submit(() -> drain(queuedInput));
+        for (int i = 0; i < numChunks; i++) {
+          queuedInput.put(new byte[chunkSize]);
+        }
+        queuedInput.endOfStream();
+        assertEquals(totalBytes, queuedReader.get().longValue());
+        assertEquals(totalBytes, queuedInput.getPosition());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static long drain(InputStream inputStream) throws IOException {
+    byte[] buffer = new byte[8192];
+    long total = 0L;
+    int read;
+    while ((read = inputStream.read(buffer)) > -1) {
+      total += read;
+    }
+    return total;
+  }
+}
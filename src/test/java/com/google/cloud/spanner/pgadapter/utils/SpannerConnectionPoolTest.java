@@ -0,0 +1,335 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Options.RpcPriority;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.connection.AutocommitDmlMode;
+import com.google.cloud.spanner.connection.Connection;
+import com.google.cloud.spanner.connection.ConnectionOptions;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SpannerConnectionPoolTest {
+
+  private static ConnectionOptions createConnectionOptions(String uri) {
+    ConnectionOptions options = mock(ConnectionOptions.class);
+    when(options.getUri()).thenReturn(uri);
+    when(options.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+    return options;
+  }
+
+  @Test
+  public void testAcquireAndRelease() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(2);
+    ConnectionOptions options = createConnectionOptions("uri1");
+
+    Connection connection1 = pool.acquire(options);
+    Connection connection2 = pool.acquire(options);
+    assertNotSame(connection1, connection2);
+    assertEquals(2, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+
+    pool.release(options, connection1);
+    verify(connection1).reset();
+    assertEquals(1, pool.getLeasedCount());
+    assertEquals(1, pool.getIdleCount());
+
+    // The idle connection is reused.
+    assertSame(connection1, pool.acquire(options));
+    verify(options, times(2)).getConnection();
+  }
+
+  @Test
+  public void testIdleConnectionsArePerDatabase() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(2);
+    ConnectionOptions options1 = createConnectionOptions("uri1");
+    ConnectionOptions options2 = createConnectionOptions("uri2");
+
+    Connection connection = pool.acquire(options1);
+    pool.release(options1, connection);
+    assertNotSame(connection, pool.acquire(options2));
+    assertSame(connection, pool.acquire(options1));
+  }
+
+  @Test
+  public void testAcquireTimesOut() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1, Duration.ofMillis(10L));
+    ConnectionOptions options = createConnectionOptions("uri1");
+
+    Connection connection = pool.acquire(options);
+    SpannerException exception = assertThrows(SpannerException.class, () -> pool.acquire(options));
+    assertEquals(ErrorCode.RESOURCE_EXHAUSTED, exception.getErrorCode());
+
+    pool.discard(connection);
+    verify(connection).close();
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testConnectionThatCannotBeResetIsClosed() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+
+    Connection connection = pool.acquire(options);
+    doThrow(new IllegalStateException()).when(connection).reset();
+    pool.release(options, connection);
+    verify(connection).close();
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testClose() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(2);
+    ConnectionOptions options = createConnectionOptions("uri1");
+
+    Connection idle = pool.acquire(options);
+    Connection leased = pool.acquire(options);
+    pool.release(options, idle);
+
+    pool.close();
+    verify(idle).close();
+    verify(leased, never()).close();
+    pool.release(options, leased);
+    verify(leased).close();
+    assertEquals(0, pool.getIdleCount());
+
+    SpannerException exception = assertThrows(SpannerException.class, () -> pool.acquire(options));
+    assertEquals(ErrorCode.FAILED_PRECONDITION, exception.getErrorCode());
+  }
+
+  @Test
+  public void testPooledConnectionLeasesLazily() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+    assertNull(PooledConnection.of(mock(Connection.class)));
+    assertFalse(pooledConnection.isLeased());
+    assertEquals(0, pool.getLeasedCount());
+
+    // Cancelling a connection that is not leased is a no-op.
+    connection.cancel();
+    assertEquals(0, pool.getLeasedCount());
+
+    // Getters that only return the state of the connection do not lease a connection.
+    assertFalse(connection.isInTransaction());
+    assertNull(connection.getReadOnlyStaleness());
+    assertFalse(pooledConnection.isLeased());
+    assertEquals(0, pool.getLeasedCount());
+
+    connection.execute(Statement.of("select 1"));
+    assertTrue(pooledConnection.isLeased());
+    assertEquals(1, pool.getLeasedCount());
+
+    assertTrue(pooledConnection.releaseIfIdle());
+    assertFalse(pooledConnection.isLeased());
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(1, pool.getIdleCount());
+
+    connection.close();
+    assertTrue(connection.isClosed());
+    assertEquals(1, pool.getIdleCount());
+  }
+
+  @Test
+  public void testPooledConnectionKeepsLeaseDuringTransaction() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+
+    connection.beginTransaction();
+    Connection leased = pooledConnection.getLeasedConnection();
+    assertNotNull(leased);
+    when(leased.isInTransaction()).thenReturn(true);
+    assertFalse(pooledConnection.releaseIfIdle());
+    assertEquals(1, pool.getLeasedCount());
+
+    // Closing a connection with an active transaction closes the Spanner connection instead of
+    // returning it to the pool.
+    connection.close();
+    verify(leased).close();
+    assertEquals(0, pool.getLeasedCount());
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testPooledConnectionReappliesSettings() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+
+    Statement setStaleness = Statement.of("set spanner.read_only_staleness='max_staleness 10s'");
+    Statement setTag = Statement.of("set spanner.statement_tag='tag'");
+    connection.execute(setStaleness);
+    connection.execute(setTag);
+    connection.execute(Statement.of("select 1"));
+    Connection first = pooledConnection.getLeasedConnection();
+    assertTrue(pooledConnection.releaseIfIdle());
+
+    // Remove the idle connection from the pool, so the next lease creates a new connection.
+    pool.discard(pool.acquire(options));
+    connection.execute(Statement.of("select 1"));
+    Connection second = pooledConnection.getLeasedConnection();
+    assertNotNull(second);
+    assertNotSame(first, second);
+    verify(second).execute(setStaleness);
+    verify(second, never()).execute(setTag);
+
+    // RESET ALL clears the recorded settings.
+    connection.execute(Statement.of("reset all"));
+    assertTrue(pooledConnection.releaseIfIdle());
+    connection.execute(Statement.of("select 1"));
+    assertSame(second, pooledConnection.getLeasedConnection());
+    verify(second, times(1)).execute(setStaleness);
+  }
+
+  @Test
+  public void testPooledConnectionReappliesSetters() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+
+    TimestampBound staleness = TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS);
+    connection.setReadOnlyStaleness(staleness);
+    connection.setStatementTimeout(5L, TimeUnit.SECONDS);
+    connection.setRPCPriority(RpcPriority.LOW);
+    connection.setStatementTag("tag");
+    Connection first = pooledConnection.getLeasedConnection();
+    verify(first).setReadOnlyStaleness(staleness);
+    connection.setStatementTag(null);
+    assertTrue(pooledConnection.releaseIfIdle());
+
+    // Remove the idle connection from the pool, so the next lease creates a new connection.
+    pool.discard(pool.acquire(options));
+    connection.execute(Statement.of("select 1"));
+    Connection second = pooledConnection.getLeasedConnection();
+    assertNotNull(second);
+    assertNotSame(first, second);
+    verify(second).setReadOnlyStaleness(staleness);
+    verify(second).setStatementTimeout(5L, TimeUnit.SECONDS);
+    verify(second).setRPCPriority(RpcPriority.LOW);
+    verify(second, never()).setStatementTag(any());
+
+    // Clearing the statement timeout replaces the recorded timeout.
+    connection.clearStatementTimeout();
+    assertTrue(pooledConnection.releaseIfIdle());
+    pool.discard(pool.acquire(options));
+    connection.execute(Statement.of("select 1"));
+    Connection third = pooledConnection.getLeasedConnection();
+    verify(third).clearStatementTimeout();
+    verify(third, never()).setStatementTimeout(anyLong(), any(TimeUnit.class));
+    verify(third).setReadOnlyStaleness(staleness);
+  }
+
+  @Test
+  public void testPooledConnectionSetterInvalidatesIdleState() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1);
+    ConnectionOptions options = createConnectionOptions("uri1");
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+
+    Connection settingsConnection = pool.getSettingsConnection(options);
+    when(settingsConnection.getAutocommitDmlMode()).thenReturn(AutocommitDmlMode.TRANSACTIONAL);
+    assertEquals(AutocommitDmlMode.TRANSACTIONAL, connection.getAutocommitDmlMode());
+
+    connection.setAutocommitDmlMode(AutocommitDmlMode.PARTITIONED_NON_ATOMIC);
+    assertTrue(pooledConnection.releaseIfIdle());
+    when(settingsConnection.getAutocommitDmlMode())
+        .thenReturn(AutocommitDmlMode.PARTITIONED_NON_ATOMIC);
+    // The cached value is invalidated by the setter, and the setter is applied to the connection
+    // that answers the getters.
+    assertEquals(AutocommitDmlMode.PARTITIONED_NON_ATOMIC, connection.getAutocommitDmlMode());
+    verify(settingsConnection).setAutocommitDmlMode(AutocommitDmlMode.PARTITIONED_NON_ATOMIC);
+    pool.close();
+  }
+
+  @Test
+  public void testPooledConnectionAnswersGettersWithoutLease() {
+    SpannerConnectionPool pool = new SpannerConnectionPool(1, Duration.ofMillis(10L));
+    ConnectionOptions options = createConnectionOptions("uri1");
+    Connection connection = pool.createConnection(options);
+    PooledConnection pooledConnection = PooledConnection.of(connection);
+    assertNotNull(pooledConnection);
+
+    Statement setStaleness = Statement.of("set spanner.read_only_staleness='max_staleness 10s'");
+    connection.execute(setStaleness);
+    assertTrue(pooledConnection.releaseIfIdle());
+
+    // Lease the only connection in the pool for another client. Reading the state of the idle
+    // client connection should not wait for a connection to become available.
+    Connection other = pool.acquire(options);
+    Connection settingsConnection = pool.getSettingsConnection(options);
+    when(settingsConnection.getReadOnlyStaleness())
+        .thenReturn(TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS));
+    assertFalse(connection.isInTransaction());
+    assertFalse(connection.isAutoPartitionMode());
+    assertNull(connection.getStatementTag());
+    assertEquals(
+        TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS), connection.getReadOnlyStaleness());
+    assertFalse(pooledConnection.isLeased());
+    // The recorded settings are applied to the connection that answers the getters.
+    verify(settingsConnection, atLeastOnce()).execute(setStaleness);
+
+    // Values are cached until the settings change.
+    connection.getReadOnlyStaleness();
+    verify(settingsConnection, times(1)).getReadOnlyStaleness();
+
+    // Executing a statement still needs a lease.
+    SpannerException exception =
+        assertThrows(SpannerException.class, () -> connection.execute(Statement.of("select 1")));
+    assertEquals(ErrorCode.RESOURCE_EXHAUSTED, exception.getErrorCode());
+
+    pool.release(options, other);
+    pool.close();
+    verify(settingsConnection).close();
+  }
+}
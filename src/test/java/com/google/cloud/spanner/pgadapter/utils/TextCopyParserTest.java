@@ -0,0 +1,460 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.utils.CsvCopyParser.CsvCopyRecord;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.apache.commons.csv.CSVFormat;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TextCopyParserTest {
+
+  private static SessionState createSessionState() {
+    SessionState sessionState = mock(SessionState.class);
+    when(sessionState.getTimezone()).thenReturn(ZoneId.of("Europe/Oslo"));
+    return sessionState;
+  }
+
+  private static InputStream chunked(byte[] data, Random random) {
+    QueuedInputStream stream = new QueuedInputStream(Integer.MAX_VALUE);
+    int offset = 0;
+    while (offset < data.length) {
+      int length = Math.min(data.length - offset, 1 + random.nextInt(64));
+      stream.append(Arrays.copyOfRange(data, offset, offset + length));
+      offset += length;
+    }
+    stream.endOfStream();
+    return stream;
+  }
+
+  private static TextCopyParser createParser(String data) throws IOException {
+    return new TextCopyParser(
+        createSessionState(),
+        CSVFormat.POSTGRESQL_TEXT,
+        new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+        false);
+  }
+
+  /** Returns the values of all records in the given data as strings. */
+  private static List<List<String>> readAll(CopyInParser parser) throws IOException {
+    List<List<String>> records = new ArrayList<>();
+    Iterator<CopyRecord> iterator = parser.iterator();
+    while (iterator.hasNext()) {
+      CopyRecord record = iterator.next();
+      List<String> values = new ArrayList<>(record.numColumns());
+      for (int i = 0; i < record.numColumns(); i++) {
+        values.add(record.getValue(Type.string(), i).getAsString());
+      }
+      records.add(values);
+    }
+    parser.close();
+    return records;
+  }
+
+  /** Returns the value that the text parser produces for a single field with the given content. */
+  private static Value parseValue(Type type, String field) throws IOException {
+    TextCopyParser parser = createParser(field + "\n");
+    Iterator<CopyRecord> iterator = parser.iterator();
+    assertTrue(iterator.hasNext());
+    CopyRecord record = iterator.next();
+    assertEquals(1, record.numColumns());
+    return record.getValue(type, 0);
+  }
+
+  private static void assertSameValue(Type type, String field) throws IOException {
+    Value expected;
+    try {
+      expected = CsvCopyRecord.getSpannerValue(createSessionState(), type, field);
+    } catch (SpannerException exception) {
+      SpannerException actual =
+          assertThrows(field, SpannerException.class, () -> parseValue(type, field));
+      assertEquals(field, exception.getMessage(), actual.getMessage());
+      return;
+    }
+    assertEquals(field, expected, parseValue(type, field));
+  }
+
+  @Test
+  public void testIsSupported() {
+    assertTrue(TextCopyParser.isSupported(CSVFormat.POSTGRESQL_TEXT));
+    assertTrue(
+        TextCopyParser.isSupported(
+            CSVFormat.POSTGRESQL_TEXT.builder().setDelimiter('|').setNullString("").build()));
+    assertFalse(TextCopyParser.isSupported(CSVFormat.POSTGRESQL_CSV));
+    assertFalse(TextCopyParser.isSupported(null));
+    assertFalse(
+        TextCopyParser.isSupported(CSVFormat.POSTGRESQL_TEXT.builder().setDelimiter("||").build()));
+    assertFalse(
+        TextCopyParser.isSupported(CSVFormat.POSTGRESQL_TEXT.builder().setDelimiter('§').build()));
+  }
+
+  @Test
+  public void testInt64() throws IOException {
+    for (String value :
+        new String[] {
+          "0",
+          "1",
+          "-1",
+          "+1",
+          "0042",
+          "9223372036854775807",
+          "-9223372036854775808",
+          "9223372036854775808",
+          "-9223372036854775809",
+          "99999999999999999999",
+          "",
+          "-",
+          "1.0",
+          " 1",
+          "1a",
+        }) {
+      assertSameValue(Type.int64(), value);
+    }
+    Random random = new Random(1L);
+    for (int i = 0; i < 1000; i++) {
+      assertSameValue(Type.int64(), String.valueOf(random.nextLong() >> random.nextInt(64)));
+    }
+  }
+
+  @Test
+  public void testFloat64() throws IOException {
+    for (String value :
+        new String[] {
+          "0",
+          "-0",
+          "0.0",
+          "-0.0",
+          "1",
+          "1.",
+          ".5",
+          "3.14",
+          "-99.99",
+          "7.9754384e+07",
+          "1E-5",
+          "1e22",
+          "1e23",
+          "123456789012345",
+          "1234567890123456",
+          "0.000000000000000000000001",
+          "1.7976931348623157E308",
+          "4.9E-324",
+          "NaN",
+          "Infinity",
+          "-Infinity",
+          "1.5d",
+          "",
+          ".",
+          "e5",
+          "1e",
+          "abc",
+        }) {
+      assertSameValue(Type.float64(), value);
+    }
+    Random random = new Random(1L);
+    for (int i = 0; i < 5000; i++) {
+      long mantissa = random.nextLong() % 1_000_000_000_000_000L;
+      int scale = random.nextInt(30) - 5;
+      assertSameValue(
+          Type.float64(), new java.math.BigDecimal(mantissa).movePointLeft(scale).toPlainString());
+      assertSameValue(Type.float64(), String.valueOf(random.nextDouble() * random.nextInt()));
+    }
+  }
+
+  @Test
+  public void testBool() throws IOException {
+    for (String value :
+        new String[] {
+          "t", "f", "T", "F", "1", "0", "true", "FALSE", "yes", "no", "on", "off", "x", "", "2"
+        }) {
+      assertSameValue(Type.bool(), value);
+    }
+  }
+
+  @Test
+  public void testDate() throws IOException {
+    for (String value :
+        new String[] {
+          "2015-01-20",
+          "2024-02-29",
+          "2000-02-29",
+          "1900-02-28",
+          "0001-01-01",
+          "9999-12-31",
+          "2023-02-29",
+          "2023-04-31",
+          "2023-13-01",
+          "2023-00-10",
+          "0000-01-01",
+          "2023-1-01",
+          "20230101",
+          "abc",
+        }) {
+      assertSameValue(Type.date(), value);
+    }
+  }
+
+  @Test
+  public void testTimestamp() throws IOException {
+    for (String value :
+        new String[] {
+          "2000-04-09 19:41:00.871391+02",
+          "2093-08-02T14:53:40.481913+00",
+          "2022-08-17T10:11:12.123456789Z",
+          "2022-08-17 10:11:12.123456789Z",
+          "2022-08-17 10:11:12.123456789+00:00",
+          "2022-08-17 12:11:12.1+02",
+          "2022-08-17 08:11:12-02",
+          "2022-08-17 08:11:12-0230",
+          "2022-08-17 08:11:12+05:30",
+          "1970-01-01 00:00:00+00",
+          "1969-12-31 23:59:59.999999999+00",
+          "0001-01-01 00:00:00+00",
+          "9999-12-31 23:59:59.999999+00",
+          "2024-02-29 12:00:00+01",
+          "2022-08-17 10:11:12",
+          "2022-08-17 10:11:12.123",
+          "2022-08-17",
+          "2022-08-17 24:00:00+00",
+          "2022-08-17 10:11:12.+00",
+          "2022-08-17 10:11:12.1234567890+00",
+          "abc",
+        }) {
+      assertSameValue(Type.timestamp(), value);
+    }
+  }
+
+  @Test
+  public void testOtherTypes() throws IOException {
+    assertSameValue(Type.string(), "test");
+    assertSameValue(Type.pgNumeric(), "3.14");
+    assertSameValue(Type.pgJsonb(), "{\"key\": \"value\"}");
+    assertSameValue(Type.float32(), "3.14");
+    assertSameValue(Type.array(Type.int64()), "{1,NULL,2}");
+    assertEquals(
+        Value.bytes(com.google.cloud.ByteArray.copyFrom("test")),
+        parseValue(Type.bytes(), "\\\\x74657374"));
+  }
+
+  @Test
+  public void testEscapes() throws IOException {
+    assertEquals(
+        Arrays.asList(
+            Arrays.asList("a\tb", "c\\d", "e\nf", "A", "A", "xg", "Aq", "\b\f\r\u000b", "\0", "q")),
+        readAll(
+            createParser(
+                "a\\tb\tc\\\\d\te\\\nf\t\\101\t\\x41\t\\xg\t\\x41q\t\\b\\f\\r\\v\t\\0\t\\q")));
+    // Multibyte characters are not affected by escapes.
+    assertEquals(
+        Arrays.asList(Arrays.asList("æøå\t中文", "😀")), readAll(createParser("æøå\\t中文\t😀\n")));
+  }
+
+  @Test
+  public void testNull() throws IOException {
+    TextCopyParser parser = createParser("\\N\t\\\\N\tN\n");
+    CopyRecord record = parser.iterator().next();
+    assertTrue(record.isNull(0));
+    assertTrue(record.getValue(Type.string(), 0).isNull());
+    assertTrue(record.getValue(Type.int64(), 0).isNull());
+    // An escaped null string is not null.
+    assertFalse(record.isNull(1));
+    assertEquals("\\N", record.getValue(Type.string(), 1).getString());
+    assertFalse(record.isNull(2));
+
+    TextCopyParser customNull =
+        new TextCopyParser(
+            createSessionState(),
+            CSVFormat.POSTGRESQL_TEXT.builder().setDelimiter('|').setNullString("").build(),
+            new ByteArrayInputStream("|a|\n".getBytes(StandardCharsets.UTF_8)),
+            false);
+    record = customNull.iterator().next();
+    assertEquals(3, record.numColumns());
+    assertTrue(record.isNull(0));
+    assertFalse(record.isNull(1));
+    assertTrue(record.isNull(2));
+  }
+
+  @Test
+  public void testLineEndings() throws IOException {
+    List<List<String>> expected =
+        Arrays.asList(
+            Arrays.asList("1", "one"),
+            Arrays.asList("2", "two"),
+            Arrays.asList(""),
+            Arrays.asList("3", "three"));
+    assertEquals(expected, readAll(createParser("1\tone\n2\ttwo\n\n3\tthree\n")));
+    assertEquals(expected, readAll(createParser("1\tone\n2\ttwo\n\n3\tthree")));
+    assertEquals(expected, readAll(createParser("1\tone\r\n2\ttwo\r\n\r\n3\tthree\r\n")));
+    assertEquals(expected, readAll(createParser("1\tone\r2\ttwo\r\r3\tthree\r")));
+    assertEquals(Arrays.asList(), readAll(createParser("")));
+    assertEquals(Arrays.asList(Arrays.asList("")), readAll(createParser("\n")));
+  }
+
+  @Test
+  public void testEndRecord() throws IOException {
+    Iterator<CopyRecord> iterator = createParser("1\tone\n\\.\n2\ttwo\n").iterator();
+    assertFalse(iterator.next().isEndRecord());
+    assertTrue(iterator.next().isEndRecord());
+    assertFalse(iterator.next().isEndRecord());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testHeader() throws IOException {
+    TextCopyParser parser =
+        new TextCopyParser(
+            createSessionState(),
+            CSVFormat.POSTGRESQL_TEXT.builder().setHeader().build(),
+            new ByteArrayInputStream("name\tid\none\t1\n".getBytes(StandardCharsets.UTF_8)),
+            true);
+    Iterator<CopyRecord> iterator = parser.iterator();
+    CopyRecord record = iterator.next();
+    assertTrue(record.hasColumnNames());
+    assertEquals(Value.int64(1L), record.getValue(Type.int64(), "id"));
+    assertEquals(Value.string("one"), record.getValue(Type.string(), "name"));
+    assertThrows(IllegalArgumentException.class, () -> record.getValue(Type.string(), "foo"));
+    assertFalse(iterator.hasNext());
+
+    // Explicit column names in the format are used instead of a header record.
+    parser =
+        new TextCopyParser(
+            createSessionState(),
+            CSVFormat.POSTGRESQL_TEXT.builder().setHeader("name", "id").build(),
+            new ByteArrayInputStream("one\t1\n".getBytes(StandardCharsets.UTF_8)),
+            true);
+    CopyRecord explicit = parser.iterator().next();
+    assertEquals(Value.int64(1L), explicit.getValue(Type.int64(), "id"));
+  }
+
+  @Test
+  public void testLargeValue() throws IOException {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 300_000; i++) {
+      builder.append((char) ('a' + i % 26));
+    }
+    String large = builder.toString();
+    byte[] data = ("1\t" + large + "\n2\tsmall\n").getBytes(StandardCharsets.UTF_8);
+    TextCopyParser parser =
+        new TextCopyParser(
+            createSessionState(), CSVFormat.POSTGRESQL_TEXT, chunked(data, new Random(1L)), false);
+    assertEquals(
+        Arrays.asList(Arrays.asList("1", large), Arrays.asList("2", "small")), readAll(parser));
+  }
+
+  @Test
+  public void testSameResultAsCsvCopyParser() throws IOException {
+    byte[] data = Files.readAllBytes(Paths.get("./src/test/resources/all_types_data.txt"));
+    List<List<String>> expected =
+        readAll(
+            new CsvCopyParser(
+                createSessionState(),
+                CSVFormat.POSTGRESQL_TEXT,
+                new ByteArrayInputStream(data),
+                false));
+    List<List<String>> actual =
+        readAll(
+            new TextCopyParser(
+                createSessionState(),
+                CSVFormat.POSTGRESQL_TEXT,
+                chunked(data, new Random(1L)),
+                false));
+    assertEquals(10_000, actual.size());
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Verifies that the text parser and the generic CSV parser convert all values in a file with all
+   * types to the same values.
+   */
+  @Test
+  public void testConvertedValuesEqualCsvParser() throws IOException {
+    byte[] data = Files.readAllBytes(Paths.get("./src/test/resources/all_types_data.txt"));
+    Type[] types =
+        new Type[] {
+          Type.int64(),
+          Type.bool(),
+          Type.bytes(),
+          Type.float32(),
+          Type.float64(),
+          Type.int64(),
+          Type.pgNumeric(),
+          Type.timestamp(),
+          Type.date(),
+          Type.string(),
+          Type.pgJsonb()
+        };
+    List<List<Value>> expected =
+        readAllValues(
+            new CsvCopyParser(
+                createSessionState(),
+                CSVFormat.POSTGRESQL_TEXT,
+                new ByteArrayInputStream(data),
+                false),
+            types);
+    List<List<Value>> actual =
+        readAllValues(
+            new TextCopyParser(
+                createSessionState(),
+                CSVFormat.POSTGRESQL_TEXT,
+                new ByteArrayInputStream(data),
+                false),
+            types);
+    assertEquals(10_000, actual.size());
+    assertEquals(expected, actual);
+  }
+
+  private static List<List<Value>> readAllValues(CopyInParser parser, Type[] types)
+      throws IOException {
+    List<List<Value>> result = new ArrayList<>();
+    try {
+      Iterator<CopyRecord> iterator = parser.iterator();
+      while (iterator.hasNext()) {
+        CopyRecord record = iterator.next();
+        List<Value> row = new ArrayList<>(types.length);
+        for (int i = 0; i < types.length; i++) {
+          row.add(record.getValue(types[i], i));
+        }
+        result.add(row);
+      }
+    } finally {
+      parser.close();
+    }
+    return result;
+  }
+}
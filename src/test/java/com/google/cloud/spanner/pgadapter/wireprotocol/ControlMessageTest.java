@@ -16,6 +16,7 @@ package com.google.cloud.spanner.pgadapter.wireprotocol;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -34,6 +35,10 @@ import com.google.cloud.spanner.pgadapter.statements.BackendConnection.UpdateCou
 import com.google.cloud.spanner.pgadapter.statements.ExtendedQueryProtocolHandler;
 import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
 import com.google.cloud.spanner.pgadapter.wireprotocol.ControlMessage.ManuallyCreatedToken;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Tracer;
 import java.io.ByteArrayInputStream;
@@ -42,7 +47,15 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.junit.Rule;
@@ -173,4 +186,66 @@ public final class ControlMessageTest {
         IllegalArgumentException.class,
         () -> message.sendResultSet(describedResult, QueryMode.SIMPLE, 0L));
   }
+
+  @Test
+  public void testSubmitWithMaxParallelism() throws Exception {
+    ListeningExecutorService executor =
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+    try {
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+      List<Callable<Integer>> tasks = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        int value = i;
+        tasks.add(
+            () -> {
+              maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+              Thread.sleep(5L);
+              running.decrementAndGet();
+              return value;
+            });
+      }
+      List<ListenableFuture<Integer>> futures =
+          ControlMessage.submitWithMaxParallelism(executor, tasks, 3);
+
+      List<Integer> results = Futures.allAsList(futures).get(30L, TimeUnit.SECONDS);
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals(i, results.get(i).intValue());
+      }
+      assertTrue(maxRunning.get() <= 3);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSubmitWithMaxParallelism_cancelledTasksAreNotExecuted() throws Exception {
+    ListeningExecutorService executor =
+        MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+    try {
+      CountDownLatch blocked = new CountDownLatch(1);
+      AtomicInteger executed = new AtomicInteger();
+      List<Callable<Integer>> tasks = new ArrayList<>();
+      tasks.add(
+          () -> {
+            blocked.await();
+            return executed.incrementAndGet();
+          });
+      for (int i = 0; i < 5; i++) {
+        tasks.add(executed::incrementAndGet);
+      }
+      List<ListenableFuture<Integer>> futures =
+          ControlMessage.submitWithMaxParallelism(executor, tasks, 1);
+      Futures.allAsList(futures).cancel(true);
+      blocked.countDown();
+
+      for (ListenableFuture<Integer> f : futures)
+        assertTrue(futures.stream().allMatch(Future::isCancelled));
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(30L, TimeUnit.SECONDS));
+      assertEquals(0, executed.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 }
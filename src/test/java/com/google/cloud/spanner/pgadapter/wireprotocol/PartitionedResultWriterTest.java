@@ -0,0 +1,137 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.spanner.pgadapter.error.PGException;
+import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.wireprotocol.PartitionedResultWriter.PartitionBuffer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PartitionedResultWriterTest {
+
+  private static PartitionBuffer createBuffer(PartitionedResultWriter writer, String data)
+      throws Exception {
+    PartitionBuffer buffer = writer.newBuffer();
+    buffer.getOutput().write(data.getBytes(StandardCharsets.UTF_8));
+    return buffer;
+  }
+
+  @Test
+  public void testWritesBuffersInOrder() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    PartitionedResultWriter writer =
+        new PartitionedResultWriter(new DataOutputStream(output), 4, 4);
+
+    PartitionBuffer buffer = createBuffer(writer, "one");
+    assertFalse(writer.isFull(buffer));
+    writer.submit(buffer);
+    buffer = createBuffer(writer, "two");
+    writer.submit(buffer);
+    // Empty buffers are not written.
+    writer.submit(writer.newBuffer());
+    buffer = createBuffer(writer, "three");
+    assertTrue(writer.isFull(buffer));
+    writer.submit(buffer);
+    writer.writeUntilDone(Futures.immediateFuture(null));
+
+    assertArrayEquals("onetwothree".getBytes(StandardCharsets.UTF_8), output.toByteArray());
+  }
+
+  @Test
+  public void testReusesBuffers() throws Exception {
+    PartitionedResultWriter writer =
+        new PartitionedResultWriter(new DataOutputStream(new ByteArrayOutputStream()), 4, 4);
+
+    PartitionBuffer buffer = createBuffer(writer, "one");
+    writer.submit(buffer);
+    writer.writeUntilDone(Futures.immediateFuture(null));
+
+    PartitionBuffer reused = writer.newBuffer();
+    assertSame(buffer, reused);
+    assertEquals(0, reused.size());
+
+    // Buffers that have grown far beyond the buffer size are not reused.
+    PartitionBuffer large = createBuffer(writer, "a large buffer");
+    writer.submit(large);
+    writer.writeUntilDone(Futures.immediateFuture(null));
+    PartitionBuffer next = writer.newBuffer();
+    assertNotSame(large, next);
+  }
+
+  @Test
+  public void testSubmitBlocksUntilBuffersAreWritten() throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    PartitionedResultWriter writer =
+        new PartitionedResultWriter(new DataOutputStream(output), 1, 1);
+    SettableFuture<Void> done = SettableFuture.create();
+    CountDownLatch submittedLatch = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> partition =
+          executor.submit(
+              () -> {
+                for (int i = 0; i < 10; i++) {
+                  writer.submit(createBuffer(writer, String.valueOf(i)));
+                  submittedLatch.countDown();
+                }
+                done.set(null);
+                return null;
+              });
+      // The partition can only submit one buffer before it is blocked.
+      assertTrue(submittedLatch.await(5L, TimeUnit.SECONDS));
+      Thread.sleep(20L);
+      assertFalse(partition.isDone());
+
+      writer.writeUntilDone(done);
+      partition.get();
+      assertArrayEquals("0123456789".getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSubmitInterrupted() throws Exception {
+    PartitionedResultWriter writer =
+        new PartitionedResultWriter(new DataOutputStream(new ByteArrayOutputStream()), 1, 1);
+    writer.submit(createBuffer(writer, "one"));
+
+    Thread.currentThread().interrupt();
+    PGException exception =
+        assertThrows(PGException.class, () -> writer.submit(createBuffer(writer, "two")));
+    assertEquals(SQLState.QueryCanceled, exception.getSQLState());
+  }
+}
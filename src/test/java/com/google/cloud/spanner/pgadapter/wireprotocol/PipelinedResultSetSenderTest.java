@@ -0,0 +1,278 @@
+// Copyright 2024 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.cloud.spanner.pgadapter.wireprotocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler;
+import com.google.cloud.spanner.pgadapter.ConnectionHandler.QueryMode;
+import com.google.cloud.spanner.pgadapter.error.PGException;
+import com.google.cloud.spanner.pgadapter.error.SQLState;
+import com.google.cloud.spanner.pgadapter.metadata.OptionsMetadata;
+import com.google.cloud.spanner.pgadapter.session.SessionState;
+import com.google.cloud.spanner.pgadapter.statements.BackendConnection;
+import com.google.cloud.spanner.pgadapter.statements.ExtendedQueryProtocolHandler;
+import com.google.cloud.spanner.pgadapter.statements.IntermediateStatement;
+import com.google.cloud.spanner.pgadapter.utils.Converter;
+import com.google.cloud.spanner.pgadapter.wireoutput.DataRowResponse;
+import com.google.common.base.Strings;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PipelinedResultSetSenderTest {
+  private static final Type ROW_TYPE =
+      Type.struct(
+          StructField.of("id", Type.int64()),
+          StructField.of("name", Type.string()),
+          StructField.of("value", Type.float64()),
+          StructField.of("ts", Type.timestamp()),
+          StructField.of("tags", Type.array(Type.string())));
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void createExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void shutdownExecutor() {
+    executor.shutdown();
+  }
+
+  private static List<Struct> createRows(int count) {
+    List<Struct> rows = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rows.add(
+          Struct.newBuilder()
+              .set("id")
+              .to(i)
+              .set("name")
+              .to(i % 7 == 0 ? null : "name-" + i)
+              .set("value")
+              .to(i * 1.5d)
+              .set("ts")
+              .to(Timestamp.ofTimeSecondsAndNanos(1_700_000_000L + i, i))
+              .set("tags")
+              .toStringArray(Arrays.asList("a" + i, null, "b"))
+              .build());
+    }
+    return rows;
+  }
+
+  private static IntermediateStatement createStatement() {
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    return createStatement(new SessionState(options));
+  }
+
+  private static IntermediateStatement createStatement(SessionState sessionState) {
+    BackendConnection backendConnection = mock(BackendConnection.class);
+    when(backendConnection.getSessionState()).thenReturn(sessionState);
+    ExtendedQueryProtocolHandler handler = mock(ExtendedQueryProtocolHandler.class);
+    when(handler.getBackendConnection()).thenReturn(backendConnection);
+    ConnectionHandler connectionHandler = mock(ConnectionHandler.class);
+    when(connectionHandler.getExtendedQueryProtocolHandler()).thenReturn(handler);
+    IntermediateStatement statement = mock(IntermediateStatement.class);
+    when(statement.getConnectionHandler()).thenReturn(connectionHandler);
+    return statement;
+  }
+
+  /** Encodes the rows one-by-one in the same way as the non-pipelined code path. */
+  private static byte[] encodeSequentially(
+      IntermediateStatement statement, OptionsMetadata options, List<Struct> rows, long maxRows)
+      throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, rows);
+        Converter converter =
+            new Converter(statement, QueryMode.SIMPLE, options, resultSet, false)) {
+      long count = 0L;
+      while (resultSet.next()) {
+        new DataRowResponse(output, converter).send(false);
+        if (++count == maxRows) {
+          break;
+        }
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testSendsRowsInOrder() throws Exception {
+    IntermediateStatement statement = createStatement();
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    for (int numRows : new int[] {1, 2, 3, 7, 100, 1001}) {
+      List<Struct> rows = createRows(numRows);
+      for (int batchSize : new int[] {1, 3, 128}) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PipelinedResultSetSender sender =
+            new PipelinedResultSetSender(
+                statement,
+                QueryMode.SIMPLE,
+                options,
+                executor,
+                new DataOutputStream(bytes),
+                batchSize,
+                2);
+        try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, rows)) {
+          assertTrue(resultSet.next());
+          assertEquals(numRows, sender.send(resultSet, true, 0L));
+        }
+        assertFalse(sender.hasData());
+        assertArrayEquals(encodeSequentially(statement, options, rows, 0L), bytes.toByteArray());
+      }
+    }
+  }
+
+  @Test
+  public void testLargeValuesAreNotCopiedIntoBatches() throws Exception {
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    SessionState sessionState = new SessionState(options);
+    // Strings that are longer than the conversion buffer are written directly to the client.
+    sessionState.set("spanner", "string_conversion_buffer_size", "16");
+    IntermediateStatement statement = createStatement(sessionState);
+    List<Struct> rows = new ArrayList<>();
+    for (Struct row : createRows(20)) {
+      String name = row.isNull("name") ? null : Strings.repeat(row.getString("name"), 1000);
+      rows.add(
+          Struct.newBuilder()
+              .set("id")
+              .to(row.getLong("id"))
+              .set("name")
+              .to(name)
+              .set("value")
+              .to(row.getDouble("value"))
+              .set("ts")
+              .to(row.getTimestamp("ts"))
+              .set("tags")
+              .toStringArray(row.getStringList("tags"))
+              .build());
+    }
+    AtomicInteger maxBatchSize = new AtomicInteger();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PipelinedResultSetSender sender =
+        new PipelinedResultSetSender(
+            statement,
+            QueryMode.SIMPLE,
+            options,
+            executor,
+            new DataOutputStream(bytes) {
+              @Override
+              public void write(byte[] b, int off, int len) throws IOException {
+                // Batches are written as one block, while large values are written in chunks of at
+                // most the conversion buffer size.
+                maxBatchSize.accumulateAndGet(len, Math::max);
+                super.write(b, off, len);
+              }
+            },
+            4,
+            2);
+    try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, rows)) {
+      assertTrue(resultSet.next());
+      assertEquals(rows.size(), sender.send(resultSet, true, 0L));
+    }
+    assertArrayEquals(encodeSequentially(statement, options, rows, 0L), bytes.toByteArray());
+    // Each batch of 4 rows would be more than 20,000 bytes if the names were copied into it.
+    assertTrue(String.valueOf(maxBatchSize.get()), maxBatchSize.get() < 4_000);
+  }
+
+  @Test
+  public void testMaxRows() throws Exception {
+    IntermediateStatement statement = createStatement();
+    OptionsMetadata options = OptionsMetadata.newBuilder().setProject("p").setInstance("i").build();
+    List<Struct> rows = createRows(50);
+    for (long maxRows : new long[] {1L, 3L, 10L, 49L, 50L}) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      PipelinedResultSetSender sender =
+          new PipelinedResultSetSender(
+              statement, QueryMode.SIMPLE, options, executor, new DataOutputStream(bytes), 4, 2);
+      try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, rows)) {
+        assertTrue(resultSet.next());
+        assertEquals(maxRows, sender.send(resultSet, true, maxRows));
+        // The result set should be positioned at the first row that was not sent.
+        assertEquals(maxRows < 50L, sender.hasData());
+        if (sender.hasData()) {
+          assertEquals(maxRows, resultSet.getLong("id"));
+        }
+      }
+      assertArrayEquals(encodeSequentially(statement, options, rows, maxRows), bytes.toByteArray());
+    }
+  }
+
+  @Test
+  public void testNoData() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PipelinedResultSetSender sender =
+        new PipelinedResultSetSender(
+            createStatement(),
+            QueryMode.SIMPLE,
+            OptionsMetadata.newBuilder().setProject("p").setInstance("i").build(),
+            executor,
+            new DataOutputStream(bytes));
+    try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, createRows(0))) {
+      assertEquals(0L, sender.send(resultSet, false, 0L));
+    }
+    assertEquals(0, bytes.size());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PipelinedResultSetSender sender =
+        new PipelinedResultSetSender(
+            createStatement(),
+            QueryMode.SIMPLE,
+            OptionsMetadata.newBuilder().setProject("p").setInstance("i").build(),
+            executor,
+            new DataOutputStream(bytes),
+            1,
+            2);
+    try (ResultSet resultSet = ResultSets.forRows(ROW_TYPE, createRows(10))) {
+      assertTrue(resultSet.next());
+      Thread.currentThread().interrupt();
+      PGException exception =
+          assertThrows(PGException.class, () -> sender.send(resultSet, true, 0L));
+      assertEquals(SQLState.QueryCanceled, exception.getSQLState());
+    } finally {
+      // Make sure the interrupted flag is cleared.
+      Thread.interrupted();
+    }
+  }
+}